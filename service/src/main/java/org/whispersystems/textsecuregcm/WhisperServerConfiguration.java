@@ -14,6 +14,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import org.whispersystems.textsecuregcm.attachments.TusConfiguration;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ApnConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AppleAppStoreConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AppleDeviceCheckConfiguration;
@@ -48,6 +49,7 @@ import org.whispersystems.textsecuregcm.configuration.OneTimeDonationConfigurati
 import org.whispersystems.textsecuregcm.configuration.OpenTelemetryConfiguration;
 import org.whispersystems.textsecuregcm.configuration.PagedSingleUseKEMPreKeyStoreConfiguration;
 import org.whispersystems.textsecuregcm.configuration.PaymentsServiceConfiguration;
+import org.whispersystems.textsecuregcm.configuration.ProfileLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.RegistrationServiceClientFactory;
 import org.whispersystems.textsecuregcm.configuration.RemoteConfigConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ReportMessageConfiguration;
@@ -61,6 +63,7 @@ import org.whispersystems.textsecuregcm.configuration.SubscriptionConfiguration;
 import org.whispersystems.textsecuregcm.configuration.TlsKeyStoreConfiguration;
 import org.whispersystems.textsecuregcm.configuration.TurnConfiguration;
 import org.whispersystems.textsecuregcm.configuration.UnidentifiedDeliveryConfiguration;
+import org.whispersystems.textsecuregcm.configuration.VerifiedCredentialCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.VirtualThreadConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ZkConfig;
 import org.whispersystems.textsecuregcm.limits.RateLimiterConfig;
@@ -340,6 +343,21 @@ public class WhisperServerConfiguration extends Configuration {
   private IdlePrimaryDeviceReminderConfiguration idlePrimaryDeviceReminder =
       new IdlePrimaryDeviceReminderConfiguration(Duration.ofDays(30));
 
+  @Valid
+  @JsonProperty
+  private AccountLocalCacheConfiguration accountLocalCache =
+      new AccountLocalCacheConfiguration(false, 100_000, Duration.ofSeconds(15));
+
+  @Valid
+  @JsonProperty
+  private ProfileLocalCacheConfiguration profileLocalCache =
+      new ProfileLocalCacheConfiguration(false, 100_000, Duration.ofSeconds(5));
+
+  @Valid
+  @JsonProperty
+  private VerifiedCredentialCacheConfiguration verifiedCredentialCache =
+      new VerifiedCredentialCacheConfiguration(false, 250_000, Duration.ofMinutes(5));
+
   public TlsKeyStoreConfiguration getTlsKeyStoreConfiguration() {
     return tlsKeyStore;
   }
@@ -562,4 +580,16 @@ public class WhisperServerConfiguration extends Configuration {
   public IdlePrimaryDeviceReminderConfiguration idlePrimaryDeviceReminderConfiguration() {
     return idlePrimaryDeviceReminder;
   }
+
+  public AccountLocalCacheConfiguration getAccountLocalCacheConfiguration() {
+    return accountLocalCache;
+  }
+
+  public ProfileLocalCacheConfiguration getProfileLocalCacheConfiguration() {
+    return profileLocalCache;
+  }
+
+  public VerifiedCredentialCacheConfiguration getVerifiedCredentialCacheConfiguration() {
+    return verifiedCredentialCache;
+  }
 }
@@ -20,6 +20,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.UUID;
 import org.apache.commons.lang3.StringUtils;
+import org.whispersystems.textsecuregcm.configuration.VerifiedCredentialCacheConfiguration;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
@@ -45,15 +46,26 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
   static final char DEVICE_ID_SEPARATOR = '.';
 
   private final AccountsManager accountsManager;
+  private final VerifiedCredentialCache verifiedCredentialCache;
   private final Clock clock;
 
   public AccountAuthenticator(AccountsManager accountsManager) {
-    this(accountsManager, Clock.systemUTC());
+    this(accountsManager, new VerifiedCredentialCache(new VerifiedCredentialCacheConfiguration(false, 1, null)));
+  }
+
+  public AccountAuthenticator(AccountsManager accountsManager, VerifiedCredentialCache verifiedCredentialCache) {
+    this(accountsManager, verifiedCredentialCache, Clock.systemUTC());
   }
 
   @VisibleForTesting
   public AccountAuthenticator(AccountsManager accountsManager, Clock clock) {
+    this(accountsManager, new VerifiedCredentialCache(new VerifiedCredentialCacheConfiguration(false, 1, null)), clock);
+  }
+
+  @VisibleForTesting
+  AccountAuthenticator(AccountsManager accountsManager, VerifiedCredentialCache verifiedCredentialCache, Clock clock) {
     this.accountsManager = accountsManager;
+    this.verifiedCredentialCache = verifiedCredentialCache;
     this.clock = clock;
   }
 
@@ -104,7 +116,7 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
       }
 
       SaltedTokenHash deviceSaltedTokenHash = device.get().getAuthTokenHash();
-      if (deviceSaltedTokenHash.verify(basicCredentials.getPassword())) {
+      if (verifiedCredentialCache.verify(accountUuid, deviceId, deviceSaltedTokenHash, basicCredentials.getPassword())) {
         succeeded = true;
         Account authenticatedAccount = updateLastSeen(account.get(), device.get());
         if (deviceSaltedTokenHash.getVersion() != SaltedTokenHash.CURRENT_VERSION) {
@@ -113,6 +125,8 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
               authenticatedAccount,
               device.get(),
               SaltedTokenHash.generateFor(basicCredentials.getPassword()));  // new credentials have current version
+
+          verifiedCredentialCache.invalidate(accountUuid, deviceId);
         }
         return Optional.of(new AuthenticatedDevice(authenticatedAccount.getIdentifier(IdentityType.ACI),
             device.get().getId(),
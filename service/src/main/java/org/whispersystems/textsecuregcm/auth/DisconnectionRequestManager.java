@@ -8,69 +8,168 @@ package org.whispersystems.textsecuregcm.auth;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.lifecycle.Managed;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
+import io.lettuce.core.cluster.pubsub.RedisClusterPubSubListener;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.grpc.AuthenticatedDevice;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.grpc.net.GrpcClientConnectionManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.util.BackoffUtil;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
 
 /**
  * A disconnection request manager broadcasts and dispatches requests for servers to close authenticated connections
  * from specific clients.
+ * <p>
+ * Requests may be published either to a single global channel, in which case every server receives every request, or
+ * to per-account sharded channels on a Redis cluster, in which case only servers that hold connections for the
+ * affected account receive the request. Servers always subscribe to both so that publishers can move from one mode to
+ * the other via dynamic configuration without dropping requests. Because sharded requests only reach servers that are
+ * actually subscribed to an account's channel, failed sharded subscriptions are retried for as long as the account
+ * still has local listeners or connections.
+ * <p>
+ * Sharded subscriptions are established asynchronously, and a request published before an account's subscription is
+ * active will not reach this server. Callers that register listeners or connections must therefore either wait for
+ * the subscription to become active before trusting a connection or re-check the connection's credentials once it
+ * does.
  *
  * @see DisconnectionRequestListener
  */
-public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte[]> implements Managed {
+public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte[]> implements Managed,
+    GrpcClientConnectionManager.AuthenticatedConnectionListener {
 
   private final FaultTolerantRedisClient pubSubClient;
+  private final FaultTolerantRedisClusterClient clusterClient;
   private final GrpcClientConnectionManager grpcClientConnectionManager;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
   private final Executor listenerEventExecutor;
 
+  // Note that this MUST be a single-threaded executor so that subscription changes are issued in the order in which
+  // they were requested
+  private final Executor asyncOperationQueueingExecutor;
+
   private final Map<AccountIdentifierAndDeviceId, List<DisconnectionRequestListener>> listeners =
       new ConcurrentHashMap<>();
 
+  // Tracks the local WebSocket listeners and gRPC connections that depend on each account's sharded subscription
+  private final Map<UUID, ShardedSubscription> shardedSubscriptions;
+
+  private final RedisClusterPubSubListener<byte[], byte[]> shardedPubSubListener = new RedisClusterPubSubAdapter<>() {
+    @Override
+    public void smessage(final RedisClusterNode node, final byte[] shardChannel, final byte[] message) {
+      handleShardedMessage(shardChannel, message);
+    }
+  };
+
   @Nullable
   private FaultTolerantPubSubConnection<byte[], byte[]> pubSubConnection;
 
+  @Nullable
+  private volatile FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection;
+
   private static final byte[] DISCONNECTION_REQUEST_CHANNEL = "disconnection_requests".getBytes(StandardCharsets.UTF_8);
 
-  private static final Counter DISCONNECTION_REQUESTS_SENT_COUNTER =
-      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "requestsSent"));
+  private static final String SHARDED_CHANNEL_PREFIX = "disconnection_requests::{";
+
+  private static final String DISCONNECTION_REQUESTS_SENT_COUNTER_NAME =
+      MetricsUtil.name(DisconnectionRequestManager.class, "requestsSent");
+
+  private static final String DISCONNECTION_REQUESTS_RECEIVED_COUNTER_NAME =
+      MetricsUtil.name(DisconnectionRequestManager.class, "requestsReceived");
+
+  private static final Counter SHARDED_REQUEST_WITHOUT_LISTENER_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedRequestWithoutListener"));
+
+  private static final Counter SUBSCRIPTION_ERROR_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptionError"));
+
+  private static final Counter SUBSCRIPTION_RETRY_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptionRetry"));
+
+  private static final Counter SUBSCRIPTION_WAIT_TIMEOUT_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptionWaitTimeout"));
+
+  private static final Duration SUBSCRIPTION_RETRY_BASE_BACKOFF = Duration.ofMillis(100);
+  private static final Duration SUBSCRIPTION_RETRY_MAX_BACKOFF = Duration.ofSeconds(10);
 
-  private static final Counter DISCONNECTION_REQUESTS_RECEIVED_COUNTER =
-      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "requestsReceived"));
+  // How long new gRPC connections wait for their account's sharded subscription before proceeding without it
+  private static final Duration CONNECTION_SUBSCRIPTION_TIMEOUT = Duration.ofSeconds(5);
+
+  private static final String SHARDED_SUBSCRIPTIONS_GAUGE_NAME =
+      MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptions");
+
+  private static final String SHARDED_TAG_NAME = "sharded";
 
   private static final Logger logger = LoggerFactory.getLogger(DisconnectionRequestManager.class);
 
   private record AccountIdentifierAndDeviceId(UUID accountIdentifier, byte deviceId) {}
 
+  /**
+   * @param referenceCount the number of local listeners and connections that depend on the subscription
+   * @param subscribedFuture a future that completes once the subscription is active
+   */
+  private record ShardedSubscription(int referenceCount, CompletableFuture<Void> subscribedFuture) {
+
+    ShardedSubscription withReferenceCount(final int referenceCount) {
+      return new ShardedSubscription(referenceCount, subscribedFuture);
+    }
+  }
+
   public DisconnectionRequestManager(final FaultTolerantRedisClient pubSubClient,
+      final FaultTolerantRedisClusterClient clusterClient,
       final GrpcClientConnectionManager grpcClientConnectionManager,
-      final Executor listenerEventExecutor) {
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
+      final Executor listenerEventExecutor,
+      final Executor asyncOperationQueueingExecutor) {
 
     this.pubSubClient = pubSubClient;
+    this.clusterClient = clusterClient;
     this.grpcClientConnectionManager = grpcClientConnectionManager;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
     this.listenerEventExecutor = listenerEventExecutor;
+    this.asyncOperationQueueingExecutor = asyncOperationQueueingExecutor;
+
+    this.shardedSubscriptions =
+        Metrics.gaugeMapSize(SHARDED_SUBSCRIPTIONS_GAUGE_NAME, Tags.empty(), new ConcurrentHashMap<>());
+
+    grpcClientConnectionManager.addAuthenticatedConnectionListener(this);
   }
 
   @Override
@@ -80,6 +179,22 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
       connection.addListener(this);
       connection.sync().subscribe(DISCONNECTION_REQUEST_CHANNEL);
     });
+
+    final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection =
+        clusterClient.createBinaryPubSubConnection();
+
+    shardedPubSubConnection.usePubSubConnection(connection -> connection.addListener(shardedPubSubListener));
+    shardedPubSubConnection.subscribeToClusterTopologyChangedEvents(this::resubscribe);
+
+    this.shardedPubSubConnection = shardedPubSubConnection;
+
+    // Listeners and connections may have been registered before we had a connection with which to subscribe; checking
+    // inside `compute` keeps these subscriptions ordered with respect to any concurrent releases
+    shardedSubscriptions.keySet().forEach(accountIdentifier ->
+        shardedSubscriptions.computeIfPresent(accountIdentifier, (_, shardedSubscription) -> {
+          subscribe(accountIdentifier, shardedSubscription.subscribedFuture(), 0);
+          return shardedSubscription;
+        }));
   }
 
   @Override
@@ -92,6 +207,17 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
     }
 
     pubSubConnection = null;
+
+    final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection = this.shardedPubSubConnection;
+
+    if (shardedPubSubConnection != null) {
+      shardedPubSubConnection.usePubSubConnection(connection -> {
+        connection.removeListener(shardedPubSubListener);
+        connection.close();
+      });
+    }
+
+    this.shardedPubSubConnection = null;
   }
 
   /**
@@ -100,8 +226,15 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
    * @param accountIdentifier TODO
    * @param deviceId TODO
    * @param listener the listener to register
+   *
+   * @return a future that completes once this server is subscribed to sharded disconnection requests for the given
+   * account; requests published before then may not reach the listener, so callers should re-check the device's
+   * credentials when the future completes
    */
-  public void addListener(final UUID accountIdentifier, final byte deviceId, final DisconnectionRequestListener listener) {
+  public CompletableFuture<Void> addListener(final UUID accountIdentifier,
+      final byte deviceId,
+      final DisconnectionRequestListener listener) {
+
     listeners.compute(new AccountIdentifierAndDeviceId(accountIdentifier, deviceId), (_, existingListeners) -> {
       final List<DisconnectionRequestListener> listeners =
           existingListeners == null ? new ArrayList<>() : existingListeners;
@@ -110,6 +243,8 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
 
       return listeners;
     });
+
+    return retainShardedSubscription(accountIdentifier);
   }
 
   /**
@@ -120,11 +255,155 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
    * @param listener the listener to remove
    */
   public void removeListener(final UUID accountIdentifier, final byte deviceId, final DisconnectionRequestListener listener) {
+    final AtomicBoolean removed = new AtomicBoolean(false);
+
     listeners.computeIfPresent(new AccountIdentifierAndDeviceId(accountIdentifier, deviceId), (_, existingListeners) -> {
-      existingListeners.remove(listener);
+      removed.set(existingListeners.remove(listener));
 
       return existingListeners.isEmpty() ? null : existingListeners;
     });
+
+    if (removed.get()) {
+      releaseShardedSubscription(accountIdentifier);
+    }
+  }
+
+  @Override
+  public CompletionStage<Void> handleAuthenticatedConnectionEstablished(final AuthenticatedDevice authenticatedDevice) {
+    // Hold the connection until its subscription is active so it can't be used in the window in which disconnection
+    // requests would be lost. If the subscription's shard is unreachable, publishers won't be able to reach it either,
+    // so we eventually let the connection proceed rather than refusing all connections during an outage.
+    return retainShardedSubscription(authenticatedDevice.accountIdentifier())
+        .copy()
+        .orTimeout(CONNECTION_SUBSCRIPTION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+        .exceptionally(throwable -> {
+          if (ExceptionUtils.unwrap(throwable) instanceof TimeoutException) {
+            SUBSCRIPTION_WAIT_TIMEOUT_COUNTER.increment();
+          }
+
+          return null;
+        });
+  }
+
+  @Override
+  public void handleAuthenticatedConnectionClosed(final AuthenticatedDevice authenticatedDevice) {
+    releaseShardedSubscription(authenticatedDevice.accountIdentifier());
+  }
+
+  @VisibleForTesting
+  boolean hasShardedSubscription(final UUID accountIdentifier) {
+    return shardedSubscriptions.containsKey(accountIdentifier);
+  }
+
+  private CompletableFuture<Void> retainShardedSubscription(final UUID accountIdentifier) {
+    // As in RedisMessageAvailabilityManager, we rely on `ConcurrentHashMap#compute(...)` being atomic to enqueue
+    // subscription changes in the same order as changes to the reference counts
+    return shardedSubscriptions.compute(accountIdentifier, (_, existingSubscription) -> {
+      if (existingSubscription == null) {
+        final CompletableFuture<Void> subscribedFuture = new CompletableFuture<>();
+        subscribe(accountIdentifier, subscribedFuture, 0);
+
+        return new ShardedSubscription(1, subscribedFuture);
+      }
+
+      return existingSubscription.withReferenceCount(existingSubscription.referenceCount() + 1);
+    }).subscribedFuture();
+  }
+
+  private void releaseShardedSubscription(final UUID accountIdentifier) {
+    shardedSubscriptions.computeIfPresent(accountIdentifier, (_, existingSubscription) -> {
+      if (existingSubscription.referenceCount() <= 1) {
+        // Nothing is waiting on a subscription that's no longer needed
+        existingSubscription.subscribedFuture().cancel(false);
+        unsubscribe(accountIdentifier);
+
+        return null;
+      }
+
+      return existingSubscription.withReferenceCount(existingSubscription.referenceCount() - 1);
+    });
+  }
+
+  private void subscribe(final UUID accountIdentifier,
+      final CompletableFuture<Void> subscribedFuture,
+      final int attempt) {
+
+    final byte[] shardChannel = getShardedChannel(accountIdentifier);
+
+    // Enqueue, but do not block on, the subscription change
+    asyncOperationQueueingExecutor.execute(() -> {
+      final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection = this.shardedPubSubConnection;
+
+      // If we haven't started yet, `start()` will subscribe to everything we need
+      if (shardedPubSubConnection != null) {
+        shardedPubSubConnection.usePubSubConnection(connection -> connection.async().ssubscribe(shardChannel)
+            .whenComplete((_, throwable) -> {
+              if (throwable != null) {
+                SUBSCRIPTION_ERROR_COUNTER.increment();
+
+                // A missing subscription means we'd miss disconnection requests entirely
+                retryShardedSubscription(accountIdentifier, attempt + 1);
+              } else {
+                subscribedFuture.complete(null);
+              }
+            }));
+      }
+    });
+  }
+
+  private void unsubscribe(final UUID accountIdentifier) {
+    final byte[] shardChannel = getShardedChannel(accountIdentifier);
+
+    asyncOperationQueueingExecutor.execute(() -> {
+      final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection = this.shardedPubSubConnection;
+
+      if (shardedPubSubConnection != null) {
+        // A stale subscription just costs us some unwanted messages, so we don't retry failed unsubscriptions
+        shardedPubSubConnection.usePubSubConnection(connection -> connection.async().sunsubscribe(shardChannel)
+            .whenComplete((_, throwable) -> {
+              if (throwable != null) {
+                SUBSCRIPTION_ERROR_COUNTER.increment();
+              }
+            }));
+      }
+    });
+  }
+
+  private void retryShardedSubscription(final UUID accountIdentifier, final int attempt) {
+    BackoffUtil.delayedExecutor(SUBSCRIPTION_RETRY_BASE_BACKOFF, SUBSCRIPTION_RETRY_MAX_BACKOFF, attempt - 1)
+        .execute(() ->
+            // Only retry if something still needs the subscription; as in `retainShardedSubscription`, enqueuing the
+            // change inside `compute` keeps it ordered with respect to any concurrent release
+            shardedSubscriptions.computeIfPresent(accountIdentifier, (_, shardedSubscription) -> {
+              SUBSCRIPTION_RETRY_COUNTER.increment();
+              subscribe(accountIdentifier, shardedSubscription.subscribedFuture(), attempt);
+              return shardedSubscription;
+            }));
+  }
+
+  @VisibleForTesting
+  void resubscribe(final ClusterTopologyChangedEvent clusterTopologyChangedEvent) {
+    final boolean[] changedSlots = RedisClusterUtil.getChangedSlots(clusterTopologyChangedEvent);
+
+    final Map<Integer, List<byte[]>> shardChannelsBySlot = new HashMap<>();
+
+    // Organize subscriptions by slot so we can issue a smaller number of larger resubscription commands
+    shardedSubscriptions.keySet().stream()
+        .map(DisconnectionRequestManager::getShardedChannel)
+        .forEach(shardChannel -> {
+          final int slot = SlotHash.getSlot(shardChannel);
+
+          if (changedSlots[slot]) {
+            shardChannelsBySlot.computeIfAbsent(slot, _ -> new ArrayList<>()).add(shardChannel);
+          }
+        });
+
+    final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection = this.shardedPubSubConnection;
+
+    if (shardedPubSubConnection != null) {
+      shardChannelsBySlot.forEach((_, shardChannels) -> shardedPubSubConnection.usePubSubConnection(connection ->
+          connection.sync().ssubscribe(shardChannels.toArray(byte[][]::new))));
+    }
   }
 
   @VisibleForTesting
@@ -159,20 +438,60 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
         .addAllDeviceIds(deviceIds.stream().mapToInt(Byte::intValue).boxed().toList())
         .build();
 
-    return pubSubClient.withBinaryConnection(connection ->
-            connection.async().publish(DISCONNECTION_REQUEST_CHANNEL, disconnectionRequest.toByteArray()))
+    final boolean publishSharded =
+        dynamicConfigurationManager.getConfiguration().getDisconnectionRequestConfiguration().publishSharded();
+
+    final CompletionStage<Long> publishFuture = publishSharded
+        ? clusterClient.withBinaryCluster(connection ->
+            connection.async().spublish(getShardedChannel(accountIdentifier), disconnectionRequest.toByteArray()))
+        : pubSubClient.withBinaryConnection(connection ->
+            connection.async().publish(DISCONNECTION_REQUEST_CHANNEL, disconnectionRequest.toByteArray()));
+
+    return publishFuture
         .toCompletableFuture()
-        .thenRun(DISCONNECTION_REQUESTS_SENT_COUNTER::increment);
+        .thenRun(() -> Metrics.counter(DISCONNECTION_REQUESTS_SENT_COUNTER_NAME,
+            SHARDED_TAG_NAME, String.valueOf(publishSharded)).increment());
   }
 
   @Override
   public void message(final byte[] channel, final byte[] message) {
+    if (!Arrays.equals(DISCONNECTION_REQUEST_CHANNEL, channel)) {
+      return;
+    }
+
+    handleDisconnectionRequest(message, false);
+  }
+
+  private void handleShardedMessage(final byte[] shardChannel, final byte[] message) {
+    final String shardChannelString = new String(shardChannel, StandardCharsets.UTF_8);
+
+    if (!shardChannelString.startsWith(SHARDED_CHANNEL_PREFIX)) {
+      return;
+    }
+
+    try {
+      final UUID accountIdentifier = UUID.fromString(shardChannelString.substring(SHARDED_CHANNEL_PREFIX.length(),
+          shardChannelString.length() - 1));
+
+      if (!shardedSubscriptions.containsKey(accountIdentifier)) {
+        // We may still receive requests for a short time after unsubscribing
+        SHARDED_REQUEST_WITHOUT_LISTENER_COUNTER.increment();
+      }
+    } catch (final IllegalArgumentException e) {
+      logger.warn("Could not parse sharded disconnection request channel: {}", shardChannelString);
+    }
+
+    handleDisconnectionRequest(message, true);
+  }
+
+  private void handleDisconnectionRequest(final byte[] message, final boolean sharded) {
     final UUID accountIdentifier;
     final List<Byte> deviceIds;
 
     try {
       final DisconnectionRequest disconnectionRequest = DisconnectionRequest.parseFrom(message);
-      DISCONNECTION_REQUESTS_RECEIVED_COUNTER.increment();
+      Metrics.counter(DISCONNECTION_REQUESTS_RECEIVED_COUNTER_NAME, SHARDED_TAG_NAME, String.valueOf(sharded))
+          .increment();
 
       accountIdentifier = UUIDUtil.fromByteString(disconnectionRequest.getAccountIdentifier());
       deviceIds = disconnectionRequest.getDeviceIdsList().stream()
@@ -205,4 +524,9 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
           }));
     });
   }
+
+  @VisibleForTesting
+  static byte[] getShardedChannel(final UUID accountIdentifier) {
+    return (SHARDED_CHANNEL_PREFIX + accountIdentifier + "}").getBytes(StandardCharsets.UTF_8);
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import org.whispersystems.textsecuregcm.configuration.VerifiedCredentialCacheConfiguration;
+import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+
+/**
+ * A verified credential cache remembers credentials that have recently been checked against a device's stored
+ * {@link SaltedTokenHash} so that clients presenting the same password over and over again don't pay for a full key
+ * derivation on every request.
+ * <p>
+ * Cached entries are bound to the stored token hash against which they were verified. Any change to a device's
+ * credentials (or the removal of a device and reuse of its ID) produces a new stored hash, which implicitly invalidates
+ * cached entries on every server without any coordination. Only a salted digest of verified tokens is retained; tokens
+ * themselves are never stored.
+ */
+public class VerifiedCredentialCache {
+
+  private final boolean enabled;
+
+  private final Cache<AccountIdentifierAndDeviceId, VerifiedCredential> verifiedCredentials;
+
+  private static final Counter HIT_COUNTER = Metrics.counter(MetricsUtil.name(VerifiedCredentialCache.class, "hit"));
+  private static final Counter MISS_COUNTER = Metrics.counter(MetricsUtil.name(VerifiedCredentialCache.class, "miss"));
+
+  private record AccountIdentifierAndDeviceId(UUID accountIdentifier, byte deviceId) {
+  }
+
+  private record VerifiedCredential(String storedHash, byte[] tokenDigest) {
+  }
+
+  public VerifiedCredentialCache(final VerifiedCredentialCacheConfiguration configuration) {
+    this.enabled = configuration.enabled();
+
+    this.verifiedCredentials = CacheBuilder.newBuilder()
+        .maximumSize(configuration.maxSize())
+        .expireAfterWrite(configuration.ttl())
+        .build();
+  }
+
+  /**
+   * Checks whether the given token matches the given device's stored token hash, consulting and updating the cache of
+   * recently-verified credentials.
+   *
+   * @param accountIdentifier the identifier of the account to which the device belongs
+   * @param deviceId the identifier of the device
+   * @param saltedTokenHash the device's stored token hash
+   * @param token the token presented by the client
+   *
+   * @return {@code true} if the token matches the stored token hash or {@code false} otherwise
+   */
+  public boolean verify(final UUID accountIdentifier,
+      final byte deviceId,
+      final SaltedTokenHash saltedTokenHash,
+      final String token) {
+
+    if (!enabled) {
+      return saltedTokenHash.verify(token);
+    }
+
+    final AccountIdentifierAndDeviceId key = new AccountIdentifierAndDeviceId(accountIdentifier, deviceId);
+    final byte[] tokenDigest = getTokenDigest(saltedTokenHash.salt(), token);
+    final VerifiedCredential verifiedCredential = verifiedCredentials.getIfPresent(key);
+
+    if (verifiedCredential != null
+        && verifiedCredential.storedHash().equals(saltedTokenHash.hash())
+        && MessageDigest.isEqual(verifiedCredential.tokenDigest(), tokenDigest)) {
+
+      HIT_COUNTER.increment();
+      return true;
+    }
+
+    MISS_COUNTER.increment();
+
+    final boolean verified = saltedTokenHash.verify(token);
+
+    if (verified) {
+      verifiedCredentials.put(key, new VerifiedCredential(saltedTokenHash.hash(), tokenDigest));
+    }
+
+    return verified;
+  }
+
+  /**
+   * Discards any cached credential for the given device on this server.
+   *
+   * @param accountIdentifier the identifier of the account to which the device belongs
+   * @param deviceId the identifier of the device
+   */
+  public void invalidate(final UUID accountIdentifier, final byte deviceId) {
+    verifiedCredentials.invalidate(new AccountIdentifierAndDeviceId(accountIdentifier, deviceId));
+  }
+
+  private static byte[] getTokenDigest(final String salt, final String token) {
+    try {
+      final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      messageDigest.update(salt.getBytes(StandardCharsets.UTF_8));
+      messageDigest.update((byte) 0);
+
+      return messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError("Every implementation of the Java platform is required to support the SHA-256 MessageDigest algorithm", e);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Configuration for the in-process account cache that sits in front of the Redis account cache.
+ *
+ * @param enabled whether accounts should be cached locally and invalidations should be broadcast to other servers
+ * @param maxSize the maximum number of accounts to hold in the local cache
+ * @param ttl the maximum amount of time an entry may remain in the local cache; this also bounds how long a server may
+ *            serve a stale account if it misses an invalidation message
+ */
+public record AccountLocalCacheConfiguration(boolean enabled, @Positive int maxSize, @NotNull Duration ttl) {
+
+  public AccountLocalCacheConfiguration {
+    if (maxSize == 0) {
+      maxSize = 100_000;
+    }
+
+    if (ttl == null) {
+      ttl = Duration.ofSeconds(15);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Configuration for batched delivery of FCM notifications.
+ *
+ * @param enabled whether notifications should be collected into batches instead of being sent individually
+ * @param window the maximum amount of time a notification may wait for other notifications to join its batch
+ * @param maxBatchSize the maximum number of notifications in a single batch; FCM accepts at most 500 messages per
+ *                     batch request
+ * @param maxConcurrentBatches the maximum number of batch requests that may be in flight at the same time
+ * @param maxQueuedBatches the maximum number of full batches that may wait for an in-flight batch to finish;
+ *                         notifications in batches beyond this limit fail immediately
+ */
+public record FcmBatchingConfiguration(boolean enabled,
+                                       @NotNull Duration window,
+                                       @Positive @Max(500) int maxBatchSize,
+                                       @Positive int maxConcurrentBatches,
+                                       @Positive int maxQueuedBatches) {
+
+  public FcmBatchingConfiguration {
+    if (window == null) {
+      window = Duration.ofMillis(50);
+    }
+
+    if (maxBatchSize == 0) {
+      maxBatchSize = 500;
+    }
+
+    if (maxConcurrentBatches == 0) {
+      maxConcurrentBatches = 16;
+    }
+
+    if (maxQueuedBatches == 0) {
+      maxQueuedBatches = 64;
+    }
+  }
+}
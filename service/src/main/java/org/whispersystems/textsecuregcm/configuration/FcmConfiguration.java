@@ -5,8 +5,15 @@
 
 package org.whispersystems.textsecuregcm.configuration;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.whispersystems.textsecuregcm.configuration.secrets.SecretString;
 
-public record FcmConfiguration(@NotNull SecretString credentials) {
+public record FcmConfiguration(@NotNull SecretString credentials, @NotNull @Valid FcmBatchingConfiguration batching) {
+
+  public FcmConfiguration {
+    if (batching == null) {
+      batching = new FcmBatchingConfiguration(false, null, 0, 0, 0);
+    }
+  }
 }
@@ -6,10 +6,18 @@
 package org.whispersystems.textsecuregcm.configuration;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
+/**
+ * @param bucket the name of the S3 bucket in which pages of pre-keys are stored
+ * @param region the AWS region of the S3 bucket
+ * @param readAheadKeys the number of keys beyond the one being taken to read from a page in the same ranged request
+ *                      and cache locally for subsequent takes; 0 disables read-ahead
+ */
 public record PagedSingleUseKEMPreKeyStoreConfiguration(
     @NotBlank String bucket,
-    @NotBlank String region) {
+    @NotBlank String region,
+    @Min(0) int readAheadKeys) {
 }
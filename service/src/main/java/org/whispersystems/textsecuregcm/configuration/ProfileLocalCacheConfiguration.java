@@ -0,0 +1,31 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Configuration for the in-process profile cache that sits in front of the Redis profile cache. Profile changes made
+ * by other servers are not broadcast, so the TTL bounds how long a server may serve a stale profile.
+ *
+ * @param enabled whether recently-retrieved profiles should be cached locally
+ * @param maxSize the maximum number of accounts for which to hold profiles in the local cache
+ * @param ttl the maximum amount of time an entry may remain in the local cache
+ */
+public record ProfileLocalCacheConfiguration(boolean enabled, @Positive int maxSize, @NotNull Duration ttl) {
+
+  public ProfileLocalCacheConfiguration {
+    if (maxSize == 0) {
+      maxSize = 100_000;
+    }
+
+    if (ttl == null) {
+      ttl = Duration.ofSeconds(5);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Configuration for the cache of recently-verified device credentials used by the account authenticator.
+ *
+ * @param enabled whether successfully-verified credentials should be cached
+ * @param maxSize the maximum number of devices for which to cache verified credentials
+ * @param ttl how long a verified credential may be trusted before it must be verified again
+ */
+public record VerifiedCredentialCacheConfiguration(boolean enabled, @Positive int maxSize, @NotNull Duration ttl) {
+
+  public VerifiedCredentialCacheConfiguration {
+    if (maxSize == 0) {
+      maxSize = 250_000;
+    }
+
+    if (ttl == null) {
+      ttl = Duration.ofMinutes(5);
+    }
+  }
+}
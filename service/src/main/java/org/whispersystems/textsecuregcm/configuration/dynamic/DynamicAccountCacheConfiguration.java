@@ -0,0 +1,17 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+/**
+ * @param writeBinaryEntries whether accounts should be written to and read from the account cache in the compact binary
+ *                           format instead of JSON. This MUST stay off until every server in the fleet has been updated
+ *                           to a version that understands binary entries. Servers from before binary entries write JSON
+ *                           entries without removing binary entries for the same account, so if this flag were on
+ *                           during a rollout, updated servers would read stale binary entries in preference to the
+ *                           fresh JSON entries. While the flag is off, servers ignore binary entries entirely.
+ */
+public record DynamicAccountCacheConfiguration(boolean writeBinaryEntries) {
+}
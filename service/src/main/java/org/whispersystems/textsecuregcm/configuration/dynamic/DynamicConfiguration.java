@@ -64,6 +64,24 @@ public class DynamicConfiguration {
   @Valid
   DynamicRestDeprecationConfiguration restDeprecation = new DynamicRestDeprecationConfiguration(Map.of());
 
+  @JsonProperty
+  @Valid
+  DynamicAccountCacheConfiguration accountCache = new DynamicAccountCacheConfiguration(false);
+
+  @JsonProperty
+  @Valid
+  DynamicDisconnectionRequestConfiguration disconnectionRequest = new DynamicDisconnectionRequestConfiguration(false);
+
+  @JsonProperty
+  @Valid
+  DynamicPushNotificationSuppressionConfiguration pushNotificationSuppression =
+      new DynamicPushNotificationSuppressionConfiguration(false, null, false);
+
+  @JsonProperty
+  @Valid
+  DynamicMessageDeletionCoalescerConfiguration messageDeletionCoalescer =
+      new DynamicMessageDeletionCoalescerConfiguration(true, null, 0);
+
   public Optional<DynamicExperimentEnrollmentConfiguration> getExperimentEnrollmentConfiguration(
       final String experimentName) {
     return Optional.ofNullable(experiments.get(experimentName));
@@ -114,4 +132,20 @@ public class DynamicConfiguration {
     return restDeprecation;
   }
 
+  public DynamicAccountCacheConfiguration getAccountCacheConfiguration() {
+    return accountCache;
+  }
+
+  public DynamicDisconnectionRequestConfiguration getDisconnectionRequestConfiguration() {
+    return disconnectionRequest;
+  }
+
+  public DynamicPushNotificationSuppressionConfiguration getPushNotificationSuppressionConfiguration() {
+    return pushNotificationSuppression;
+  }
+
+  public DynamicMessageDeletionCoalescerConfiguration getMessageDeletionCoalescerConfiguration() {
+    return messageDeletionCoalescer;
+  }
+
 }
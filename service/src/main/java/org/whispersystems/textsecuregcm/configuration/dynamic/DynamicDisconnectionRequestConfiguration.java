@@ -0,0 +1,14 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+/**
+ * @param publishSharded whether disconnection requests should be published to per-account sharded channels instead of
+ *                       the global broadcast channel; should only be enabled once all servers subscribe to sharded
+ *                       disconnection request channels
+ */
+public record DynamicDisconnectionRequestConfiguration(boolean publishSharded) {
+}
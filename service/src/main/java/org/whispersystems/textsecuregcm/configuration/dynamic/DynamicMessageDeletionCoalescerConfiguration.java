@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * @param enabled whether individual message acknowledgements from the same device should be coalesced into batch
+ *                deletions; if false, each acknowledgement deletes its message immediately
+ * @param maxDelay the longest an acknowledgement may wait for others from the same device before its batch is deleted
+ * @param maxBatchSize the number of pending acknowledgements from the same device at which a batch is deleted without
+ *                     waiting for {@code maxDelay} to elapse
+ */
+public record DynamicMessageDeletionCoalescerConfiguration(boolean enabled,
+                                                           @NotNull Duration maxDelay,
+                                                           @Positive int maxBatchSize) {
+
+  public DynamicMessageDeletionCoalescerConfiguration {
+    if (maxDelay == null) {
+      maxDelay = Duration.ofMillis(10);
+    }
+
+    if (maxBatchSize == 0) {
+      maxBatchSize = 100;
+    }
+  }
+}
@@ -7,6 +7,11 @@ package org.whispersystems.textsecuregcm.configuration.dynamic;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
 
 public class DynamicMessagePersisterConfiguration {
 
@@ -19,12 +24,75 @@ public class DynamicMessagePersisterConfiguration {
   @JsonProperty
   private double trimOversizedQueueExtraRoomRatio = 1.5;
 
+  /**
+   * The number of queues each persister worker should persist concurrently. A value of 1 persists queues one at a time
+   * with blocking operations; larger values persist queues concurrently with non-blocking operations.
+   */
+  @JsonProperty
+  @Min(1)
+  private int persistQueueConcurrency = 1;
+
+  /**
+   * If true, the persister will prioritize shards whose memory usage exceeds {@link #memoryPressureWatermark} or whose
+   * queue indices hold more than {@link #memoryPressureQueueCountWatermark} queues
+   */
+  @JsonProperty
+  private boolean memoryPressurePersistenceEnabled = false;
+
+  /**
+   * The fraction of a shard's maximum memory above which the shard is considered to be under memory pressure
+   */
+  @JsonProperty
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private double memoryPressureWatermark = 0.8;
+
+  /**
+   * The number of queues in a shard's queue indices above which the shard is considered to be under memory pressure
+   * regardless of its reported memory usage; 0 disables the queue count watermark
+   */
+  @JsonProperty
+  @Min(0)
+  private long memoryPressureQueueCountWatermark = 0;
+
+  /**
+   * The minimum age of queues to persist from shards under memory pressure; this is generally much shorter than the
+   * usual persistence delay
+   */
+  @JsonProperty
+  @NotNull
+  private Duration memoryPressurePersistDelay = Duration.ofMinutes(1);
+
   public DynamicMessagePersisterConfiguration() {}
 
   @VisibleForTesting
   public DynamicMessagePersisterConfiguration(final boolean persistenceEnabled, final double trimOversizedQueueExtraRoomRatio) {
+    this(persistenceEnabled, trimOversizedQueueExtraRoomRatio, 1);
+  }
+
+  @VisibleForTesting
+  public DynamicMessagePersisterConfiguration(final boolean persistenceEnabled,
+      final double trimOversizedQueueExtraRoomRatio,
+      final int persistQueueConcurrency) {
+
     this.persistenceEnabled = persistenceEnabled;
     this.trimOversizedQueueExtraRoomRatio = trimOversizedQueueExtraRoomRatio;
+    this.persistQueueConcurrency = persistQueueConcurrency;
+  }
+
+  @VisibleForTesting
+  public DynamicMessagePersisterConfiguration(final boolean persistenceEnabled,
+      final double trimOversizedQueueExtraRoomRatio,
+      final int persistQueueConcurrency,
+      final boolean memoryPressurePersistenceEnabled,
+      final double memoryPressureWatermark,
+      final Duration memoryPressurePersistDelay) {
+
+    this(persistenceEnabled, trimOversizedQueueExtraRoomRatio, persistQueueConcurrency);
+
+    this.memoryPressurePersistenceEnabled = memoryPressurePersistenceEnabled;
+    this.memoryPressureWatermark = memoryPressureWatermark;
+    this.memoryPressurePersistDelay = memoryPressurePersistDelay;
   }
 
   public boolean isPersistenceEnabled() {
@@ -35,4 +103,24 @@ public class DynamicMessagePersisterConfiguration {
     return trimOversizedQueueExtraRoomRatio;
   }
 
+  public int getPersistQueueConcurrency() {
+    return persistQueueConcurrency;
+  }
+
+  public boolean isMemoryPressurePersistenceEnabled() {
+    return memoryPressurePersistenceEnabled;
+  }
+
+  public double getMemoryPressureWatermark() {
+    return memoryPressureWatermark;
+  }
+
+  public long getMemoryPressureQueueCountWatermark() {
+    return memoryPressureQueueCountWatermark;
+  }
+
+  public Duration getMemoryPressurePersistDelay() {
+    return memoryPressurePersistDelay;
+  }
+
 }
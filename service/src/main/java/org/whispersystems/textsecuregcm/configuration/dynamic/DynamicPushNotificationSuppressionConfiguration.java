@@ -0,0 +1,28 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * @param enabled whether redundant non-urgent new-message notifications to devices that have not retrieved messages
+ *                since the last notification should be suppressed
+ * @param window how long after a new-message notification further notifications of the same urgency to the same device
+ *               are suppressed, unless the device retrieves its messages first
+ * @param suppressUrgent whether redundant urgent new-message notifications should also be suppressed; has no effect
+ *                       unless {@code enabled} is also true
+ */
+public record DynamicPushNotificationSuppressionConfiguration(boolean enabled,
+                                                              @NotNull Duration window,
+                                                              boolean suppressUrgent) {
+
+  public DynamicPushNotificationSuppressionConfiguration {
+    if (window == null) {
+      window = Duration.ofSeconds(10);
+    }
+  }
+}
@@ -40,6 +40,7 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -75,8 +76,6 @@ import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.textsecuregcm.util.Util;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 @Path("/v2/keys")
@@ -392,16 +391,31 @@ public class KeysController {
 
     final List<Device> devices = parseDeviceId(deviceId, target);
 
-    final List<PreKeyResponseItem> responseItems = Flux.fromIterable(devices).flatMap(device -> Mono
-            .fromCompletionStage(keysManager.takeDevicePreKeys(device.getId(), targetIdentifier, userAgent))
-            .flatMap(Mono::justOrEmpty)
-            .map(devicePreKeys -> new PreKeyResponseItem(
-                device.getId(), device.getRegistrationId(targetIdentifier.identityType()),
-                devicePreKeys.ecSignedPreKey(),
-                devicePreKeys.ecPreKey().orElse(null),
-                devicePreKeys.kemSignedPreKey())))
-        .collectList()
-        .block();
+    if (devices.isEmpty()) {
+      throw new WebApplicationException(Response.Status.NOT_FOUND);
+    }
+
+    // Batched reads only pay off when fetching keys for more than one device
+    final Map<Byte, KeysManager.DevicePreKeys> devicePreKeysById = (devices.size() > 1
+        ? keysManager.takeAllDevicePreKeys(devices.stream().map(Device::getId).toList(), targetIdentifier, userAgent)
+        : keysManager.takeDevicePreKeys(devices.getFirst().getId(), targetIdentifier, userAgent)
+            .thenApply(maybeDevicePreKeys -> maybeDevicePreKeys
+                .map(devicePreKeys -> Map.of(devices.getFirst().getId(), devicePreKeys))
+                .orElseGet(Map::of)))
+        .join();
+
+    final List<PreKeyResponseItem> responseItems = devices.stream()
+        .filter(device -> devicePreKeysById.containsKey(device.getId()))
+        .map(device -> {
+          final KeysManager.DevicePreKeys devicePreKeys = devicePreKeysById.get(device.getId());
+
+          return new PreKeyResponseItem(
+              device.getId(), device.getRegistrationId(targetIdentifier.identityType()),
+              devicePreKeys.ecSignedPreKey(),
+              devicePreKeys.ecPreKey().orElse(null),
+              devicePreKeys.kemSignedPreKey());
+        })
+        .toList();
 
     final IdentityKey identityKey = target.getIdentityKey(targetIdentifier.identityType());
 
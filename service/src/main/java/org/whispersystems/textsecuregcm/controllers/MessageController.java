@@ -105,6 +105,7 @@ import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.MessageDeletionCoalescer;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import org.whispersystems.textsecuregcm.storage.PhoneNumberIdentifiers;
 import org.whispersystems.textsecuregcm.storage.ReportMessageManager;
@@ -127,6 +128,7 @@ public class MessageController {
   private final ReceiptSender receiptSender;
   private final AccountsManager accountsManager;
   private final MessagesManager messagesManager;
+  private final MessageDeletionCoalescer messageDeletionCoalescer;
   private final PhoneNumberIdentifiers phoneNumberIdentifiers;
   private final PushNotificationManager pushNotificationManager;
   private final PushNotificationScheduler pushNotificationScheduler;
@@ -178,6 +180,7 @@ public class MessageController {
       ReceiptSender receiptSender,
       AccountsManager accountsManager,
       MessagesManager messagesManager,
+      MessageDeletionCoalescer messageDeletionCoalescer,
       PhoneNumberIdentifiers phoneNumberIdentifiers,
       PushNotificationManager pushNotificationManager,
       PushNotificationScheduler pushNotificationScheduler,
@@ -195,6 +198,7 @@ public class MessageController {
     this.receiptSender = receiptSender;
     this.accountsManager = accountsManager;
     this.messagesManager = messagesManager;
+    this.messageDeletionCoalescer = messageDeletionCoalescer;
     this.phoneNumberIdentifiers = phoneNumberIdentifiers;
     this.pushNotificationManager = pushNotificationManager;
     this.pushNotificationScheduler = pushNotificationScheduler;
@@ -841,11 +845,7 @@ public class MessageController {
     final Device device = account.getDevice(auth.deviceId())
         .orElseThrow(() -> new WebApplicationException(Status.UNAUTHORIZED));
 
-    return messagesManager.delete(
-            auth.accountIdentifier(),
-            device,
-            uuid,
-            null)
+    return messageDeletionCoalescer.delete(auth.accountIdentifier(), device, uuid)
         .thenAccept(maybeRemovedMessage -> maybeRemovedMessage.ifPresent(removedMessage -> {
 
           WebSocketConnection.recordMessageDeliveryDuration(removedMessage.serverTimestamp(), device);
@@ -38,12 +38,12 @@ import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
@@ -157,7 +157,7 @@ public class ProfileController {
         .orElseThrow(() -> new WebApplicationException(Response.Status.UNAUTHORIZED));
 
     final Optional<VersionedProfile> currentProfile =
-        profilesManager.get(auth.accountIdentifier(), request.version());
+        profilesManager.getForUpdate(auth.accountIdentifier(), request.version());
 
     if (request.paymentAddress() != null && request.paymentAddress().length != 0) {
       final boolean hasDisallowedPrefix =
@@ -322,58 +322,46 @@ public class ProfileController {
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/identity_check/batch")
   public CompletableFuture<BatchIdentityCheckResponse> runBatchIdentityCheck(@NotNull @Valid BatchIdentityCheckRequest request) {
-    return CompletableFuture.supplyAsync(() -> {
-          List<BatchIdentityCheckResponse.Element> responseElements = Collections.synchronizedList(new ArrayList<>());
-
-          final int targetBatchCount = 10;
-          // clamp the amount per batch to be in the closed range [30, 100]
-          final int batchSize = Math.min(Math.max(request.elements().size() / targetBatchCount, 30), 100);
-          // add 1 extra batch if there is any remainder to consume the final non-full batch
-          final int batchCount =
-              request.elements().size() / batchSize + (request.elements().size() % batchSize != 0 ? 1 : 0);
-
-          @SuppressWarnings("rawtypes") CompletableFuture[] futures = new CompletableFuture[batchCount];
-          for (int i = 0; i < batchCount; ++i) {
-            List<BatchIdentityCheckRequest.Element> batch = request.elements()
-                .subList(i * batchSize, Math.min((i + 1) * batchSize, request.elements().size()));
-            futures[i] = CompletableFuture.runAsync(() -> {
-              MessageDigest sha256;
-              try {
-                sha256 = MessageDigest.getInstance("SHA-256");
-              } catch (NoSuchAlgorithmException e) {
-                throw new AssertionError(e);
-              }
-              for (final BatchIdentityCheckRequest.Element element : batch) {
-                checkFingerprintAndAdd(element, responseElements, sha256);
-              }
-            }, batchIdentityCheckExecutor);
+    final Set<ServiceIdentifier> serviceIdentifiers = request.elements().stream()
+        .map(BatchIdentityCheckRequest.Element::uuid)
+        .collect(Collectors.toSet());
+
+    // Resolve all accounts with bulk reads rather than one lookup per element; computing fingerprints is cheap by
+    // comparison, so we do that in a single pass once all accounts have arrived
+    return accountsManager.getByServiceIdentifiers(serviceIdentifiers)
+        .thenApplyAsync(accountsByServiceIdentifier -> {
+          final MessageDigest sha256;
+
+          try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+          } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
           }
 
-      return new Pair<>(futures, responseElements);
-    }).thenCompose(futuresAndResponseElements -> CompletableFuture.allOf(futuresAndResponseElements.first())
-        .thenApply((ignored) -> new BatchIdentityCheckResponse(futuresAndResponseElements.second())));
-  }
+          final List<BatchIdentityCheckResponse.Element> responseElements = new ArrayList<>();
 
-  private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element,
-      Collection<BatchIdentityCheckResponse.Element> responseElements, MessageDigest md) {
+          for (final BatchIdentityCheckRequest.Element element : request.elements()) {
+            @Nullable final Account account = accountsByServiceIdentifier.get(element.uuid());
 
-    final ServiceIdentifier identifier = element.uuid();
-    final Optional<Account> maybeAccount = accountsManager.getByServiceIdentifier(identifier);
+            if (account == null) {
+              continue;
+            }
 
-    maybeAccount.ifPresent(account -> {
-      final IdentityKey identityKey = account.getIdentityKey(identifier.identityType());
-      if (identityKey == null) {
-        return;
-      }
+            @Nullable final IdentityKey identityKey = account.getIdentityKey(element.uuid().identityType());
 
-      md.reset();
-      byte[] digest = md.digest(identityKey.serialize());
-      byte[] fingerprint = Util.truncate(digest, 4);
+            if (identityKey == null) {
+              continue;
+            }
 
-      if (!Arrays.equals(fingerprint, element.fingerprint())) {
-        responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), identityKey));
-      }
-    });
+            final byte[] fingerprint = Util.truncate(sha256.digest(identityKey.serialize()), 4);
+
+            if (!Arrays.equals(fingerprint, element.fingerprint())) {
+              responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), identityKey));
+            }
+          }
+
+          return new BatchIdentityCheckResponse(responseElements);
+        }, batchIdentityCheckExecutor);
   }
 
   private ExpiringProfileKeyCredentialProfileResponse buildExpiringProfileKeyCredentialProfileResponse(
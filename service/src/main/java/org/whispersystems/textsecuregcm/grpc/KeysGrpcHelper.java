@@ -11,6 +11,8 @@ import org.signal.chat.common.EcPreKey;
 import org.signal.chat.common.EcSignedPreKey;
 import org.signal.chat.common.KemSignedPreKey;
 import org.signal.chat.keys.GetPreKeysResponse;
+import java.util.List;
+import java.util.Map;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -29,16 +31,30 @@ class KeysGrpcHelper {
       final byte targetDeviceId,
       final KeysManager keysManager) {
 
-    final Flux<Device> devices = targetDeviceId == ALL_DEVICES
-        ? Flux.fromIterable(targetAccount.getDevices())
-        : Flux.from(Mono.justOrEmpty(targetAccount.getDevice(targetDeviceId)));
+    final List<Device> devices = targetDeviceId == ALL_DEVICES
+        ? targetAccount.getDevices()
+        : targetAccount.getDevice(targetDeviceId).map(List::of).orElse(List.of());
 
     final String userAgent = RequestAttributesUtil.getUserAgent().orElse(null);
-    return devices
-        .flatMap(device -> Mono
-            .fromFuture(keysManager.takeDevicePreKeys(device.getId(), targetServiceIdentifier, userAgent))
-            .flatMap(Mono::justOrEmpty)
-            .map(devicePreKeys -> {
+    if (devices.isEmpty()) {
+      return Mono.error(Status.NOT_FOUND.asException());
+    }
+
+    // Batched reads only pay off when fetching keys for more than one device
+    final Mono<Map<Byte, KeysManager.DevicePreKeys>> devicePreKeysMono = devices.size() > 1
+        ? Mono.fromFuture(() -> keysManager.takeAllDevicePreKeys(devices.stream().map(Device::getId).toList(),
+            targetServiceIdentifier, userAgent))
+        : Mono.fromFuture(() -> keysManager.takeDevicePreKeys(devices.getFirst().getId(), targetServiceIdentifier, userAgent))
+            .map(maybeDevicePreKeys -> maybeDevicePreKeys
+                .map(devicePreKeys -> Map.of(devices.getFirst().getId(), devicePreKeys))
+                .orElseGet(Map::of));
+
+    return devicePreKeysMono
+        .flatMapMany(devicePreKeysById -> Flux.fromIterable(devices)
+            .filter(device -> devicePreKeysById.containsKey(device.getId()))
+            .map(device -> {
+              final KeysManager.DevicePreKeys devicePreKeys = devicePreKeysById.get(device.getId());
+
               final GetPreKeysResponse.PreKeyBundle.Builder builder = GetPreKeysResponse.PreKeyBundle.newBuilder()
                   .setEcSignedPreKey(EcSignedPreKey.newBuilder()
                       .setKeyId(devicePreKeys.ecSignedPreKey().keyId())
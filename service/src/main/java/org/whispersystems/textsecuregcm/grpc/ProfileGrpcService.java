@@ -99,7 +99,7 @@ public class ProfileGrpcService extends SimpleProfileGrpc.ProfileImplBase {
 
     final Account account = accountsManager.getByAccountIdentifier(
         authenticatedDevice.accountIdentifier()).orElseThrow(Status.UNAUTHENTICATED::asException);
-    final Optional<VersionedProfile> maybeProfile = profilesManager.get(
+    final Optional<VersionedProfile> maybeProfile = profilesManager.getForUpdate(
         authenticatedDevice.accountIdentifier(), request.getVersion());
 
     if (!request.getPaymentAddress().isEmpty()) {
@@ -12,6 +12,7 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.grpc.AuthenticatedDevice;
@@ -76,9 +77,10 @@ public class EstablishLocalGrpcConnectionHandler extends ChannelInboundHandlerAd
           .connect()
           .addListener((ChannelFutureListener) localChannelFuture -> {
             if (localChannelFuture.isSuccess()) {
-              grpcClientConnectionManager.handleConnectionEstablished((LocalChannel) localChannelFuture.channel(),
-                  remoteChannelContext.channel(),
-                  authenticatedDevice);
+              final CompletableFuture<Void> connectionReadyFuture =
+                  grpcClientConnectionManager.handleConnectionEstablished((LocalChannel) localChannelFuture.channel(),
+                      remoteChannelContext.channel(),
+                      authenticatedDevice);
 
               // Close the local connection if the remote channel closes and vice versa
               remoteChannelContext.channel().closeFuture().addListener(closeFuture -> localChannelFuture.channel().close());
@@ -87,14 +89,23 @@ public class EstablishLocalGrpcConnectionHandler extends ChannelInboundHandlerAd
                       .write(new OutboundCloseErrorMessage(OutboundCloseErrorMessage.Code.SERVER_CLOSED, "server closed"))
                       .addListener(ChannelFutureListener.CLOSE_ON_FAILURE));
 
-              remoteChannelContext.pipeline()
-                  .addAfter(remoteChannelContext.name(), null, new ProxyHandler(localChannelFuture.channel()));
+              // Keep buffering reads until connection listeners are ready for the connection to handle requests (e.g.
+              // until we're subscribed to disconnection requests for the authenticated device)
+              connectionReadyFuture.whenCompleteAsync((_, _) -> {
+                if (remoteChannelContext.isRemoved()) {
+                  // The remote channel closed while we were waiting
+                  return;
+                }
 
-              // Flush any buffered reads we accumulated while waiting to open the connection
-              pendingReads.forEach(remoteChannelContext::fireChannelRead);
-              pendingReads.clear();
+                remoteChannelContext.pipeline()
+                    .addAfter(remoteChannelContext.name(), null, new ProxyHandler(localChannelFuture.channel()));
 
-              remoteChannelContext.pipeline().remove(EstablishLocalGrpcConnectionHandler.this);
+                // Flush any buffered reads we accumulated while waiting to open the connection
+                pendingReads.forEach(remoteChannelContext::fireChannelRead);
+                pendingReads.clear();
+
+                remoteChannelContext.pipeline().remove(EstablishLocalGrpcConnectionHandler.this);
+              }, remoteChannelContext.executor());
             } else {
               log.warn("Failed to establish local connection to gRPC server", localChannelFuture.cause());
               remoteChannelContext.close();
@@ -15,7 +15,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -46,6 +49,7 @@ public class GrpcClientConnectionManager {
 
   private final Map<LocalAddress, Channel> remoteChannelsByLocalAddress = new ConcurrentHashMap<>();
   private final Map<AuthenticatedDevice, List<Channel>> remoteChannelsByAuthenticatedDevice = new ConcurrentHashMap<>();
+  private final List<AuthenticatedConnectionListener> authenticatedConnectionListeners = new CopyOnWriteArrayList<>();
 
   @VisibleForTesting
   static final AttributeKey<AuthenticatedDevice> AUTHENTICATED_DEVICE_ATTRIBUTE_KEY =
@@ -64,6 +68,28 @@ public class GrpcClientConnectionManager {
 
   private static final Logger log = LoggerFactory.getLogger(GrpcClientConnectionManager.class);
 
+  /**
+   * An authenticated connection listener is notified when authenticated connections to this host open or close.
+   */
+  public interface AuthenticatedConnectionListener {
+
+    /**
+     * Indicates that a new authenticated connection has been established for the given device.
+     *
+     * @param authenticatedDevice the device that opened the connection
+     *
+     * @return a future that completes when the listener is ready for the connection to begin handling requests
+     */
+    CompletionStage<Void> handleAuthenticatedConnectionEstablished(AuthenticatedDevice authenticatedDevice);
+
+    /**
+     * Indicates that an authenticated connection for the given device has closed.
+     *
+     * @param authenticatedDevice the device whose connection closed
+     */
+    void handleAuthenticatedConnectionClosed(AuthenticatedDevice authenticatedDevice);
+  }
+
   /**
    * Returns the authenticated device associated with the given server call, if any. If the connection is anonymous
    * (i.e. unauthenticated), the returned value will be empty.
@@ -159,6 +185,15 @@ public class GrpcClientConnectionManager {
     channelsToClose.forEach(channel -> channel.attr(EPOCH_ATTRIBUTE_KEY).get().close());
   }
 
+  /**
+   * Registers a listener to be notified whenever an authenticated connection to this host opens or closes.
+   *
+   * @param listener the listener to register
+   */
+  public void addAuthenticatedConnectionListener(final AuthenticatedConnectionListener listener) {
+    authenticatedConnectionListeners.add(listener);
+  }
+
   private static void closeRemoteChannel(final Channel channel) {
     channel.writeAndFlush(SERVER_CLOSED).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
   }
@@ -229,8 +264,11 @@ public class GrpcClientConnectionManager {
    * @param localChannel the newly-opened local channel between the Noise tunnel and the local gRPC server
    * @param remoteChannel the channel from the remote client to the Noise tunnel
    * @param maybeAuthenticatedDevice the authenticated device (if any) associated with the new connection
+   *
+   * @return a future that completes when all authenticated connection listeners are ready for the new connection to
+   * begin handling requests
    */
-  void handleConnectionEstablished(final LocalChannel localChannel,
+  CompletableFuture<Void> handleConnectionEstablished(final LocalChannel localChannel,
       final Channel remoteChannel,
       @SuppressWarnings("OptionalUsedAsFieldOrParameterType") final Optional<AuthenticatedDevice> maybeAuthenticatedDevice) {
 
@@ -250,6 +288,13 @@ public class GrpcClientConnectionManager {
           return channels;
         }));
 
+    final CompletableFuture<?>[] listenerFutures = getAuthenticatedDevice(remoteChannel)
+        .map(authenticatedDevice -> authenticatedConnectionListeners.stream()
+            .map(listener ->
+                listener.handleAuthenticatedConnectionEstablished(authenticatedDevice).toCompletableFuture())
+            .toArray(CompletableFuture[]::new))
+        .orElseGet(() -> new CompletableFuture[0]);
+
     remoteChannel.closeFuture().addListener(closeFuture -> {
       remoteChannelsByLocalAddress.remove(localChannel.localAddress());
 
@@ -263,6 +308,11 @@ public class GrpcClientConnectionManager {
 
             return existingChannelList.isEmpty() ? null : existingChannelList;
           }));
+
+      getAuthenticatedDevice(remoteChannel).ifPresent(authenticatedDevice -> authenticatedConnectionListeners
+          .forEach(listener -> listener.handleAuthenticatedConnectionClosed(authenticatedDevice)));
     });
+
+    return CompletableFuture.allOf(listenerFutures);
   }
 }
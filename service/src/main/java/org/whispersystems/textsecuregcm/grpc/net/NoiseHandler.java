@@ -8,8 +8,6 @@ import com.southernstorm.noise.protocol.CipherState;
 import com.southernstorm.noise.protocol.CipherStatePair;
 import com.southernstorm.noise.protocol.Noise;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
@@ -40,9 +38,7 @@ public class NoiseHandler extends ChannelDuplexHandler {
         if (frame.readableBytes() > Noise.MAX_PACKET_LEN) {
           throw new NoiseException("Invalid noise message length " + frame.readableBytes());
         }
-        // We've read this frame off the wire, and so it's most likely a direct buffer that's not backed by an array.
-        // We'll need to copy it to a heap buffer.
-        handleInboundDataMessage(context, ByteBufUtil.getBytes(frame));
+        handleInboundDataMessage(context, frame);
       } else {
         // Anything except ByteBufs should have been filtered out of the pipeline by now; treat this as an error
         throw new IllegalArgumentException("Unexpected message in pipeline: " + message);
@@ -53,17 +49,58 @@ public class NoiseHandler extends ChannelDuplexHandler {
   }
 
 
-  private void handleInboundDataMessage(final ChannelHandlerContext context, final byte[] frameBytes)
+  private void handleInboundDataMessage(final ChannelHandlerContext context, final ByteBuf frame)
       throws ShortBufferException, BadPaddingException {
     final CipherState cipherState = cipherStatePair.getReceiver();
-    // Overwrite the ciphertext with the plaintext to avoid an extra allocation for a dedicated plaintext buffer
-    final int plaintextLength = cipherState.decryptWithAd(null,
-        frameBytes, 0,
-        frameBytes, 0,
-        frameBytes.length);
+    final int frameLength = frame.readableBytes();
+
+    // We've read this frame off the wire, and so it's most likely a direct buffer that's not backed by an array. The
+    // cipher can only operate on arrays, so we copy the frame to a pooled heap buffer (which is always backed by an
+    // array) and decrypt it in place there.
+    final ByteBuf plaintext = context.alloc().heapBuffer(frameLength);
+
+    try {
+      final byte[] array = plaintext.array();
+      final int offset = plaintext.arrayOffset();
+
+      frame.getBytes(frame.readerIndex(), array, offset, frameLength);
+
+      // Overwrite the ciphertext with the plaintext to avoid an extra allocation for a dedicated plaintext buffer
+      final int plaintextLength = cipherState.decryptWithAd(null, array, offset, array, offset, frameLength);
+      plaintext.writerIndex(plaintextLength);
+    } catch (final Exception e) {
+      plaintext.release();
+      throw e;
+    }
 
     // Forward the decrypted plaintext along
-    context.fireChannelRead(Unpooled.wrappedBuffer(frameBytes, 0, plaintextLength));
+    context.fireChannelRead(plaintext);
+  }
+
+  private ByteBuf encrypt(final ChannelHandlerContext context, final CipherState cipherState, final ByteBuf plaintext)
+      throws ShortBufferException {
+
+    final int plaintextLength = plaintext.readableBytes();
+
+    // We want to encrypt in place, so we allocate enough extra space for the trailing MAC. Pooled heap buffers let us
+    // avoid allocating a fresh array for every outbound frame, and are always backed by an array.
+    final ByteBuf ciphertext = context.alloc().heapBuffer(plaintextLength + cipherState.getMACLength());
+
+    try {
+      final byte[] array = ciphertext.array();
+      final int offset = ciphertext.arrayOffset();
+
+      // We've read these bytes from a local connection; although that likely means they're backed by a heap array, the
+      // buffer is read-only and won't grant us access to the underlying array, so we copy them to our mutable buffer
+      plaintext.readBytes(array, offset, plaintextLength);
+
+      // Overwrite the plaintext with the ciphertext to avoid an extra allocation for a dedicated ciphertext buffer
+      ciphertext.writerIndex(cipherState.encryptWithAd(null, array, offset, array, offset, plaintextLength));
+      return ciphertext;
+    } catch (final Exception e) {
+      ciphertext.release();
+      throw e;
+    }
   }
 
   @Override
@@ -82,18 +119,7 @@ public class NoiseHandler extends ChannelDuplexHandler {
               Noise.MAX_PACKET_LEN - 16,
               byteBuf.readableBytes()));
 
-          final int plaintextLength = plaintext.readableBytes();
-
-          // We've read these bytes from a local connection; although that likely means they're backed by a heap array, the
-          // buffer is read-only and won't grant us access to the underlying array. Instead, we need to copy the bytes to a
-          // mutable array. We also want to encrypt in place, so we allocate enough extra space for the trailing MAC.
-          final byte[] noiseBuffer = new byte[plaintext.readableBytes() + cipherState.getMACLength()];
-          plaintext.readBytes(noiseBuffer, 0, plaintext.readableBytes());
-
-          // Overwrite the plaintext with the ciphertext to avoid an extra allocation for a dedicated ciphertext buffer
-          cipherState.encryptWithAd(null, noiseBuffer, 0, noiseBuffer, 0, plaintextLength);
-
-          pc.add(context.write(Unpooled.wrappedBuffer(noiseBuffer)));
+          pc.add(context.write(encrypt(context, cipherState, plaintext)));
         }
         pc.finish(promise);
       } finally {
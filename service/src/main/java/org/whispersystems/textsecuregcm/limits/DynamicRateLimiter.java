@@ -7,6 +7,9 @@ package org.whispersystems.textsecuregcm.limits;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
@@ -14,6 +17,9 @@ import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
@@ -35,6 +41,75 @@ public class DynamicRateLimiter implements RateLimiter {
 
   private final Clock clock;
 
+  private final Cache<String, LocalBucketState> localBucketStates;
+
+  private final Counter localPermitsGrantedCounter;
+  private final Counter localPermitsDeniedCounter;
+  private final Counter leaseAcquiredCounter;
+  private final Counter leaseRejectedCounter;
+  private final Counter unusedLeasedPermitsCounter;
+
+  @VisibleForTesting
+  static final Duration LOCAL_LEASE_DURATION = Duration.ofSeconds(5);
+
+  // Leased permits that go unused are lost until the bucket refills, so we only lease permits for keys that have made
+  // at least this many requests to this server within a single lease duration
+  @VisibleForTesting
+  static final int LEASE_REQUEST_THRESHOLD = 3;
+
+  private static final int MAX_LOCAL_BUCKET_STATES = 10_000;
+
+  /**
+   * Locally-cached knowledge about a rate limiter bucket in Redis.
+   */
+  private sealed interface LocalBucketState permits RecentRequests, LocalLease, LocalDenial, LeaseRejection {
+  }
+
+  /**
+   * A count of the requests this server has checked against Redis for a key that doesn't (yet) hold a lease.
+   */
+  private record RecentRequests(AtomicInteger requests, long windowExpirationMillis) implements LocalBucketState {
+  }
+
+  /**
+   * A block of permits already consumed from the shared bucket in Redis that this server may hand out without
+   * consulting Redis until the lease expires.
+   */
+  private record LocalLease(AtomicLong remainingPermits, long expirationMillis) implements LocalBucketState {
+
+    boolean tryAcquire(final int permits, final long currentTimeMillis) {
+      if (currentTimeMillis >= expirationMillis) {
+        return false;
+      }
+
+      long remaining;
+
+      do {
+        remaining = remainingPermits.get();
+
+        if (remaining < permits) {
+          return false;
+        }
+      } while (!remainingPermits.compareAndSet(remaining, remaining - permits));
+
+      return true;
+    }
+  }
+
+  /**
+   * A record that Redis rejected a request for the given number of permits, which means that requests for at least as
+   * many permits cannot succeed before the given time.
+   */
+  private record LocalDenial(int requestedAmount, long retryAtMillis) implements LocalBucketState {
+  }
+
+  /**
+   * A record that Redis rejected a request for a lease, which means that requests for a lease cannot succeed before the
+   * given time and that requests should take only the permits they need in the meantime.
+   */
+  private record LeaseRejection(long retryLeaseAtMillis) implements LocalBucketState {
+  }
+
 
   public DynamicRateLimiter(
       final String name,
@@ -48,18 +123,39 @@ public class DynamicRateLimiter implements RateLimiter {
     this.cluster = requireNonNull(cluster);
     this.clock = requireNonNull(clock);
     this.limitExceededCounter = Metrics.counter(MetricsUtil.name(getClass(), "exceeded"), "rateLimiterName", name);
+
+    this.localPermitsGrantedCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "localPermitsGranted"), "rateLimiterName", name);
+    this.localPermitsDeniedCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "localPermitsDenied"), "rateLimiterName", name);
+    this.leaseAcquiredCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "leaseAcquired"), "rateLimiterName", name);
+    this.leaseRejectedCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "leaseRejected"), "rateLimiterName", name);
+    this.unusedLeasedPermitsCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "unusedLeasedPermits"), "rateLimiterName", name);
+
+    this.localBucketStates = CacheBuilder.newBuilder()
+        .maximumSize(MAX_LOCAL_BUCKET_STATES)
+        .<String, LocalBucketState>removalListener(notification -> {
+          if (notification.getValue() instanceof LocalLease lease) {
+            unusedLeasedPermitsCounter.increment(lease.remainingPermits().get());
+          }
+        })
+        .build();
   }
 
   @Override
   public void validate(final String key, final int amount) throws RateLimitExceededException {
     final RateLimiterConfig config = config();
     try {
-      final long deficitPermitsAmount = executeValidateScript(config, key, amount, true);
+      final long deficitPermitsAmount = shouldUseLocalLease(config, amount)
+          ? validateWithLocalLease(config, key, amount)
+          : executeValidateScript(config, key, amount, true);
+
       if (deficitPermitsAmount > 0) {
         limitExceededCounter.increment();
-        final Duration retryAfter = Duration.ofMillis(
-            (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
-        throw new RateLimitExceededException(retryAfter);
+        throw new RateLimitExceededException(getRetryAfter(config, deficitPermitsAmount));
       }
     } catch (final Exception e) {
       if (e instanceof RateLimitExceededException rateLimitExceededException) {
@@ -76,15 +172,18 @@ public class DynamicRateLimiter implements RateLimiter {
   public CompletionStage<Void> validateAsync(final String key, final int amount) {
     final RateLimiterConfig config = config();
 
-    return executeValidateScriptAsync(config, key, amount, true)
+    final CompletionStage<Long> deficitPermitsAmountFuture = shouldUseLocalLease(config, amount)
+        ? validateWithLocalLeaseAsync(config, key, amount)
+        : executeValidateScriptAsync(config, key, amount, true);
+
+    return deficitPermitsAmountFuture
         .thenCompose(deficitPermitsAmount -> {
           if (deficitPermitsAmount == 0) {
             return CompletableFuture.completedFuture((Void) null);
           }
           limitExceededCounter.increment();
-          final Duration retryAfter = Duration.ofMillis(
-              (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
-          return CompletableFuture.failedFuture(new RateLimitExceededException(retryAfter));
+          return CompletableFuture.failedFuture(
+              new RateLimitExceededException(getRetryAfter(config, deficitPermitsAmount)));
         })
         .exceptionally(throwable -> {
           if (ExceptionUtils.unwrap(throwable) instanceof RateLimitExceededException rateLimitExceededException) {
@@ -102,8 +201,16 @@ public class DynamicRateLimiter implements RateLimiter {
   @Override
   public boolean hasAvailablePermits(final String key, final int permits) {
     final RateLimiterConfig config = config();
+    final long localLeaseBalance = getLocalLeaseBalance(key);
+
+    if (localLeaseBalance >= permits) {
+      return true;
+    }
+
     try {
-      final long deficitPermitsAmount = executeValidateScript(config, key, permits, false);
+      // Permits leased to this server have already been taken from the bucket in Redis
+      final long deficitPermitsAmount =
+          executeValidateScript(config, key, Math.toIntExact(permits - localLeaseBalance), false);
       return deficitPermitsAmount == 0;
     } catch (final Exception e) {
       if (config.failOpen()) {
@@ -117,7 +224,13 @@ public class DynamicRateLimiter implements RateLimiter {
   @Override
   public CompletionStage<Boolean> hasAvailablePermitsAsync(final String key, final int amount) {
     final RateLimiterConfig config = config();
-    return executeValidateScriptAsync(config, key, amount, false)
+    final long localLeaseBalance = getLocalLeaseBalance(key);
+
+    if (localLeaseBalance >= amount) {
+      return CompletableFuture.completedFuture(true);
+    }
+
+    return executeValidateScriptAsync(config, key, Math.toIntExact(amount - localLeaseBalance), false)
         .thenApply(deficitPermitsAmount -> deficitPermitsAmount == 0)
         .exceptionally(throwable -> {
           if (config.failOpen()) {
@@ -129,11 +242,13 @@ public class DynamicRateLimiter implements RateLimiter {
 
   @Override
   public void clear(final String key) {
+    localBucketStates.invalidate(key);
     cluster.useCluster(connection -> connection.sync().del(bucketName(name, key)));
   }
 
   @Override
   public CompletionStage<Void> clearAsync(final String key) {
+    localBucketStates.invalidate(key);
     return cluster.withCluster(connection -> connection.async().del(bucketName(name, key)))
         .thenRun(Util.NOOP);
   }
@@ -143,6 +258,197 @@ public class DynamicRateLimiter implements RateLimiter {
     return configResolver.get();
   }
 
+  /**
+   * Returns the number of permits remaining in this server's unexpired lease for the given key, if any.
+   */
+  private long getLocalLeaseBalance(final String key) {
+    return localBucketStates.getIfPresent(key) instanceof LocalLease lease && clock.millis() < lease.expirationMillis()
+        ? lease.remainingPermits().get()
+        : 0;
+  }
+
+  private static boolean shouldUseLocalLease(final RateLimiterConfig config, final int amount) {
+    return amount < config.localLeaseSize() && config.localLeaseSize() <= config.bucketSize();
+  }
+
+  /**
+   * Attempts to satisfy a request for permits from locally-cached state.
+   *
+   * @return {@code true} if the permits were granted from a local lease or {@code false} if Redis must be consulted
+   *
+   * @throws RateLimitExceededException if a recent response from Redis indicates the request cannot succeed
+   */
+  private boolean tryValidateLocally(final String key, final int amount, final long currentTimeMillis)
+      throws RateLimitExceededException {
+
+    final LocalBucketState localBucketState = localBucketStates.getIfPresent(key);
+
+    if (localBucketState instanceof LocalDenial(final int requestedAmount, final long retryAtMillis)
+        && amount >= requestedAmount && currentTimeMillis < retryAtMillis) {
+
+      localPermitsDeniedCounter.increment();
+      limitExceededCounter.increment();
+      throw new RateLimitExceededException(Duration.ofMillis(retryAtMillis - currentTimeMillis));
+    }
+
+    if (localBucketState instanceof LocalLease lease && lease.tryAcquire(amount, currentTimeMillis)) {
+      localPermitsGrantedCounter.increment();
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Tries to reserve a new lease of permits from Redis after local state could not satisfy a request. If the lease
+   * could not be granted (i.e. the bucket is close to empty), falls back to requesting exactly the needed permits and
+   * remembers the lease rejection locally so later requests go straight to requesting exactly the needed permits until
+   * the bucket will have refilled enough for a lease. If even the needed permits aren't available, remembers a denial
+   * locally until the bucket will have refilled enough to satisfy the request.
+   *
+   * @return the number of permits by which the request exceeded the available permits
+   */
+  private long validateWithLocalLease(final RateLimiterConfig config, final String key, final int amount)
+      throws RateLimitExceededException {
+
+    final long currentTimeMillis = clock.millis();
+
+    if (tryValidateLocally(key, amount, currentTimeMillis)) {
+      return 0;
+    }
+
+    if (!recordRequestAndCheckBurst(key, currentTimeMillis)) {
+      final long deficitPermitsAmount = executeValidateScript(config, key, amount, true);
+      putDenialIfExceeded(config, key, amount, deficitPermitsAmount, currentTimeMillis);
+
+      return deficitPermitsAmount;
+    }
+
+    final long leaseDeficitPermitsAmount = executeValidateScript(config, key, config.localLeaseSize(), true);
+
+    if (leaseDeficitPermitsAmount == 0) {
+      putLease(config, key, amount, currentTimeMillis);
+      return 0;
+    }
+
+    putLeaseRejection(config, key, leaseDeficitPermitsAmount, currentTimeMillis);
+
+    final long deficitPermitsAmount = executeValidateScript(config, key, amount, true);
+    putDenialIfExceeded(config, key, amount, deficitPermitsAmount, currentTimeMillis);
+
+    return deficitPermitsAmount;
+  }
+
+  private CompletionStage<Long> validateWithLocalLeaseAsync(final RateLimiterConfig config, final String key,
+      final int amount) {
+
+    final long currentTimeMillis = clock.millis();
+
+    try {
+      if (tryValidateLocally(key, amount, currentTimeMillis)) {
+        return CompletableFuture.completedFuture(0L);
+      }
+    } catch (final RateLimitExceededException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    if (!recordRequestAndCheckBurst(key, currentTimeMillis)) {
+      return executeValidateScriptAsync(config, key, amount, true)
+          .thenApply(deficitPermitsAmount -> {
+            putDenialIfExceeded(config, key, amount, deficitPermitsAmount, currentTimeMillis);
+            return deficitPermitsAmount;
+          });
+    }
+
+    return executeValidateScriptAsync(config, key, config.localLeaseSize(), true)
+        .thenCompose(leaseDeficitPermitsAmount -> {
+          if (leaseDeficitPermitsAmount == 0) {
+            putLease(config, key, amount, currentTimeMillis);
+            return CompletableFuture.completedFuture(0L);
+          }
+
+          putLeaseRejection(config, key, leaseDeficitPermitsAmount, currentTimeMillis);
+
+          return executeValidateScriptAsync(config, key, amount, true)
+              .thenApply(deficitPermitsAmount -> {
+                putDenialIfExceeded(config, key, amount, deficitPermitsAmount, currentTimeMillis);
+                return deficitPermitsAmount;
+              });
+        });
+  }
+
+  /**
+   * Records a request that could not be satisfied locally and checks whether the key is making requests quickly enough
+   * to justify leasing a block of permits. A key whose current lease ran out before it expired is always considered to
+   * be bursting, and a key whose last lease request was rejected is never considered to be bursting until the bucket
+   * will have refilled enough for a lease.
+   *
+   * @return {@code true} if a lease should be requested for the given key or {@code false} if only the requested
+   * permits should be taken from Redis
+   */
+  private boolean recordRequestAndCheckBurst(final String key, final long currentTimeMillis) {
+    final AtomicBoolean bursting = new AtomicBoolean(false);
+
+    localBucketStates.asMap().compute(key, (ignored, localBucketState) -> {
+      if (localBucketState instanceof LocalLease lease && currentTimeMillis < lease.expirationMillis()) {
+        bursting.set(true);
+        return lease;
+      }
+
+      if (localBucketState instanceof LeaseRejection leaseRejection
+          && currentTimeMillis < leaseRejection.retryLeaseAtMillis()) {
+
+        return leaseRejection;
+      }
+
+      if (localBucketState instanceof RecentRequests recentRequests
+          && currentTimeMillis < recentRequests.windowExpirationMillis()) {
+
+        bursting.set(recentRequests.requests().incrementAndGet() >= LEASE_REQUEST_THRESHOLD);
+        return recentRequests;
+      }
+
+      return new RecentRequests(new AtomicInteger(1), currentTimeMillis + LOCAL_LEASE_DURATION.toMillis());
+    });
+
+    return bursting.get();
+  }
+
+  private void putLease(final RateLimiterConfig config, final String key, final int amount,
+      final long currentTimeMillis) {
+
+    leaseAcquiredCounter.increment();
+    localBucketStates.put(key, new LocalLease(new AtomicLong(config.localLeaseSize() - amount),
+        currentTimeMillis + LOCAL_LEASE_DURATION.toMillis()));
+  }
+
+  private void putLeaseRejection(final RateLimiterConfig config, final String key,
+      final long leaseDeficitPermitsAmount, final long currentTimeMillis) {
+
+    leaseRejectedCounter.increment();
+    localBucketStates.put(key,
+        new LeaseRejection(currentTimeMillis + getRetryAfter(config, leaseDeficitPermitsAmount).toMillis()));
+  }
+
+  private void putDenialIfExceeded(final RateLimiterConfig config, final String key, final int amount,
+      final long deficitPermitsAmount, final long currentTimeMillis) {
+
+    if (deficitPermitsAmount > 0) {
+      localBucketStates.put(key, new LocalDenial(amount,
+          currentTimeMillis + getRetryAfter(config, deficitPermitsAmount).toMillis()));
+    } else {
+      // Keep counting recent requests and remember lease rejections, but forget any stale lease or denial
+      localBucketStates.asMap().computeIfPresent(key, (ignored, localBucketState) ->
+          localBucketState instanceof RecentRequests || localBucketState instanceof LeaseRejection
+              ? localBucketState
+              : null);
+    }
+  }
+
+  private static Duration getRetryAfter(final RateLimiterConfig config, final long deficitPermitsAmount) {
+    return Duration.ofMillis((long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
+  }
+
   private long executeValidateScript(final RateLimiterConfig config, final String key, final int amount, final boolean applyChanges) {
     final List<String> keys = List.of(bucketName(name, key));
     final List<String> arguments = List.of(
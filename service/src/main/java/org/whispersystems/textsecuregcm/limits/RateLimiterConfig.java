@@ -7,9 +7,26 @@ package org.whispersystems.textsecuregcm.limits;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.time.Duration;
 
-public record RateLimiterConfig(int bucketSize, Duration permitRegenerationDuration, boolean failOpen) {
+/**
+ * Configuration for a single rate limiter.
+ *
+ * @param bucketSize the maximum number of permits the bucket can hold
+ * @param permitRegenerationDuration the time it takes to regenerate a single permit
+ * @param failOpen whether to allow actions if the rate limiter's state could not be checked
+ * @param localLeaseSize if positive, the number of permits a server may reserve from the shared bucket at once and hand
+ *                       out locally without consulting Redis; if zero, every check goes to Redis
+ */
+public record RateLimiterConfig(int bucketSize,
+                                Duration permitRegenerationDuration,
+                                boolean failOpen,
+                                @PositiveOrZero int localLeaseSize) {
+
+  public RateLimiterConfig(final int bucketSize, final Duration permitRegenerationDuration, final boolean failOpen) {
+    this(bucketSize, permitRegenerationDuration, failOpen, 0);
+  }
 
   public double leakRatePerMillis() {
     return 1.0 / (permitRegenerationDuration.toNanos() / 1e6);
@@ -14,34 +14,102 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.ThreadManager;
 import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
+import io.dropwizard.lifecycle.Managed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.FcmBatchingConfiguration;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.GoogleApiUtil;
 
-public class FcmSender implements PushNotificationSender {
+/**
+ * Sends push notifications to Android devices via Firebase Cloud Messaging.
+ * <p>
+ * If batching is enabled, notifications are held for up to the configured window so they can be sent together in a
+ * single batch request, and notifications of the same type for the same device token that arrive within the same
+ * window are coalesced into a single FCM message. All callers whose notifications were coalesced receive the result
+ * of the single message that was actually sent. Pending notifications are sent when the sender is stopped.
+ */
+public class FcmSender implements Managed, PushNotificationSender {
 
   private final ExecutorService executor;
   private final FirebaseMessaging firebaseMessagingClient;
+  private final FcmBatchingConfiguration batchingConfiguration;
+
+  // Guarded by `this`
+  private final Map<CoalescingKey, PendingNotification> pendingNotifications = new LinkedHashMap<>();
+  private boolean flushScheduled = false;
+
+  private final BlockingQueue<List<PendingNotification>> readyBatches;
+  private final Semaphore batchPermits;
 
   private static final Timer SEND_NOTIFICATION_TIMER = Metrics.timer(name(FcmSender.class, "sendNotification"));
+  private static final Timer SEND_BATCH_TIMER = Metrics.timer(name(FcmSender.class, "sendBatch"));
+
+  private static final DistributionSummary BATCH_SIZE_DISTRIBUTION = DistributionSummary
+      .builder(name(FcmSender.class, "batchSize"))
+      .publishPercentileHistogram(true)
+      .register(Metrics.globalRegistry);
+
+  private static final Counter COALESCED_NOTIFICATIONS_COUNTER =
+      Metrics.counter(name(FcmSender.class, "coalescedNotifications"));
+
+  private static final Counter REJECTED_BATCHES_COUNTER = Metrics.counter(name(FcmSender.class, "rejectedBatches"));
+
+  private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
 
   private static final Logger logger = LoggerFactory.getLogger(FcmSender.class);
 
+  private record CoalescingKey(String deviceToken, PushNotification.NotificationType notificationType,
+                               @Nullable String data) {
+  }
+
+  private static class PendingNotification {
+
+    private final PushNotification pushNotification;
+    private final List<CompletableFuture<SendPushNotificationResult>> futures = new ArrayList<>();
+    private boolean urgent;
+
+    private PendingNotification(final PushNotification pushNotification) {
+      this.pushNotification = pushNotification;
+      this.urgent = pushNotification.urgent();
+    }
+  }
+
   public FcmSender(ExecutorService executor, String credentials) throws IOException {
+    this(executor, credentials, new FcmBatchingConfiguration(false, null, 0, 0, 0));
+  }
+
+  public FcmSender(ExecutorService executor, String credentials, FcmBatchingConfiguration batchingConfiguration)
+      throws IOException {
+
     try (final ByteArrayInputStream credentialInputStream = new ByteArrayInputStream(credentials.getBytes(StandardCharsets.UTF_8))) {
       FirebaseApp.initializeApp(FirebaseOptions.builder()
           .setCredentials(GoogleCredentials.fromStream(credentialInputStream))
@@ -68,20 +136,227 @@ public class FcmSender implements PushNotificationSender {
 
     this.executor = executor;
     this.firebaseMessagingClient = FirebaseMessaging.getInstance();
+    this.batchingConfiguration = batchingConfiguration;
+    this.readyBatches = new LinkedBlockingQueue<>(batchingConfiguration.maxQueuedBatches());
+    this.batchPermits = new Semaphore(batchingConfiguration.maxConcurrentBatches());
   }
 
   @VisibleForTesting
   public FcmSender(ExecutorService executor, FirebaseMessaging firebaseMessagingClient) {
+    this(executor, firebaseMessagingClient, new FcmBatchingConfiguration(false, null, 0, 0, 0));
+  }
+
+  @VisibleForTesting
+  FcmSender(ExecutorService executor,
+      FirebaseMessaging firebaseMessagingClient,
+      FcmBatchingConfiguration batchingConfiguration) {
+
     this.executor = executor;
     this.firebaseMessagingClient = firebaseMessagingClient;
+    this.batchingConfiguration = batchingConfiguration;
+    this.readyBatches = new LinkedBlockingQueue<>(batchingConfiguration.maxQueuedBatches());
+    this.batchPermits = new Semaphore(batchingConfiguration.maxConcurrentBatches());
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() throws InterruptedException {
+    if (!batchingConfiguration.enabled()) {
+      return;
+    }
+
+    flushPendingNotifications();
+
+    // Holding every permit means no batches are in flight; keep sending until no batches are waiting, either
+    final int maxConcurrentBatches = batchingConfiguration.maxConcurrentBatches();
+
+    while (true) {
+      sendReadyBatches();
+
+      if (!batchPermits.tryAcquire(maxConcurrentBatches, STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        logger.warn("Timed out waiting for FCM batches to finish sending");
+        return;
+      }
+
+      final boolean drained = readyBatches.isEmpty();
+      batchPermits.release(maxConcurrentBatches);
+
+      if (drained) {
+        return;
+      }
+    }
   }
 
   @Override
   public CompletableFuture<SendPushNotificationResult> sendNotification(PushNotification pushNotification) {
+    if (batchingConfiguration.enabled()) {
+      return enqueueNotification(pushNotification);
+    }
+
+    final Timer.Sample sample = Timer.start();
+
+    return GoogleApiUtil.toCompletableFuture(
+            firebaseMessagingClient.sendAsync(buildMessage(pushNotification, pushNotification.urgent())), executor)
+        .whenComplete((ignored, throwable) -> sample.stop(SEND_NOTIFICATION_TIMER))
+        .thenApply(ignored -> new SendPushNotificationResult(true, Optional.empty(), false, Optional.empty()))
+        .exceptionally(ExceptionUtils.exceptionallyHandler(FirebaseMessagingException.class,
+            FcmSender::getRejectedResult));
+  }
+
+  private CompletableFuture<SendPushNotificationResult> enqueueNotification(final PushNotification pushNotification) {
+    final CompletableFuture<SendPushNotificationResult> future = new CompletableFuture<>();
+    @Nullable List<PendingNotification> fullBatch = null;
+
+    synchronized (this) {
+      final PendingNotification pendingNotification = pendingNotifications.computeIfAbsent(
+          new CoalescingKey(pushNotification.deviceToken(), pushNotification.notificationType(), pushNotification.data()),
+          ignored -> new PendingNotification(pushNotification));
+
+      if (!pendingNotification.futures.isEmpty()) {
+        COALESCED_NOTIFICATIONS_COUNTER.increment();
+      }
+
+      pendingNotification.futures.add(future);
+      pendingNotification.urgent |= pushNotification.urgent();
+
+      if (pendingNotifications.size() >= batchingConfiguration.maxBatchSize()) {
+        fullBatch = drainPendingNotifications();
+      } else if (!flushScheduled) {
+        flushScheduled = true;
+
+        CompletableFuture.runAsync(this::flushPendingNotifications, CompletableFuture.delayedExecutor(
+            batchingConfiguration.window().toMillis(), TimeUnit.MILLISECONDS, executor));
+      }
+    }
+
+    if (fullBatch != null) {
+      enqueueBatch(fullBatch);
+    }
+
+    return future;
+  }
+
+  @VisibleForTesting
+  void flushPendingNotifications() {
+    final List<PendingNotification> batch;
+
+    synchronized (this) {
+      flushScheduled = false;
+      batch = drainPendingNotifications();
+    }
+
+    if (!batch.isEmpty()) {
+      enqueueBatch(batch);
+    }
+  }
+
+  private void enqueueBatch(final List<PendingNotification> batch) {
+    if (!readyBatches.offer(batch)) {
+      REJECTED_BATCHES_COUNTER.increment();
+      completeBatchExceptionally(batch, new RejectedExecutionException("Too many FCM batches waiting to be sent"));
+    }
+
+    sendReadyBatches();
+  }
+
+  // Must be called while holding the lock on `this`
+  private List<PendingNotification> drainPendingNotifications() {
+    final List<PendingNotification> batch = new ArrayList<>(pendingNotifications.values());
+    pendingNotifications.clear();
+
+    return batch;
+  }
+
+  private void sendReadyBatches() {
+    // Note that we check for ready batches again after releasing a permit; another thread may have added a batch (and
+    // failed to acquire a permit) while we were holding it
+    while (!readyBatches.isEmpty() && batchPermits.tryAcquire()) {
+      @Nullable final List<PendingNotification> batch = readyBatches.poll();
+
+      if (batch == null) {
+        batchPermits.release();
+        continue;
+      }
+
+      sendBatch(batch).whenComplete((ignored, throwable) -> {
+        batchPermits.release();
+        sendReadyBatches();
+      });
+    }
+  }
+
+  private CompletableFuture<Void> sendBatch(final List<PendingNotification> batch) {
+    BATCH_SIZE_DISTRIBUTION.record(batch.size());
+
+    final List<Message> messages = batch.stream()
+        .map(pendingNotification -> buildMessage(pendingNotification.pushNotification, pendingNotification.urgent))
+        .toList();
+
+    final Timer.Sample sample = Timer.start();
+
+    final CompletableFuture<BatchResponse> batchResponseFuture;
+
+    try {
+      batchResponseFuture =
+          GoogleApiUtil.toCompletableFuture(firebaseMessagingClient.sendEachAsync(messages), executor);
+    } catch (final Exception e) {
+      completeBatchExceptionally(batch, e);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return batchResponseFuture
+        .whenComplete((ignored, throwable) -> sample.stop(SEND_BATCH_TIMER))
+        .handle((batchResponse, throwable) -> {
+          if (throwable != null) {
+            completeBatchExceptionally(batch, ExceptionUtils.unwrap(throwable));
+            return null;
+          }
+
+          try {
+            final List<SendResponse> sendResponses = batchResponse.getResponses();
+
+            if (sendResponses.size() != batch.size()) {
+              throw new IllegalStateException(
+                  "Expected " + batch.size() + " responses, but got " + sendResponses.size());
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+              final SendResponse sendResponse = sendResponses.get(i);
+
+              final SendPushNotificationResult result = sendResponse.isSuccessful()
+                  ? new SendPushNotificationResult(true, Optional.empty(), false, Optional.empty())
+                  : getRejectedResult(sendResponse.getException());
+
+              batch.get(i).futures.forEach(future -> future.complete(result));
+            }
+          } catch (final Exception e) {
+            // Futures that have already been completed are unaffected
+            logger.warn("Failed to process FCM batch response", e);
+            completeBatchExceptionally(batch, e);
+          }
+
+          return null;
+        });
+  }
+
+  private static void completeBatchExceptionally(final List<PendingNotification> batch, final Throwable throwable) {
+    batch.forEach(pendingNotification -> pendingNotification.futures.forEach(future -> {
+      if (throwable instanceof FirebaseMessagingException firebaseMessagingException) {
+        future.complete(getRejectedResult(firebaseMessagingException));
+      } else {
+        future.completeExceptionally(throwable);
+      }
+    }));
+  }
+
+  private static Message buildMessage(final PushNotification pushNotification, final boolean urgent) {
     Message.Builder builder = Message.builder()
         .setToken(pushNotification.deviceToken())
         .setAndroidConfig(AndroidConfig.builder()
-            .setPriority(pushNotification.urgent() ? AndroidConfig.Priority.HIGH : AndroidConfig.Priority.NORMAL)
+            .setPriority(urgent ? AndroidConfig.Priority.HIGH : AndroidConfig.Priority.NORMAL)
             .build());
 
     final String key = switch (pushNotification.notificationType()) {
@@ -93,29 +368,27 @@ public class FcmSender implements PushNotificationSender {
 
     builder.putData(key, pushNotification.data() != null ? pushNotification.data() : "");
 
-    final Timer.Sample sample = Timer.start();
+    return builder.build();
+  }
 
-    return GoogleApiUtil.toCompletableFuture(firebaseMessagingClient.sendAsync(builder.build()), executor)
-        .whenComplete((ignored, throwable) -> sample.stop(SEND_NOTIFICATION_TIMER))
-        .thenApply(ignored -> new SendPushNotificationResult(true, Optional.empty(), false, Optional.empty()))
-        .exceptionally(ExceptionUtils.exceptionallyHandler(FirebaseMessagingException.class,
-            firebaseMessagingException -> {
-              final String errorCode;
-
-              if (firebaseMessagingException.getMessagingErrorCode() != null) {
-                errorCode = firebaseMessagingException.getMessagingErrorCode().name();
-              } else if (firebaseMessagingException.getHttpResponse() != null) {
-                errorCode = "http" + firebaseMessagingException.getHttpResponse().getStatusCode();
-              } else {
-                logger.warn("Received an FCM exception with no error code", firebaseMessagingException);
-                errorCode = "unknown";
-              }
-
-              final boolean unregistered =
-                  firebaseMessagingException.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED;
-
-              return new SendPushNotificationResult(false, Optional.of(errorCode), unregistered, Optional.empty());
-            }));
+  private static SendPushNotificationResult getRejectedResult(
+      final FirebaseMessagingException firebaseMessagingException) {
+
+    final String errorCode;
+
+    if (firebaseMessagingException.getMessagingErrorCode() != null) {
+      errorCode = firebaseMessagingException.getMessagingErrorCode().name();
+    } else if (firebaseMessagingException.getHttpResponse() != null) {
+      errorCode = "http" + firebaseMessagingException.getHttpResponse().getStatusCode();
+    } else {
+      logger.warn("Received an FCM exception with no error code", firebaseMessagingException);
+      errorCode = "unknown";
+    }
+
+    final boolean unregistered =
+        firebaseMessagingException.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED;
+
+    return new SendPushNotificationResult(false, Optional.of(errorCode), unregistered, Optional.empty());
   }
 }
 
@@ -6,7 +6,7 @@
 package org.whispersystems.textsecuregcm.push;
 
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -14,15 +14,9 @@ import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
-import reactor.util.function.Tuples;
 
 public class MessageUtil {
 
-  public static final int DEFAULT_MAX_FETCH_ACCOUNT_CONCURRENCY = 8;
-
   private MessageUtil() {
   }
 
@@ -42,39 +36,19 @@ public class MessageUtil {
       final AccountsManager accountsManager,
       final SealedSenderMultiRecipientMessage multiRecipientMessage) {
 
-    return resolveRecipients(accountsManager, multiRecipientMessage, DEFAULT_MAX_FETCH_ACCOUNT_CONCURRENCY);
-  }
+    final Map<ServiceIdentifier, SealedSenderMultiRecipientMessage.Recipient> recipientsByServiceIdentifier =
+        new HashMap<>();
 
-  /**
-   * Finds account records for all recipients named in the given multi-recipient manager. Note that the returned map
-   * of recipients to account records will omit entries for recipients that could not be resolved to active accounts;
-   * callers that require full resolution should check for a missing entries and take appropriate action.
-   *
-   * @param accountsManager the {@code AccountsManager} instance to use to find account records
-   * @param multiRecipientMessage the message for which to resolve recipients
-   * @param maxFetchAccountConcurrency the maximum number of concurrent account-retrieval operations
-   *
-   * @return a map of recipients to account records
-   *
-   * @see #getUnresolvedRecipients(SealedSenderMultiRecipientMessage, Map)
-   */
-  public static Map<SealedSenderMultiRecipientMessage.Recipient, Account> resolveRecipients(
-      final AccountsManager accountsManager,
-      final SealedSenderMultiRecipientMessage multiRecipientMessage,
-      final int maxFetchAccountConcurrency) {
-
-    return Flux.fromIterable(multiRecipientMessage.getRecipients().entrySet())
-        .flatMap(serviceIdAndRecipient -> {
-          final ServiceIdentifier serviceIdentifier =
-              ServiceIdentifier.fromLibsignal(serviceIdAndRecipient.getKey());
-
-          return Mono.fromFuture(() -> accountsManager.getByServiceIdentifierAsync(serviceIdentifier))
-              .flatMap(Mono::justOrEmpty)
-              .map(account -> Tuples.of(serviceIdAndRecipient.getValue(), account));
-        }, maxFetchAccountConcurrency)
-        .collectMap(Tuple2::getT1, Tuple2::getT2)
-        .blockOptional()
-        .orElse(Collections.emptyMap());
+    multiRecipientMessage.getRecipients().forEach((serviceId, recipient) ->
+        recipientsByServiceIdentifier.put(ServiceIdentifier.fromLibsignal(serviceId), recipient));
+
+    final Map<SealedSenderMultiRecipientMessage.Recipient, Account> resolvedRecipients = new HashMap<>();
+
+    accountsManager.getByServiceIdentifiers(recipientsByServiceIdentifier.keySet()).join()
+        .forEach((serviceIdentifier, account) ->
+            resolvedRecipients.put(recipientsByServiceIdentifier.get(serviceIdentifier), account));
+
+    return resolvedRecipients;
   }
 
   /**
@@ -28,7 +28,9 @@ public class PushNotificationManager {
   private final APNSender apnSender;
   private final FcmSender fcmSender;
   private final PushNotificationScheduler pushNotificationScheduler;
+  private final PushNotificationSuppressor pushNotificationSuppressor;
 
+  private static final String NEW_MESSAGE_NOTIFICATION_COUNTER_NAME = name(PushNotificationManager.class, "newMessageNotification");
   private static final String SENT_NOTIFICATION_COUNTER_NAME = name(PushNotificationManager.class, "sentPushNotification");
   private static final String FAILED_NOTIFICATION_COUNTER_NAME = name(PushNotificationManager.class, "failedPushNotification");
   private static final String DEVICE_TOKEN_UNREGISTERED_COUNTER_NAME = name(PushNotificationManager.class, "deviceTokenUnregistered");
@@ -38,20 +40,41 @@ public class PushNotificationManager {
   public PushNotificationManager(final AccountsManager accountsManager,
       final APNSender apnSender,
       final FcmSender fcmSender,
-      final PushNotificationScheduler pushNotificationScheduler) {
+      final PushNotificationScheduler pushNotificationScheduler,
+      final PushNotificationSuppressor pushNotificationSuppressor) {
 
     this.accountsManager = accountsManager;
     this.apnSender = apnSender;
     this.fcmSender = fcmSender;
     this.pushNotificationScheduler = pushNotificationScheduler;
+    this.pushNotificationSuppressor = pushNotificationSuppressor;
   }
 
   public CompletableFuture<Optional<SendPushNotificationResult>> sendNewMessageNotification(final Account destination, final byte destinationDeviceId, final boolean urgent) throws NotPushRegisteredException {
     final Device device = destination.getDevice(destinationDeviceId).orElseThrow(NotPushRegisteredException::new);
     final Pair<String, PushNotification.TokenType> tokenAndType = getToken(device);
 
-    return sendNotification(new PushNotification(tokenAndType.first(), tokenAndType.second(),
-        PushNotification.NotificationType.NOTIFICATION, null, destination, device, urgent));
+    final PushNotification pushNotification = new PushNotification(tokenAndType.first(), tokenAndType.second(),
+        PushNotification.NotificationType.NOTIFICATION, null, destination, device, urgent);
+
+    return pushNotificationSuppressor.tryAcquireNotification(destination, device, urgent)
+        .thenCompose(shouldSend -> {
+          Metrics.counter(NEW_MESSAGE_NOTIFICATION_COUNTER_NAME,
+                  "urgent", String.valueOf(urgent),
+                  "suppressed", String.valueOf(!shouldSend))
+              .increment();
+
+          if (!shouldSend) {
+            return CompletableFuture.completedFuture(Optional.empty());
+          }
+
+          return sendNotification(pushNotification).whenComplete((maybeResult, throwable) -> {
+            // Don't let an undelivered notification suppress the next one
+            if (throwable != null || maybeResult.map(result -> !result.accepted()).orElse(false)) {
+              pushNotificationSuppressor.release(destination, device, urgent).whenComplete(logErrors());
+            }
+          });
+        });
   }
 
   public CompletableFuture<SendPushNotificationResult> sendRegistrationChallengeNotification(final String deviceToken, final PushNotification.TokenType tokenType, final String challengeToken) {
@@ -82,6 +105,7 @@ public class PushNotificationManager {
 
   public void handleMessagesRetrieved(final Account account, final Device device, final String userAgent) {
     pushNotificationScheduler.cancelScheduledNotifications(account, device).whenComplete(logErrors());
+    pushNotificationSuppressor.clear(account, device).whenComplete(logErrors());
   }
 
   @VisibleForTesting
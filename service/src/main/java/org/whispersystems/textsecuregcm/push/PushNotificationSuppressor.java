@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.lettuce.core.SetArgs;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPushNotificationSuppressionConfiguration;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.util.Util;
+
+/**
+ * A push notification suppressor decides whether a new-message notification to a device is redundant. Once a device
+ * has been sent a new-message notification, further notifications of the same urgency are suppressed for a configurable
+ * window or until the device retrieves its messages, whichever comes first; the device will retrieve all pending
+ * messages when it wakes up for the first notification anyway. Urgent notifications are only suppressed if separately
+ * enabled, and callers must {@linkplain #release(Account, Device, boolean) release} a suppression window if the
+ * notification that started it could not be delivered.
+ * <p>
+ * Suppression state is shared among servers via Redis. Each server also remembers the notifications it has sent
+ * recently so it can suppress bursts without a Redis round trip. Because another server may clear suppression state
+ * without this server's knowledge, the local copy is only trusted for a fraction of the suppression window.
+ */
+public class PushNotificationSuppressor {
+
+  private final FaultTolerantRedisClusterClient pushSchedulingCluster;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+  private final Clock clock;
+
+  private final Cache<SuppressionKey, Instant> locallySuppressedUntil;
+
+  // The local copy of suppression state is trusted for at most this long regardless of the configured window
+  private static final Duration MAX_LOCAL_SUPPRESSION = Duration.ofSeconds(1);
+
+  private static final String REDIS_ERROR_COUNTER_NAME = name(PushNotificationSuppressor.class, "redisError");
+
+  private static final Logger logger = LoggerFactory.getLogger(PushNotificationSuppressor.class);
+
+  private record SuppressionKey(UUID accountIdentifier, byte deviceId, boolean urgent) {
+  }
+
+  public PushNotificationSuppressor(final FaultTolerantRedisClusterClient pushSchedulingCluster,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
+      final Clock clock) {
+
+    this.pushSchedulingCluster = pushSchedulingCluster;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
+    this.clock = clock;
+
+    this.locallySuppressedUntil = CacheBuilder.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterWrite(MAX_LOCAL_SUPPRESSION)
+        .build();
+  }
+
+  /**
+   * Checks whether a new-message notification to the given device should be sent and, if so, starts a suppression
+   * window for further notifications of the same urgency.
+   *
+   * @param account the account to which the destination device belongs
+   * @param device the destination device
+   * @param urgent whether the notification is urgent
+   *
+   * @return a future that yields {@code true} if the notification should be sent or {@code false} if it is redundant
+   * and should be dropped
+   */
+  public CompletableFuture<Boolean> tryAcquireNotification(final Account account, final Device device,
+      final boolean urgent) {
+
+    final DynamicPushNotificationSuppressionConfiguration configuration =
+        dynamicConfigurationManager.getConfiguration().getPushNotificationSuppressionConfiguration();
+
+    if (!configuration.enabled() || (urgent && !configuration.suppressUrgent())) {
+      return CompletableFuture.completedFuture(true);
+    }
+
+    final SuppressionKey suppressionKey =
+        new SuppressionKey(account.getIdentifier(IdentityType.ACI), device.getId(), urgent);
+
+    final Instant now = clock.instant();
+
+    @Nullable final Instant suppressedUntil = locallySuppressedUntil.getIfPresent(suppressionKey);
+
+    if (suppressedUntil != null && now.isBefore(suppressedUntil)) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    final Duration window = configuration.window();
+
+    return pushSchedulingCluster.withCluster(connection -> connection.async()
+            .set(getSuppressionKey(suppressionKey), "", SetArgs.Builder.nx().px(window.toMillis())))
+        .toCompletableFuture()
+        .thenApply("OK"::equals)
+        .exceptionally(throwable -> {
+          // Fail open; sending a redundant notification is better than dropping a necessary one
+          logger.debug("Failed to check push notification suppression state", throwable);
+          Metrics.counter(REDIS_ERROR_COUNTER_NAME).increment();
+
+          return true;
+        })
+        .whenComplete((ignored, throwable) -> locallySuppressedUntil.put(suppressionKey,
+            now.plus(window.compareTo(MAX_LOCAL_SUPPRESSION) < 0 ? window : MAX_LOCAL_SUPPRESSION)));
+  }
+
+  /**
+   * Ends the suppression window for notifications of the given urgency to the given device. Callers should call this
+   * method if a notification permitted by {@link #tryAcquireNotification(Account, Device, boolean)} could not be
+   * delivered so that the next notification isn't suppressed in its place.
+   *
+   * @param account the account to which the device belongs
+   * @param device the device for which to end the suppression window
+   * @param urgent the urgency of the notification that could not be delivered
+   *
+   * @return a future that completes when the suppression window has been cleared
+   */
+  public CompletableFuture<Void> release(final Account account, final Device device, final boolean urgent) {
+    final SuppressionKey suppressionKey =
+        new SuppressionKey(account.getIdentifier(IdentityType.ACI), device.getId(), urgent);
+
+    locallySuppressedUntil.invalidate(suppressionKey);
+
+    if (!dynamicConfigurationManager.getConfiguration().getPushNotificationSuppressionConfiguration().enabled()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return pushSchedulingCluster.withCluster(connection -> connection.async().del(getSuppressionKey(suppressionKey)))
+        .thenRun(Util.NOOP)
+        .toCompletableFuture();
+  }
+
+  /**
+   * Ends any suppression windows for the given device. Callers should call this method when the device has retrieved
+   * its messages.
+   *
+   * @param account the account to which the device belongs
+   * @param device the device for which to end suppression windows
+   *
+   * @return a future that completes when suppression windows have been cleared
+   */
+  public CompletableFuture<Void> clear(final Account account, final Device device) {
+    final UUID accountIdentifier = account.getIdentifier(IdentityType.ACI);
+
+    final SuppressionKey urgentKey = new SuppressionKey(accountIdentifier, device.getId(), true);
+    final SuppressionKey nonUrgentKey = new SuppressionKey(accountIdentifier, device.getId(), false);
+
+    locallySuppressedUntil.invalidate(urgentKey);
+    locallySuppressedUntil.invalidate(nonUrgentKey);
+
+    if (!dynamicConfigurationManager.getConfiguration().getPushNotificationSuppressionConfiguration().enabled()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // Both keys share a hash tag and therefore a slot, so we can remove them with a single command
+    return pushSchedulingCluster.withCluster(connection -> connection.async()
+            .del(getSuppressionKey(urgentKey), getSuppressionKey(nonUrgentKey)))
+        .thenRun(Util.NOOP)
+        .toCompletableFuture();
+  }
+
+  @VisibleForTesting
+  static String getSuppressionKey(final UUID accountIdentifier, final byte deviceId, final boolean urgent) {
+    return "push_suppression::{" + accountIdentifier + ":" + deviceId + "}::" + (urgent ? "urgent" : "nonUrgent");
+  }
+
+  private static String getSuppressionKey(final SuppressionKey suppressionKey) {
+    return getSuppressionKey(suppressionKey.accountIdentifier(), suppressionKey.deviceId(), suppressionKey.urgent());
+  }
+}
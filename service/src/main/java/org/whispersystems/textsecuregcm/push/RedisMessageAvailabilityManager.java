@@ -12,21 +12,28 @@ import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
+import io.lettuce.core.RedisFuture;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +42,6 @@ import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnecti
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
-import org.whispersystems.textsecuregcm.util.Util;
 
 /**
  * The Redis message availability manager distributes events related to client presence and message availability to
@@ -63,10 +69,16 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
   private final Executor asyncOperationQueueingExecutor;
 
   @Nullable
-  private FaultTolerantPubSubClusterConnection<byte[], byte[]> pubSubConnection;
+  private volatile FaultTolerantPubSubClusterConnection<byte[], byte[]> pubSubConnection;
 
   private final Map<AccountAndDeviceIdentifier, MessageAvailabilityListener> listenersByAccountAndDeviceIdentifier;
 
+  // Subscription changes are queued here and applied in batches by `processPendingSubscriptionChanges` on the async
+  // operation queueing executor; at most one batch is in flight at a time, which preserves ordering between batches
+  private final Queue<SubscriptionChange> pendingSubscriptionChanges = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingSubscriptionChangeCount;
+  private final AtomicBoolean subscriptionChangeProcessingScheduled = new AtomicBoolean(false);
+
   private final UUID serverId = UUID.randomUUID();
 
   private final byte[] CLIENT_CONNECTED_EVENT_BYTES = ClientEvent.newBuilder()
@@ -88,15 +100,41 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
   private static final Counter MESSAGE_AVAILABLE_WITHOUT_LISTENER_COUNTER =
       Metrics.counter(MetricsUtil.name(RedisMessageAvailabilityManager.class, "messageAvailableWithoutListener"));
 
+  private static final Counter COALESCED_SUBSCRIPTION_CHANGES_COUNTER =
+      Metrics.counter(MetricsUtil.name(RedisMessageAvailabilityManager.class, "coalescedSubscriptionChanges"));
+
+  private static final DistributionSummary SUBSCRIPTION_CHANGE_BATCH_SIZE_DISTRIBUTION = DistributionSummary
+      .builder(MetricsUtil.name(RedisMessageAvailabilityManager.class, "subscriptionChangeBatchSize"))
+      .publishPercentileHistogram(true)
+      .register(Metrics.globalRegistry);
+
+  private static final DistributionSummary SUBSCRIPTION_COMMAND_CHANNELS_DISTRIBUTION = DistributionSummary
+      .builder(MetricsUtil.name(RedisMessageAvailabilityManager.class, "subscriptionCommandChannels"))
+      .publishPercentileHistogram(true)
+      .register(Metrics.globalRegistry);
+
   private static final String LISTENER_GAUGE_NAME =
       MetricsUtil.name(RedisMessageAvailabilityManager.class, "listeners");
 
+  private static final String PENDING_SUBSCRIPTION_CHANGES_GAUGE_NAME =
+      MetricsUtil.name(RedisMessageAvailabilityManager.class, "pendingSubscriptionChanges");
+
+  // Bounds both the size of a single batch and the time a batch can hold up changes queued behind it
+  @VisibleForTesting
+  static final int MAX_SUBSCRIPTION_CHANGE_BATCH_SIZE = 1024;
+
   private static final Logger logger = LoggerFactory.getLogger(RedisMessageAvailabilityManager.class);
 
   @VisibleForTesting
   record AccountAndDeviceIdentifier(UUID accountIdentifier, byte deviceId) {
   }
 
+  private record SubscriptionChange(byte[] channel, boolean subscribe, CompletableFuture<Void> future) {
+  }
+
+  private record SlotAndAction(int slot, boolean subscribe) {
+  }
+
   public RedisMessageAvailabilityManager(final FaultTolerantRedisClusterClient clusterClient,
       final Executor listenerEventExecutor,
       final Executor asyncOperationQueueingExecutor) {
@@ -107,6 +145,9 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
 
     this.listenersByAccountAndDeviceIdentifier =
         Metrics.gaugeMapSize(LISTENER_GAUGE_NAME, Tags.empty(), new ConcurrentHashMap<>());
+
+    this.pendingSubscriptionChangeCount =
+        Metrics.gauge(PENDING_SUBSCRIPTION_CHANGES_GAUGE_NAME, new AtomicInteger(0));
   }
 
   @Override
@@ -164,9 +205,7 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     // operation is asynchronous; we're not blocking on it in the scope of the `compute` operation.
     listenersByAccountAndDeviceIdentifier.compute(new AccountAndDeviceIdentifier(accountIdentifier, deviceId),
         (key, existingListener) -> {
-          subscribeFuture.set(CompletableFuture.supplyAsync(() -> pubSubConnection.withPubSubConnection(connection ->
-                  connection.async().ssubscribe(eventChannel)), asyncOperationQueueingExecutor)
-              .thenCompose(Function.identity()));
+          subscribeFuture.set(enqueueSubscriptionChange(eventChannel, true));
 
           if (existingListener != null) {
             displacedListener.set(existingListener);
@@ -219,10 +258,7 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     // operation is asynchronous; we're not blocking on it in the scope of the `compute` operation.
     listenersByAccountAndDeviceIdentifier.compute(new AccountAndDeviceIdentifier(accountIdentifier, deviceId),
         (ignored, existingListener) -> {
-          unsubscribeFuture.set(CompletableFuture.supplyAsync(() -> pubSubConnection.withPubSubConnection(connection ->
-                      connection.async().sunsubscribe(getClientEventChannel(accountIdentifier, deviceId)))
-                  .thenRun(Util.NOOP), asyncOperationQueueingExecutor)
-              .thenCompose(Function.identity()));
+          unsubscribeFuture.set(enqueueSubscriptionChange(getClientEventChannel(accountIdentifier, deviceId), false));
 
           return null;
         });
@@ -284,9 +320,8 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     listenersByAccountAndDeviceIdentifier.compute(accountAndDeviceIdentifier, (ignored, existingListener) -> {
       if (existingListener == null && pubSubConnection != null) {
         // Enqueue, but do not block on, an "unsubscribe" operation
-        asyncOperationQueueingExecutor.execute(() -> pubSubConnection.usePubSubConnection(connection ->
-            connection.async().sunsubscribe(getClientEventChannel(accountAndDeviceIdentifier.accountIdentifier(),
-                accountAndDeviceIdentifier.deviceId()))));
+        enqueueSubscriptionChange(getClientEventChannel(accountAndDeviceIdentifier.accountIdentifier(),
+            accountAndDeviceIdentifier.deviceId()), false);
       }
 
       // Make no change to the existing listener whether present or absent
@@ -294,6 +329,124 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     });
   }
 
+  /**
+   * Queues a subscription change for the given channel and makes sure a task is scheduled to apply pending changes.
+   *
+   * @param channel the channel to subscribe to or unsubscribe from
+   * @param subscribe {@code true} to subscribe to the given channel or {@code false} to unsubscribe
+   *
+   * @return a future that completes when the change (or a later change for the same channel that superseded it) has
+   * been applied
+   */
+  private CompletableFuture<Void> enqueueSubscriptionChange(final byte[] channel, final boolean subscribe) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    pendingSubscriptionChanges.add(new SubscriptionChange(channel, subscribe, future));
+    pendingSubscriptionChangeCount.incrementAndGet();
+
+    scheduleSubscriptionChangeProcessing();
+
+    return future;
+  }
+
+  private void scheduleSubscriptionChangeProcessing() {
+    if (!pendingSubscriptionChanges.isEmpty() && subscriptionChangeProcessingScheduled.compareAndSet(false, true)) {
+      asyncOperationQueueingExecutor.execute(this::processPendingSubscriptionChanges);
+    }
+  }
+
+  /**
+   * Applies up to {@link #MAX_SUBSCRIPTION_CHANGE_BATCH_SIZE} pending subscription changes. Changes for the same
+   * channel are coalesced so that only the most recent change is sent to Redis, and the remaining changes are grouped
+   * into one multi-channel command per slot and action. Sharded pub/sub commands may only name channels in a single
+   * slot, so this is the coarsest grouping Redis allows.
+   */
+  @VisibleForTesting
+  void processPendingSubscriptionChanges() {
+    final List<SubscriptionChange> batch = new ArrayList<>();
+
+    try {
+      SubscriptionChange subscriptionChange;
+
+      while (batch.size() < MAX_SUBSCRIPTION_CHANGE_BATCH_SIZE
+          && (subscriptionChange = pendingSubscriptionChanges.poll()) != null) {
+
+        batch.add(subscriptionChange);
+      }
+
+      pendingSubscriptionChangeCount.addAndGet(-batch.size());
+
+      if (!batch.isEmpty()) {
+        SUBSCRIPTION_CHANGE_BATCH_SIZE_DISTRIBUTION.record(batch.size());
+        applySubscriptionChanges(batch);
+      }
+    } finally {
+      subscriptionChangeProcessingScheduled.set(false);
+
+      // More changes may have arrived while we were working (or we may have left some behind because the batch was
+      // full); if so, pick them up in a new task so other work on the executor isn't starved
+      scheduleSubscriptionChangeProcessing();
+    }
+  }
+
+  private void applySubscriptionChanges(final List<SubscriptionChange> subscriptionChanges) {
+    final Map<ByteBuffer, SubscriptionChange> latestChangesByChannel = new LinkedHashMap<>();
+    final Map<ByteBuffer, List<CompletableFuture<Void>>> futuresByChannel = new HashMap<>();
+
+    subscriptionChanges.forEach(subscriptionChange -> {
+      final ByteBuffer channel = ByteBuffer.wrap(subscriptionChange.channel());
+
+      latestChangesByChannel.put(channel, subscriptionChange);
+      futuresByChannel.computeIfAbsent(channel, ignored -> new ArrayList<>()).add(subscriptionChange.future());
+    });
+
+    COALESCED_SUBSCRIPTION_CHANGES_COUNTER.increment(subscriptionChanges.size() - latestChangesByChannel.size());
+
+    final Map<SlotAndAction, List<byte[]>> channelsBySlotAndAction = new LinkedHashMap<>();
+
+    latestChangesByChannel.values().forEach(subscriptionChange ->
+        channelsBySlotAndAction.computeIfAbsent(
+                new SlotAndAction(SlotHash.getSlot(subscriptionChange.channel()), subscriptionChange.subscribe()),
+                ignored -> new ArrayList<>())
+            .add(subscriptionChange.channel()));
+
+    @Nullable final FaultTolerantPubSubClusterConnection<byte[], byte[]> connection = pubSubConnection;
+
+    channelsBySlotAndAction.forEach((slotAndAction, channels) -> {
+      SUBSCRIPTION_COMMAND_CHANNELS_DISTRIBUTION.record(channels.size());
+
+      final List<CompletableFuture<Void>> futures = channels.stream()
+          .flatMap(channel -> futuresByChannel.get(ByteBuffer.wrap(channel)).stream())
+          .toList();
+
+      if (connection == null) {
+        futures.forEach(future ->
+            future.completeExceptionally(new IllegalStateException("WebSocket connection event manager not started")));
+
+        return;
+      }
+
+      try {
+        final byte[][] channelArray = channels.toArray(byte[][]::new);
+
+        final RedisFuture<Void> commandFuture = connection.withPubSubConnection(clusterPubSubConnection ->
+            slotAndAction.subscribe()
+                ? clusterPubSubConnection.async().ssubscribe(channelArray)
+                : clusterPubSubConnection.async().sunsubscribe(channelArray));
+
+        commandFuture.whenComplete((ignored, throwable) -> futures.forEach(future -> {
+          if (throwable != null) {
+            future.completeExceptionally(throwable);
+          } else {
+            future.complete(null);
+          }
+        }));
+      } catch (final Exception e) {
+        futures.forEach(future -> future.completeExceptionally(e));
+      }
+    });
+  }
+
   @Override
   public void smessage(final RedisClusterNode node, final byte[] shardChannel, final byte[] message) {
     final ClientEvent clientEvent;
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.lifecycle.Managed;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
+import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubConnection;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
+
+/**
+ * An account local cache holds serialized account cache entries in memory so that frequent lookups for the same
+ * account (most notably during authentication) can skip a round-trip to the Redis account cache. Entries are evicted
+ * by size and age, and servers broadcast invalidations to one another via Redis pub/sub whenever they modify or remove
+ * an account cache entry.
+ * <p>
+ * Because invalidations are delivered asynchronously and on a best-effort basis, a server may briefly serve a stale
+ * entry; the configured TTL bounds how long that can happen. Callers that modify accounts already guard against stale
+ * reads with optimistic locking.
+ * <p>
+ * Servers only read from and populate the local cache after {@link #start()} has been called (i.e. once they're
+ * subscribed to invalidation messages), but will publish invalidations whenever the cache is enabled.
+ * <p>
+ * A Redis read that started before an invalidation may finish after it. To keep such a read from putting a stale entry
+ * back into the cache, callers capture an invalidation generation with {@link #getGeneration(UUID)} before reading from
+ * Redis and pass it back to {@link #put(UUID, byte[], long)}, which discards the entry if the account was invalidated
+ * in the meantime.
+ */
+public class AccountLocalCache extends RedisPubSubAdapter<String, String> implements Managed {
+
+  private final FaultTolerantRedisClient pubSubClient;
+  private final boolean enabled;
+
+  private final Cache<UUID, byte[]> serializedAccountsByIdentifier;
+
+  // Generations are striped by account identifier to bound memory; an invalidation of one account may spuriously
+  // reject a put for another account in the same stripe, which just costs a cache miss
+  private final AtomicLongArray invalidationGenerations = new AtomicLongArray(INVALIDATION_GENERATION_STRIPES);
+
+  private volatile boolean started = false;
+
+  @Nullable
+  private FaultTolerantPubSubConnection<String, String> pubSubConnection;
+
+  @VisibleForTesting
+  static final String INVALIDATION_CHANNEL = "account_cache_invalidations";
+
+  private static final int INVALIDATION_GENERATION_STRIPES = 4096;
+
+  private static final Counter HIT_COUNTER = Metrics.counter(MetricsUtil.name(AccountLocalCache.class, "hit"));
+  private static final Counter MISS_COUNTER = Metrics.counter(MetricsUtil.name(AccountLocalCache.class, "miss"));
+
+  private static final Counter INVALIDATIONS_SENT_COUNTER =
+      Metrics.counter(MetricsUtil.name(AccountLocalCache.class, "invalidationsSent"));
+
+  private static final Counter INVALIDATIONS_RECEIVED_COUNTER =
+      Metrics.counter(MetricsUtil.name(AccountLocalCache.class, "invalidationsReceived"));
+
+  private static final Logger logger = LoggerFactory.getLogger(AccountLocalCache.class);
+
+  public AccountLocalCache(final FaultTolerantRedisClient pubSubClient,
+      final AccountLocalCacheConfiguration configuration) {
+
+    this.pubSubClient = pubSubClient;
+    this.enabled = configuration.enabled();
+
+    this.serializedAccountsByIdentifier = CacheBuilder.newBuilder()
+        .maximumSize(configuration.maxSize())
+        .expireAfterWrite(configuration.ttl())
+        .build();
+
+    Metrics.gauge(MetricsUtil.name(AccountLocalCache.class, "size"), serializedAccountsByIdentifier, Cache::size);
+  }
+
+  @Override
+  public synchronized void start() {
+    if (!enabled) {
+      return;
+    }
+
+    this.pubSubConnection = pubSubClient.createPubSubConnection();
+    this.pubSubConnection.usePubSubConnection(connection -> {
+      connection.addListener(this);
+      connection.sync().subscribe(INVALIDATION_CHANNEL);
+    });
+
+    started = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    started = false;
+
+    if (pubSubConnection != null) {
+      pubSubConnection.usePubSubConnection(connection -> {
+        connection.removeListener(this);
+        connection.close();
+      });
+    }
+
+    pubSubConnection = null;
+    serializedAccountsByIdentifier.invalidateAll();
+  }
+
+  /**
+   * Returns the serialized account cache entry for the given account identifier if present in the local cache.
+   *
+   * @param accountIdentifier the identifier of the account to retrieve
+   *
+   * @return the serialized account cache entry for the given account, or empty if no entry was present locally
+   */
+  Optional<byte[]> get(final UUID accountIdentifier) {
+    if (!started) {
+      return Optional.empty();
+    }
+
+    final Optional<byte[]> maybeSerializedAccount =
+        Optional.ofNullable(serializedAccountsByIdentifier.getIfPresent(accountIdentifier));
+
+    (maybeSerializedAccount.isPresent() ? HIT_COUNTER : MISS_COUNTER).increment();
+
+    return maybeSerializedAccount;
+  }
+
+  /**
+   * Returns the current invalidation generation for the given account. Callers must capture the generation before
+   * reading an entry from Redis and pass it to {@link #put(UUID, byte[], long)} when storing the entry.
+   *
+   * @param accountIdentifier the identifier of the account about to be read
+   *
+   * @return the current invalidation generation for the given account
+   */
+  long getGeneration(final UUID accountIdentifier) {
+    return invalidationGenerations.get(getStripe(accountIdentifier));
+  }
+
+  /**
+   * Stores a serialized account cache entry (as read from Redis) in the local cache unless the account has been
+   * invalidated since the given generation was captured.
+   *
+   * @param accountIdentifier the identifier of the account to store
+   * @param serializedAccount the serialized account cache entry
+   * @param generation the invalidation generation captured via {@link #getGeneration(UUID)} before reading the entry
+   */
+  void put(final UUID accountIdentifier, final byte[] serializedAccount, final long generation) {
+    if (!started) {
+      return;
+    }
+
+    serializedAccountsByIdentifier.put(accountIdentifier, serializedAccount);
+
+    // Invalidations bump the generation before removing the entry, so if an invalidation raced with this put, either
+    // we'll see the new generation here or the invalidation will remove the entry we just stored
+    if (getGeneration(accountIdentifier) != generation) {
+      serializedAccountsByIdentifier.invalidate(accountIdentifier);
+    }
+  }
+
+  /**
+   * Removes the given account from this server's local cache and broadcasts a request for all other servers to do the
+   * same.
+   *
+   * @param accountIdentifier the identifier of the account to invalidate
+   *
+   * @return a future that completes when the invalidation has been broadcast
+   */
+  CompletableFuture<Void> invalidate(final UUID accountIdentifier) {
+    if (!enabled) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    invalidateLocally(accountIdentifier);
+
+    return pubSubClient.withConnection(connection ->
+            connection.async().publish(INVALIDATION_CHANNEL, accountIdentifier.toString()))
+        .toCompletableFuture()
+        .thenRun(INVALIDATIONS_SENT_COUNTER::increment)
+        .exceptionally(throwable -> {
+          logger.warn("Failed to broadcast account cache invalidation", throwable);
+          return null;
+        });
+  }
+
+  @Override
+  public void message(final String channel, final String message) {
+    if (!INVALIDATION_CHANNEL.equals(channel)) {
+      return;
+    }
+
+    try {
+      invalidateLocally(UUID.fromString(message));
+      INVALIDATIONS_RECEIVED_COUNTER.increment();
+    } catch (final IllegalArgumentException e) {
+      logger.error("Could not parse account cache invalidation", e);
+    }
+  }
+
+  private void invalidateLocally(final UUID accountIdentifier) {
+    invalidationGenerations.incrementAndGet(getStripe(accountIdentifier));
+    serializedAccountsByIdentifier.invalidate(accountIdentifier);
+  }
+
+  private static int getStripe(final UUID accountIdentifier) {
+    return Math.floorMod(accountIdentifier.hashCode(), INVALIDATION_GENERATION_STRIPES);
+  }
+}
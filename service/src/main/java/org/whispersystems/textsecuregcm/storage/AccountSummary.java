@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * An account summary is a lightweight, read-only view of an account for maintenance tasks that only need identifiers
+ * and basic device state. Summaries are much cheaper to decode and hold in memory than full {@link Account} entities;
+ * callers that need to act on an account should load the full entity by its identifier.
+ *
+ * @param accountIdentifier the account's ACI
+ * @param phoneNumberIdentifier the account's PNI, if present
+ * @param devices summaries of the account's devices
+ */
+public record AccountSummary(UUID accountIdentifier,
+                             @Nullable UUID phoneNumberIdentifier,
+                             List<DeviceSummary> devices) {
+
+  /**
+   * A lightweight view of a single device.
+   *
+   * @param id the device's ID
+   * @param lastSeen the time, in milliseconds since the epoch, at which the device was last seen
+   * @param hasPushToken whether the device has an APNs or FCM token
+   */
+  public record DeviceSummary(byte id, long lastSeen, boolean hasPushToken) {
+
+    public boolean isPrimary() {
+      return id == Device.PRIMARY_ID;
+    }
+
+    /**
+     * @see Device#isExpired()
+     */
+    public boolean isExpired() {
+      return Device.isExpired(id, lastSeen);
+    }
+  }
+
+  // Only the fields of the stored account and device JSON we need; everything else is skipped without being bound
+  private static class StoredAccountData {
+
+    @JsonProperty
+    private List<StoredDevice> devices = new ArrayList<>();
+  }
+
+  private static class StoredDevice {
+
+    @JsonProperty
+    private byte id;
+
+    @JsonProperty
+    private long lastSeen;
+
+    @JsonProperty
+    private String gcmId;
+
+    @JsonProperty
+    private String apnId;
+  }
+
+  private static final ObjectReader STORED_ACCOUNT_DATA_READER =
+      SystemMapper.jsonMapper().readerFor(StoredAccountData.class);
+
+  /**
+   * The attributes of an item in the accounts table required to build a summary.
+   */
+  static final List<String> PROJECTED_ATTRIBUTES =
+      List.of(Accounts.KEY_ACCOUNT_UUID, Accounts.ATTR_PNI_UUID, Accounts.ATTR_ACCOUNT_DATA);
+
+  static AccountSummary fromItem(final Map<String, AttributeValue> item) {
+    if (!item.containsKey(Accounts.KEY_ACCOUNT_UUID) || !item.containsKey(Accounts.ATTR_ACCOUNT_DATA)) {
+      throw new RuntimeException("item missing values");
+    }
+
+    try {
+      final StoredAccountData storedAccountData =
+          STORED_ACCOUNT_DATA_READER.readValue(item.get(Accounts.ATTR_ACCOUNT_DATA).b().asByteArray());
+
+      final List<DeviceSummary> devices = storedAccountData.devices.stream()
+          .map(device -> new DeviceSummary(device.id, device.lastSeen,
+              !StringUtils.isAllBlank(device.apnId, device.gcmId)))
+          .toList();
+
+      return new AccountSummary(UUIDUtil.fromByteBuffer(item.get(Accounts.KEY_ACCOUNT_UUID).b().asByteBuffer()),
+          AttributeValues.getUUID(item, Accounts.ATTR_PNI_UUID, null),
+          devices);
+    } catch (final IOException e) {
+      throw new RuntimeException("Could not read stored account data", e);
+    }
+  }
+}
@@ -11,6 +11,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
@@ -23,6 +25,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +35,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -43,21 +47,25 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.util.AsyncTimerUtil;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.BackoffUtil;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
 import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
 import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.Delete;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
@@ -107,11 +115,23 @@ public class Accounts {
   private static final Timer GET_BY_USERNAME_LINK_HANDLE_TIMER = Metrics.timer(name(Accounts.class, "getByUsernameLinkHandle"));
   private static final Timer GET_BY_PNI_TIMER = Metrics.timer(name(Accounts.class, "getByPni"));
   private static final Timer GET_BY_UUID_TIMER = Metrics.timer(name(Accounts.class, "getByUuid"));
+  private static final Timer BATCH_GET_BY_UUID_TIMER = Metrics.timer(name(Accounts.class, "batchGetByUuid"));
+  private static final Timer BATCH_GET_BY_PNI_TIMER = Metrics.timer(name(Accounts.class, "batchGetByPni"));
   private static final Timer DELETE_TIMER = Metrics.timer(name(Accounts.class, "delete"));
   private static final String USERNAME_HOLD_ADDED_COUNTER_NAME = name(Accounts.class, "usernameHoldAdded");
 
   private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
 
+  // The maximum number of keys DynamoDB allows in a single BatchGetItem request
+  private static final int MAX_BATCH_GET_ITEM_KEYS = 100;
+
+  private static final int MAX_BATCH_GET_ITEM_ATTEMPTS = 5;
+  private static final Duration BATCH_GET_ITEM_BASE_BACKOFF = Duration.ofMillis(50);
+  private static final Duration BATCH_GET_ITEM_MAX_BACKOFF = Duration.ofSeconds(1);
+
+  private static final Counter BATCH_GET_ITEM_UNPROCESSED_KEYS_COUNTER =
+      Metrics.counter(name(Accounts.class, "batchGetItemUnprocessedKeys"));
+
   private static final String TRANSACTION_CONFLICT = "TransactionConflict";
 
   // uuid, primary key
@@ -1176,6 +1196,44 @@ public class Accounts {
         .toCompletableFuture();
   }
 
+  /**
+   * Retrieves multiple accounts by account identifier using batched reads.
+   *
+   * @param accountIdentifiers the identifiers of the accounts to retrieve
+   *
+   * @return a future that yields a map of account identifiers to accounts; identifiers that do not belong to an
+   * existing account are omitted
+   */
+  @Nonnull
+  public CompletableFuture<Map<UUID, Account>> getByAccountIdentifiersAsync(final Collection<UUID> accountIdentifiers) {
+    return AsyncTimerUtil.record(BATCH_GET_BY_UUID_TIMER, () -> batchGetItemsAsync(accountsTableName, KEY_ACCOUNT_UUID,
+                accountIdentifiers.stream().distinct().map(AttributeValues::fromUUID).toList())
+            .thenApply(items -> items.stream()
+                .map(Accounts::fromItem)
+                .collect(Collectors.toMap(Account::getUuid, Function.identity()))))
+        .toCompletableFuture();
+  }
+
+  /**
+   * Retrieves the account identifiers associated with multiple phone number identifiers using batched reads.
+   *
+   * @param phoneNumberIdentifiers the phone number identifiers for which to find account identifiers
+   *
+   * @return a future that yields a map of phone number identifiers to account identifiers; phone number identifiers
+   * not associated with an existing account are omitted
+   */
+  @Nonnull
+  public CompletableFuture<Map<UUID, UUID>> getAccountIdentifiersByPhoneNumberIdentifiersAsync(
+      final Collection<UUID> phoneNumberIdentifiers) {
+
+    return AsyncTimerUtil.record(BATCH_GET_BY_PNI_TIMER, () -> batchGetItemsAsync(phoneNumberIdentifierConstraintTableName,
+                ATTR_PNI_UUID, phoneNumberIdentifiers.stream().distinct().map(AttributeValues::fromUUID).toList())
+            .thenApply(items -> items.stream().collect(Collectors.toMap(
+                item -> AttributeValues.getUUID(item, ATTR_PNI_UUID, null),
+                item -> AttributeValues.getUUID(item, KEY_ACCOUNT_UUID, null)))))
+        .toCompletableFuture();
+  }
+
   public Optional<UUID> findRecentlyDeletedAccountIdentifier(final UUID phoneNumberIdentifier) {
     final GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
         .tableName(deletedAccountsTableName)
@@ -1252,6 +1310,78 @@ public class Accounts {
         .sequential();
   }
 
+  Flux<Account> getAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    return scanner.scan(buildScanRequest(), segments, scheduler, maxReadCapacityUnitsPerSecond)
+        .map(Accounts::fromItem);
+  }
+
+  Mono<Void> processAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String scanName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<Account>, Mono<Void>> pageProcessor) {
+
+    return scanner.scan(scanName, buildScanRequest(), segments, scheduler, maxReadCapacityUnitsPerSecond,
+        items -> pageProcessor.apply(items.map(Accounts::fromItem)));
+  }
+
+  private ScanRequest buildScanRequest() {
+    return ScanRequest.builder()
+        .tableName(accountsTableName)
+        .consistentRead(true)
+        .build();
+  }
+
+  Flux<AccountSummary> getAllSummaries(final int segments, final Scheduler scheduler) {
+    if (segments < 1) {
+      throw new IllegalArgumentException("Total number of segments must be positive");
+    }
+
+    return Flux.range(0, segments)
+        .parallel()
+        .runOn(scheduler)
+        .flatMap(segment -> dynamoDbAsyncClient.scanPaginator(buildSummaryScanRequest().toBuilder()
+                .segment(segment)
+                .totalSegments(segments)
+                .build())
+            .items()
+            .map(AccountSummary::fromItem))
+        .sequential();
+  }
+
+  Flux<AccountSummary> getAllSummaries(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    return scanner.scan(buildSummaryScanRequest(), segments, scheduler, maxReadCapacityUnitsPerSecond)
+        .map(AccountSummary::fromItem);
+  }
+
+  Mono<Void> processAllSummaries(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String scanName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<AccountSummary>, Mono<Void>> pageProcessor) {
+
+    return scanner.scan(scanName, buildSummaryScanRequest(), segments, scheduler, maxReadCapacityUnitsPerSecond,
+        items -> pageProcessor.apply(items.map(AccountSummary::fromItem)));
+  }
+
+  private ScanRequest buildSummaryScanRequest() {
+    return ScanRequest.builder()
+        .tableName(accountsTableName)
+        .consistentRead(true)
+        .projectionExpression(String.join(",", AccountSummary.PROJECTED_ATTRIBUTES))
+        .build();
+  }
+
   Flux<UUID> getAllAccountIdentifiers(final int segments, final Scheduler scheduler) {
     if (segments < 1) {
       throw new IllegalArgumentException("Total number of segments must be positive");
@@ -1344,6 +1474,61 @@ public class Accounts {
         .thenApply(response -> Optional.ofNullable(response.item()).filter(item -> !item.isEmpty()));
   }
 
+  @Nonnull
+  private CompletableFuture<List<Map<String, AttributeValue>>> batchGetItemsAsync(final String table,
+      final String keyName,
+      final List<AttributeValue> keyValues) {
+
+    final List<CompletableFuture<List<Map<String, AttributeValue>>>> futures =
+        Lists.partition(keyValues, MAX_BATCH_GET_ITEM_KEYS).stream()
+            .map(partition -> batchGetItemsAsync(table, KeysAndAttributes.builder()
+                .keys(partition.stream().map(keyValue -> Map.of(keyName, keyValue)).toList())
+                .consistentRead(true)
+                .build(), 1))
+            .toList();
+
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+        .thenApply(ignored -> futures.stream()
+            .flatMap(future -> future.join().stream())
+            .toList());
+  }
+
+  @Nonnull
+  private CompletableFuture<List<Map<String, AttributeValue>>> batchGetItemsAsync(final String table,
+      final KeysAndAttributes keysAndAttributes,
+      final int attempt) {
+
+    return dynamoDbAsyncClient.batchGetItem(BatchGetItemRequest.builder()
+            .requestItems(Map.of(table, keysAndAttributes))
+            .build())
+        .thenCompose(response -> {
+          final List<Map<String, AttributeValue>> items =
+              response.responses().getOrDefault(table, Collections.emptyList());
+
+          final KeysAndAttributes unprocessedKeys = response.unprocessedKeys().get(table);
+
+          if (unprocessedKeys == null || unprocessedKeys.keys().isEmpty()) {
+            return CompletableFuture.completedFuture(items);
+          }
+
+          BATCH_GET_ITEM_UNPROCESSED_KEYS_COUNTER.increment(unprocessedKeys.keys().size());
+
+          if (attempt >= MAX_BATCH_GET_ITEM_ATTEMPTS) {
+            return CompletableFuture.failedFuture(
+                new IllegalStateException("Could not read all items after " + attempt + " attempts"));
+          }
+
+          return BackoffUtil.retryAfterBackoff(BATCH_GET_ITEM_BASE_BACKOFF, BATCH_GET_ITEM_MAX_BACKOFF, attempt - 1,
+                  () -> batchGetItemsAsync(table, unprocessedKeys, attempt + 1))
+              .thenApply(remainingItems -> {
+                final List<Map<String, AttributeValue>> allItems = new ArrayList<>(items);
+                allItems.addAll(remainingItems);
+
+                return allItems;
+              });
+        });
+  }
+
   @Nonnull
   private CompletableFuture<Optional<Map<String, AttributeValue>>> itemByGsiKeyAsync(final String table, final String indexName, final String keyName, final AttributeValue keyValue) {
     return dynamoDbAsyncClient.query(QueryRequest.builder()
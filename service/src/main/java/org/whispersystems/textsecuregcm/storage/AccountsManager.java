@@ -9,7 +9,9 @@ import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Objects.requireNonNull;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import io.dropwizard.lifecycle.Managed;
@@ -37,6 +39,7 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +93,7 @@ import org.whispersystems.textsecuregcm.util.RegistrationIdValidator;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
 import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
@@ -102,11 +106,15 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   private static final Timer getByUsernameHashTimer = Metrics.timer(name(AccountsManager.class, "getByUsernameHash"));
   private static final Timer getByUsernameLinkHandleTimer = Metrics.timer(name(AccountsManager.class, "getByUsernameLinkHandle"));
   private static final Timer getByUuidTimer = Metrics.timer(name(AccountsManager.class, "getByUuid"));
+  private static final Timer getByServiceIdentifiersTimer =
+      Metrics.timer(name(AccountsManager.class, "getByServiceIdentifiers"));
   private static final Timer deleteTimer = Metrics.timer(name(AccountsManager.class, "delete"));
 
   private static final Timer redisSetTimer = Metrics.timer(name(AccountsManager.class, "redisSet"));
   private static final Timer redisPniGetTimer = Metrics.timer(name(AccountsManager.class, "redisPniGet"));
   private static final Timer redisUuidGetTimer = Metrics.timer(name(AccountsManager.class, "redisUuidGet"));
+  private static final Timer redisPniMultiGetTimer = Metrics.timer(name(AccountsManager.class, "redisPniMultiGet"));
+  private static final Timer redisUuidMultiGetTimer = Metrics.timer(name(AccountsManager.class, "redisUuidMultiGet"));
   private static final Timer redisDeleteTimer = Metrics.timer(name(AccountsManager.class, "redisDelete"));
 
   private static final String CREATE_COUNTER_NAME       = name(AccountsManager.class, "createCounter");
@@ -122,6 +130,7 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   private final PhoneNumberIdentifiers phoneNumberIdentifiers;
   private final FaultTolerantRedisClusterClient cacheCluster;
   private final FaultTolerantRedisClient pubSubRedisClient;
+  private final AccountLocalCache accountLocalCache;
   private final AccountLockManager accountLockManager;
   private final KeysManager keysManager;
   private final MessagesManager messagesManager;
@@ -167,6 +176,16 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   private static final ObjectWriter ACCOUNT_REDIS_JSON_WRITER = SystemMapper.jsonMapper()
       .writer(SystemMapper.excludingField(Account.class, List.of("uuid")));
 
+  // Binary account cache entries are a single format version byte followed by a Smile-encoded account; JSON entries
+  // always begin with '{', so the two formats can be distinguished by their first byte
+  @VisibleForTesting
+  static final byte BINARY_ACCOUNT_CACHE_FORMAT_VERSION = 0x01;
+
+  private static final ObjectMapper ACCOUNT_REDIS_SMILE_MAPPER = SystemMapper.configureMapper(new SmileMapper());
+
+  private static final ObjectWriter ACCOUNT_REDIS_SMILE_WRITER = ACCOUNT_REDIS_SMILE_MAPPER
+      .writer(SystemMapper.excludingField(Account.class, List.of("uuid")));
+
   private static final Duration MESSAGE_POLL_INTERVAL = Duration.ofSeconds(1);
   private static final Duration MAX_SERVER_CLOCK_DRIFT = Duration.ofSeconds(5);
 
@@ -212,6 +231,7 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
       final PhoneNumberIdentifiers phoneNumberIdentifiers,
       final FaultTolerantRedisClusterClient cacheCluster,
       final FaultTolerantRedisClient pubSubRedisClient,
+      final AccountLocalCache accountLocalCache,
       final AccountLockManager accountLockManager,
       final KeysManager keysManager,
       final MessagesManager messagesManager,
@@ -230,6 +250,7 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     this.phoneNumberIdentifiers = phoneNumberIdentifiers;
     this.cacheCluster = cacheCluster;
     this.pubSubRedisClient = pubSubRedisClient;
+    this.accountLocalCache = accountLocalCache;
     this.accountLockManager = accountLockManager;
     this.keysManager = keysManager;
     this.messagesManager = messagesManager;
@@ -1158,6 +1179,123 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     };
   }
 
+  /**
+   * Retrieves the accounts identified by all the given service identifiers. Rather than resolving each service
+   * identifier individually, this method reads cached account entries (and phone number identifier mappings) in bulk
+   * and fetches any accounts missing from the cache with batched reads.
+   *
+   * @param serviceIdentifiers the service identifiers for which to retrieve accounts
+   *
+   * @return a future that yields a map of service identifiers to accounts; service identifiers that do not identify
+   * an existing account are omitted
+   */
+  public CompletableFuture<Map<ServiceIdentifier, Account>> getByServiceIdentifiers(
+      final Collection<ServiceIdentifier> serviceIdentifiers) {
+
+    final Timer.Sample sample = Timer.start();
+
+    final Set<UUID> accountIdentifiers = new HashSet<>();
+    final Set<UUID> phoneNumberIdentifiers = new HashSet<>();
+
+    for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+      switch (serviceIdentifier.identityType()) {
+        case ACI -> accountIdentifiers.add(serviceIdentifier.uuid());
+        case PNI -> phoneNumberIdentifiers.add(serviceIdentifier.uuid());
+      }
+    }
+
+    return getAccountIdentifiersByPhoneNumberIdentifiers(phoneNumberIdentifiers)
+        .thenCompose(accountIdentifiersByPhoneNumberIdentifier -> {
+          accountIdentifiers.addAll(accountIdentifiersByPhoneNumberIdentifier.values());
+
+          return getByAccountIdentifiers(accountIdentifiers)
+              .thenApply(accountsByAccountIdentifier -> {
+                final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+                for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+                  @Nullable final UUID accountIdentifier = switch (serviceIdentifier.identityType()) {
+                    case ACI -> serviceIdentifier.uuid();
+                    case PNI -> accountIdentifiersByPhoneNumberIdentifier.get(serviceIdentifier.uuid());
+                  };
+
+                  if (accountIdentifier != null && accountsByAccountIdentifier.containsKey(accountIdentifier)) {
+                    accountsByServiceIdentifier.put(serviceIdentifier, accountsByAccountIdentifier.get(accountIdentifier));
+                  }
+                }
+
+                return accountsByServiceIdentifier;
+              });
+        })
+        .whenComplete((ignored, throwable) -> sample.stop(getByServiceIdentifiersTimer));
+  }
+
+  private CompletableFuture<Map<UUID, UUID>> getAccountIdentifiersByPhoneNumberIdentifiers(
+      final Set<UUID> phoneNumberIdentifiers) {
+
+    if (phoneNumberIdentifiers.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    return redisGetAccountIdentifiersByPhoneNumberIdentifiers(List.copyOf(phoneNumberIdentifiers))
+        .thenCompose(accountIdentifiersFromRedis -> {
+          final List<UUID> uncachedPhoneNumberIdentifiers = phoneNumberIdentifiers.stream()
+              .filter(pni -> !accountIdentifiersFromRedis.containsKey(pni))
+              .toList();
+
+          if (uncachedPhoneNumberIdentifiers.isEmpty()) {
+            return CompletableFuture.completedFuture(accountIdentifiersFromRedis);
+          }
+
+          return accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(uncachedPhoneNumberIdentifiers)
+              .thenApply(accountIdentifiersFromAccounts -> {
+                final Map<UUID, UUID> accountIdentifiersByPhoneNumberIdentifier =
+                    new HashMap<>(accountIdentifiersFromRedis);
+
+                accountIdentifiersByPhoneNumberIdentifier.putAll(accountIdentifiersFromAccounts);
+                return accountIdentifiersByPhoneNumberIdentifier;
+              });
+        });
+  }
+
+  private CompletableFuture<Map<UUID, Account>> getByAccountIdentifiers(final Set<UUID> accountIdentifiers) {
+    final Map<UUID, Account> accountsByAccountIdentifier = new HashMap<>();
+    final List<UUID> uncachedAccountIdentifiers = new ArrayList<>();
+
+    for (final UUID accountIdentifier : accountIdentifiers) {
+      accountLocalCache.get(accountIdentifier)
+          .flatMap(entry -> parseAccountCacheEntry(entry, accountIdentifier))
+          .ifPresentOrElse(account -> accountsByAccountIdentifier.put(accountIdentifier, account),
+              () -> uncachedAccountIdentifiers.add(accountIdentifier));
+    }
+
+    if (uncachedAccountIdentifiers.isEmpty()) {
+      return CompletableFuture.completedFuture(accountsByAccountIdentifier);
+    }
+
+    return redisGetByAccountIdentifiers(uncachedAccountIdentifiers)
+        .thenCompose(accountsFromRedis -> {
+          accountsByAccountIdentifier.putAll(accountsFromRedis);
+
+          final List<UUID> missingAccountIdentifiers = uncachedAccountIdentifiers.stream()
+              .filter(accountIdentifier -> !accountsFromRedis.containsKey(accountIdentifier))
+              .toList();
+
+          if (missingAccountIdentifiers.isEmpty()) {
+            return CompletableFuture.completedFuture(accountsByAccountIdentifier);
+          }
+
+          return accounts.getByAccountIdentifiersAsync(missingAccountIdentifiers)
+              .thenCompose(accountsFromAccounts -> {
+                accountsByAccountIdentifier.putAll(accountsFromAccounts);
+
+                return CompletableFuture.allOf(accountsFromAccounts.values().stream()
+                        .map(this::redisSetAsync)
+                        .toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> accountsByAccountIdentifier);
+              });
+        });
+  }
+
   public Optional<Account> getByAccountIdentifier(final UUID uuid) {
     return checkRedisThenAccounts(
         getByUuidTimer,
@@ -1190,6 +1328,75 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     return accounts.getAll(segments, scheduler);
   }
 
+  /**
+   * Streams all accounts, limiting the rate at which the scan consumes read capacity.
+   *
+   * @see CheckpointedSegmentedScanner#scan(software.amazon.awssdk.services.dynamodb.model.ScanRequest, int, Scheduler, double)
+   */
+  public Flux<Account> streamAllFromDynamo(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    return accounts.getAll(segments, scheduler, scanner, maxReadCapacityUnitsPerSecond);
+  }
+
+  /**
+   * Passes all accounts to the given page processor one page at a time, recording progress under the given scan name
+   * as pages are processed so that an interrupted crawl can resume where it left off.
+   *
+   * @see CheckpointedSegmentedScanner#scan(String, software.amazon.awssdk.services.dynamodb.model.ScanRequest, int, Scheduler, double, Function)
+   */
+  public Mono<Void> processAllFromDynamo(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String scanName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<Account>, Mono<Void>> pageProcessor) {
+
+    return accounts.processAll(segments, scheduler, scanner, scanName, maxReadCapacityUnitsPerSecond, pageProcessor);
+  }
+
+  /**
+   * Streams lightweight summaries of all accounts. Callers that only need identifiers and basic device state should
+   * prefer summaries to full accounts, which are much more expensive to decode.
+   */
+  public Flux<AccountSummary> streamAllSummariesFromDynamo(final int segments, final Scheduler scheduler) {
+    return accounts.getAllSummaries(segments, scheduler);
+  }
+
+  /**
+   * Streams lightweight summaries of all accounts, limiting the rate at which the scan consumes read capacity.
+   *
+   * @see #streamAllSummariesFromDynamo(int, Scheduler)
+   * @see CheckpointedSegmentedScanner#scan(software.amazon.awssdk.services.dynamodb.model.ScanRequest, int, Scheduler, double)
+   */
+  public Flux<AccountSummary> streamAllSummariesFromDynamo(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    return accounts.getAllSummaries(segments, scheduler, scanner, maxReadCapacityUnitsPerSecond);
+  }
+
+  /**
+   * Passes lightweight summaries of all accounts to the given page processor one page at a time, recording progress
+   * under the given scan name as pages are processed so that an interrupted crawl can resume where it left off.
+   *
+   * @see #streamAllSummariesFromDynamo(int, Scheduler)
+   * @see CheckpointedSegmentedScanner#scan(String, software.amazon.awssdk.services.dynamodb.model.ScanRequest, int, Scheduler, double, Function)
+   */
+  public Mono<Void> processAllSummariesFromDynamo(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String scanName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<AccountSummary>, Mono<Void>> pageProcessor) {
+
+    return accounts.processAllSummaries(segments, scheduler, scanner, scanName, maxReadCapacityUnitsPerSecond,
+        pageProcessor);
+  }
+
   public Flux<UUID> streamAccountIdentifiersFromDynamo(final int segments, final Scheduler scheduler) {
     return accounts.getAllAccountIdentifiers(segments, scheduler);
   }
@@ -1247,18 +1454,50 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     return "Account3::" + uuid.toString();
   }
 
+  private byte[] getBinaryAccountEntityKey(final UUID uuid) {
+    return getBinaryAccountEntityKeyString(uuid).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private String getBinaryAccountEntityKeyString(final UUID uuid) {
+    return "Account4::" + uuid;
+  }
+
+  private boolean shouldWriteBinaryAccountCacheEntries() {
+    return dynamicConfigurationManager.getConfiguration().getAccountCacheConfiguration().writeBinaryEntries();
+  }
+
   private void redisSet(Account account) {
     redisSetTimer.record(() -> {
       try {
-        final String accountJson = writeRedisAccountJson(account);
+        if (shouldWriteBinaryAccountCacheEntries()) {
+          final byte[] accountBinary = writeRedisAccountBinary(account);
 
-        cacheCluster.useCluster(connection -> {
-          final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+          cacheCluster.useBinaryCluster(connection ->
+              connection.sync().setex(getBinaryAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountBinary));
 
-          commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
-              account.getUuid().toString());
-          commands.setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson);
-        });
+          cacheCluster.useCluster(connection -> {
+            final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+
+            commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                account.getUuid().toString());
+
+            // Readers fall back to the other format when an entry is missing, so we can't leave a stale copy behind
+            commands.del(getAccountEntityKey(account.getUuid()));
+          });
+        } else {
+          final String accountJson = writeRedisAccountJson(account);
+
+          cacheCluster.useCluster(connection -> {
+            final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+
+            commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                account.getUuid().toString());
+            commands.setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson);
+            commands.del(getBinaryAccountEntityKeyString(account.getUuid()));
+          });
+        }
+
+        accountLocalCache.invalidate(account.getUuid());
       } catch (JsonProcessingException e) {
         throw new IllegalStateException(e);
       }
@@ -1266,21 +1505,41 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   }
 
   private CompletableFuture<Void> redisSetAsync(final Account account) {
-    final String accountJson;
+    final CompletableFuture<Void> setFuture;
 
     try {
-      accountJson = writeRedisAccountJson(account);
+      if (shouldWriteBinaryAccountCacheEntries()) {
+        final byte[] accountBinary = writeRedisAccountBinary(account);
+
+        setFuture = CompletableFuture.allOf(
+            cacheCluster.withCluster(connection -> connection.async().setex(
+                    getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                    account.getUuid().toString()))
+                .toCompletableFuture(),
+            cacheCluster.withBinaryCluster(connection -> connection.async().setex(
+                    getBinaryAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountBinary))
+                .toCompletableFuture(),
+            // Readers fall back to the other format when an entry is missing, so we can't leave a stale copy behind
+            cacheCluster.withCluster(connection -> connection.async().del(getAccountEntityKey(account.getUuid())))
+                .toCompletableFuture());
+      } else {
+        final String accountJson = writeRedisAccountJson(account);
+
+        setFuture = cacheCluster.withCluster(connection -> CompletableFuture.allOf(
+            connection.async().setex(
+                    getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                    account.getUuid().toString())
+                .toCompletableFuture(),
+            connection.async().setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson)
+                .toCompletableFuture(),
+            connection.async().del(getBinaryAccountEntityKeyString(account.getUuid()))
+                .toCompletableFuture()));
+      }
     } catch (final JsonProcessingException e) {
       throw new UncheckedIOException(e);
     }
 
-    return cacheCluster.withCluster(connection -> CompletableFuture.allOf(
-        connection.async().setex(
-                getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
-                account.getUuid().toString())
-            .toCompletableFuture(),
-        connection.async().setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson)
-            .toCompletableFuture()));
+    return setFuture.thenCompose(ignored -> accountLocalCache.invalidate(account.getUuid()));
   }
 
   private Optional<Account> checkRedisThenAccounts(
@@ -1350,11 +1609,36 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   }
 
   private Optional<Account> redisGetByAccountIdentifier(UUID uuid) {
+    final Optional<byte[]> maybeLocallyCachedEntry = accountLocalCache.get(uuid);
+
+    if (maybeLocallyCachedEntry.isPresent()) {
+      return parseAccountCacheEntry(maybeLocallyCachedEntry.get(), uuid);
+    }
+
+    final long localCacheGeneration = accountLocalCache.getGeneration(uuid);
+
     return redisUuidGetTimer.record(() -> {
       try {
-        final String json = cacheCluster.withCluster(connection -> connection.sync().get(getAccountEntityKey(uuid)));
+        // Binary entries are only written when enabled, but JSON entries written before then (or by servers that
+        // haven't yet been updated) remain readable. While binary entries are disabled, we ignore them entirely; servers
+        // that don't know about binary entries may have written newer JSON entries without removing them.
+        byte[] entry = shouldWriteBinaryAccountCacheEntries()
+            ? cacheCluster.withBinaryCluster(connection -> connection.sync().get(getBinaryAccountEntityKey(uuid)))
+            : null;
+
+        if (entry == null) {
+          final String json = cacheCluster.withCluster(connection -> connection.sync().get(getAccountEntityKey(uuid)));
+
+          if (json != null) {
+            entry = json.getBytes(StandardCharsets.UTF_8);
+          }
+        }
 
-        return parseAccountJson(json, uuid);
+        if (entry != null) {
+          accountLocalCache.put(uuid, entry, localCacheGeneration);
+        }
+
+        return parseAccountCacheEntry(entry, uuid);
       } catch (final RedisException e) {
         logger.warn("Redis failure", e);
         return Optional.empty();
@@ -1363,20 +1647,173 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   }
 
   private CompletableFuture<Optional<Account>> redisGetByAccountIdentifierAsync(final UUID uuid) {
-    return cacheCluster.withCluster(connection -> connection.async().get(getAccountEntityKey(uuid)))
-        .thenApply(accountJson -> parseAccountJson(accountJson, uuid))
+    final Optional<byte[]> maybeLocallyCachedEntry = accountLocalCache.get(uuid);
+
+    if (maybeLocallyCachedEntry.isPresent()) {
+      return CompletableFuture.completedFuture(parseAccountCacheEntry(maybeLocallyCachedEntry.get(), uuid));
+    }
+
+    final long localCacheGeneration = accountLocalCache.getGeneration(uuid);
+
+    // As in `redisGetByAccountIdentifier`, ignore binary entries entirely while they're disabled
+    final CompletableFuture<byte[]> entryFuture = shouldWriteBinaryAccountCacheEntries()
+        ? cacheCluster.withBinaryCluster(connection -> connection.async().get(getBinaryAccountEntityKey(uuid)))
+            .toCompletableFuture()
+            .thenCompose(binaryEntry -> binaryEntry != null
+                ? CompletableFuture.completedFuture(binaryEntry)
+                : redisGetAccountJsonEntryAsync(uuid))
+        : redisGetAccountJsonEntryAsync(uuid);
+
+    return entryFuture
+        .thenApply(entry -> {
+          if (entry != null) {
+            accountLocalCache.put(uuid, entry, localCacheGeneration);
+          }
+
+          return parseAccountCacheEntry(entry, uuid);
+        })
         .exceptionally(throwable -> {
           logger.warn("Failed to retrieve account from Redis", throwable);
           return Optional.empty();
+        });
+  }
+
+  private CompletableFuture<Map<UUID, UUID>> redisGetAccountIdentifiersByPhoneNumberIdentifiers(
+      final List<UUID> phoneNumberIdentifiers) {
+
+    final Timer.Sample sample = Timer.start();
+
+    // MGET on a cluster connection splits the keys by slot and issues a command to each node concurrently
+    return cacheCluster.withCluster(connection -> connection.async().mget(phoneNumberIdentifiers.stream()
+            .map(pni -> getAccountMapKey(pni.toString()))
+            .toArray(String[]::new)))
+        .thenApply(keyValues -> {
+          final Map<UUID, UUID> accountIdentifiersByPhoneNumberIdentifier = new HashMap<>();
+
+          for (int i = 0; i < phoneNumberIdentifiers.size(); i++) {
+            final String accountIdentifier = keyValues.get(i).getValueOrElse(null);
+
+            if (accountIdentifier != null) {
+              accountIdentifiersByPhoneNumberIdentifier.put(phoneNumberIdentifiers.get(i),
+                  UUID.fromString(accountIdentifier));
+            }
+          }
+
+          return accountIdentifiersByPhoneNumberIdentifier;
+        })
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve account identifiers from Redis", throwable);
+          return Collections.emptyMap();
+        })
+        .whenComplete((ignored, throwable) -> sample.stop(redisPniMultiGetTimer))
+        .toCompletableFuture();
+  }
+
+  private CompletableFuture<Map<UUID, Account>> redisGetByAccountIdentifiers(final List<UUID> accountIdentifiers) {
+    final Timer.Sample sample = Timer.start();
+
+    final Map<UUID, Long> localCacheGenerations = new HashMap<>(accountIdentifiers.size());
+    accountIdentifiers.forEach(accountIdentifier ->
+        localCacheGenerations.put(accountIdentifier, accountLocalCache.getGeneration(accountIdentifier)));
+
+    final CompletableFuture<Map<UUID, byte[]>> binaryEntriesFuture = shouldWriteBinaryAccountCacheEntries()
+        ? cacheCluster.withBinaryCluster(connection -> connection.async().mget(accountIdentifiers.stream()
+                .map(this::getBinaryAccountEntityKey)
+                .toArray(byte[][]::new)))
+            .thenApply(keyValues -> {
+              final Map<UUID, byte[]> entries = new HashMap<>();
+
+              for (int i = 0; i < accountIdentifiers.size(); i++) {
+                final byte[] entry = keyValues.get(i).getValueOrElse(null);
+
+                if (entry != null) {
+                  entries.put(accountIdentifiers.get(i), entry);
+                }
+              }
+
+              return entries;
+            })
+            .toCompletableFuture()
+        : CompletableFuture.completedFuture(Collections.emptyMap());
+
+    return binaryEntriesFuture
+        .thenCompose(binaryEntries -> {
+          // Binary entries are only written when enabled, but JSON entries written before then (or by servers that
+          // haven't yet been updated) remain readable
+          final List<UUID> jsonAccountIdentifiers = accountIdentifiers.stream()
+              .filter(accountIdentifier -> !binaryEntries.containsKey(accountIdentifier))
+              .toList();
+
+          if (jsonAccountIdentifiers.isEmpty()) {
+            return CompletableFuture.completedFuture(binaryEntries);
+          }
+
+          return cacheCluster.withCluster(connection -> connection.async().mget(jsonAccountIdentifiers.stream()
+                  .map(this::getAccountEntityKey)
+                  .toArray(String[]::new)))
+              .thenApply(keyValues -> {
+                final Map<UUID, byte[]> entries = new HashMap<>(binaryEntries);
+
+                for (int i = 0; i < jsonAccountIdentifiers.size(); i++) {
+                  final String json = keyValues.get(i).getValueOrElse(null);
+
+                  if (json != null) {
+                    entries.put(jsonAccountIdentifiers.get(i), json.getBytes(StandardCharsets.UTF_8));
+                  }
+                }
+
+                return entries;
+              })
+              .toCompletableFuture();
+        })
+        .thenApply(entries -> {
+          final Map<UUID, Account> accountsByAccountIdentifier = new HashMap<>();
+
+          entries.forEach((accountIdentifier, entry) -> {
+            accountLocalCache.put(accountIdentifier, entry, localCacheGenerations.get(accountIdentifier));
+
+            parseAccountCacheEntry(entry, accountIdentifier)
+                .ifPresent(account -> accountsByAccountIdentifier.put(accountIdentifier, account));
+          });
+
+          return accountsByAccountIdentifier;
+        })
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve accounts from Redis", throwable);
+          return Collections.emptyMap();
         })
+        .whenComplete((ignored, throwable) -> sample.stop(redisUuidMultiGetTimer));
+  }
+
+  private CompletableFuture<byte[]> redisGetAccountJsonEntryAsync(final UUID uuid) {
+    return cacheCluster.withCluster(connection -> connection.async().get(getAccountEntityKey(uuid)))
+        .thenApply(accountJson -> accountJson != null ? accountJson.getBytes(StandardCharsets.UTF_8) : null)
         .toCompletableFuture();
   }
 
   @VisibleForTesting
   static Optional<Account> parseAccountJson(@Nullable final String accountJson, final UUID uuid) {
+    return StringUtils.isNotBlank(accountJson)
+        ? parseAccountCacheEntry(accountJson.getBytes(StandardCharsets.UTF_8), uuid)
+        : Optional.empty();
+  }
+
+  /**
+   * Parses an account cache entry in either the binary or JSON format.
+   *
+   * @param entry the raw account cache entry; may be {@code null} if no entry was present
+   * @param uuid the identifier of the account
+   *
+   * @return the parsed account, or empty if no entry was present or the entry could not be parsed
+   */
+  @VisibleForTesting
+  static Optional<Account> parseAccountCacheEntry(@Nullable final byte[] entry, final UUID uuid) {
     try {
-      if (StringUtils.isNotBlank(accountJson)) {
-        Account account = SystemMapper.jsonMapper().readValue(accountJson, Account.class);
+      if (entry != null && entry.length > 0) {
+        final Account account = entry[0] == BINARY_ACCOUNT_CACHE_FORMAT_VERSION
+            ? ACCOUNT_REDIS_SMILE_MAPPER.readValue(entry, 1, entry.length - 1, Account.class)
+            : SystemMapper.jsonMapper().readValue(entry, Account.class);
+
         account.setUuid(uuid);
 
         if (account.getPhoneNumberIdentifier() == null) {
@@ -1398,11 +1835,26 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     return ACCOUNT_REDIS_JSON_WRITER.writeValueAsString(account);
   }
 
+  @VisibleForTesting
+  static byte[] writeRedisAccountBinary(final Account account) throws JsonProcessingException {
+    final byte[] smile = ACCOUNT_REDIS_SMILE_WRITER.writeValueAsBytes(account);
+    final byte[] entry = new byte[smile.length + 1];
+
+    entry[0] = BINARY_ACCOUNT_CACHE_FORMAT_VERSION;
+    System.arraycopy(smile, 0, entry, 1, smile.length);
+
+    return entry;
+  }
+
   private void redisDelete(final Account account) {
-    redisDeleteTimer.record(() ->
-        cacheCluster.useCluster(connection ->
-            connection.sync().del(getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
-                getAccountEntityKey(account.getUuid()))));
+    redisDeleteTimer.record(() -> {
+      cacheCluster.useCluster(connection ->
+          connection.sync().del(getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
+              getAccountEntityKey(account.getUuid()),
+              getBinaryAccountEntityKeyString(account.getUuid())));
+
+      accountLocalCache.invalidate(account.getUuid());
+    });
   }
 
   private CompletableFuture<Void> redisDeleteAsync(final Account account) {
@@ -1410,13 +1862,14 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
 
     final String[] keysToDelete = new String[]{
         getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
-        getAccountEntityKey(account.getUuid())
+        getAccountEntityKey(account.getUuid()),
+        getBinaryAccountEntityKeyString(account.getUuid())
     };
 
     return cacheCluster.withCluster(connection -> connection.async().del(keysToDelete))
         .toCompletableFuture()
-        .whenComplete((ignoredResult, ignoredException) -> sample.stop(redisDeleteTimer))
-        .thenRun(Util.NOOP);
+        .thenCompose(ignored -> accountLocalCache.invalidate(account.getUuid()))
+        .whenComplete((ignoredResult, ignoredException) -> sample.stop(redisDeleteTimer));
   }
 
   public CompletableFuture<Optional<DeviceInfo>> waitForNewLinkedDevice(
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * A checkpointed segmented scanner runs a parallel DynamoDB scan whose progress is recorded in a
+ * {@link ScanCheckpointStore} so that an interrupted scan can resume from its last checkpoint. It can also throttle
+ * itself to a target rate of consumed read capacity.
+ * <p>
+ * Named scans hand each page of items to a caller-supplied page processor, and record a segment's checkpoint only
+ * after the processor has finished with the page. A resumed scan picks up with the first page that had not been
+ * completely processed, so it never skips items, but may repeat items from a page that was only partially processed
+ * when the scan was interrupted; page processors must tolerate seeing an item more than once.
+ */
+public class CheckpointedSegmentedScanner {
+
+  private final DynamoDbAsyncClient dynamoDbAsyncClient;
+  private final ScanCheckpointStore scanCheckpointStore;
+
+  private static final String PAGES_COUNTER_NAME = name(CheckpointedSegmentedScanner.class, "pages");
+  private static final String ITEMS_COUNTER_NAME = name(CheckpointedSegmentedScanner.class, "items");
+  private static final String CONSUMED_CAPACITY_COUNTER_NAME =
+      name(CheckpointedSegmentedScanner.class, "consumedReadCapacity");
+  private static final String SEGMENTS_COMPLETED_COUNTER_NAME =
+      name(CheckpointedSegmentedScanner.class, "segmentsCompleted");
+
+  private static final String SCAN_TAG_NAME = "scan";
+  private static final String UNNAMED_SCAN_TAG_VALUE = "unnamed";
+
+  private static final Logger logger = LoggerFactory.getLogger(CheckpointedSegmentedScanner.class);
+
+  private record ScanPage(ScanResponse response) {
+
+    boolean hasMorePages() {
+      return response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty();
+    }
+  }
+
+  public CheckpointedSegmentedScanner(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final ScanCheckpointStore scanCheckpointStore) {
+
+    this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    this.scanCheckpointStore = scanCheckpointStore;
+  }
+
+  /**
+   * Scans all items matching the given request from the beginning without recording progress.
+   *
+   * @param scanRequest the request to scan; segment parameters and exclusive start keys are supplied by the scanner
+   * @param segments the total number of segments to scan in parallel
+   * @param scheduler the scheduler on which to scan segments
+   * @param maxReadCapacityUnitsPerSecond the target rate of read capacity consumption across all segments, or 0 to scan
+   *                                      as quickly as possible
+   *
+   * @return a stream of all items matching the given request
+   */
+  public Flux<Map<String, AttributeValue>> scan(final ScanRequest scanRequest,
+      final int segments,
+      final Scheduler scheduler,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    validateArguments(segments, maxReadCapacityUnitsPerSecond);
+
+    return Flux.range(0, segments)
+        .parallel()
+        .runOn(scheduler)
+        .flatMap(segment -> getPages(UNNAMED_SCAN_TAG_VALUE, scanRequest, segments, segment, null,
+                maxReadCapacityUnitsPerSecond / segments)
+            // Only read one page ahead of the page being emitted
+            .concatMapIterable(page -> page.response().items(), 1))
+        .sequential();
+  }
+
+  /**
+   * Scans all items matching the given request and passes each page of items to the given page processor, resuming
+   * from any checkpoints previously recorded for the named scan. Pages from different segments may be processed
+   * concurrently, but each segment only reads one page ahead of the page being processed. All of the scan's
+   * checkpoints are removed once every page has been processed.
+   *
+   * @param scanName a name that identifies this scan across runs; scans with the same name share checkpoints
+   * @param scanRequest the request to scan; segment parameters and exclusive start keys are supplied by the scanner
+   * @param segments the total number of segments to scan in parallel
+   * @param scheduler the scheduler on which to scan segments
+   * @param maxReadCapacityUnitsPerSecond the target rate of read capacity consumption across all segments, or 0 to scan
+   *                                      as quickly as possible
+   * @param pageProcessor a function that processes a page of items and returns a publisher that completes when every
+   *                      item in the page has been processed
+   *
+   * @return a publisher that completes when every item not processed in a previous run has been processed
+   */
+  public Mono<Void> scan(final String scanName,
+      final ScanRequest scanRequest,
+      final int segments,
+      final Scheduler scheduler,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<Map<String, AttributeValue>>, Mono<Void>> pageProcessor) {
+
+    validateArguments(segments, maxReadCapacityUnitsPerSecond);
+
+    return Mono.fromFuture(() -> scanCheckpointStore.getCheckpoints(scanName, segments))
+        .flatMap(checkpoints -> Flux.range(0, segments)
+            .parallel()
+            .runOn(scheduler)
+            .flatMap(segment -> processSegment(scanName, scanRequest, segments, segment, checkpoints[segment],
+                maxReadCapacityUnitsPerSecond / segments, pageProcessor))
+            .sequential()
+            .then())
+        .then(Mono.fromFuture(() -> scanCheckpointStore.clear(scanName)))
+        .doOnSuccess(ignored -> logger.info("Finished scan {}", scanName));
+  }
+
+  private static void validateArguments(final int segments, final double maxReadCapacityUnitsPerSecond) {
+    if (segments < 1) {
+      throw new IllegalArgumentException("Total number of segments must be positive");
+    }
+
+    if (maxReadCapacityUnitsPerSecond < 0) {
+      throw new IllegalArgumentException("Maximum read capacity must not be negative");
+    }
+  }
+
+  private Mono<Void> processSegment(final String scanName,
+      final ScanRequest scanRequest,
+      final int segments,
+      final int segment,
+      final ScanCheckpointStore.SegmentCheckpoint checkpoint,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<Map<String, AttributeValue>>, Mono<Void>> pageProcessor) {
+
+    if (checkpoint.complete()) {
+      logger.info("Skipping completed segment {} of scan {}", segment, scanName);
+      return Mono.empty();
+    }
+
+    if (checkpoint.lastEvaluatedKey() != null) {
+      logger.info("Resuming segment {} of scan {} from checkpoint", segment, scanName);
+    }
+
+    return getPages(scanName, scanRequest, segments, segment, checkpoint.lastEvaluatedKey(),
+            maxReadCapacityUnitsPerSecond)
+        .concatMap(page -> pageProcessor.apply(Flux.fromIterable(page.response().items()))
+            // Only advance the checkpoint once every item in the page has been processed
+            .then(Mono.fromFuture(() -> page.hasMorePages()
+                ? scanCheckpointStore.setCheckpoint(scanName, segments, segment, page.response().lastEvaluatedKey())
+                : scanCheckpointStore.setComplete(scanName, segments, segment))), 1)
+        .then()
+        .doOnSuccess(ignored -> {
+          Metrics.counter(SEGMENTS_COMPLETED_COUNTER_NAME, SCAN_TAG_NAME, scanName).increment();
+          logger.info("Finished segment {} of scan {}", segment, scanName);
+        });
+  }
+
+  private Flux<ScanPage> getPages(final String scanTag,
+      final ScanRequest scanRequest,
+      final int segments,
+      final int segment,
+      @Nullable final Map<String, AttributeValue> exclusiveStartKey,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    final ScanRequest segmentScanRequest = scanRequest.toBuilder()
+        .segment(segment)
+        .totalSegments(segments)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .build();
+
+    return getPage(segmentScanRequest, exclusiveStartKey)
+        .expand(page -> page.hasMorePages()
+            ? Mono.delay(getPause(page.response(), maxReadCapacityUnitsPerSecond))
+            .then(getPage(segmentScanRequest, page.response().lastEvaluatedKey()))
+            : Mono.empty())
+        .doOnNext(page -> {
+          Metrics.counter(PAGES_COUNTER_NAME, SCAN_TAG_NAME, scanTag).increment();
+          Metrics.counter(ITEMS_COUNTER_NAME, SCAN_TAG_NAME, scanTag).increment(page.response().count());
+
+          if (page.response().consumedCapacity() != null
+              && page.response().consumedCapacity().capacityUnits() != null) {
+
+            Metrics.counter(CONSUMED_CAPACITY_COUNTER_NAME, SCAN_TAG_NAME, scanTag)
+                .increment(page.response().consumedCapacity().capacityUnits());
+          }
+        });
+  }
+
+  private Mono<ScanPage> getPage(final ScanRequest scanRequest,
+      @Nullable final Map<String, AttributeValue> exclusiveStartKey) {
+
+    return Mono.fromFuture(() -> dynamoDbAsyncClient.scan(scanRequest.toBuilder()
+            .exclusiveStartKey(exclusiveStartKey)
+            .build()))
+        .map(ScanPage::new);
+  }
+
+  /**
+   * Calculates how long to wait before requesting the next page of a segment so that the segment consumes read
+   * capacity at no more than the given rate.
+   */
+  @VisibleForTesting
+  static Duration getPause(final ScanResponse response, final double maxReadCapacityUnitsPerSecond) {
+    if (maxReadCapacityUnitsPerSecond <= 0
+        || response.consumedCapacity() == null
+        || response.consumedCapacity().capacityUnits() == null) {
+
+      return Duration.ZERO;
+    }
+
+    return Duration.ofMillis((long) (response.consumedCapacity().capacityUnits() * 1000 / maxReadCapacityUnitsPerSecond));
+  }
+}
@@ -204,7 +204,11 @@ public class Device {
   }
 
   public boolean isExpired() {
-    return isPrimary()
+    return isExpired(id, lastSeen);
+  }
+
+  static boolean isExpired(final byte deviceId, final long lastSeen) {
+    return deviceId == PRIMARY_ID
         ? lastSeen < (System.currentTimeMillis() - ALLOWED_PRIMARY_IDLE_MILLIS)
         : lastSeen < (System.currentTimeMillis() - ALLOWED_LINKED_IDLE_MILLIS);
   }
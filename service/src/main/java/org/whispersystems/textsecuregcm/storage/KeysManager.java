@@ -7,10 +7,15 @@ package org.whispersystems.textsecuregcm.storage;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import org.whispersystems.textsecuregcm.controllers.KeysController;
@@ -21,9 +26,13 @@ import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
+import org.whispersystems.textsecuregcm.util.AsyncTimerUtil;
 import org.whispersystems.textsecuregcm.util.Futures;
 import org.whispersystems.textsecuregcm.util.Optionals;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
 import javax.annotation.Nullable;
 
@@ -42,6 +51,13 @@ public class KeysManager {
 
   private static final String  TAKE_PQ_NAME = MetricsUtil.name(KeysManager.class, "takePq");
 
+  private static final String TAKE_ALL_DEVICE_PRE_KEYS_TIMER_NAME =
+      MetricsUtil.name(KeysManager.class, "takeAllDevicePreKeys");
+  private static final String STAGE_TAG_NAME = "stage";
+
+  // The maximum number of devices for which to take single-use pre-keys concurrently in a single multi-device fetch
+  private static final int MAX_CONCURRENT_DEVICE_TAKES = 8;
+
   public KeysManager(
       final SingleUseECPreKeyStore ecPreKeys,
       final SingleUseKEMPreKeyStore pqPreKeys,
@@ -134,35 +150,44 @@ public class KeysManager {
   @VisibleForTesting
   CompletableFuture<Optional<KEMSignedPreKey>> takePQ(final UUID identifier, final byte deviceId) {
     final boolean enrolledInPagedKeys = experimentEnrollmentManager.isEnrolled(identifier, PAGED_KEYS_EXPERIMENT_NAME);
-    return tagTakePQ(pagedPqPreKeys.take(identifier, deviceId), PQSource.PAGE, enrolledInPagedKeys)
-        .thenCompose(maybeSingleUsePreKey -> maybeSingleUsePreKey
-              .map(ignored -> CompletableFuture.completedFuture(maybeSingleUsePreKey))
-              .orElseGet(() -> tagTakePQ(pqPreKeys.take(identifier, deviceId), PQSource.ROW, enrolledInPagedKeys)))
+    return takeSingleUsePQ(identifier, deviceId, enrolledInPagedKeys)
         .thenCompose(maybeSingleUsePreKey -> maybeSingleUsePreKey
             .map(singleUsePreKey -> CompletableFuture.completedFuture(maybeSingleUsePreKey))
             .orElseGet(() -> tagTakePQ(pqLastResortKeys.find(identifier, deviceId), PQSource.LAST_RESORT, enrolledInPagedKeys)));
   }
 
+  private CompletableFuture<Optional<KEMSignedPreKey>> takeSingleUsePQ(final UUID identifier,
+      final byte deviceId,
+      final boolean enrolledInPagedKeys) {
+
+    return tagTakePQ(pagedPqPreKeys.take(identifier, deviceId), PQSource.PAGE, enrolledInPagedKeys)
+        .thenCompose(maybeSingleUsePreKey -> maybeSingleUsePreKey
+            .map(ignored -> CompletableFuture.completedFuture(maybeSingleUsePreKey))
+            .orElseGet(() -> tagTakePQ(pqPreKeys.take(identifier, deviceId), PQSource.ROW, enrolledInPagedKeys)));
+  }
+
   private enum PQSource {
     PAGE,
     ROW,
     LAST_RESORT
   }
   private CompletableFuture<Optional<KEMSignedPreKey>> tagTakePQ(CompletableFuture<Optional<KEMSignedPreKey>> prekey, final PQSource source, final boolean enrolledInPagedKeys) {
-    return prekey.thenApply(maybeSingleUsePreKey -> {
-      final Optional<String> maybeSourceTag = maybeSingleUsePreKey
-          // If we found a PK, use this source tag
-          .map(ignore -> source.name())
-          // If we didn't and this is our last resort, we didn't find a PK
-          .or(() -> source == PQSource.LAST_RESORT ? Optional.of("absent") : Optional.empty());
-      maybeSourceTag.ifPresent(sourceTag -> {
-        Metrics.counter(TAKE_PQ_NAME,
-                "source", sourceTag,
-                "enrolled", Boolean.toString(enrolledInPagedKeys))
-            .increment();
-      });
-      return maybeSingleUsePreKey;
+    return prekey.thenApply(maybeSingleUsePreKey -> tagTakePQ(maybeSingleUsePreKey, source, enrolledInPagedKeys));
+  }
+
+  private static Optional<KEMSignedPreKey> tagTakePQ(final Optional<KEMSignedPreKey> maybeSingleUsePreKey, final PQSource source, final boolean enrolledInPagedKeys) {
+    final Optional<String> maybeSourceTag = maybeSingleUsePreKey
+        // If we found a PK, use this source tag
+        .map(ignore -> source.name())
+        // If we didn't and this is our last resort, we didn't find a PK
+        .or(() -> source == PQSource.LAST_RESORT ? Optional.of("absent") : Optional.empty());
+    maybeSourceTag.ifPresent(sourceTag -> {
+      Metrics.counter(TAKE_PQ_NAME,
+              "source", sourceTag,
+              "enrolled", Boolean.toString(enrolledInPagedKeys))
+          .increment();
     });
+    return maybeSingleUsePreKey;
   }
 
   public CompletableFuture<Optional<KEMSignedPreKey>> getLastResort(final UUID identifier, final byte deviceId) {
@@ -237,21 +262,111 @@ public class KeysManager {
             this.takeEC(uuid, deviceId),
             this.getEcSignedPreKey(uuid, deviceId),
             this.takePQ(uuid, deviceId),
-            (maybeUnsignedEcPreKey, maybeSignedEcPreKey, maybePqPreKey) -> {
-
-              Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
-                      UserAgentTagUtil.getPlatformTag(userAgent),
-                      Tag.of("identityType", serviceIdentifier.identityType().name()),
-                      Tag.of("oneTimeEcKeyAvailable", String.valueOf(maybeUnsignedEcPreKey.isPresent())),
-                      Tag.of("signedEcKeyAvailable", String.valueOf(maybeSignedEcPreKey.isPresent())),
-                      Tag.of("pqKeyAvailable", String.valueOf(maybePqPreKey.isPresent()))))
-                  .increment();
-
-              // The pq prekey and signed EC prekey should never be null for an existing account. This should only happen
-              // if the account or device has been removed and the read was split, so we can return empty in those cases.
-              return Optionals.zipWith(maybeSignedEcPreKey, maybePqPreKey, (signedEcPreKey, pqPreKey) ->
-                  new DevicePreKeys(signedEcPreKey, maybeUnsignedEcPreKey, pqPreKey));
-            })
+            (maybeUnsignedEcPreKey, maybeSignedEcPreKey, maybePqPreKey) ->
+                buildDevicePreKeys(serviceIdentifier, userAgent, maybeUnsignedEcPreKey, maybeSignedEcPreKey, maybePqPreKey))
+        .toCompletableFuture();
+  }
+
+  private record SingleUsePreKeys(Optional<ECPreKey> ecPreKey, Optional<KEMSignedPreKey> kemPreKey) {}
+
+  /**
+   * Takes pre-keys for several devices associated with the same account/identity at once. Single-use pre-keys are
+   * taken for all devices concurrently, and repeated-use keys are read with one batched read per key type rather than
+   * one read per device. Last-resort keys are only read for devices that have run out of single-use PQ pre-keys.
+   *
+   * @param deviceIds the identifiers of the devices for which to take pre-keys
+   * @param serviceIdentifier the identifier of the account/identity with which the devices are associated
+   * @param userAgent the user agent of the requester, if known
+   *
+   * @return a future that yields a map of device IDs to pre-keys; devices that lack a signed EC pre-key or any PQ
+   * pre-key are omitted
+   */
+  public CompletableFuture<Map<Byte, DevicePreKeys>> takeAllDevicePreKeys(
+      final Collection<Byte> deviceIds,
+      final ServiceIdentifier serviceIdentifier,
+      final @Nullable String userAgent) {
+
+    final Timer.Sample sample = Timer.start();
+
+    final UUID uuid = serviceIdentifier.uuid();
+    final List<Byte> distinctDeviceIds = deviceIds.stream().distinct().toList();
+    final boolean enrolledInPagedKeys = experimentEnrollmentManager.isEnrolled(uuid, PAGED_KEYS_EXPERIMENT_NAME);
+
+    final CompletableFuture<Map<Byte, ECSignedPreKey>> ecSignedPreKeysFuture =
+        recordStage("ecSignedPreKeys", () -> ecSignedPreKeys.findAll(uuid, distinctDeviceIds));
+
+    final CompletableFuture<Map<Byte, SingleUsePreKeys>> singleUsePreKeysFuture = recordStage("singleUsePreKeys", () ->
+        Flux.fromIterable(distinctDeviceIds)
+            .flatMap(deviceId -> Mono.fromFuture(() -> takeEC(uuid, deviceId)
+                    .thenCombine(takeSingleUsePQ(uuid, deviceId, enrolledInPagedKeys), SingleUsePreKeys::new))
+                .map(singleUsePreKeys -> Tuples.of(deviceId, singleUsePreKeys)), MAX_CONCURRENT_DEVICE_TAKES)
+            .collectMap(Tuple2::getT1, Tuple2::getT2)
+            .toFuture());
+
+    final CompletableFuture<Map<Byte, KEMSignedPreKey>> lastResortKeysFuture =
+        singleUsePreKeysFuture.thenCompose(singleUsePreKeys -> {
+          final List<Byte> devicesWithoutSingleUsePqPreKeys = distinctDeviceIds.stream()
+              .filter(deviceId -> singleUsePreKeys.get(deviceId).kemPreKey().isEmpty())
+              .toList();
+
+          return devicesWithoutSingleUsePqPreKeys.isEmpty()
+              ? CompletableFuture.<Map<Byte, KEMSignedPreKey>>completedFuture(Map.of())
+              : recordStage("pqLastResortKeys", () -> pqLastResortKeys.findAll(uuid, devicesWithoutSingleUsePqPreKeys));
+        });
+
+    return CompletableFuture.allOf(ecSignedPreKeysFuture, lastResortKeysFuture)
+        .thenApply(ignored -> {
+          final Map<Byte, ECSignedPreKey> signedEcPreKeys = ecSignedPreKeysFuture.join();
+          final Map<Byte, SingleUsePreKeys> singleUsePreKeys = singleUsePreKeysFuture.join();
+          final Map<Byte, KEMSignedPreKey> lastResortKeys = lastResortKeysFuture.join();
+
+          final Map<Byte, DevicePreKeys> devicePreKeys = new HashMap<>(distinctDeviceIds.size());
+
+          for (final byte deviceId : distinctDeviceIds) {
+            final SingleUsePreKeys deviceSingleUsePreKeys = singleUsePreKeys.get(deviceId);
+
+            final Optional<KEMSignedPreKey> maybePqPreKey = deviceSingleUsePreKeys.kemPreKey().isPresent()
+                ? deviceSingleUsePreKeys.kemPreKey()
+                : tagTakePQ(Optional.ofNullable(lastResortKeys.get(deviceId)), PQSource.LAST_RESORT, enrolledInPagedKeys);
+
+            buildDevicePreKeys(serviceIdentifier, userAgent,
+                deviceSingleUsePreKeys.ecPreKey(),
+                Optional.ofNullable(signedEcPreKeys.get(deviceId)),
+                maybePqPreKey)
+                .ifPresent(keys -> devicePreKeys.put(deviceId, keys));
+          }
+
+          return devicePreKeys;
+        })
+        .whenComplete((ignored, throwable) ->
+            sample.stop(Metrics.timer(TAKE_ALL_DEVICE_PRE_KEYS_TIMER_NAME, STAGE_TAG_NAME, "total")));
+  }
+
+  private static <T> CompletableFuture<T> recordStage(final String stage,
+      final Supplier<CompletableFuture<T>> supplier) {
+
+    return AsyncTimerUtil.record(Metrics.timer(TAKE_ALL_DEVICE_PRE_KEYS_TIMER_NAME, STAGE_TAG_NAME, stage),
+            supplier::get)
         .toCompletableFuture();
   }
+
+  private static Optional<DevicePreKeys> buildDevicePreKeys(final ServiceIdentifier serviceIdentifier,
+      final @Nullable String userAgent,
+      final Optional<ECPreKey> maybeUnsignedEcPreKey,
+      final Optional<ECSignedPreKey> maybeSignedEcPreKey,
+      final Optional<KEMSignedPreKey> maybePqPreKey) {
+
+    Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
+            UserAgentTagUtil.getPlatformTag(userAgent),
+            Tag.of("identityType", serviceIdentifier.identityType().name()),
+            Tag.of("oneTimeEcKeyAvailable", String.valueOf(maybeUnsignedEcPreKey.isPresent())),
+            Tag.of("signedEcKeyAvailable", String.valueOf(maybeSignedEcPreKey.isPresent())),
+            Tag.of("pqKeyAvailable", String.valueOf(maybePqPreKey.isPresent()))))
+        .increment();
+
+    // The pq prekey and signed EC prekey should never be null for an existing account. This should only happen
+    // if the account or device has been removed and the read was split, so we can return empty in those cases.
+    return Optionals.zipWith(maybeSignedEcPreKey, maybePqPreKey, (signedEcPreKey, pqPreKey) ->
+        new DevicePreKeys(signedEcPreKey, maybeUnsignedEcPreKey, pqPreKey));
+  }
 }
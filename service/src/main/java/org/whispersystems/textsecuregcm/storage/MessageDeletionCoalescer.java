@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicMessageDeletionCoalescerConfiguration;
+
+/**
+ * A message deletion coalescer gathers individual message acknowledgements from the same device that arrive within a
+ * short window and deletes them together. Clients draining a large queue acknowledge messages one request at a time;
+ * coalescing those acknowledgements lets us remove many messages from the cache with a single operation instead of one
+ * operation per message.
+ * <p>
+ * The coalescing window and batch size are read from dynamic configuration with each acknowledgement. If coalescing is
+ * disabled, each acknowledgement deletes its message immediately.
+ *
+ * @see MessagesManager#delete(UUID, Device, Map)
+ * @see DynamicMessageDeletionCoalescerConfiguration
+ */
+public class MessageDeletionCoalescer {
+
+  private final MessagesManager messagesManager;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+  private final ScheduledExecutorService scheduledExecutorService;
+
+  private final Map<DeviceKey, PendingDeletions> pendingDeletionsByDevice = new ConcurrentHashMap<>();
+
+  private static final DistributionSummary BATCH_SIZE_DISTRIBUTION =
+      Metrics.summary(name(MessageDeletionCoalescer.class, "batchSize"));
+
+  private record DeviceKey(UUID accountIdentifier, byte deviceId) {
+  }
+
+  // Pending deletions are compared by identity so a timed flush never removes a newer batch for the same device
+  private static class PendingDeletions {
+
+    private final Device device;
+    private final Map<UUID, CompletableFuture<Optional<RemovedMessage>>> futuresByGuid = new HashMap<>();
+
+    // Values may be null if the server timestamp of a message isn't known
+    private final Map<UUID, Long> serverTimestampsByGuid = new HashMap<>();
+
+    private PendingDeletions(final Device device) {
+      this.device = device;
+    }
+  }
+
+  public MessageDeletionCoalescer(final MessagesManager messagesManager,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
+      final ScheduledExecutorService scheduledExecutorService) {
+
+    this.messagesManager = messagesManager;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
+    this.scheduledExecutorService = scheduledExecutorService;
+  }
+
+  /**
+   * Deletes a message whose server timestamp isn't known, possibly together with other messages acknowledged by the
+   * same device at about the same time.
+   *
+   * @param accountIdentifier the identifier of the account to which the message was sent
+   * @param device the device to which the message was sent
+   * @param guid the server GUID of the message to delete
+   *
+   * @return a future that yields the deleted message, or empty if no message with the given GUID could be found
+   *
+   * @see #delete(UUID, Device, UUID, Long)
+   */
+  public CompletableFuture<Optional<RemovedMessage>> delete(final UUID accountIdentifier,
+      final Device device,
+      final UUID guid) {
+
+    return delete(accountIdentifier, device, guid, null);
+  }
+
+  /**
+   * Deletes a message, possibly together with other messages acknowledged by the same device at about the same time.
+   *
+   * @param accountIdentifier the identifier of the account to which the message was sent
+   * @param device the device to which the message was sent
+   * @param guid the server GUID of the message to delete
+   * @param serverTimestamp the server timestamp of the message to delete, if known
+   *
+   * @return a future that yields the deleted message, or empty if no message with the given GUID could be found
+   */
+  public CompletableFuture<Optional<RemovedMessage>> delete(final UUID accountIdentifier,
+      final Device device,
+      final UUID guid,
+      @Nullable final Long serverTimestamp) {
+
+    final DynamicMessageDeletionCoalescerConfiguration configuration =
+        dynamicConfigurationManager.getConfiguration().getMessageDeletionCoalescerConfiguration();
+
+    if (!configuration.enabled()) {
+      return messagesManager.delete(accountIdentifier, device, guid, serverTimestamp);
+    }
+
+    final DeviceKey deviceKey = new DeviceKey(accountIdentifier, device.getId());
+
+    final AtomicReference<CompletableFuture<Optional<RemovedMessage>>> futureReference = new AtomicReference<>();
+    final AtomicReference<PendingDeletions> fullBatchReference = new AtomicReference<>();
+
+    pendingDeletionsByDevice.compute(deviceKey, (ignored, existingPendingDeletions) -> {
+      final PendingDeletions pendingDeletions;
+
+      if (existingPendingDeletions == null) {
+        pendingDeletions = new PendingDeletions(device);
+
+        scheduledExecutorService.schedule(() -> {
+          // The batch may already have been flushed because it filled up
+          if (pendingDeletionsByDevice.remove(deviceKey, pendingDeletions)) {
+            flush(accountIdentifier, pendingDeletions);
+          }
+        }, configuration.maxDelay().toMillis(), TimeUnit.MILLISECONDS);
+      } else {
+        pendingDeletions = existingPendingDeletions;
+      }
+
+      // Repeated acknowledgements of the same message share a single deletion
+      futureReference.set(pendingDeletions.futuresByGuid.computeIfAbsent(guid, _ -> new CompletableFuture<>()));
+
+      if (serverTimestamp != null || !pendingDeletions.serverTimestampsByGuid.containsKey(guid)) {
+        pendingDeletions.serverTimestampsByGuid.put(guid, serverTimestamp);
+      }
+
+      if (pendingDeletions.futuresByGuid.size() >= configuration.maxBatchSize()) {
+        fullBatchReference.set(pendingDeletions);
+        return null;
+      }
+
+      return pendingDeletions;
+    });
+
+    if (fullBatchReference.get() != null) {
+      flush(accountIdentifier, fullBatchReference.get());
+    }
+
+    return futureReference.get();
+  }
+
+  private void flush(final UUID accountIdentifier, final PendingDeletions pendingDeletions) {
+    final Map<UUID, CompletableFuture<Optional<RemovedMessage>>> futuresByGuid = pendingDeletions.futuresByGuid;
+
+    BATCH_SIZE_DISTRIBUTION.record(futuresByGuid.size());
+
+    CompletableFuture<Map<UUID, RemovedMessage>> deleteFuture;
+
+    try {
+      if (futuresByGuid.size() == 1) {
+        // A lone acknowledgement doesn't benefit from a batch deletion
+        final UUID guid = futuresByGuid.keySet().iterator().next();
+
+        deleteFuture = messagesManager.delete(accountIdentifier, pendingDeletions.device, guid,
+                pendingDeletions.serverTimestampsByGuid.get(guid))
+            .thenApply(maybeRemovedMessage -> maybeRemovedMessage
+                .map(removedMessage -> Map.of(guid, removedMessage))
+                .orElseGet(Map::of));
+      } else {
+        deleteFuture = messagesManager.delete(accountIdentifier, pendingDeletions.device,
+            pendingDeletions.serverTimestampsByGuid);
+      }
+    } catch (final RuntimeException e) {
+      // Callers are waiting on every pending future, so a synchronous failure must still complete all of them
+      deleteFuture = CompletableFuture.failedFuture(e);
+    }
+
+    deleteFuture.whenComplete((removedMessagesByGuid, throwable) -> futuresByGuid.forEach((guid, future) -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+      } else {
+        future.complete(Optional.ofNullable(removedMessagesByGuid.get(guid)));
+      }
+    }));
+  }
+}
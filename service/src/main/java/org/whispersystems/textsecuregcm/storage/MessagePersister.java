@@ -17,18 +17,31 @@ import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicMessagePersisterConfiguration;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.metrics.DevicePlatformUtil;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -47,9 +60,23 @@ public class MessagePersister implements Managed {
   private final Thread[] workerThreads;
   private volatile boolean running;
 
+  private final Map<String, AtomicInteger> slotCursorsByShard = new ConcurrentHashMap<>();
+
+  @Nullable
+  private List<MessagesCache.ShardMemoryUsage> shardMemoryUsage;
+  private Instant shardMemoryUsageRefreshed = Instant.EPOCH;
+
+  private final Map<String, AtomicLong> shardMemoryUsagePermilleByShard = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> shardQueueCountByShard = new ConcurrentHashMap<>();
+
   private static final String OVERSIZED_QUEUE_COUNTER_NAME = name(MessagePersister.class, "persistQueueOversized");
   private static final String PERSISTED_MESSAGE_COUNTER_NAME = name(MessagePersister.class, "persistMessage");
   private static final String PERSISTED_BYTES_COUNTER_NAME = name(MessagePersister.class, "persistBytes");
+  private static final String PERSISTED_QUEUE_COUNTER_NAME = name(MessagePersister.class, "persistedQueue");
+
+  private static final String MEMORY_PRESSURE_SLOT_COUNTER_NAME = name(MessagePersister.class, "memoryPressureSlot");
+  private static final String SHARD_MEMORY_USAGE_GAUGE_NAME = name(MessagePersister.class, "shardMemoryUsage");
+  private static final String SHARD_QUEUE_COUNT_GAUGE_NAME = name(MessagePersister.class, "shardQueueCount");
 
   private static final Timer GET_QUEUES_TIMER = Metrics.timer(name(MessagePersister.class, "getQueues"));
   private static final Timer PERSIST_QUEUE_TIMER = Metrics.timer(name(MessagePersister.class, "persistQueue"));
@@ -72,6 +99,8 @@ public class MessagePersister implements Managed {
 
   private static final int CONSECUTIVE_EMPTY_CACHE_REMOVAL_LIMIT = 3;
 
+  private static final Duration SHARD_MEMORY_USAGE_REFRESH_INTERVAL = Duration.ofSeconds(5);
+
   private static final Logger logger = LoggerFactory.getLogger(MessagePersister.class);
 
   public MessagePersister(final MessagesCache messagesCache,
@@ -91,10 +120,15 @@ public class MessagePersister implements Managed {
     for (int i = 0; i < workerThreads.length; i++) {
       workerThreads[i] = new Thread(() -> {
         while (running) {
-          if (dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration()
-              .isPersistenceEnabled()) {
+          final DynamicMessagePersisterConfiguration messagePersisterConfiguration =
+              dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration();
+
+          if (messagePersisterConfiguration.isPersistenceEnabled()) {
             try {
-              final int queuesPersisted = persistNextQueues(Instant.now());
+              final int persistQueueConcurrency = messagePersisterConfiguration.getPersistQueueConcurrency();
+              final int queuesPersisted = persistQueueConcurrency > 1
+                  ? persistNextQueuesConcurrently(Instant.now(), persistQueueConcurrency)
+                  : persistNextQueues(Instant.now());
               QUEUE_COUNT_DISTRIBUTION_SUMMARY.record(queuesPersisted);
 
               if (queuesPersisted == 0) {
@@ -139,17 +173,121 @@ public class MessagePersister implements Managed {
     }
   }
 
+  /**
+   * A slot from which to persist queues.
+   *
+   * @param slot the slot to persist
+   * @param maxTime the time before which queues must have last been updated to be eligible for persistence
+   * @param largestQueuesFirst if {@code true}, queues should be persisted in descending order of size
+   */
+  private record SlotToPersist(int slot, Instant maxTime, boolean largestQueuesFirst) {
+  }
+
+  /**
+   * Chooses the next slot from which to persist queues. If memory-pressure-aware persistence is enabled and a shard's
+   * memory usage exceeds the configured watermark, the next slot from that shard is chosen and the (shorter)
+   * memory-pressure persist delay applies, so that younger queues are persisted before the shard runs out of memory.
+   * Otherwise, the next slot in the cache's round-robin rotation is chosen.
+   */
+  private SlotToPersist getNextSlotToPersist(final Instant currentTime) {
+    final DynamicMessagePersisterConfiguration configuration =
+        dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration();
+
+    if (configuration.isMemoryPressurePersistenceEnabled()) {
+      try {
+        final Optional<Integer> maybeSlot = getNextSlotUnderMemoryPressure(configuration.getMemoryPressureWatermark(),
+            configuration.getMemoryPressureQueueCountWatermark());
+
+        if (maybeSlot.isPresent()) {
+          return new SlotToPersist(maybeSlot.get(),
+              currentTime.minus(configuration.getMemoryPressurePersistDelay()),
+              true);
+        }
+      } catch (final Exception e) {
+        logger.warn("Failed to check shard memory usage", e);
+      }
+    }
+
+    return new SlotToPersist(messagesCache.getNextSlotToPersist(), currentTime.minus(persistDelay), false);
+  }
+
+  /**
+   * Returns the next slot to persist from the most heavily-loaded shard whose memory usage or queue count exceeds the
+   * given watermarks, if any. Successive calls rotate through the slots of each shard.
+   *
+   * @param watermark the fraction of a shard's maximum memory above which the shard is considered under pressure
+   * @param queueCountWatermark the number of queues above which the shard is considered under pressure; 0 disables
+   *                            the queue count watermark
+   *
+   * @return the next slot to persist from a shard under memory pressure, or empty if no shard is under pressure
+   */
+  @VisibleForTesting
+  Optional<Integer> getNextSlotUnderMemoryPressure(final double watermark, final long queueCountWatermark) {
+    return getShardMemoryUsage().stream()
+        .filter(shardMemoryUsage -> shardMemoryUsage.memoryUsage() > watermark
+            || (queueCountWatermark > 0 && shardMemoryUsage.queueCount() > queueCountWatermark))
+        .filter(shardMemoryUsage -> !shardMemoryUsage.slots().isEmpty())
+        .max(Comparator.comparingDouble(MessagesCache.ShardMemoryUsage::memoryUsage)
+            .thenComparingLong(MessagesCache.ShardMemoryUsage::queueCount))
+        .map(shardMemoryUsage -> {
+          Metrics.counter(MEMORY_PRESSURE_SLOT_COUNTER_NAME, "shard", shardMemoryUsage.shard()).increment();
+
+          final int index = slotCursorsByShard.computeIfAbsent(shardMemoryUsage.shard(), _ -> new AtomicInteger())
+              .getAndIncrement();
+
+          return shardMemoryUsage.slots().get(Math.floorMod(index, shardMemoryUsage.slots().size()));
+        });
+  }
+
+  private synchronized List<MessagesCache.ShardMemoryUsage> getShardMemoryUsage() {
+    final Instant now = Instant.now();
+
+    if (shardMemoryUsage == null || now.isAfter(shardMemoryUsageRefreshed.plus(SHARD_MEMORY_USAGE_REFRESH_INTERVAL))) {
+      shardMemoryUsage = messagesCache.getShardMemoryUsage();
+      shardMemoryUsageRefreshed = now;
+
+      shardMemoryUsage.forEach(usage -> {
+        getShardGauge(shardMemoryUsagePermilleByShard, SHARD_MEMORY_USAGE_GAUGE_NAME, usage.shard())
+            .set(Math.round(usage.memoryUsage() * 1000));
+
+        getShardGauge(shardQueueCountByShard, SHARD_QUEUE_COUNT_GAUGE_NAME, usage.shard())
+            .set(usage.queueCount());
+      });
+    }
+
+    return shardMemoryUsage;
+  }
+
+  private static AtomicLong getShardGauge(final Map<String, AtomicLong> gaugesByShard,
+      final String gaugeName,
+      final String shard) {
+
+    return gaugesByShard.computeIfAbsent(shard,
+        _ -> Metrics.gauge(gaugeName, Tags.of("shard", shard), new AtomicLong()));
+  }
+
+  private List<String> getQueuesToPersist(final SlotToPersist slotToPersist) {
+    return GET_QUEUES_TIMER.record(() -> {
+      final List<String> queues =
+          messagesCache.getQueuesToPersist(slotToPersist.slot(), slotToPersist.maxTime(), QUEUE_BATCH_LIMIT);
+
+      return slotToPersist.largestQueuesFirst() && queues.size() > 1
+          ? messagesCache.sortQueuesBySizeDescending(queues)
+          : queues;
+    });
+  }
+
   @VisibleForTesting
   int persistNextQueues(final Instant currentTime) {
-    final int slot = messagesCache.getNextSlotToPersist();
+    final SlotToPersist slotToPersist = getNextSlotToPersist(currentTime);
+    final int slot = slotToPersist.slot();
     final String shard = messagesCache.shardForSlot(slot);
 
     List<String> queuesToPersist;
     int queuesPersisted = 0;
 
     do {
-      queuesToPersist = GET_QUEUES_TIMER.record(
-          () -> messagesCache.getQueuesToPersist(slot, currentTime.minus(persistDelay), QUEUE_BATCH_LIMIT));
+      queuesToPersist = getQueuesToPersist(slotToPersist);
 
       for (final String queue : queuesToPersist) {
         final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queue);
@@ -187,14 +325,133 @@ public class MessagePersister implements Managed {
     return queuesPersisted;
   }
 
+  /**
+   * Persists queues from the next slot, persisting up to {@code concurrency} queues at a time with non-blocking
+   * operations. Account lookups for each batch of queues are issued together before any queues in the batch are
+   * persisted. Queues that could not be persisted are rescheduled once the whole batch has been processed.
+   *
+   * @param currentTime the current time
+   * @param concurrency the maximum number of queues to persist concurrently
+   *
+   * @return the number of queues processed
+   */
+  @VisibleForTesting
+  int persistNextQueuesConcurrently(final Instant currentTime, final int concurrency) {
+    final SlotToPersist slotToPersist = getNextSlotToPersist(currentTime);
+    final int slot = slotToPersist.slot();
+    final String shard = messagesCache.shardForSlot(slot);
+
+    List<String> queuesToPersist;
+    int queuesPersisted = 0;
+
+    do {
+      queuesToPersist = getQueuesToPersist(slotToPersist);
+
+      final Map<UUID, CompletableFuture<Optional<Account>>> accountFuturesByIdentifier = new HashMap<>();
+
+      for (final String queue : queuesToPersist) {
+        accountFuturesByIdentifier.computeIfAbsent(MessagesCache.getAccountUuidFromQueueName(queue),
+            accountsManager::getByAccountIdentifierAsync);
+      }
+
+      final List<Pair<UUID, Byte>> failedQueues = Collections.synchronizedList(new ArrayList<>());
+      final List<Pair<Account, Device>> oversizedQueues = Collections.synchronizedList(new ArrayList<>());
+      final AtomicBoolean unexpectedFailure = new AtomicBoolean(false);
+
+      Flux.fromIterable(queuesToPersist)
+          .flatMap(queue -> {
+            final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queue);
+            final byte deviceId = MessagesCache.getDeviceIdFromQueueName(queue);
+
+            return Mono.fromFuture(accountFuturesByIdentifier.get(accountUuid)
+                .thenCompose(maybeAccount -> {
+                  if (maybeAccount.isEmpty()) {
+                    logger.error("No account record found for account {}", accountUuid);
+                    return CompletableFuture.completedFuture(null);
+                  }
+
+                  final Optional<Device> maybeDevice = maybeAccount.get().getDevice(deviceId);
+
+                  if (maybeDevice.isEmpty()) {
+                    logger.error("Account {} does not have a device with id {}", accountUuid, deviceId);
+                    return CompletableFuture.completedFuture(null);
+                  }
+
+                  return persistQueueAsync(maybeAccount.get(), maybeDevice.get(), shard)
+                      .exceptionally(throwable -> {
+                        if (ExceptionUtils.unwrap(throwable) instanceof ItemCollectionSizeLimitExceededException) {
+                          // Handling oversized queues involves blocking operations, so defer it to this worker
+                          // thread; the queue is locked again while it's handled
+                          oversizedQueues.add(Pair.of(maybeAccount.get(), maybeDevice.get()));
+                          return null;
+                        }
+
+                        throw ExceptionUtils.wrap(throwable);
+                      });
+                })
+                .exceptionally(throwable -> {
+                  final Throwable unwrapped = ExceptionUtils.unwrap(throwable);
+
+                  PERSIST_QUEUE_EXCEPTION_METER.increment();
+                  logger.warn("Failed to persist queue {}::{} (slot {}, shard {}); will schedule for retry",
+                      accountUuid, deviceId, slot, shard, unwrapped);
+
+                  failedQueues.add(Pair.of(accountUuid, deviceId));
+
+                  if (!(unwrapped instanceof MessagePersistenceException)) {
+                    unexpectedFailure.set(true);
+                  }
+
+                  return null;
+                }));
+          }, concurrency)
+          .then()
+          .block();
+
+      for (final Pair<Account, Device> accountAndDevice : oversizedQueues) {
+        final Account account = accountAndDevice.getLeft();
+        final byte deviceId = accountAndDevice.getRight().getId();
+
+        try {
+          // As in the serial path, hold the persistence lock while trimming so trimming doesn't race with other
+          // attempts to persist the same queue
+          messagesCache.lockQueueForPersistence(account.getUuid(), deviceId);
+
+          try {
+            handleOversizedQueue(account, deviceId);
+          } finally {
+            messagesCache.unlockQueueForPersistence(account.getUuid(), deviceId);
+          }
+        } catch (final Exception e) {
+          PERSIST_QUEUE_EXCEPTION_METER.increment();
+          logger.warn("Failed to persist queue {}::{} (slot {}, shard {}); will schedule for retry",
+              account.getUuid(), deviceId, slot, shard, e);
+
+          failedQueues.add(Pair.of(account.getUuid(), deviceId));
+        }
+      }
+
+      failedQueues.forEach(accountUuidAndDeviceId ->
+          messagesCache.addQueueToPersist(accountUuidAndDeviceId.getLeft(), accountUuidAndDeviceId.getRight()));
+
+      if (unexpectedFailure.get()) {
+        // Pause after unexpected exceptions (including throttling by DynamoDB)
+        Util.sleep(EXCEPTION_PAUSE_MILLIS);
+      }
+
+      queuesPersisted += queuesToPersist.size();
+    } while (queuesToPersist.size() >= QUEUE_BATCH_LIMIT);
+
+    return queuesPersisted;
+  }
+
   @VisibleForTesting
   void persistQueue(final Account account, final Device device, final String shard) throws MessagePersistenceException {
     final UUID accountUuid = account.getUuid();
     final byte deviceId = device.getId();
 
-    final Tag platformTag = Tag.of("platform", DevicePlatformUtil.getDevicePlatform(device)
-        .map(platform -> platform.name().toLowerCase(Locale.ROOT))
-        .orElse("unknown"));
+    final Tag platformTag = getPlatformTag(device);
+    final Tags tags = Tags.of(platformTag, Tag.of("shard", shard));
 
     final Timer.Sample sample = Timer.start();
 
@@ -209,15 +466,7 @@ public class MessagePersister implements Managed {
       do {
         messages = messagesCache.getMessagesToPersist(accountUuid, deviceId, MESSAGE_BATCH_LIMIT);
 
-        final int urgentMessageCount = (int) messages.stream().filter(MessageProtos.Envelope::getUrgent).count();
-        final int nonUrgentMessageCount = messages.size() - urgentMessageCount;
-
-        final Tags tags = Tags.of(platformTag, Tag.of("shard", shard));
-
-        Metrics.counter(PERSISTED_MESSAGE_COUNTER_NAME, tags.and("urgent", "true")).increment(urgentMessageCount);
-        Metrics.counter(PERSISTED_MESSAGE_COUNTER_NAME, tags.and("urgent", "false")).increment(nonUrgentMessageCount);
-        Metrics.counter(PERSISTED_BYTES_COUNTER_NAME, tags)
-            .increment(messages.stream().mapToInt(MessageProtos.Envelope::getSerializedSize).sum());
+        recordPersistedMessages(messages, tags);
 
         int messagesRemovedFromCache = messagesManager.persistMessages(accountUuid, device, messages);
         messageCount += messages.size();
@@ -234,30 +483,117 @@ public class MessagePersister implements Managed {
 
       } while (!messages.isEmpty());
 
-      DistributionSummary.builder(QUEUE_SIZE_DISTRIBUTION_SUMMARY_NAME)
-          .tags(Tags.of(platformTag))
-          .publishPercentileHistogram(true)
-          .register(Metrics.globalRegistry)
-          .record(messageCount);
+      recordPersistedQueue(platformTag, shard, messageCount);
     } catch (ItemCollectionSizeLimitExceededException e) {
-      final boolean isPrimary = deviceId == Device.PRIMARY_ID;
-      Metrics.counter(OVERSIZED_QUEUE_COUNTER_NAME, "primary", String.valueOf(isPrimary)).increment();
-      // may throw, in which case we'll retry later by the usual mechanism
-      if (isPrimary) {
-        logger.warn("Failed to persist queue {}::{} due to overfull queue; will trim oldest messages",
-            account.getUuid(), deviceId);
-        trimQueue(account, deviceId);
-        throw new MessagePersistenceException("Could not persist due to an overfull queue. Trimmed primary queue, a subsequent retry may succeed");
-      } else {
-        logger.warn("Failed to persist queue {}::{} due to overfull queue; will unlink device", accountUuid, deviceId);
-        accountsManager.removeDevice(account, deviceId).join();
-      }
+      handleOversizedQueue(account, deviceId);
     } finally {
       messagesCache.unlockQueueForPersistence(accountUuid, deviceId);
       sample.stop(PERSIST_QUEUE_TIMER);
     }
   }
 
+  /**
+   * Persists a queue with non-blocking operations. The returned future fails with an
+   * {@link ItemCollectionSizeLimitExceededException} if the destination device's persisted queue is full; callers are
+   * responsible for calling {@link #handleOversizedQueue(Account, byte)} in that case.
+   */
+  @VisibleForTesting
+  CompletableFuture<Void> persistQueueAsync(final Account account, final Device device, final String shard) {
+    final UUID accountUuid = account.getUuid();
+    final byte deviceId = device.getId();
+
+    final Tag platformTag = getPlatformTag(device);
+    final Tags tags = Tags.of(platformTag, Tag.of("shard", shard));
+
+    final Timer.Sample sample = Timer.start();
+
+    return messagesCache.lockQueueForPersistenceAsync(accountUuid, deviceId)
+        .thenCompose(ignored -> persistQueueMessagesAsync(accountUuid, device, tags, 0, 0)
+            .thenAccept(messageCount -> recordPersistedQueue(platformTag, shard, messageCount))
+            // always unlock the queue, but preserve the outcome of the persistence attempt
+            .handle((persisted, throwable) -> messagesCache.unlockQueueForPersistenceAsync(accountUuid, deviceId)
+                .exceptionally(unlockThrowable -> {
+                  logger.warn("Failed to unlock queue {}::{}", accountUuid, deviceId, unlockThrowable);
+                  return null;
+                })
+                .thenCompose(unlocked -> throwable == null
+                    ? CompletableFuture.<Void>completedFuture(null)
+                    : CompletableFuture.<Void>failedFuture(throwable)))
+            .thenCompose(Function.identity()))
+        .whenComplete((ignored, throwable) -> sample.stop(PERSIST_QUEUE_TIMER));
+  }
+
+  private CompletableFuture<Integer> persistQueueMessagesAsync(final UUID accountUuid,
+      final Device device,
+      final Tags tags,
+      final int messageCount,
+      final int consecutiveEmptyCacheRemovals) {
+
+    return messagesCache.getMessagesToPersistAsync(accountUuid, device.getId(), MESSAGE_BATCH_LIMIT)
+        .thenCompose(messages -> {
+          if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(messageCount);
+          }
+
+          recordPersistedMessages(messages, tags);
+
+          return messagesManager.persistMessagesAsync(accountUuid, device, messages)
+              .thenCompose(messagesRemovedFromCache -> {
+                final int updatedConsecutiveEmptyCacheRemovals =
+                    messagesRemovedFromCache == 0 ? consecutiveEmptyCacheRemovals + 1 : 0;
+
+                if (updatedConsecutiveEmptyCacheRemovals > CONSECUTIVE_EMPTY_CACHE_REMOVAL_LIMIT) {
+                  return CompletableFuture.failedFuture(
+                      new MessagePersistenceException("persistence failure loop detected"));
+                }
+
+                return persistQueueMessagesAsync(accountUuid, device, tags, messageCount + messages.size(),
+                    updatedConsecutiveEmptyCacheRemovals);
+              });
+        });
+  }
+
+  private void handleOversizedQueue(final Account account, final byte deviceId) throws MessagePersistenceException {
+    final boolean isPrimary = deviceId == Device.PRIMARY_ID;
+    Metrics.counter(OVERSIZED_QUEUE_COUNTER_NAME, "primary", String.valueOf(isPrimary)).increment();
+    // may throw, in which case we'll retry later by the usual mechanism
+    if (isPrimary) {
+      logger.warn("Failed to persist queue {}::{} due to overfull queue; will trim oldest messages",
+          account.getUuid(), deviceId);
+      trimQueue(account, deviceId);
+      throw new MessagePersistenceException("Could not persist due to an overfull queue. Trimmed primary queue, a subsequent retry may succeed");
+    } else {
+      logger.warn("Failed to persist queue {}::{} due to overfull queue; will unlink device", account.getUuid(), deviceId);
+      accountsManager.removeDevice(account, deviceId).join();
+    }
+  }
+
+  private static Tag getPlatformTag(final Device device) {
+    return Tag.of("platform", DevicePlatformUtil.getDevicePlatform(device)
+        .map(platform -> platform.name().toLowerCase(Locale.ROOT))
+        .orElse("unknown"));
+  }
+
+  private static void recordPersistedMessages(final List<MessageProtos.Envelope> messages, final Tags tags) {
+    final int urgentMessageCount = (int) messages.stream().filter(MessageProtos.Envelope::getUrgent).count();
+    final int nonUrgentMessageCount = messages.size() - urgentMessageCount;
+
+    Metrics.counter(PERSISTED_MESSAGE_COUNTER_NAME, tags.and("urgent", "true")).increment(urgentMessageCount);
+    Metrics.counter(PERSISTED_MESSAGE_COUNTER_NAME, tags.and("urgent", "false")).increment(nonUrgentMessageCount);
+    Metrics.counter(PERSISTED_BYTES_COUNTER_NAME, tags)
+        .increment(messages.stream().mapToInt(MessageProtos.Envelope::getSerializedSize).sum());
+  }
+
+  private static void recordPersistedQueue(final Tag platformTag, final String shard, final int messageCount) {
+    Metrics.counter(PERSISTED_QUEUE_COUNTER_NAME, "shard", shard).increment();
+
+    DistributionSummary.builder(QUEUE_SIZE_DISTRIBUTION_SUMMARY_NAME)
+        .tags(Tags.of(platformTag))
+        .publishPercentileHistogram(true)
+        .register(Metrics.globalRegistry)
+        .record(messageCount);
+  }
+
   private void trimQueue(final Account account, byte deviceId) {
     final UUID aci = account.getIdentifier(IdentityType.ACI);
 
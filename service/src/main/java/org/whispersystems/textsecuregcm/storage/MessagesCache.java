@@ -8,6 +8,9 @@ package org.whispersystems.textsecuregcm.storage;
 import static com.codahale.metrics.MetricRegistry.name;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.lettuce.core.Limit;
@@ -15,7 +18,9 @@ import io.lettuce.core.Range;
 import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ZAddArgs;
 import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
@@ -26,7 +31,9 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +43,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
 import org.signal.libsignal.protocol.ServiceId;
@@ -47,6 +55,7 @@ import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
+import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -129,8 +138,16 @@ public class MessagesCache {
   private final MessagesCacheUnlockQueueScript unlockQueueScript;
 
   private final Timer insertTimer = Metrics.timer(name(MessagesCache.class, "insert"));
+  private final Timer insertBatchTimer = Metrics.timer(name(MessagesCache.class, "insertBatch"));
+  private final DistributionSummary insertBatchScriptCallsDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "insertBatchScriptCalls"));
   private final Timer insertSharedMrmPayloadTimer = Metrics.timer(name(MessagesCache.class, "insertSharedMrmPayload"));
   private final Timer getMessagesTimer = Metrics.timer(name(MessagesCache.class, "get"));
+  private final Timer getPageTimer = Metrics.timer(name(MessagesCache.class, "getPage"));
+  private final DistributionSummary pageSizeDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "pageSize"));
+  private final Timer drainQueueTimer = Metrics.timer(name(MessagesCache.class, "drainQueue"));
+  private final Counter drainedMessagesCounter = Metrics.counter(name(MessagesCache.class, "drainedMessages"));
   private final Timer getQueuesToPersistTimer = Metrics.timer(name(MessagesCache.class, "getQueuesToPersist"));
   private final Timer removeByGuidTimer = Metrics.timer(name(MessagesCache.class, "removeByGuid"));
   private final Timer removeRecipientViewTimer = Metrics.timer(name(MessagesCache.class, "removeRecipientView"));
@@ -147,6 +164,19 @@ public class MessagesCache {
       name(MessagesCache.class, "skippedStaleEphemeralMrm"));
   private final Counter sharedMrmDataKeyRemovedCounter = Metrics.counter(
       name(MessagesCache.class, "sharedMrmKeyRemoved"));
+  private final Counter sharedMrmDataCacheHitCounter = Metrics.counter(
+      name(MessagesCache.class, "sharedMrmDataCacheHit"));
+  private final Counter sharedMrmDataCacheMissCounter = Metrics.counter(
+      name(MessagesCache.class, "sharedMrmDataCacheMiss"));
+
+  // Shared MRM data is keyed by a random UUID and never modified once written, so locally-cached copies never become
+  // inconsistent with Redis; we only need to bound the cache's memory use.
+  private final Cache<ByteString, byte[]> sharedMrmDataCache = CacheBuilder.newBuilder()
+      .maximumWeight(SHARED_MRM_DATA_CACHE_MAX_BYTES)
+      .<ByteString, byte[]>weigher((key, data) -> key.size() + data.length)
+      .expireAfterWrite(SHARED_MRM_KEY_TTL)
+      .expireAfterAccess(SHARED_MRM_DATA_CACHE_IDLE_TTL)
+      .build();
 
   static final String NEXT_SLOT_TO_PERSIST_KEY = "user_queue_persist_slot";
   private static final byte[] LOCK_VALUE = "1".getBytes(StandardCharsets.UTF_8);
@@ -160,8 +190,23 @@ public class MessagesCache {
   private static final String GET_FLUX_NAME = MetricsUtil.name(MessagesCache.class, "get");
   private static final int PAGE_SIZE = 100;
 
+  // The largest page to request when draining long queues; messages may be large, so this also bounds the size of any
+  // single script response
+  @VisibleForTesting
+  static final int MAX_PAGE_SIZE = 500;
+
   private static final int REMOVE_MRM_RECIPIENT_VIEW_CONCURRENCY = 8;
 
+  // Matches the expiration set by insert_shared_multirecipient_message_data.lua
+  private static final Duration SHARED_MRM_KEY_TTL = Duration.ofDays(7);
+  private static final Duration SHARED_MRM_DATA_CACHE_IDLE_TTL = Duration.ofMinutes(10);
+  private static final long SHARED_MRM_DATA_CACHE_MAX_BYTES = 64 * 1024 * 1024;
+
+  // The maximum number of queues to modify in a single batch insert script invocation; this bounds the time any one
+  // script can block a Redis node
+  @VisibleForTesting
+  static final int MAX_QUEUES_PER_BATCH_INSERT = 64;
+
   private static final Logger logger = LoggerFactory.getLogger(MessagesCache.class);
 
   public MessagesCache(final FaultTolerantRedisClusterClient redisCluster,
@@ -227,6 +272,77 @@ public class MessagesCache {
         .whenComplete((ignored, throwable) -> sample.stop(insertTimer));
   }
 
+  /**
+   * A message to be inserted into a specific device's queue as part of a batch insert.
+   *
+   * @param messageGuid the server-assigned GUID for the message
+   * @param destinationAccountIdentifier the identifier of the destination account
+   * @param destinationDeviceId the ID of the destination device within the destination account
+   * @param message the message to insert
+   */
+  public record MessageInsert(UUID messageGuid,
+                              UUID destinationAccountIdentifier,
+                              byte destinationDeviceId,
+                              MessageProtos.Envelope message) {
+  }
+
+  /**
+   * Inserts messages into the queues of any number of destination devices. Inserts are grouped by cluster slot so that
+   * all of the queues in the same slot are modified by a single script invocation, and all script invocations are
+   * issued at once so that the underlying cluster connection can pipeline them.
+   *
+   * @param messageInserts the messages to insert and their destinations
+   *
+   * @return a future that yields a list of presence states in the same order as the given inserts; each element is
+   * {@code true} if the corresponding destination device had a registered "presence"/event subscriber or {@code false}
+   * otherwise
+   */
+  public CompletableFuture<List<Boolean>> insert(final List<MessageInsert> messageInserts) {
+    if (messageInserts.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    final Timer.Sample sample = Timer.start();
+
+    final Map<Integer, List<Integer>> insertIndicesBySlot = new HashMap<>();
+
+    for (int i = 0; i < messageInserts.size(); i++) {
+      final MessageInsert messageInsert = messageInserts.get(i);
+
+      insertIndicesBySlot.computeIfAbsent(SlotHash.getSlot(
+              getMessageQueueKey(messageInsert.destinationAccountIdentifier(), messageInsert.destinationDeviceId())),
+          _ -> new ArrayList<>()).add(i);
+    }
+
+    final Boolean[] presence = new Boolean[messageInserts.size()];
+    final List<CompletableFuture<Void>> scriptFutures = new ArrayList<>(insertIndicesBySlot.size());
+
+    for (final List<Integer> slotInsertIndices : insertIndicesBySlot.values()) {
+      for (final List<Integer> batchInsertIndices : Lists.partition(slotInsertIndices, MAX_QUEUES_PER_BATCH_INSERT)) {
+        final List<MessagesCacheInsertScript.QueuedEnvelope> queuedEnvelopes = batchInsertIndices.stream()
+            .map(messageInserts::get)
+            .map(messageInsert -> new MessagesCacheInsertScript.QueuedEnvelope(
+                messageInsert.destinationAccountIdentifier(),
+                messageInsert.destinationDeviceId(),
+                messageInsert.message().toBuilder().setServerGuid(messageInsert.messageGuid().toString()).build()))
+            .toList();
+
+        scriptFutures.add(insertScript.executeBatchAsync(queuedEnvelopes)
+            .thenAccept(batchPresence -> {
+              for (int i = 0; i < batchInsertIndices.size(); i++) {
+                presence[batchInsertIndices.get(i)] = batchPresence.get(i);
+              }
+            }));
+      }
+    }
+
+    insertBatchScriptCallsDistributionSummary.record(scriptFutures.size());
+
+    return CompletableFuture.allOf(scriptFutures.toArray(CompletableFuture[]::new))
+        .thenApply(ignored -> Arrays.asList(presence))
+        .whenComplete((ignored, throwable) -> sample.stop(insertBatchTimer));
+  }
+
   public CompletableFuture<byte[]> insertSharedMultiRecipientMessagePayload(
       final SealedSenderMultiRecipientMessage sealedSenderMultiRecipientMessage) {
 
@@ -366,20 +482,27 @@ public class MessagesCache {
   Flux<MessageProtos.Envelope> getAllMessages(final UUID destinationUuid, final byte destinationDevice,
       final long earliestAllowableEphemeralTimestamp, final int pageSize) {
 
-    // fetch messages by page
+    // fetch messages by page; pages grow (up to a limit) as long as they come back full so that draining a long queue
+    // takes fewer round-trips, and the prefetch below keeps the next page in flight while the current page is delivered
     return getNextMessagePage(destinationUuid, destinationDevice, -1, pageSize)
-        .expand(queueItemsAndLastMessageId -> {
+        .expand(messagePage -> {
           // expand() is breadth-first, so each page will be published in order
-          if (queueItemsAndLastMessageId.first().isEmpty()) {
+          if (messagePage.queueItems().isEmpty()) {
             return Mono.empty();
           }
 
-          return getNextMessagePage(destinationUuid, destinationDevice, queueItemsAndLastMessageId.second(), pageSize);
+          return getNextMessagePage(destinationUuid, destinationDevice, messagePage.lastMessageId(),
+              getNextPageSize(messagePage));
         })
         .limitRate(1)
         // we want to ensure we don’t accidentally block the Lettuce/netty i/o executors
         .publishOn(messageDeliveryScheduler)
-        .map(Pair::first)
+        .map(MessagePage::queueItems)
+        .doOnNext(queueItems -> drainedMessagesCounter.increment(queueItems.size() / 2.0))
+        .transform(pages -> Flux.defer(() -> {
+          final Timer.Sample drainSample = Timer.start();
+          return pages.doOnComplete(() -> drainSample.stop(drainQueueTimer));
+        }))
         .concatMap(queueItems -> {
 
           final List<Mono<MessageProtos.Envelope>> envelopes = new ArrayList<>(queueItems.size() / 2);
@@ -428,34 +551,55 @@ public class MessagesCache {
 
     assert mrmMessage.hasSharedMrmKey();
 
-    final byte[] key = mrmMessage.getSharedMrmKey().toByteArray();
+    final ByteString sharedMrmKey = mrmMessage.getSharedMrmKey();
+    final byte[] key = sharedMrmKey.toByteArray();
     final byte[] sharedMrmViewKey = MessagesCache.getSharedMrmViewKey(
         // the message might be addressed to the account's PNI, so use the service ID from the envelope
         ServiceIdentifier.valueOf(mrmMessage.getDestinationServiceId()), destinationDevice);
 
-    return Mono.from(redisCluster.withBinaryClusterReactive(
-            conn -> conn.reactive().hmget(key, "data".getBytes(StandardCharsets.UTF_8), sharedMrmViewKey)
-                .collectList()
-                .publishOn(messageDeliveryScheduler)))
+    // Shared data never changes once written, so if we already have a copy, we only need to fetch the recipient's view.
+    // Note that the recipient's view will be missing if the shared data has been removed from Redis.
+    @Nullable final byte[] cachedSharedMrmData = sharedMrmDataCache.getIfPresent(sharedMrmKey);
+    (cachedSharedMrmData != null ? sharedMrmDataCacheHitCounter : sharedMrmDataCacheMissCounter).increment();
+
+    final Mono<Pair<Optional<byte[]>, Optional<byte[]>>> mrmDataAndViewMono = cachedSharedMrmData != null
+        ? Mono.from(redisCluster.withBinaryClusterReactive(
+                conn -> conn.reactive().hget(key, sharedMrmViewKey)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .publishOn(messageDeliveryScheduler)))
+            .map(maybeView -> new Pair<>(Optional.of(cachedSharedMrmData), maybeView))
+        : Mono.from(redisCluster.withBinaryClusterReactive(
+                conn -> conn.reactive().hmget(key, "data".getBytes(StandardCharsets.UTF_8), sharedMrmViewKey)
+                    .collectList()
+                    .publishOn(messageDeliveryScheduler)))
+            .map(mrmDataAndView -> {
+              assert mrmDataAndView.size() == 2;
+
+              final Optional<byte[]> maybeSharedMrmData = mrmDataAndView.getFirst().optional();
+              maybeSharedMrmData.ifPresent(sharedMrmData -> sharedMrmDataCache.put(sharedMrmKey, sharedMrmData));
+
+              return new Pair<>(maybeSharedMrmData, mrmDataAndView.getLast().optional());
+            });
+
+    return mrmDataAndViewMono
         .<MessageProtos.Envelope>handle((mrmDataAndView, sink) -> {
           try {
-            assert mrmDataAndView.size() == 2;
-
-            if (mrmDataAndView.getFirst().isEmpty()) {
+            if (mrmDataAndView.first().isEmpty()) {
               // shared data is missing
               //noinspection ReactiveStreamsThrowInOperator
               throw new MrmDataMissingException(MrmDataMissingException.Type.SHARED);
             }
 
-            if (mrmDataAndView.getLast().isEmpty()) {
+            if (mrmDataAndView.second().isEmpty()) {
               // recipient's view is missing
               //noinspection ReactiveStreamsThrowInOperator
               throw new MrmDataMissingException(MrmDataMissingException.Type.RECIPIENT_VIEW);
             }
 
             final byte[] content = SealedSenderMultiRecipientMessage.messageForRecipient(
-                mrmDataAndView.getFirst().getValue(),
-                mrmDataAndView.getLast().getValue());
+                mrmDataAndView.first().get(),
+                mrmDataAndView.second().get());
 
             sink.next(mrmMessage.toBuilder()
                 .clearSharedMrmKey()
@@ -518,27 +662,46 @@ public class MessagesCache {
         .subscribe();
   }
 
-  private Mono<Pair<List<byte[]>, Long>> getNextMessagePage(final UUID destinationUuid, final byte destinationDevice,
+  private record MessagePage(List<byte[]> queueItems, @Nullable Long lastMessageId, int pageSize) {
+  }
+
+  @VisibleForTesting
+  static int getNextPageSize(final int pageSize, final int messagesInPage) {
+    // A full page suggests there are more messages waiting behind it
+    return messagesInPage >= pageSize ? Math.max(pageSize, Math.min(pageSize * 2, MAX_PAGE_SIZE)) : pageSize;
+  }
+
+  private static int getNextPageSize(final MessagePage messagePage) {
+    return getNextPageSize(messagePage.pageSize(), messagePage.queueItems().size() / 2);
+  }
+
+  private Mono<MessagePage> getNextMessagePage(final UUID destinationUuid, final byte destinationDevice,
       long messageId, int pageSize) {
 
+    final Timer.Sample sample = Timer.start();
+
     return getItemsScript.execute(destinationUuid, destinationDevice, pageSize, messageId)
         .retryWhen(RetrySpec.backoff(4, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(4)))
+        .doOnSuccess(queueItems -> {
+          sample.stop(getPageTimer);
+          pageSizeDistributionSummary.record(queueItems == null ? 0 : queueItems.size() / 2);
+        })
         .map(queueItems -> {
           logger.trace("Processing page: {}", messageId);
 
           if (queueItems.isEmpty()) {
-            return new Pair<>(Collections.emptyList(), null);
+            return new MessagePage(Collections.emptyList(), null, pageSize);
           }
 
           if (queueItems.size() % 2 != 0) {
             logger.error("\"Get messages\" operation returned a list with a non-even number of elements.");
-            return new Pair<>(Collections.emptyList(), null);
+            return new MessagePage(Collections.emptyList(), null, pageSize);
           }
 
           final long lastMessageId = Long.parseLong(
               new String(queueItems.getLast(), StandardCharsets.UTF_8));
 
-          return new Pair<>(queueItems, lastMessageId);
+          return new MessagePage(queueItems, lastMessageId, pageSize);
         });
   }
 
@@ -581,7 +744,31 @@ public class MessagesCache {
     final List<byte[]> messages = redisCluster.withBinaryCluster(connection ->
         connection.sync().zrange(getMessageQueueKey(accountUuid, destinationDevice), 0, limit));
 
-    final Flux<MessageProtos.Envelope> allMessages = parseAndFetchMrms(Flux.fromIterable(messages), destinationDevice);
+    return getMessagesToPersist(accountUuid, destinationDevice, Flux.fromIterable(messages))
+        .doOnTerminate(() -> sample.stop(getMessagesTimer))
+        .block(Duration.ofSeconds(5));
+  }
+
+  CompletableFuture<List<MessageProtos.Envelope>> getMessagesToPersistAsync(final UUID accountUuid,
+      final byte destinationDevice,
+      final int limit) {
+
+    final Timer.Sample sample = Timer.start();
+
+    return redisCluster.withBinaryCluster(connection ->
+            connection.async().zrange(getMessageQueueKey(accountUuid, destinationDevice), 0, limit))
+        .toCompletableFuture()
+        .thenCompose(messages -> getMessagesToPersist(accountUuid, destinationDevice, Flux.fromIterable(messages))
+            .timeout(Duration.ofSeconds(5))
+            .toFuture())
+        .whenComplete((ignored, throwable) -> sample.stop(getMessagesTimer));
+  }
+
+  private Mono<List<MessageProtos.Envelope>> getMessagesToPersist(final UUID accountUuid,
+      final byte destinationDevice,
+      final Flux<byte[]> serializedMessages) {
+
+    final Flux<MessageProtos.Envelope> allMessages = parseAndFetchMrms(serializedMessages, destinationDevice);
 
     final Flux<MessageProtos.Envelope> messagesToPersist = allMessages
         .filter(Predicate.not(envelope ->
@@ -596,10 +783,7 @@ public class MessagesCache {
         .map(envelope -> envelope.toBuilder().clearSharedMrmKey().build());
     discardStaleMessages(accountUuid, destinationDevice, staleMrmMessages, staleMrmMessagesCounter, "mrm");
 
-    return messagesToPersist
-        .collectList()
-        .doOnTerminate(() -> sample.stop(getMessagesTimer))
-        .block(Duration.ofSeconds(5));
+    return messagesToPersist.collectList();
   }
 
   private Flux<MessageProtos.Envelope> parseAndFetchMrms(final Flux<byte[]> serializedMessages, final byte destinationDevice) {
@@ -679,6 +863,85 @@ public class MessagesCache {
     }
   }
 
+  /**
+   * Describes the memory usage of a single shard (upstream node) in the cache cluster.
+   *
+   * @param shard the host name of the shard, as reported by {@link #shardForSlot(int)}
+   * @param memoryUsage the fraction of its configured maximum memory the shard is using, or 0 if the shard does not
+   *                    have a configured maximum
+   * @param queueCount the number of non-empty queues in the shard's queue indices
+   * @param slots the slots served by the shard
+   */
+  record ShardMemoryUsage(String shard, double memoryUsage, long queueCount, List<Integer> slots) {
+  }
+
+  /**
+   * Queries each upstream node in the cluster for its memory usage and the cardinality of its queue indices.
+   *
+   * @return the memory usage of each shard in the cluster
+   */
+  List<ShardMemoryUsage> getShardMemoryUsage() {
+    return redisCluster.withBinaryCluster(connection -> connection.getPartitions().getPartitions().stream()
+        .filter(node -> node.is(RedisClusterNode.NodeFlag.UPSTREAM))
+        .map(node -> {
+          final String memoryInfo = connection.getConnection(node.getNodeId()).sync().info("memory");
+
+          final List<CompletableFuture<Long>> queueIndexSizeFutures = node.getSlots().stream()
+              .map(slot -> connection.getConnection(node.getNodeId()).async().zcard(getQueueIndexKey(slot))
+                  .toCompletableFuture())
+              .toList();
+
+          final long queueCount = queueIndexSizeFutures.stream()
+              .mapToLong(CompletableFuture::join)
+              .sum();
+
+          return new ShardMemoryUsage(node.getUri().getHost(), getMemoryUsage(memoryInfo), queueCount, node.getSlots());
+        })
+        .toList());
+  }
+
+  @VisibleForTesting
+  static double getMemoryUsage(final String memoryInfo) {
+    long usedMemory = 0;
+    long maxMemory = 0;
+
+    for (final String line : memoryInfo.split("\\r?\\n")) {
+      if (line.startsWith("used_memory:")) {
+        usedMemory = Long.parseLong(line.substring("used_memory:".length()).trim());
+      } else if (line.startsWith("maxmemory:")) {
+        maxMemory = Long.parseLong(line.substring("maxmemory:".length()).trim());
+      }
+    }
+
+    return maxMemory > 0 ? (double) usedMemory / maxMemory : 0;
+  }
+
+  /**
+   * Sorts the given queues by the number of messages they contain, largest first.
+   *
+   * @param queueNames the names of the queues to sort, as returned by {@link #getQueuesToPersist(int, Instant, int)}
+   *
+   * @return the given queue names, ordered by descending queue size
+   */
+  List<String> sortQueuesBySizeDescending(final List<String> queueNames) {
+    final List<CompletableFuture<Long>> queueSizeFutures = redisCluster.withBinaryCluster(connection ->
+        queueNames.stream()
+            .map(queueName -> connection.async().zcard(queueName.getBytes(StandardCharsets.UTF_8)).toCompletableFuture())
+            .toList());
+
+    CompletableFuture.allOf(queueSizeFutures.toArray(CompletableFuture[]::new)).join();
+
+    final Map<String, Long> queueSizes = new HashMap<>();
+
+    for (int i = 0; i < queueNames.size(); i++) {
+      queueSizes.put(queueNames.get(i), queueSizeFutures.get(i).join());
+    }
+
+    return queueNames.stream()
+        .sorted(Comparator.comparing(queueSizes::get, Comparator.reverseOrder()))
+        .toList();
+  }
+
   int getNextSlotToPersist() {
     return (int) (redisCluster.withCluster(connection -> connection.sync().incr(NEXT_SLOT_TO_PERSIST_KEY))
         % SlotHash.SLOT_COUNT);
@@ -699,10 +962,21 @@ public class MessagesCache {
         connection -> connection.sync().setex(getPersistInProgressKey(accountUuid, deviceId), 30, LOCK_VALUE));
   }
 
+  CompletableFuture<Void> lockQueueForPersistenceAsync(final UUID accountUuid, final byte deviceId) {
+    return redisCluster.withBinaryCluster(
+            connection -> connection.async().setex(getPersistInProgressKey(accountUuid, deviceId), 30, LOCK_VALUE))
+        .toCompletableFuture()
+        .thenRun(Util.NOOP);
+  }
+
   void unlockQueueForPersistence(final UUID accountUuid, final byte deviceId) {
     unlockQueueScript.execute(accountUuid, deviceId);
   }
 
+  CompletableFuture<Void> unlockQueueForPersistenceAsync(final UUID accountUuid, final byte deviceId) {
+    return unlockQueueScript.executeAsync(accountUuid, deviceId);
+  }
+
   static byte[] getMessageQueueKey(final UUID accountUuid, final byte deviceId) {
     return ("user_queue::{" + accountUuid.toString() + "::" + deviceId + "}").getBytes(StandardCharsets.UTF_8);
   }
@@ -22,10 +22,13 @@ import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 
 /**
  * Inserts an envelope into the message queue for a destination device and publishes a "new message available" event.
+ * Envelopes for several devices may also be inserted with a single script invocation if all of the destination queues
+ * live in the same cluster slot.
  */
 class MessagesCacheInsertScript {
 
   private final ClusterLuaScript insertScript;
+  private final ClusterLuaScript insertBatchScript;
 
   private static final byte[] NEW_MESSAGE_EVENT_BYTES = ClientEvent.newBuilder()
       .setNewMessageAvailable(NewMessageAvailableEvent.getDefaultInstance())
@@ -34,6 +37,17 @@ class MessagesCacheInsertScript {
 
   MessagesCacheInsertScript(FaultTolerantRedisClusterClient redisCluster) throws IOException {
     this.insertScript = ClusterLuaScript.fromResource(redisCluster, "lua/insert_item.lua", ScriptOutputType.BOOLEAN);
+    this.insertBatchScript = ClusterLuaScript.fromResource(redisCluster, "lua/insert_items.lua", ScriptOutputType.MULTI);
+  }
+
+  /**
+   * A message destined for a specific device's queue.
+   *
+   * @param destinationUuid the account identifier for the receiving account
+   * @param destinationDevice the ID of the receiving device within the given account
+   * @param envelope the message to insert
+   */
+  record QueuedEnvelope(UUID destinationUuid, byte destinationDevice, MessageProtos.Envelope envelope) {
   }
 
   /**
@@ -66,4 +80,44 @@ class MessagesCacheInsertScript {
     return insertScript.executeBinaryAsync(keys, args)
         .thenApply(result -> (boolean) result);
   }
+
+  /**
+   * Inserts messages into the queues for several devices with a single script invocation and publishes a "new message
+   * available" event for each destination device. All destination queues must be in the same cluster slot.
+   *
+   * @param queuedEnvelopes the messages to insert and their destinations
+   *
+   * @return a list of presence states in the same order as the given messages; each element is {@code true} if the
+   * corresponding destination device had a registered "presence"/event subscriber or {@code false} otherwise
+   */
+  CompletableFuture<List<Boolean>> executeBatchAsync(final List<QueuedEnvelope> queuedEnvelopes) {
+    final List<byte[]> keys = new ArrayList<>(queuedEnvelopes.size() * 4);
+    final List<byte[]> args = new ArrayList<>((queuedEnvelopes.size() * 3) + 1);
+
+    args.add(NEW_MESSAGE_EVENT_BYTES); // eventPayload
+
+    for (final QueuedEnvelope queuedEnvelope : queuedEnvelopes) {
+      final UUID destinationUuid = queuedEnvelope.destinationUuid();
+      final byte destinationDevice = queuedEnvelope.destinationDevice();
+      final MessageProtos.Envelope envelope = queuedEnvelope.envelope();
+
+      assert envelope.hasServerGuid();
+      assert envelope.hasServerTimestamp();
+
+      keys.add(MessagesCache.getMessageQueueKey(destinationUuid, destinationDevice)); // queueKey
+      keys.add(MessagesCache.getMessageQueueMetadataKey(destinationUuid, destinationDevice)); // queueMetadataKey
+      keys.add(MessagesCache.getQueueIndexKey(destinationUuid, destinationDevice)); // queueTotalIndexKey
+      keys.add(RedisMessageAvailabilityManager.getClientEventChannel(destinationUuid, destinationDevice)); // eventChannelKey
+
+      args.add(EnvelopeUtil.compress(envelope).toByteArray()); // message
+      args.add(String.valueOf(envelope.getServerTimestamp()).getBytes(StandardCharsets.UTF_8)); // currentTime
+      args.add(envelope.getServerGuid().getBytes(StandardCharsets.UTF_8)); // guid
+    }
+
+    //noinspection unchecked
+    return insertBatchScript.executeBinaryAsync(keys, args)
+        .thenApply(result -> ((List<Long>) result).stream()
+            .map(present -> present == 1)
+            .toList());
+  }
 }
@@ -11,9 +11,11 @@ import org.whispersystems.textsecuregcm.push.MessagesPersistedEvent;
 import org.whispersystems.textsecuregcm.push.RedisMessageAvailabilityManager;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
+import org.whispersystems.textsecuregcm.util.Util;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Unlocks a message queue for persistence/message retrieval.
@@ -40,4 +42,14 @@ class MessagesCacheUnlockQueueScript {
 
     unlockQueueScript.executeBinary(keys, MESSAGES_PERSISTED_EVENT_ARGS);
   }
+
+  CompletableFuture<Void> executeAsync(final UUID accountIdentifier, final byte deviceId) {
+    final List<byte[]> keys = List.of(
+        MessagesCache.getPersistInProgressKey(accountIdentifier, deviceId), // persistInProgressKey
+        RedisMessageAvailabilityManager.getClientEventChannel(accountIdentifier, deviceId) // eventChannelKey
+    );
+
+    return unlockQueueScript.executeBinaryAsync(keys, MESSAGES_PERSISTED_EVENT_ARGS)
+        .thenRun(Util.NOOP);
+  }
 }
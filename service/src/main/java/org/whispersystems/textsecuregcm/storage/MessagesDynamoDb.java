@@ -6,11 +6,14 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static io.micrometer.core.instrument.Metrics.counter;
 import static io.micrometer.core.instrument.Metrics.timer;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
 import java.nio.ByteBuffer;
 import java.time.Duration;
@@ -28,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.BackoffUtil;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
@@ -36,6 +40,7 @@ import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
@@ -63,6 +68,11 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
   private static final String KEY_ENVELOPE_BYTES = "EB";
 
   private final Timer storeTimer = timer(name(getClass(), "store"));
+  private final Counter asyncStoreUnprocessedItemsCounter = counter(name(getClass(), "asyncStoreUnprocessedItems"));
+
+  private static final int MAX_ASYNC_STORE_ATTEMPTS = 8;
+  private static final Duration ASYNC_STORE_BASE_BACKOFF = Duration.ofMillis(50);
+  private static final Duration ASYNC_STORE_MAX_BACKOFF = Duration.ofSeconds(2);
 
   private final DynamoDbAsyncClient dbAsyncClient;
   private final String tableName;
@@ -89,12 +99,68 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
     storeTimer.record(() -> writeInBatches(messages, (messageBatch) -> storeBatch(messageBatch, destinationAccountUuid, destinationDevice)));
   }
 
+  /**
+   * Asynchronously stores the given messages. Batches of messages are written concurrently, and any items left
+   * unprocessed (usually because of throttling) are retried with exponential backoff, so callers that bound the number
+   * of concurrent calls also bound their write rate when DynamoDB pushes back.
+   *
+   * @param messages the messages to store
+   * @param destinationAccountUuid the identifier of the destination account
+   * @param destinationDevice the destination device
+   *
+   * @return a future that completes when all messages have been stored or fails if any messages could not be stored
+   */
+  public CompletableFuture<Void> storeAsync(final List<MessageProtos.Envelope> messages,
+      final UUID destinationAccountUuid,
+      final Device destinationDevice) {
+
+    final Timer.Sample sample = Timer.start();
+
+    return CompletableFuture.allOf(Lists.partition(messages, DYNAMO_DB_MAX_BATCH_SIZE).stream()
+            .map(messageBatch -> writeUntilCompleteAsync(
+                Map.of(tableName, buildWriteRequests(messageBatch, destinationAccountUuid, destinationDevice)), 0))
+            .toArray(CompletableFuture[]::new))
+        .whenComplete((ignored, throwable) -> sample.stop(storeTimer));
+  }
+
+  private CompletableFuture<Void> writeUntilCompleteAsync(final Map<String, List<WriteRequest>> items,
+      final int attempt) {
+
+    return dbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder().requestItems(items).build())
+        .thenCompose(response -> {
+          if (!response.hasUnprocessedItems() || response.unprocessedItems().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+          }
+
+          final int unprocessedItemCount = response.unprocessedItems().values().stream().mapToInt(List::size).sum();
+          asyncStoreUnprocessedItemsCounter.increment(unprocessedItemCount);
+
+          if (attempt + 1 >= MAX_ASYNC_STORE_ATTEMPTS) {
+            // Unlike the synchronous path, don't drop the unprocessed items; callers remove messages from the cache once
+            // they're stored, so failing here leaves them in place for a later attempt
+            return CompletableFuture.failedFuture(new MessagePersistenceException(
+                "Failed to store " + unprocessedItemCount + " messages after " + MAX_ASYNC_STORE_ATTEMPTS + " attempts"));
+          }
+
+          return BackoffUtil.retryAfterBackoff(ASYNC_STORE_BASE_BACKOFF, ASYNC_STORE_MAX_BACKOFF, attempt,
+              () -> writeUntilCompleteAsync(response.unprocessedItems(), attempt + 1));
+        });
+  }
+
   private void storeBatch(final List<MessageProtos.Envelope> messages, final UUID destinationAccountUuid,
       final Device destinationDevice) {
     if (messages.size() > DYNAMO_DB_MAX_BATCH_SIZE) {
       throw new IllegalArgumentException("Maximum batch size of " + DYNAMO_DB_MAX_BATCH_SIZE + " exceeded with " + messages.size() + " messages");
     }
 
+    executeTableWriteItemsUntilComplete(
+        Map.of(tableName, buildWriteRequests(messages, destinationAccountUuid, destinationDevice)));
+  }
+
+  private List<WriteRequest> buildWriteRequests(final List<MessageProtos.Envelope> messages,
+      final UUID destinationAccountUuid,
+      final Device destinationDevice) {
+
     final AttributeValue partitionKey = convertPartitionKey(destinationAccountUuid, destinationDevice);
     List<WriteRequest> writeItems = new ArrayList<>();
     for (MessageProtos.Envelope message : messages) {
@@ -112,7 +178,7 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
           .build()).build());
     }
 
-    executeTableWriteItemsUntilComplete(Map.of(tableName, writeItems));
+    return writeItems;
   }
 
   public CompletableFuture<Boolean> mayHaveMessages(final UUID accountIdentifier, final Device device) {
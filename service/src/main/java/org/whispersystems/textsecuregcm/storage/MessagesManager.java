@@ -11,18 +11,19 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -90,27 +91,40 @@ public class MessagesManager {
   }
 
   private CompletableFuture<Map<Byte, Boolean>> insertAsync(final UUID accountIdentifier, final Map<Byte, Envelope> messagesByDeviceId) {
-    final Map<Byte, Boolean> devicePresenceById = new ConcurrentHashMap<>();
-
-    return CompletableFuture.allOf(messagesByDeviceId.entrySet().stream()
-            .map(deviceIdAndMessage -> {
-              final byte deviceId = deviceIdAndMessage.getKey();
-              final Envelope message = deviceIdAndMessage.getValue();
-              final UUID messageGuid = UUID.randomUUID();
-
-              return messagesCache.insert(messageGuid, accountIdentifier, deviceId, message)
-                  .thenAccept(present -> {
-                    if (message.hasSourceServiceId() && !accountIdentifier.toString()
-                        .equals(message.getSourceServiceId())) {
-                      // Note that this is an asynchronous, best-effort, fire-and-forget operation
-                      reportMessageManager.store(message.getSourceServiceId(), messageGuid);
-                    }
-
-                    devicePresenceById.put(deviceId, present);
-                  });
-            })
-            .toArray(CompletableFuture[]::new))
-        .thenApply(ignored -> devicePresenceById);
+    final List<MessagesCache.MessageInsert> messageInserts = messagesByDeviceId.entrySet().stream()
+        .map(deviceIdAndMessage -> new MessagesCache.MessageInsert(UUID.randomUUID(),
+            accountIdentifier,
+            deviceIdAndMessage.getKey(),
+            deviceIdAndMessage.getValue()))
+        .toList();
+
+    return insertAsync(messageInserts)
+        .thenApply(presence -> {
+          final Map<Byte, Boolean> devicePresenceById = new HashMap<>();
+
+          for (int i = 0; i < messageInserts.size(); i++) {
+            devicePresenceById.put(messageInserts.get(i).destinationDeviceId(), presence.get(i));
+          }
+
+          return devicePresenceById;
+        });
+  }
+
+  private CompletableFuture<List<Boolean>> insertAsync(final List<MessagesCache.MessageInsert> messageInserts) {
+    return messagesCache.insert(messageInserts)
+        .thenApply(presence -> {
+          for (final MessagesCache.MessageInsert messageInsert : messageInserts) {
+            final Envelope message = messageInsert.message();
+
+            if (message.hasSourceServiceId() && !messageInsert.destinationAccountIdentifier().toString()
+                .equals(message.getSourceServiceId())) {
+              // Note that this is an asynchronous, best-effort, fire-and-forget operation
+              reportMessageManager.store(message.getSourceServiceId(), messageInsert.messageGuid());
+            }
+          }
+
+          return presence;
+        });
   }
 
   /**
@@ -152,26 +166,43 @@ public class MessagesManager {
               .setSharedMrmKey(ByteString.copyFrom(sharedMrmKey))
               .build();
 
-          final Map<Account, Map<Byte, Boolean>> clientPresenceByAccountAndDevice = new ConcurrentHashMap<>();
-
-          return CompletableFuture.allOf(multiRecipientMessage.getRecipients().entrySet().stream()
-                  .filter(serviceIdAndRecipient -> resolvedRecipients.containsKey(serviceIdAndRecipient.getValue()))
-                  .map(serviceIdAndRecipient -> {
-                    final ServiceIdentifier serviceIdentifier = ServiceIdentifier.fromLibsignal(serviceIdAndRecipient.getKey());
-                    final SealedSenderMultiRecipientMessage.Recipient recipient = serviceIdAndRecipient.getValue();
-                    final byte[] devices = recipient.getDevices();
-
-                    return insertAsync(resolvedRecipients.get(recipient).getIdentifier(IdentityType.ACI),
-                        IntStream.range(0, devices.length).mapToObj(i -> devices[i])
-                            .collect(Collectors.toMap(deviceId -> deviceId, deviceId -> prototypeMessage.toBuilder()
-                                .setDestinationServiceId(serviceIdentifier.toServiceIdentifierString())
-                                .build())))
-                        .thenAccept(clientPresenceByDeviceId ->
-                            clientPresenceByAccountAndDevice.put(resolvedRecipients.get(recipient),
-                                clientPresenceByDeviceId));
-                  })
-                  .toArray(CompletableFuture[]::new))
-              .thenApply(ignored -> clientPresenceByAccountAndDevice);
+          final List<MessagesCache.MessageInsert> messageInserts = new ArrayList<>();
+          final List<Account> destinationAccounts = new ArrayList<>();
+
+          multiRecipientMessage.getRecipients().forEach((serviceId, recipient) -> {
+            final Account destinationAccount = resolvedRecipients.get(recipient);
+
+            if (destinationAccount == null) {
+              return;
+            }
+
+            final Envelope message = prototypeMessage.toBuilder()
+                .setDestinationServiceId(ServiceIdentifier.fromLibsignal(serviceId).toServiceIdentifierString())
+                .build();
+
+            for (final byte deviceId : recipient.getDevices()) {
+              messageInserts.add(new MessagesCache.MessageInsert(UUID.randomUUID(),
+                  destinationAccount.getIdentifier(IdentityType.ACI),
+                  deviceId,
+                  message));
+
+              destinationAccounts.add(destinationAccount);
+            }
+          });
+
+          // All recipients' queues are updated with a single batch insert so the cache can group and pipeline writes
+          // across the entire (potentially very large) set of destination devices
+          return insertAsync(messageInserts)
+              .thenApply(presence -> {
+                final Map<Account, Map<Byte, Boolean>> clientPresenceByAccountAndDevice = new HashMap<>();
+
+                for (int i = 0; i < messageInserts.size(); i++) {
+                  clientPresenceByAccountAndDevice.computeIfAbsent(destinationAccounts.get(i), _ -> new HashMap<>())
+                      .put(messageInserts.get(i).destinationDeviceId(), presence.get(i));
+                }
+
+                return clientPresenceByAccountAndDevice;
+              });
         });
   }
 
@@ -250,19 +281,68 @@ public class MessagesManager {
             return CompletableFuture.completedFuture(removed);
           }
 
-          final CompletableFuture<Optional<MessageProtos.Envelope>> maybeDeletedEnvelope;
-          if (serverTimestamp == null) {
-            maybeDeletedEnvelope = messagesDynamoDb.deleteMessageByDestinationAndGuid(destinationUuid,
-                destinationDevice, guid);
-          } else {
-            maybeDeletedEnvelope = messagesDynamoDb.deleteMessage(destinationUuid, destinationDevice, guid,
-                serverTimestamp);
-          }
+          return deletePersisted(destinationUuid, destinationDevice, guid, serverTimestamp);
+        }, messageDeletionExecutor);
+  }
+
+  /**
+   * Deletes a batch of messages for a single destination device. All messages are removed from the cache with a single
+   * operation; only messages not found in the cache are deleted individually from DynamoDB.
+   *
+   * @param destinationUuid the destination account's identifier
+   * @param destinationDevice the destination device
+   * @param serverTimestampsByGuid the messages to delete as a map of server GUIDs to server timestamps; timestamps may
+   *                               be {@code null} if unknown
+   *
+   * @return a future that yields all messages that were actually deleted, keyed by server GUID
+   */
+  public CompletableFuture<Map<UUID, RemovedMessage>> delete(final UUID destinationUuid,
+      final Device destinationDevice,
+      final Map<UUID, Long> serverTimestampsByGuid) {
 
-          return maybeDeletedEnvelope.thenApply(maybeEnvelope -> maybeEnvelope.map(RemovedMessage::fromEnvelope));
+    if (serverTimestampsByGuid.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    return messagesCache.remove(destinationUuid, destinationDevice.getId(),
+            new ArrayList<>(serverTimestampsByGuid.keySet()))
+        .thenComposeAsync(removedFromCache -> {
+          final Map<UUID, RemovedMessage> removedMessages = new HashMap<>(serverTimestampsByGuid.size());
+          removedFromCache.forEach(removedMessage -> removedMessages.put(removedMessage.serverGuid(), removedMessage));
+
+          final List<CompletableFuture<Optional<RemovedMessage>>> persistedDeletions =
+              serverTimestampsByGuid.entrySet().stream()
+                  .filter(entry -> !removedMessages.containsKey(entry.getKey()))
+                  .map(entry -> deletePersisted(destinationUuid, destinationDevice, entry.getKey(), entry.getValue()))
+                  .toList();
+
+          return CompletableFuture.allOf(persistedDeletions.toArray(CompletableFuture[]::new))
+              .thenApply(ignored -> {
+                persistedDeletions.forEach(deletion -> deletion.join()
+                    .ifPresent(removedMessage -> removedMessages.put(removedMessage.serverGuid(), removedMessage)));
+
+                return removedMessages;
+              });
         }, messageDeletionExecutor);
   }
 
+  private CompletableFuture<Optional<RemovedMessage>> deletePersisted(final UUID destinationUuid,
+      final Device destinationDevice,
+      final UUID guid,
+      @Nullable final Long serverTimestamp) {
+
+    final CompletableFuture<Optional<MessageProtos.Envelope>> maybeDeletedEnvelope;
+    if (serverTimestamp == null) {
+      maybeDeletedEnvelope = messagesDynamoDb.deleteMessageByDestinationAndGuid(destinationUuid,
+          destinationDevice, guid);
+    } else {
+      maybeDeletedEnvelope = messagesDynamoDb.deleteMessage(destinationUuid, destinationDevice, guid,
+          serverTimestamp);
+    }
+
+    return maybeDeletedEnvelope.thenApply(maybeEnvelope -> maybeEnvelope.map(RemovedMessage::fromEnvelope));
+  }
+
   /**
    * @return the number of messages successfully removed from the cache.
    */
@@ -290,6 +370,37 @@ public class MessagesManager {
     return messagesRemovedFromCache;
   }
 
+  /**
+   * Asynchronously stores the given messages in long-term storage and then removes them from the message cache.
+   *
+   * @return a future that yields the number of messages successfully removed from the cache, or fails if the messages
+   * could not be stored
+   */
+  public CompletableFuture<Integer> persistMessagesAsync(
+      final UUID destinationUuid,
+      final Device destinationDevice,
+      final List<Envelope> messages) {
+
+    final List<UUID> messageGuids = messages.stream().map(message -> UUID.fromString(message.getServerGuid()))
+        .toList();
+
+    return messagesDynamoDb.storeAsync(messages, destinationUuid, destinationDevice)
+        .thenCompose(ignored -> messagesCache.remove(destinationUuid, destinationDevice.getId(), messageGuids)
+            .thenApply(removedMessages -> {
+              PERSIST_MESSAGE_COUNTER.increment(messages.size());
+              PERSIST_MESSAGE_BYTES_COUNTER.increment(messages.stream()
+                  .mapToInt(Envelope::getSerializedSize)
+                  .sum());
+
+              return removedMessages.size();
+            })
+            .orTimeout(30, TimeUnit.SECONDS)
+            .exceptionally(throwable -> {
+              logger.warn("Failed to remove messages from cache", throwable);
+              return 0;
+            }));
+  }
+
   public CompletableFuture<Optional<Instant>> getEarliestUndeliveredTimestampForDevice(UUID destinationUuid, Device destinationDevice) {
     // If there's any message in the persisted layer, return the oldest
     return Mono.from(messagesDynamoDb.load(destinationUuid, destinationDevice, 1)).map(Envelope::getServerTimestamp)
@@ -7,11 +7,14 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
@@ -22,6 +25,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.signal.libsignal.protocol.InvalidKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +59,11 @@ import software.amazon.awssdk.services.s3.model.S3Object;
  * an object store and referenced via dynamodb. Each device may only have a single active page at a time. Crashes or
  * errors may leave orphaned pages which are no longer referenced by the database. A background process must
  * periodically check for orphaned pages and remove them.
+ * <p>
+ * When read-ahead is enabled, taking a key also reads the next few keys of the page in the same ranged request and
+ * holds them in a bounded local cache keyed by page ID so that subsequent takes from the same page need not go to the
+ * object store. This is safe because pages are immutable and page IDs are never reused; the database still decides
+ * which index each take receives, so the cache only ever supplies the bytes for an index that was atomically claimed.
  * @see SingleUsePreKeyStore
  */
 public class PagedSingleUseKEMPreKeyStore {
@@ -65,6 +74,12 @@ public class PagedSingleUseKEMPreKeyStore {
   private final S3AsyncClient s3AsyncClient;
   private final String tableName;
   private final String bucketName;
+  private final int readAheadKeys;
+
+  private final Cache<UUID, CachedPageRange> pageRangeCache;
+
+  private static final long MAX_CACHED_PAGE_RANGE_BYTES = 32 * 1024 * 1024;
+  private static final Duration CACHED_PAGE_RANGE_TTL = Duration.ofMinutes(1);
 
   private final Timer getKeyCountTimer = Metrics.timer(name(getClass(), "getCount"));
   private final Timer storeKeyBatchTimer = Metrics.timer(name(getClass(), "storeKeyBatch"));
@@ -79,6 +94,9 @@ public class PagedSingleUseKEMPreKeyStore {
   private final String takeKeyTimerName = name(getClass(), "takeKey");
   private static final String KEY_PRESENT_TAG_NAME = "keyPresent";
 
+  private final String pageRangeCacheLookupCounterName = name(getClass(), "pageRangeCacheLookup");
+  private static final String HIT_TAG_NAME = "hit";
+
   static final String KEY_ACCOUNT_UUID = "U";
   static final String KEY_DEVICE_ID = "D";
   static final String ATTR_PAGE_ID = "ID";
@@ -91,10 +109,35 @@ public class PagedSingleUseKEMPreKeyStore {
       final S3AsyncClient s3AsyncClient,
       final String tableName,
       final String bucketName) {
+
+    this(dynamoDbAsyncClient, s3AsyncClient, tableName, bucketName, 0);
+  }
+
+  /**
+   * @param readAheadKeys the number of keys beyond the one being taken to read from a page in the same ranged request
+   *                      and cache locally for subsequent takes; 0 disables read-ahead
+   */
+  public PagedSingleUseKEMPreKeyStore(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final S3AsyncClient s3AsyncClient,
+      final String tableName,
+      final String bucketName,
+      final int readAheadKeys) {
+    if (readAheadKeys < 0) {
+      throw new IllegalArgumentException("Read-ahead must not be negative");
+    }
+
     this.s3AsyncClient = s3AsyncClient;
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
     this.tableName = tableName;
     this.bucketName = bucketName;
+    this.readAheadKeys = readAheadKeys;
+
+    this.pageRangeCache = CacheBuilder.newBuilder()
+        .maximumWeight(MAX_CACHED_PAGE_RANGE_BYTES)
+        .<UUID, CachedPageRange>weigher((pageId, pageRange) -> pageRange.lengthBytes())
+        .expireAfterWrite(CACHED_PAGE_RANGE_TTL)
+        .build();
   }
 
   /**
@@ -140,6 +183,7 @@ public class PagedSingleUseKEMPreKeyStore {
               log.error("Replaced record: {} with no pageId", response.attributes());
               return CompletableFuture.completedFuture(null);
             }
+            pageRangeCache.invalidate(pageId);
             return deleteBundleFromS3(identifier, deviceId, pageId);
           } else {
             return CompletableFuture.completedFuture(null);
@@ -185,12 +229,13 @@ public class PagedSingleUseKEMPreKeyStore {
           final int index = AttributeValues.getInt(updateItemResponse.attributes(), ATTR_PAGE_IDX, -1);
           final UUID pageId = AttributeValues.getUUID(updateItemResponse.attributes(), ATTR_PAGE_ID, null);
           final int format = AttributeValues.getInt(updateItemResponse.attributes(), ATTR_PAGE_FORMAT_VERSION, -1);
+          final int numKeys = AttributeValues.getInt(updateItemResponse.attributes(), ATTR_PAGE_NUM_KEYS, -1);
           if (index < 0 || format < 0 || pageId == null) {
             throw new CompletionException(
                 new IOException("unexpected page descriptor " + updateItemResponse.attributes()));
           }
 
-          return readPreKeyAtIndexFromS3(identifier, deviceId, pageId, format, index).thenApply(Optional::of);
+          return readPreKeyAtIndex(identifier, deviceId, pageId, format, index, numKeys).thenApply(Optional::of);
         })
         // If this check fails, it means that the item did not exist, or its index was already at the last key. Either
         // way, there are no keys left so we return empty
@@ -344,6 +389,9 @@ public class PagedSingleUseKEMPreKeyStore {
           if (aci == null || deviceId < 0 || pageId == null) {
             log.error("can't delete page from unexpected page descriptor {}", item);
           }
+          if (pageId != null) {
+            pageRangeCache.invalidate(pageId);
+          }
           return Mono.fromFuture(deleteBundleFromS3(aci, deviceId, pageId))
               .thenReturn(Map.of(
                   KEY_ACCOUNT_UUID, AttributeValues.fromUUID(identifier),
@@ -403,28 +451,107 @@ public class PagedSingleUseKEMPreKeyStore {
         .thenRun(Util.NOOP);
   }
 
-  private CompletableFuture<KEMSignedPreKey> readPreKeyAtIndexFromS3(
-      final UUID identifier, final byte deviceId, final UUID pageId, final int format, final int index) {
-    final KEMPreKeyPage.KeyLocation keyLocation = KEMPreKeyPage.keyLocation(format, index);
+  /**
+   * A contiguous range of serialized keys read from a page.
+   *
+   * @param format the format of the page
+   * @param startIndex the index of the first key in the range, inclusive
+   * @param endIndex the index of the last key in the range, exclusive
+   * @param serializedKeys a future that yields the serialized keys in the range
+   */
+  private record CachedPageRange(int format, int startIndex, int endIndex, CompletableFuture<byte[]> serializedKeys) {
+
+    boolean contains(final int format, final int index) {
+      return this.format == format && index >= startIndex && index < endIndex;
+    }
+
+    int lengthBytes() {
+      return (endIndex - startIndex) * KEMPreKeyPage.keyLocation(format, startIndex).length();
+    }
+  }
+
+  private CompletableFuture<KEMSignedPreKey> readPreKeyAtIndex(final UUID identifier,
+      final byte deviceId,
+      final UUID pageId,
+      final int format,
+      final int index,
+      final int numKeys) {
+
+    final CachedPageRange pageRange;
+
+    if (readAheadKeys > 0) {
+      @Nullable final CachedPageRange cachedPageRange = pageRangeCache.getIfPresent(pageId);
+      final boolean hit = cachedPageRange != null && cachedPageRange.contains(format, index);
+
+      Metrics.counter(pageRangeCacheLookupCounterName, HIT_TAG_NAME, String.valueOf(hit)).increment();
+
+      if (hit) {
+        pageRange = cachedPageRange;
+      } else {
+        // The index is always less than the number of keys in the page (the take would have failed otherwise), but be
+        // defensive about older or malformed descriptors and don't read ahead if we don't know where the page ends
+        final int endIndex = numKeys > index ? Math.min(numKeys, index + 1 + readAheadKeys) : index + 1;
+
+        pageRange = new CachedPageRange(format, index, endIndex,
+            readPreKeysFromS3(identifier, deviceId, pageId, format, index, endIndex));
+
+        // Takes for neighboring indices may arrive while this read is still in flight; cache the pending read so they
+        // can share it, and forget it if it fails
+        pageRangeCache.put(pageId, pageRange);
+        pageRange.serializedKeys().whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            pageRangeCache.asMap().remove(pageId, pageRange);
+          }
+        });
+      }
+    } else {
+      pageRange = new CachedPageRange(format, index, index + 1,
+          readPreKeysFromS3(identifier, deviceId, pageId, format, index, index + 1));
+    }
+
+    return pageRange.serializedKeys().thenApply(serializedKeys -> {
+      final KEMPreKeyPage.KeyLocation keyLocation = KEMPreKeyPage.keyLocation(format, index);
+      final int offset =
+          keyLocation.getStartInclusive() - KEMPreKeyPage.keyLocation(format, pageRange.startIndex()).getStartInclusive();
+
+      try {
+        return KEMPreKeyPage.deserializeKey(format, ByteBuffer.wrap(serializedKeys, offset, keyLocation.length()));
+      } catch (InvalidKeyException e) {
+        throw new CompletionException(new IOException(e));
+      }
+    });
+  }
+
+  /**
+   * Reads the serialized keys in the given range of indices from a page with a single ranged request.
+   */
+  private CompletableFuture<byte[]> readPreKeysFromS3(final UUID identifier,
+      final byte deviceId,
+      final UUID pageId,
+      final int format,
+      final int startIndex,
+      final int endIndex) {
+
+    // Keys within a page are fixed-length and contiguous
+    final int startInclusive = KEMPreKeyPage.keyLocation(format, startIndex).getStartInclusive();
+    final int endInclusive = KEMPreKeyPage.keyLocation(format, endIndex - 1).getEndInclusive();
+    final int expectedLength = endInclusive - startInclusive + 1;
+
     return s3AsyncClient.getObject(GetObjectRequest.builder()
             .bucket(bucketName)
             .key(s3Key(identifier, deviceId, pageId))
             // An RFC9110 range header, inclusive on both ends
             // https://www.rfc-editor.org/rfc/rfc9110.html#section-14.1.2
-            .range("bytes=%s-%s".formatted(keyLocation.getStartInclusive(), keyLocation.getEndInclusive()))
+            .range("bytes=%s-%s".formatted(startInclusive, endInclusive))
             .build(), AsyncResponseTransformer.toBytes())
         .thenApply(bytes -> {
-          final ByteBuffer serialized = bytes.asByteBuffer();
-          if (serialized.remaining() != keyLocation.length()) {
+          final byte[] serialized = bytes.asByteArrayUnsafe();
+          if (serialized.length != expectedLength) {
             log.error("Unexpected ranged read response, requested {} got {} for offset {} in page {}",
-                keyLocation.length(), serialized.remaining(), keyLocation, s3Key(identifier, deviceId, pageId));
+                expectedLength, serialized.length, startInclusive, s3Key(identifier, deviceId, pageId));
             throw new CompletionException(new IOException("Invalid response to ranged read"));
           }
-          try {
-            return KEMPreKeyPage.deserializeKey(format, bytes.asByteBuffer());
-          } catch (InvalidKeyException e) {
-            throw new CompletionException(new IOException(e));
-          }
+          return serialized;
         });
   }
 }
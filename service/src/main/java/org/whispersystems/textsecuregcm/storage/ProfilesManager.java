@@ -10,16 +10,22 @@ import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.lettuce.core.RedisException;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.ProfileLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.Util;
@@ -39,25 +45,47 @@ public class ProfilesManager {
   private final String bucket;
   private final ObjectMapper mapper;
 
+  // Versions may be overwritten (e.g. when a user changes their name without changing their profile key), and other
+  // servers can't invalidate our local copies, so we only trust local copies for a short while. Entries are keyed by
+  // account so that all of an account's profile versions can be invalidated at once.
+  private final boolean localCacheEnabled;
+  private final Cache<UUID, Map<String, Optional<VersionedProfile>>> localProfileCache;
+
   private static final String DELETE_AVATAR_COUNTER_NAME = name(ProfilesManager.class, "deleteAvatar");
+  private static final String CACHE_LOOKUP_COUNTER_NAME = name(ProfilesManager.class, "cacheLookup");
+
+  private static final String TIER_TAG_NAME = "tier";
+  private static final String OUTCOME_TAG_NAME = "outcome";
 
   public ProfilesManager(final Profiles profiles, final FaultTolerantRedisClusterClient cacheCluster, final S3AsyncClient s3Client,
-      final String bucket) {
+      final String bucket, final ProfileLocalCacheConfiguration localCacheConfiguration) {
     this.profiles = profiles;
     this.cacheCluster = cacheCluster;
     this.s3Client = s3Client;
     this.bucket = bucket;
     this.mapper = SystemMapper.jsonMapper();
+
+    this.localCacheEnabled = localCacheConfiguration.enabled();
+    this.localProfileCache = CacheBuilder.newBuilder()
+        .maximumSize(localCacheConfiguration.maxSize())
+        .expireAfterWrite(localCacheConfiguration.ttl())
+        .build();
   }
 
   public void set(UUID uuid, VersionedProfile versionedProfile) {
+    // Invalidate again after writing in case a concurrent read repopulated the local cache with the previous value
+    localProfileCache.invalidate(uuid);
     redisSet(uuid, versionedProfile);
     profiles.set(uuid, versionedProfile);
+    localProfileCache.invalidate(uuid);
   }
 
   public CompletableFuture<Void> setAsync(UUID uuid, VersionedProfile versionedProfile) {
+    localProfileCache.invalidate(uuid);
+
     return profiles.setAsync(uuid, versionedProfile)
-        .thenCompose(ignored -> redisSetAsync(uuid, versionedProfile));
+        .thenCompose(ignored -> redisSetAsync(uuid, versionedProfile))
+        .whenComplete((ignored, throwable) -> localProfileCache.invalidate(uuid));
   }
 
   /**
@@ -67,6 +95,7 @@ public class ProfilesManager {
    * deletions, such as registration, should preserve them, so that PIN recovery includes the avatar.
    */
   public CompletableFuture<Void> deleteAll(UUID uuid, final boolean includeAvatar) {
+    localProfileCache.invalidate(uuid);
 
     final CompletableFuture<Void> profilesAndAvatars = Mono.fromFuture(profiles.deleteAll(uuid))
         .flatMapIterable(Function.identity())
@@ -77,7 +106,8 @@ public class ProfilesManager {
               .onErrorComplete())
         .then().toFuture();
 
-    return CompletableFuture.allOf(redisDelete(uuid), profilesAndAvatars);
+    return CompletableFuture.allOf(redisDelete(uuid), profilesAndAvatars)
+        .whenComplete((ignored, throwable) -> localProfileCache.invalidate(uuid));
   }
 
   public CompletableFuture<Void> deleteAvatar(String avatar) {
@@ -100,8 +130,43 @@ public class ProfilesManager {
         .thenRun(Util.NOOP);
   }
 
+  /**
+   * Retrieves a specific version of a profile. The returned profile may be a few seconds out of date if it was changed
+   * by another server; callers that will modify the profile based on its current state should use
+   * {@link #getForUpdate(UUID, String)} instead.
+   *
+   * @param uuid the identifier of the account to which the profile belongs
+   * @param version the version of the profile to retrieve
+   *
+   * @return the requested profile version, or empty if no such version exists
+   */
   public Optional<VersionedProfile> get(UUID uuid, String version) {
+    @Nullable final Optional<VersionedProfile> maybeLocalProfile = getLocalProfile(uuid, version);
+
+    if (maybeLocalProfile != null) {
+      recordLocalCacheHit(maybeLocalProfile);
+      return maybeLocalProfile;
+    }
+
+    Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, TIER_TAG_NAME, "local", OUTCOME_TAG_NAME, "miss").increment();
+
+    final Optional<VersionedProfile> profile = getForUpdate(uuid, version);
+    putLocalProfile(uuid, version, profile);
+
+    return profile;
+  }
+
+  /**
+   * Retrieves a specific version of a profile, bypassing this server's local cache of recently-retrieved profiles.
+   *
+   * @param uuid the identifier of the account to which the profile belongs
+   * @param version the version of the profile to retrieve
+   *
+   * @return the requested profile version, or empty if no such version exists
+   */
+  public Optional<VersionedProfile> getForUpdate(UUID uuid, String version) {
     Optional<VersionedProfile> profile = redisGet(uuid, version);
+    recordRedisLookup(profile.isPresent());
 
     if (profile.isEmpty()) {
       profile = profiles.get(uuid, version);
@@ -111,14 +176,75 @@ public class ProfilesManager {
     return profile;
   }
 
+  /**
+   * Asynchronously retrieves a specific version of a profile. The returned profile may be a few seconds out of date if
+   * it was changed by another server.
+   *
+   * @param uuid the identifier of the account to which the profile belongs
+   * @param version the version of the profile to retrieve
+   *
+   * @return a future that yields the requested profile version, or empty if no such version exists
+   */
   public CompletableFuture<Optional<VersionedProfile>> getAsync(UUID uuid, String version) {
+    @Nullable final Optional<VersionedProfile> maybeLocalProfile = getLocalProfile(uuid, version);
+
+    if (maybeLocalProfile != null) {
+      recordLocalCacheHit(maybeLocalProfile);
+      return CompletableFuture.completedFuture(maybeLocalProfile);
+    }
+
+    Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, TIER_TAG_NAME, "local", OUTCOME_TAG_NAME, "miss").increment();
+
     return redisGetAsync(uuid, version)
-        .thenCompose(maybeVersionedProfile -> maybeVersionedProfile
-            .map(versionedProfile -> CompletableFuture.completedFuture(maybeVersionedProfile))
-            .orElseGet(() -> profiles.getAsync(uuid, version)
-                .thenCompose(maybeVersionedProfileFromDynamo -> maybeVersionedProfileFromDynamo
-                    .map(profile -> redisSetAsync(uuid, profile).thenApply(ignored -> maybeVersionedProfileFromDynamo))
-                    .orElseGet(() -> CompletableFuture.completedFuture(maybeVersionedProfileFromDynamo)))));
+        .thenCompose(maybeVersionedProfile -> {
+          recordRedisLookup(maybeVersionedProfile.isPresent());
+
+          return maybeVersionedProfile
+              .map(versionedProfile -> CompletableFuture.completedFuture(maybeVersionedProfile))
+              .orElseGet(() -> profiles.getAsync(uuid, version)
+                  .thenCompose(maybeVersionedProfileFromDynamo -> maybeVersionedProfileFromDynamo
+                      .map(profile -> redisSetAsync(uuid, profile).thenApply(ignored -> maybeVersionedProfileFromDynamo))
+                      .orElseGet(() -> CompletableFuture.completedFuture(maybeVersionedProfileFromDynamo))));
+        })
+        .thenApply(maybeVersionedProfile -> {
+          putLocalProfile(uuid, version, maybeVersionedProfile);
+          return maybeVersionedProfile;
+        });
+  }
+
+  @Nullable
+  private Optional<VersionedProfile> getLocalProfile(final UUID uuid, final String version) {
+    if (!localCacheEnabled) {
+      return null;
+    }
+
+    @Nullable final Map<String, Optional<VersionedProfile>> profilesByVersion = localProfileCache.getIfPresent(uuid);
+    return profilesByVersion != null ? profilesByVersion.get(version) : null;
+  }
+
+  private void putLocalProfile(final UUID uuid, final String version, final Optional<VersionedProfile> maybeProfile) {
+    if (!localCacheEnabled) {
+      return;
+    }
+
+    try {
+      localProfileCache.get(uuid, ConcurrentHashMap::new).put(version, maybeProfile);
+    } catch (final ExecutionException e) {
+      // Creating an empty map can't fail
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void recordLocalCacheHit(final Optional<VersionedProfile> maybeProfile) {
+    Metrics.counter(CACHE_LOOKUP_COUNTER_NAME,
+            TIER_TAG_NAME, "local",
+            OUTCOME_TAG_NAME, maybeProfile.isPresent() ? "hit" : "negativeHit")
+        .increment();
+  }
+
+  private static void recordRedisLookup(final boolean hit) {
+    Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, TIER_TAG_NAME, "redis", OUTCOME_TAG_NAME, hit ? "hit" : "miss")
+        .increment();
   }
 
   private void redisSet(UUID uuid, VersionedProfile profile) {
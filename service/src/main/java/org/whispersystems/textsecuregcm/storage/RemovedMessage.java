@@ -5,14 +5,13 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
-import com.google.common.annotations.VisibleForTesting;
 import java.util.Optional;
 import java.util.UUID;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 
 public record RemovedMessage(Optional<ServiceIdentifier> sourceServiceId, ServiceIdentifier destinationServiceId,
-                             @VisibleForTesting UUID serverGuid, long serverTimestamp, long clientTimestamp,
+                             UUID serverGuid, long serverTimestamp, long clientTimestamp,
                              MessageProtos.Envelope.Type envelopeType) {
 
   public static RemovedMessage fromEnvelope(MessageProtos.Envelope envelope) {
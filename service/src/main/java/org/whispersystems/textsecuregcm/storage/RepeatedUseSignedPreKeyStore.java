@@ -5,19 +5,30 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import org.whispersystems.textsecuregcm.entities.SignedPreKey;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.BackoffUtil;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.Delete;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
@@ -44,6 +55,13 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
   private final Timer storeSingleKeyTimer = Metrics.timer(MetricsUtil.name(getClass(), "storeSingleKey"));
 
   private final String findKeyTimerName = MetricsUtil.name(getClass(), "findKey");
+  private final Timer findKeysTimer = Metrics.timer(MetricsUtil.name(getClass(), "findKeys"));
+  private final Counter unprocessedKeysCounter = Metrics.counter(MetricsUtil.name(getClass(), "unprocessedKeys"));
+
+  private static final int MAX_BATCH_GET_ITEM_KEYS = 100;
+  private static final int MAX_BATCH_GET_ITEM_ATTEMPTS = 5;
+  private static final Duration BATCH_GET_ITEM_BASE_BACKOFF = Duration.ofMillis(50);
+  private static final Duration BATCH_GET_ITEM_MAX_BACKOFF = Duration.ofSeconds(2);
 
   public RepeatedUseSignedPreKeyStore(final DynamoDbAsyncClient dynamoDbAsyncClient, final String tableName) {
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
@@ -114,6 +132,69 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
     return findFuture;
   }
 
+  /**
+   * Finds the repeated-use pre-keys for several devices associated with the same account/identity using batched reads.
+   *
+   * @param identifier the identifier for the account/identity with which the target devices are associated
+   * @param deviceIds the identifiers for the devices within the given account/identity
+   *
+   * @return a future that yields a map of device IDs to signed pre-keys; devices for which no key could be found are
+   * omitted
+   */
+  public CompletableFuture<Map<Byte, K>> findAll(final UUID identifier, final Collection<Byte> deviceIds) {
+    final Timer.Sample sample = Timer.start();
+
+    final List<CompletableFuture<List<Map<String, AttributeValue>>>> futures =
+        Lists.partition(deviceIds.stream().distinct().toList(), MAX_BATCH_GET_ITEM_KEYS).stream()
+            .map(partition -> batchGetItems(KeysAndAttributes.builder()
+                .keys(partition.stream().map(deviceId -> getPrimaryKey(identifier, deviceId)).toList())
+                .consistentRead(true)
+                .build(), 1))
+            .toList();
+
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+        .thenApply(ignored -> futures.stream()
+            .flatMap(future -> future.join().stream())
+            .collect(Collectors.toMap(
+                item -> (byte) AttributeValues.getInt(item, KEY_DEVICE_ID, -1),
+                this::getPreKeyFromItem)))
+        .whenComplete((ignored, throwable) -> sample.stop(findKeysTimer));
+  }
+
+  private CompletableFuture<List<Map<String, AttributeValue>>> batchGetItems(final KeysAndAttributes keysAndAttributes,
+      final int attempt) {
+
+    return dynamoDbAsyncClient.batchGetItem(BatchGetItemRequest.builder()
+            .requestItems(Map.of(tableName, keysAndAttributes))
+            .build())
+        .thenCompose(response -> {
+          final List<Map<String, AttributeValue>> items =
+              response.responses().getOrDefault(tableName, Collections.emptyList());
+
+          final KeysAndAttributes unprocessedKeys = response.unprocessedKeys().get(tableName);
+
+          if (unprocessedKeys == null || unprocessedKeys.keys().isEmpty()) {
+            return CompletableFuture.completedFuture(items);
+          }
+
+          unprocessedKeysCounter.increment(unprocessedKeys.keys().size());
+
+          if (attempt >= MAX_BATCH_GET_ITEM_ATTEMPTS) {
+            return CompletableFuture.failedFuture(
+                new IllegalStateException("Could not read all keys after " + attempt + " attempts"));
+          }
+
+          return BackoffUtil.retryAfterBackoff(BATCH_GET_ITEM_BASE_BACKOFF, BATCH_GET_ITEM_MAX_BACKOFF, attempt - 1,
+                  () -> batchGetItems(unprocessedKeys, attempt + 1))
+              .thenApply(remainingItems -> {
+                final List<Map<String, AttributeValue>> allItems = new ArrayList<>(items);
+                allItems.addAll(remainingItems);
+
+                return allItems;
+              });
+        });
+  }
+
   protected static Map<String, AttributeValue> getPrimaryKey(final UUID identifier, final byte deviceId) {
     return Map.of(
         KEY_ACCOUNT_UUID, getPartitionKey(identifier),
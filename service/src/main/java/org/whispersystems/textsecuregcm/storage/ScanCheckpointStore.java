@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+import org.whispersystems.textsecuregcm.util.Util;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * A scan checkpoint store records the progress of long-running, segmented DynamoDB scans in Redis so that an
+ * interrupted scan can resume where it left off instead of starting over. Checkpoints are recorded per segment and are
+ * only valid for scans with the same total number of segments.
+ * <p>
+ * Checkpoints are stored in the cache cluster, which may evict them under memory pressure. Checkpoints are an
+ * optimization, not a record of completed work: if a scan's checkpoints are evicted, the next run of that scan starts
+ * over from the beginning and repeats work, but never skips items.
+ *
+ * @see CheckpointedSegmentedScanner
+ */
+public class ScanCheckpointStore {
+
+  private final FaultTolerantRedisClusterClient cacheCluster;
+
+  // Abandoned checkpoints eventually expire on their own
+  private static final Duration CHECKPOINT_TTL = Duration.ofDays(30);
+
+  private static final String TOTAL_SEGMENTS_FIELD = "segments";
+  private static final String LAST_EVALUATED_KEY_FIELD_PREFIX = "lastEvaluatedKey:";
+  private static final String COMPLETE_FIELD_PREFIX = "complete:";
+
+  private static final TypeReference<Map<String, Map<String, String>>> ENCODED_KEY_TYPE = new TypeReference<>() {
+  };
+
+  /**
+   * The recorded progress of a single scan segment.
+   *
+   * @param complete whether the segment has been scanned completely
+   * @param lastEvaluatedKey the key from which to resume scanning the segment, or {@code null} if the segment should be
+   *                         scanned from the beginning
+   */
+  public record SegmentCheckpoint(boolean complete, @Nullable Map<String, AttributeValue> lastEvaluatedKey) {
+
+    static final SegmentCheckpoint NONE = new SegmentCheckpoint(false, null);
+  }
+
+  public ScanCheckpointStore(final FaultTolerantRedisClusterClient cacheCluster) {
+    this.cacheCluster = cacheCluster;
+  }
+
+  /**
+   * Retrieves the recorded progress of all segments of the given scan.
+   *
+   * @param scanName the name of the scan
+   * @param totalSegments the total number of segments in the scan
+   *
+   * @return a future that yields the checkpoint for each segment, indexed by segment number; the future fails with an
+   * {@link IllegalStateException} if checkpoints exist for the named scan, but were recorded with a different number of
+   * segments
+   */
+  public CompletableFuture<SegmentCheckpoint[]> getCheckpoints(final String scanName, final int totalSegments) {
+    return cacheCluster.withCluster(connection -> connection.async().hgetall(getCheckpointKey(scanName)))
+        .toCompletableFuture()
+        .thenApply(fields -> {
+          final SegmentCheckpoint[] checkpoints = new SegmentCheckpoint[totalSegments];
+
+          if (fields.containsKey(TOTAL_SEGMENTS_FIELD)
+              && Integer.parseInt(fields.get(TOTAL_SEGMENTS_FIELD)) != totalSegments) {
+
+            throw new IllegalStateException("Checkpoints for scan " + scanName + " were recorded with "
+                + fields.get(TOTAL_SEGMENTS_FIELD) + " segments, not " + totalSegments);
+          }
+
+          for (int segment = 0; segment < totalSegments; segment++) {
+            if (fields.containsKey(COMPLETE_FIELD_PREFIX + segment)) {
+              checkpoints[segment] = new SegmentCheckpoint(true, null);
+            } else if (fields.containsKey(LAST_EVALUATED_KEY_FIELD_PREFIX + segment)) {
+              checkpoints[segment] =
+                  new SegmentCheckpoint(false, decodeKey(fields.get(LAST_EVALUATED_KEY_FIELD_PREFIX + segment)));
+            } else {
+              checkpoints[segment] = SegmentCheckpoint.NONE;
+            }
+          }
+
+          return checkpoints;
+        });
+  }
+
+  /**
+   * Records the key from which a scan segment should resume.
+   *
+   * @param scanName the name of the scan
+   * @param totalSegments the total number of segments in the scan
+   * @param segment the segment for which to record progress
+   * @param lastEvaluatedKey the key from which to resume scanning the given segment
+   *
+   * @return a future that completes when the checkpoint has been recorded
+   */
+  public CompletableFuture<Void> setCheckpoint(final String scanName,
+      final int totalSegments,
+      final int segment,
+      final Map<String, AttributeValue> lastEvaluatedKey) {
+
+    return setFields(scanName, Map.of(
+        TOTAL_SEGMENTS_FIELD, String.valueOf(totalSegments),
+        LAST_EVALUATED_KEY_FIELD_PREFIX + segment, encodeKey(lastEvaluatedKey)));
+  }
+
+  /**
+   * Records that a scan segment has been scanned completely.
+   *
+   * @param scanName the name of the scan
+   * @param totalSegments the total number of segments in the scan
+   * @param segment the completed segment
+   *
+   * @return a future that completes when the segment has been marked as complete
+   */
+  public CompletableFuture<Void> setComplete(final String scanName, final int totalSegments, final int segment) {
+    return setFields(scanName, Map.of(
+        TOTAL_SEGMENTS_FIELD, String.valueOf(totalSegments),
+        COMPLETE_FIELD_PREFIX + segment, "true"));
+  }
+
+  /**
+   * Removes all checkpoints for the given scan.
+   *
+   * @param scanName the name of the scan
+   *
+   * @return a future that completes when all checkpoints for the given scan have been removed
+   */
+  public CompletableFuture<Void> clear(final String scanName) {
+    return cacheCluster.withCluster(connection -> connection.async().del(getCheckpointKey(scanName)))
+        .thenRun(Util.NOOP)
+        .toCompletableFuture();
+  }
+
+  private CompletableFuture<Void> setFields(final String scanName, final Map<String, String> fields) {
+    final String key = getCheckpointKey(scanName);
+
+    return cacheCluster.withCluster(connection -> connection.async().hset(key, fields)
+            .thenCompose(ignored -> connection.async().expire(key, CHECKPOINT_TTL)))
+        .thenRun(Util.NOOP)
+        .toCompletableFuture();
+  }
+
+  private static String getCheckpointKey(final String scanName) {
+    return "scan_checkpoint::{" + scanName + "}";
+  }
+
+  @VisibleForTesting
+  static String encodeKey(final Map<String, AttributeValue> key) {
+    final Map<String, Map<String, String>> encodedKey = new HashMap<>(key.size());
+
+    key.forEach((attributeName, attributeValue) -> {
+      final Map<String, String> encodedValue;
+
+      if (attributeValue.b() != null) {
+        encodedValue = Map.of("B", Base64.getEncoder().encodeToString(attributeValue.b().asByteArray()));
+      } else if (attributeValue.s() != null) {
+        encodedValue = Map.of("S", attributeValue.s());
+      } else if (attributeValue.n() != null) {
+        encodedValue = Map.of("N", attributeValue.n());
+      } else {
+        throw new IllegalArgumentException("Unsupported key attribute type: " + attributeValue.type());
+      }
+
+      encodedKey.put(attributeName, encodedValue);
+    });
+
+    try {
+      return SystemMapper.jsonMapper().writeValueAsString(encodedKey);
+    } catch (final JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @VisibleForTesting
+  static Map<String, AttributeValue> decodeKey(final String encodedKey) {
+    final Map<String, Map<String, String>> encodedAttributes;
+
+    try {
+      encodedAttributes = SystemMapper.jsonMapper().readValue(encodedKey, ENCODED_KEY_TYPE);
+    } catch (final JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    final Map<String, AttributeValue> key = new HashMap<>(encodedAttributes.size());
+
+    encodedAttributes.forEach((attributeName, encodedValue) -> {
+      final AttributeValue attributeValue;
+
+      if (encodedValue.containsKey("B")) {
+        attributeValue = AttributeValue.builder()
+            .b(SdkBytes.fromByteArray(Base64.getDecoder().decode(encodedValue.get("B"))))
+            .build();
+      } else if (encodedValue.containsKey("S")) {
+        attributeValue = AttributeValue.builder().s(encodedValue.get("S")).build();
+      } else if (encodedValue.containsKey("N")) {
+        attributeValue = AttributeValue.builder().n(encodedValue.get("N")).build();
+      } else {
+        throw new IllegalArgumentException("Unsupported key attribute type: " + encodedValue.keySet());
+      }
+
+      key.put(attributeName, attributeValue);
+    });
+
+    return key;
+  }
+}
@@ -8,31 +8,39 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 import static org.whispersystems.textsecuregcm.storage.AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE;
 
+import com.google.common.collect.Lists;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.nio.ByteBuffer;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.whispersystems.textsecuregcm.entities.PreKey;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.BackoffUtil;
 import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 /**
  * A single-use pre-key store stores single-use pre-keys of a specific type. Keys returned by a single-use pre-key
@@ -50,12 +58,20 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
   private final String tableName;
 
   private final Timer getKeyCountTimer = Metrics.timer(name(getClass(), "getCount"));
-  private final Timer storeKeyTimer = Metrics.timer(name(getClass(), "storeKey"));
+  private final Timer batchWriteTimer = Metrics.timer(name(getClass(), "batchWrite"));
   private final Timer storeKeyBatchTimer = Metrics.timer(name(getClass(), "storeKeyBatch"));
   private final Timer deleteForDeviceTimer = Metrics.timer(name(getClass(), "deleteForDevice"));
   private final Timer deleteForAccountTimer = Metrics.timer(name(getClass(), "deleteForAccount"));
 
   private final Counter noKeyCountAvailableCounter = Metrics.counter(name(getClass(), "noKeyCountAvailable"));
+  private final Counter unprocessedItemsCounter = Metrics.counter(name(getClass(), "unprocessedItems"));
+
+  private static final int MAX_BATCH_WRITE_ATTEMPTS = 8;
+  private static final Duration BATCH_WRITE_BASE_BACKOFF = Duration.ofMillis(50);
+  private static final Duration BATCH_WRITE_MAX_BACKOFF = Duration.ofSeconds(2);
+
+  // Bounds the number of batch writes in flight when deleting large key sets
+  private static final int MAX_CONCURRENT_BATCH_WRITES = 4;
 
   final DistributionSummary keysConsideredForTakeDistributionSummary = DistributionSummary
       .builder(name(getClass(), "keysConsideredForTake"))
@@ -97,27 +113,60 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
   public CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final List<K> preKeys) {
     final Timer.Sample sample = Timer.start();
 
-    return Mono.fromFuture(() -> delete(identifier, deviceId))
-        .thenMany(
-            Flux.fromIterable(preKeys)
-                .sort(Comparator.comparing(preKey -> preKey.keyId()))
-                .zipWith(Flux.range(0, preKeys.size()).map(i -> preKeys.size() - i))
-                .flatMap(preKeyAndRemainingCount -> Mono.fromFuture(() ->
-                        store(identifier, deviceId, preKeyAndRemainingCount.getT1(), preKeyAndRemainingCount.getT2())),
-                    DYNAMO_DB_MAX_BATCH_SIZE))
-        .then()
-        .toFuture()
+    // A single batch write may not contain the same key twice, so keep only the last of any keys with duplicate IDs
+    // (which matches the outcome of writing duplicates one at a time)
+    final SortedMap<Long, K> preKeysById = new TreeMap<>();
+    preKeys.forEach(preKey -> preKeysById.put(preKey.keyId(), preKey));
+
+    final List<K> sortedPreKeys = new ArrayList<>(preKeysById.values());
+
+    final List<WriteRequest> writeRequests = new ArrayList<>(sortedPreKeys.size());
+
+    for (int i = 0; i < sortedPreKeys.size(); i++) {
+      writeRequests.add(WriteRequest.builder()
+          .putRequest(PutRequest.builder()
+              .item(getItemFromPreKey(identifier, deviceId, sortedPreKeys.get(i), sortedPreKeys.size() - i))
+              .build())
+          .build());
+    }
+
+    return delete(identifier, deviceId)
+        .thenCompose(ignored -> writeInBatches(writeRequests))
         .thenRun(() -> sample.stop(storeKeyBatchTimer));
   }
 
-  private CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final K preKey, final int remainingKeys) {
+  private CompletableFuture<Void> writeInBatches(final List<WriteRequest> writeRequests) {
+    return CompletableFuture.allOf(Lists.partition(writeRequests, DYNAMO_DB_MAX_BATCH_SIZE).stream()
+        .map(batch -> writeUntilComplete(batch, 0))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private CompletableFuture<Void> writeUntilComplete(final List<WriteRequest> writeRequests, final int attempt) {
     final Timer.Sample sample = Timer.start();
 
-    return dynamoDbAsyncClient.putItem(PutItemRequest.builder()
-            .tableName(tableName)
-            .item(getItemFromPreKey(identifier, deviceId, preKey, remainingKeys))
+    return dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(tableName, writeRequests))
             .build())
-        .thenRun(() -> sample.stop(storeKeyTimer));
+        .whenComplete((ignored, throwable) -> sample.stop(batchWriteTimer))
+        .thenCompose(response -> {
+          final List<WriteRequest> unprocessedItems = response.hasUnprocessedItems()
+              ? response.unprocessedItems().getOrDefault(tableName, Collections.emptyList())
+              : Collections.emptyList();
+
+          if (unprocessedItems.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+          }
+
+          unprocessedItemsCounter.increment(unprocessedItems.size());
+
+          if (attempt + 1 >= MAX_BATCH_WRITE_ATTEMPTS) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "Failed to write " + unprocessedItems.size() + " items after " + MAX_BATCH_WRITE_ATTEMPTS + " attempts"));
+          }
+
+          return BackoffUtil.retryAfterBackoff(BATCH_WRITE_BASE_BACKOFF, BATCH_WRITE_MAX_BACKOFF, attempt,
+              () -> writeUntilComplete(unprocessedItems, attempt + 1));
+        });
   }
 
   /**
@@ -267,14 +316,15 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
 
   private CompletableFuture<Void> deleteItems(final AttributeValue partitionKey, final Flux<Map<String, AttributeValue>> items) {
     return items
-        .map(item -> DeleteItemRequest.builder()
-            .tableName(tableName)
-            .key(Map.of(
-                KEY_ACCOUNT_UUID, partitionKey,
-                KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)
-            ))
+        .map(item -> WriteRequest.builder()
+            .deleteRequest(DeleteRequest.builder()
+                .key(Map.of(
+                    KEY_ACCOUNT_UUID, partitionKey,
+                    KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)))
+                .build())
             .build())
-        .flatMap(deleteItemRequest -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(deleteItemRequest)), DYNAMO_DB_MAX_BATCH_SIZE)
+        .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+        .flatMap(batch -> Mono.fromFuture(() -> writeUntilComplete(batch, 0)), MAX_CONCURRENT_BATCH_WRITES)
         .then()
         .toFuture()
         .thenRun(Util.NOOP);
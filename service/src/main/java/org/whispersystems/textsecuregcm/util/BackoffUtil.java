@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Utilities for retrying operations (most often DynamoDB batch operations that return unprocessed items, which almost
+ * always means the caller is being throttled) after a capped, exponentially-increasing, jittered backoff. Jitter keeps
+ * callers that were throttled together from retrying in lockstep.
+ */
+public final class BackoffUtil {
+
+  // Keeps the shifted base backoff from overflowing; the maximum backoff is always far smaller anyway
+  private static final int MAX_BACKOFF_EXPONENT = 16;
+
+  private BackoffUtil() {
+    // utility class
+  }
+
+  /**
+   * Returns an executor that runs tasks after a jittered backoff. The upper bound of the backoff is
+   * {@code baseBackoff * 2^retry}, capped at {@code maxBackoff}; the actual backoff is chosen uniformly at random
+   * between half of that upper bound and the upper bound itself.
+   *
+   * @param baseBackoff the upper bound of the backoff before the first retry
+   * @param maxBackoff the maximum upper bound of any backoff
+   * @param retry the number of retries that have already been attempted (i.e. 0 before the first retry)
+   *
+   * @return an executor that runs tasks after a jittered backoff
+   */
+  public static Executor delayedExecutor(final Duration baseBackoff, final Duration maxBackoff, final int retry) {
+    return CompletableFuture.delayedExecutor(getBackoffMillis(baseBackoff, maxBackoff, retry), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Retries an asynchronous operation after a jittered backoff.
+   *
+   * @param baseBackoff the upper bound of the backoff before the first retry
+   * @param maxBackoff the maximum upper bound of any backoff
+   * @param retry the number of retries that have already been attempted (i.e. 0 before the first retry)
+   * @param operation the operation to retry
+   *
+   * @return a future that yields the result of the retried operation
+   *
+   * @see #delayedExecutor(Duration, Duration, int)
+   */
+  public static <T> CompletableFuture<T> retryAfterBackoff(final Duration baseBackoff,
+      final Duration maxBackoff,
+      final int retry,
+      final Supplier<CompletableFuture<T>> operation) {
+
+    return CompletableFuture.runAsync(Util.NOOP, delayedExecutor(baseBackoff, maxBackoff, retry))
+        .thenCompose(ignored -> operation.get());
+  }
+
+  @VisibleForTesting
+  static long getBackoffMillis(final Duration baseBackoff, final Duration maxBackoff, final int retry) {
+    final long maxBackoffMillis = Math.min(maxBackoff.toMillis(),
+        baseBackoff.toMillis() << Math.clamp(retry, 0, MAX_BACKOFF_EXPONENT));
+
+    return ThreadLocalRandom.current().nextLong(maxBackoffMillis / 2, maxBackoffMillis + 1);
+  }
+}
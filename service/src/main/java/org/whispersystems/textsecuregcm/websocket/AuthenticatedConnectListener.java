@@ -9,6 +9,7 @@ import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 
 import io.micrometer.core.instrument.Tags;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedDevice;
@@ -26,7 +27,9 @@ import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.MessageDeletionCoalescer;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.websocket.session.WebSocketSessionContext;
 import org.whispersystems.websocket.setup.WebSocketConnectListener;
 import reactor.core.scheduler.Scheduler;
@@ -45,6 +48,7 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
   private final AccountsManager accountsManager;
   private final ReceiptSender receiptSender;
   private final MessagesManager messagesManager;
+  private final MessageDeletionCoalescer messageDeletionCoalescer;
   private final MessageMetrics messageMetrics;
   private final PushNotificationManager pushNotificationManager;
   private final PushNotificationScheduler pushNotificationScheduler;
@@ -62,6 +66,7 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
       final AccountsManager accountsManager,
       final ReceiptSender receiptSender,
       final MessagesManager messagesManager,
+      final MessageDeletionCoalescer messageDeletionCoalescer,
       final MessageMetrics messageMetrics,
       final PushNotificationManager pushNotificationManager,
       final PushNotificationScheduler pushNotificationScheduler,
@@ -75,6 +80,7 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
     this.accountsManager = accountsManager;
     this.receiptSender = receiptSender;
     this.messagesManager = messagesManager;
+    this.messageDeletionCoalescer = messageDeletionCoalescer;
     this.messageMetrics = messageMetrics;
     this.pushNotificationManager = pushNotificationManager;
     this.pushNotificationScheduler = pushNotificationScheduler;
@@ -116,6 +122,7 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
 
       final WebSocketConnection connection = new WebSocketConnection(receiptSender,
           messagesManager,
+          messageDeletionCoalescer,
           messageMetrics,
           pushNotificationManager,
           pushNotificationScheduler,
@@ -128,8 +135,28 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
           experimentEnrollmentManager);
 
       disconnectionRequestManager.addListener(maybeAuthenticatedAccount.get().getIdentifier(IdentityType.ACI),
-          maybeAuthenticatedDevice.get().getId(),
-          connection);
+              maybeAuthenticatedDevice.get().getId(),
+              connection)
+          // Disconnection requests published before we subscribed to them never reach this connection, so once we're
+          // subscribed, make sure the device's credentials didn't change in the meantime
+          .thenCompose(ignored -> accountsManager.getByAccountIdentifierAsync(auth.accountIdentifier()))
+          .thenAccept(maybeCurrentAccount -> {
+            final boolean credentialsUnchanged = maybeCurrentAccount
+                .flatMap(account -> account.getDevice(auth.deviceId()))
+                .map(device -> device.getAuthTokenHash().equals(maybeAuthenticatedDevice.get().getAuthTokenHash()))
+                .orElse(false);
+
+            if (!credentialsUnchanged) {
+              connection.handleDisconnectionRequest();
+            }
+          })
+          .whenComplete((ignored, throwable) -> {
+            // The subscription future is cancelled if the connection closes before the subscription is established
+            if (throwable != null && !(ExceptionUtils.unwrap(throwable) instanceof CancellationException)) {
+              log.warn("Failed to check credentials for {}:{} after subscribing to disconnection requests",
+                  auth.accountIdentifier(), auth.deviceId(), throwable);
+            }
+          });
 
       context.addWebsocketClosedListener((_, _, _) -> {
         disconnectionRequestManager.removeListener(maybeAuthenticatedAccount.get().getIdentifier(IdentityType.ACI),
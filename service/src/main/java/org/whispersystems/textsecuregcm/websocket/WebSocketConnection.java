@@ -16,7 +16,9 @@ import io.micrometer.core.instrument.Tags;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -27,6 +29,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jetty.util.StaticException;
@@ -36,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestListener;
 import org.whispersystems.textsecuregcm.controllers.MessageController;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.EnvelopeBatch;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
@@ -51,6 +55,7 @@ import org.whispersystems.textsecuregcm.push.ReceiptSender;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.MessageDeletionCoalescer;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.websocket.WebSocketClient;
@@ -87,12 +92,19 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
   private static final String MESSAGE_AVAILABLE_COUNTER_NAME = name(WebSocketConnection.class, "messagesAvailable");
   private static final String MESSAGES_PERSISTED_COUNTER_NAME = name(WebSocketConnection.class, "messagesPersisted");
   private static final String SEND_MESSAGE_DURATION_TIMER_NAME = name(WebSocketConnection.class, "sendMessageDuration");
+  private static final String SEND_MESSAGE_BATCH_DURATION_TIMER_NAME =
+      name(WebSocketConnection.class, "sendMessageBatchDuration");
+  private static final String FRAMES_SENT_COUNTER_NAME = name(WebSocketConnection.class, "framesSent");
+  private static final String FRAME_SIZE_DISTRIBUTION_NAME = name(WebSocketConnection.class, "frameSize");
+  private static final String MESSAGES_PER_FRAME_DISTRIBUTION_NAME =
+      name(WebSocketConnection.class, "messagesPerFrame");
 
   private static final String PRESENCE_MANAGER_TAG = "presenceManager";
   private static final String STATUS_CODE_TAG = "status";
   private static final String STATUS_MESSAGE_TAG = "message";
   private static final String ERROR_TYPE_TAG = "errorType";
   private static final String EXCEPTION_TYPE_TAG = "exceptionType";
+  private static final String BATCHED_DELIVERY_TAG = "batchedDelivery";
 
   private static final long SLOW_DRAIN_THRESHOLD = 10_000;
 
@@ -102,6 +114,22 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
   @VisibleForTesting
   static final int MESSAGE_SENDER_MAX_CONCURRENCY = 256;
 
+  @VisibleForTesting
+  static final int MAX_MESSAGES_PER_BATCH = 32;
+
+  // Comfortably below the frame size limits of all supported clients
+  @VisibleForTesting
+  static final int MAX_BATCH_BYTES = 256 * 1024;
+
+  // Keep roughly the same number of messages in flight as unbatched delivery
+  private static final int BATCH_SENDER_MAX_CONCURRENCY = MESSAGE_SENDER_MAX_CONCURRENCY / MAX_MESSAGES_PER_BATCH;
+
+  // How long to wait for a batch to fill before sending a partial batch
+  private static final Duration MAX_BATCH_DELAY = Duration.ofMillis(10);
+
+  // An upper bound on the tag and length prefix that precede each envelope in a serialized batch
+  private static final int BATCH_ENVELOPE_OVERHEAD_BYTES = 8;
+
   static final Duration DEFAULT_SEND_FUTURES_TIMEOUT = Duration.ofMinutes(5);
 
   private static final Duration CLOSE_WITH_PENDING_MESSAGES_NOTIFICATION_DELAY = Duration.ofMinutes(1);
@@ -110,6 +138,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
   private final ReceiptSender receiptSender;
   private final MessagesManager messagesManager;
+  private final MessageDeletionCoalescer messageDeletionCoalescer;
   private final MessageMetrics messageMetrics;
   private final PushNotificationManager pushNotificationManager;
   private final PushNotificationScheduler pushNotificationScheduler;
@@ -121,6 +150,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
   private final WebSocketClient client;
 
   private final Duration sendFuturesTimeout;
+  private final boolean batchedDelivery;
 
   private final Semaphore processStoredMessagesSemaphore = new Semaphore(1);
   private final AtomicReference<StoredMessageState> storedMessageState = new AtomicReference<>(
@@ -142,6 +172,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
   public WebSocketConnection(ReceiptSender receiptSender,
       MessagesManager messagesManager,
+      MessageDeletionCoalescer messageDeletionCoalescer,
       MessageMetrics messageMetrics,
       PushNotificationManager pushNotificationManager,
       PushNotificationScheduler pushNotificationScheduler,
@@ -155,6 +186,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
     this(receiptSender,
         messagesManager,
+        messageDeletionCoalescer,
         messageMetrics,
         pushNotificationManager,
         pushNotificationScheduler,
@@ -170,6 +202,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
   @VisibleForTesting
   WebSocketConnection(ReceiptSender receiptSender,
       MessagesManager messagesManager,
+      MessageDeletionCoalescer messageDeletionCoalescer,
       MessageMetrics messageMetrics,
       PushNotificationManager pushNotificationManager,
       PushNotificationScheduler pushNotificationScheduler,
@@ -184,6 +217,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
     this.receiptSender = receiptSender;
     this.messagesManager = messagesManager;
+    this.messageDeletionCoalescer = messageDeletionCoalescer;
     this.messageMetrics = messageMetrics;
     this.pushNotificationManager = pushNotificationManager;
     this.pushNotificationScheduler = pushNotificationScheduler;
@@ -191,6 +225,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
     this.authenticatedDevice = authenticatedDevice;
     this.client = client;
     this.sendFuturesTimeout = sendFuturesTimeout;
+    this.batchedDelivery = client.shouldReceiveBatchedMessages();
     this.messageDeliveryScheduler = messageDeliveryScheduler;
     this.clientReleaseManager = clientReleaseManager;
     this.messageDeliveryLoopMonitor = messageDeliveryLoopMonitor;
@@ -226,6 +261,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
     sentMessageCounter.increment();
     bytesSentCounter.increment(body.map(bytes -> bytes.length).orElse(0));
     messageMetrics.measureAccountEnvelopeUuidMismatches(authenticatedAccount, message);
+    recordFrameSent(1, body.map(bytes -> bytes.length).orElse(0));
 
     final Timer.Sample sample = Timer.start();
 
@@ -248,8 +284,8 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
           final CompletableFuture<Void> result;
           if (isSuccessResponse(response)) {
 
-            result = messagesManager.delete(authenticatedAccount.getIdentifier(IdentityType.ACI), authenticatedDevice,
-                    storedMessageInfo.guid(), storedMessageInfo.serverTimestamp())
+            result = messageDeletionCoalescer.delete(authenticatedAccount.getIdentifier(IdentityType.ACI),
+                    authenticatedDevice, storedMessageInfo.guid(), storedMessageInfo.serverTimestamp())
                 .thenApply(ignored -> null);
 
             if (message.getType() != Envelope.Type.SERVER_DELIVERY_RECEIPT) {
@@ -257,30 +293,168 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
               sendDeliveryReceiptFor(message);
             }
           } else {
-              final List<Tag> tags = new ArrayList<>(
-                  List.of(
-                      Tag.of(STATUS_CODE_TAG, String.valueOf(response.getStatus())),
-                      UserAgentTagUtil.getPlatformTag(client.getUserAgent())
-                  ));
-
-              // TODO Remove this once we've identified the cause of message rejections from desktop clients
-              if (StringUtils.isNotBlank(response.getMessage())) {
-                tags.add(Tag.of(STATUS_MESSAGE_TAG, response.getMessage()));
-              }
+            recordNonSuccessResponse(response);
+            result = CompletableFuture.completedFuture(null);
+          }
 
-              Metrics.counter(NON_SUCCESS_RESPONSE_COUNTER_NAME, tags).increment();
+          return result;
+        })
+        .thenRun(() -> sample.stop(Timer.builder(SEND_MESSAGE_DURATION_TIMER_NAME)
+            .publishPercentileHistogram(true)
+            .tags(Tags.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent())))
+            .register(Metrics.globalRegistry)));
+  }
+
+  /**
+   * Sends a batch of stored messages to the client in a single request. The client acknowledges all messages in the
+   * batch with a single response, and acknowledged messages are removed from storage with a single batch deletion.
+   * Clients must have opted in to batched delivery.
+   */
+  private CompletableFuture<Void> sendMessageBatch(final List<Envelope> envelopes) {
+    final List<Envelope> deliverableEnvelopes = new ArrayList<>(envelopes.size());
+    final Map<UUID, Long> undeliverableStories = new HashMap<>();
+
+    for (final Envelope envelope : envelopes) {
+      if (envelope.getStory() && !client.shouldDeliverStories()) {
+        undeliverableStories.put(UUID.fromString(envelope.getServerGuid()), envelope.getServerTimestamp());
+      } else {
+        deliverableEnvelopes.add(envelope);
+      }
+    }
 
-              result = CompletableFuture.completedFuture(null);
+    if (!undeliverableStories.isEmpty()) {
+      messagesManager.delete(authenticatedAccount.getIdentifier(IdentityType.ACI), authenticatedDevice,
+          undeliverableStories);
+    }
+
+    if (deliverableEnvelopes.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    if (deliverableEnvelopes.size() == 1) {
+      // There's nothing to gain by wrapping a single message in a batch
+      final Envelope envelope = deliverableEnvelopes.getFirst();
+      return sendMessage(envelope, new StoredMessageInfo(UUID.fromString(envelope.getServerGuid()),
+          envelope.getServerTimestamp()));
+    }
+
+    // clear ephemeral field from the envelopes
+    final byte[] body = EnvelopeBatch.newBuilder()
+        .addAllEnvelopes(deliverableEnvelopes.stream()
+            .map(envelope -> envelope.toBuilder().clearEphemeral().build())
+            .toList())
+        .build()
+        .toByteArray();
+
+    sendMessageCounter.increment(deliverableEnvelopes.size());
+    sentMessageCounter.add(deliverableEnvelopes.size());
+    bytesSentCounter.increment(body.length);
+    deliverableEnvelopes.forEach(envelope ->
+        messageMetrics.measureAccountEnvelopeUuidMismatches(authenticatedAccount, envelope));
+    recordFrameSent(deliverableEnvelopes.size(), body.length);
+
+    final Timer.Sample sample = Timer.start();
+
+    return client.sendRequest("PUT", "/api/v1/messages", List.of(HeaderUtils.getTimestampHeader()), Optional.of(body))
+        .whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            sendFailuresCounter.increment();
+          } else {
+            deliverableEnvelopes.forEach(envelope -> messageMetrics.measureOutgoingMessageLatency(
+                envelope.getServerTimestamp(),
+                "websocket",
+                authenticatedDevice.isPrimary(),
+                envelope.getUrgent(),
+                envelope.getEphemeral(),
+                client.getUserAgent(),
+                clientReleaseManager));
+          }
+        }).thenCompose(response -> {
+          final CompletableFuture<Void> result;
+          if (isSuccessResponse(response)) {
+            final Map<UUID, Long> serverTimestampsByGuid = new HashMap<>(deliverableEnvelopes.size());
+            deliverableEnvelopes.forEach(envelope ->
+                serverTimestampsByGuid.put(UUID.fromString(envelope.getServerGuid()), envelope.getServerTimestamp()));
+
+            result = messagesManager.delete(authenticatedAccount.getIdentifier(IdentityType.ACI), authenticatedDevice,
+                    serverTimestampsByGuid)
+                .thenApply(ignored -> null);
+
+            for (final Envelope envelope : deliverableEnvelopes) {
+              if (envelope.getType() != Envelope.Type.SERVER_DELIVERY_RECEIPT) {
+                recordMessageDeliveryDuration(envelope.getServerTimestamp(), authenticatedDevice);
+                sendDeliveryReceiptFor(envelope);
+              }
             }
+          } else {
+            recordNonSuccessResponse(response);
+            result = CompletableFuture.completedFuture(null);
+          }
 
           return result;
         })
-        .thenRun(() -> sample.stop(Timer.builder(SEND_MESSAGE_DURATION_TIMER_NAME)
+        .thenRun(() -> sample.stop(Timer.builder(SEND_MESSAGE_BATCH_DURATION_TIMER_NAME)
             .publishPercentileHistogram(true)
             .tags(Tags.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent())))
             .register(Metrics.globalRegistry)));
   }
 
+  /**
+   * Splits a batch of envelopes into batches whose serialized size does not exceed the given limit. An envelope that is
+   * larger than the limit on its own gets a batch of its own.
+   */
+  @VisibleForTesting
+  static List<List<Envelope>> partitionBatch(final List<Envelope> envelopes, final int maxBatchBytes) {
+    final List<List<Envelope>> batches = new ArrayList<>();
+
+    List<Envelope> batch = new ArrayList<>();
+    int batchBytes = 0;
+
+    for (final Envelope envelope : envelopes) {
+      final int envelopeBytes = envelope.getSerializedSize() + BATCH_ENVELOPE_OVERHEAD_BYTES;
+
+      if (!batch.isEmpty() && batchBytes + envelopeBytes > maxBatchBytes) {
+        batches.add(batch);
+
+        batch = new ArrayList<>();
+        batchBytes = 0;
+      }
+
+      batch.add(envelope);
+      batchBytes += envelopeBytes;
+    }
+
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+
+    return batches;
+  }
+
+  private void recordFrameSent(final int messages, final int bytes) {
+    final Tags tags = Tags.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent()),
+        Tag.of(BATCHED_DELIVERY_TAG, String.valueOf(batchedDelivery)));
+
+    Metrics.counter(FRAMES_SENT_COUNTER_NAME, tags).increment();
+    Metrics.summary(FRAME_SIZE_DISTRIBUTION_NAME, tags).record(bytes);
+    Metrics.summary(MESSAGES_PER_FRAME_DISTRIBUTION_NAME, tags).record(messages);
+  }
+
+  private void recordNonSuccessResponse(final WebSocketResponseMessage response) {
+    final List<Tag> tags = new ArrayList<>(
+        List.of(
+            Tag.of(STATUS_CODE_TAG, String.valueOf(response.getStatus())),
+            UserAgentTagUtil.getPlatformTag(client.getUserAgent())
+        ));
+
+    // TODO Remove this once we've identified the cause of message rejections from desktop clients
+    if (StringUtils.isNotBlank(response.getMessage())) {
+      tags.add(Tag.of(STATUS_MESSAGE_TAG, response.getMessage()));
+    }
+
+    Metrics.counter(NON_SUCCESS_RESPONSE_COUNTER_NAME, tags).increment();
+  }
+
   public static void recordMessageDeliveryDuration(long timestamp, Device messageDestinationDevice) {
     final long messageDeliveryDuration = System.currentTimeMillis() - timestamp;
     messageTime.record(messageDeliveryDuration);
@@ -326,7 +500,8 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
               // Cleared the queue! Send a queue empty message if we need to
               if (sentInitialQueueEmptyMessage.compareAndSet(false, true)) {
-                final Tags tags = Tags.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent()));
+                final Tags tags = Tags.of(UserAgentTagUtil.getPlatformTag(client.getUserAgent()),
+                    Tag.of(BATCHED_DELIVERY_TAG, String.valueOf(batchedDelivery)));
                 final long drainDuration = System.currentTimeMillis() - queueDrainStartTime.get();
 
                 Metrics.summary(INITIAL_QUEUE_LENGTH_DISTRIBUTION_NAME, tags).record(sentMessageCounter.sum());
@@ -371,7 +546,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
 
     final AtomicBoolean hasSentFirstMessage = new AtomicBoolean();
 
-    final Disposable subscription = Flux.from(messages)
+    final Flux<Envelope> envelopes = Flux.from(messages)
         .name(SEND_MESSAGES_FLUX_NAME)
         .tap(Micrometer.metrics(Metrics.globalRegistry))
         .limitRate(MESSAGE_PUBLISHER_LIMIT_RATE)
@@ -383,13 +558,17 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
                 client.getUserAgent(),
                 "websocket");
           }
-        })
-        .flatMapSequential(envelope ->
-            Mono.fromFuture(() -> sendMessage(envelope)).timeout(sendFuturesTimeout)
-                // Note that this will retry both for "send to client" timeouts and failures to delete messages on
-                // acknowledgement
-                .retryWhen(Retry.backoff(4, Duration.ofSeconds(1)).filter(throwable -> !isConnectionClosedException(throwable))),
-            MESSAGE_SENDER_MAX_CONCURRENCY)
+        });
+
+    final Flux<Void> sentMessages = batchedDelivery
+        ? envelopes
+            .bufferTimeout(MAX_MESSAGES_PER_BATCH, MAX_BATCH_DELAY, true)
+            .flatMapIterable(batch -> partitionBatch(batch, MAX_BATCH_BYTES))
+            .flatMapSequential(batch -> sendWithRetries(() -> sendMessageBatch(batch)), BATCH_SENDER_MAX_CONCURRENCY)
+        : envelopes
+            .flatMapSequential(envelope -> sendWithRetries(() -> sendMessage(envelope)), MESSAGE_SENDER_MAX_CONCURRENCY);
+
+    final Disposable subscription = sentMessages
         .doOnError(this::measureSendMessageErrors)
         .subscribeOn(messageDeliveryScheduler)
         .subscribe(
@@ -405,6 +584,13 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
     return queueCleared;
   }
 
+  private Mono<Void> sendWithRetries(final Supplier<CompletableFuture<Void>> sendFutureSupplier) {
+    return Mono.fromFuture(sendFutureSupplier).timeout(sendFuturesTimeout)
+        // Note that this will retry both for "send to client" timeouts and failures to delete messages on
+        // acknowledgement
+        .retryWhen(Retry.backoff(4, Duration.ofSeconds(1)).filter(throwable -> !isConnectionClosedException(throwable)));
+  }
+
   private void measureSendMessageErrors(final Throwable e) {
     final String errorType;
 
@@ -435,7 +621,8 @@ public class WebSocketConnection implements MessageAvailabilityListener, Disconn
     final UUID messageGuid = UUID.fromString(envelope.getServerGuid());
 
     if (envelope.getStory() && !client.shouldDeliverStories()) {
-      messagesManager.delete(authenticatedAccount.getIdentifier(IdentityType.ACI), authenticatedDevice, messageGuid, envelope.getServerTimestamp());
+      messageDeletionCoalescer.delete(authenticatedAccount.getIdentifier(IdentityType.ACI), authenticatedDevice, messageGuid,
+          envelope.getServerTimestamp());
 
       return CompletableFuture.completedFuture(null);
     } else {
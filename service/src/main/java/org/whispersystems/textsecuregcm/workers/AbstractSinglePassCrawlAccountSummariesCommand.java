@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import java.util.function.Function;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
+import org.whispersystems.textsecuregcm.storage.CheckpointedSegmentedScanner;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * A single-pass crawl command for tasks that can select the accounts they act upon using only lightweight
+ * {@link AccountSummary} views. Subclasses should load full accounts only for the (generally small) subset of accounts
+ * they actually need to act upon.
+ */
+public abstract class AbstractSinglePassCrawlAccountSummariesCommand extends
+    AbstractSinglePassCrawlCommand<AccountSummary> {
+
+  public AbstractSinglePassCrawlAccountSummariesCommand(final String name, final String description) {
+    super(name, description);
+  }
+
+  @Override
+  protected Flux<AccountSummary> streamAll(final int segments, final Scheduler scheduler) {
+    return getCommandDependencies().accountsManager().streamAllSummariesFromDynamo(segments, scheduler);
+  }
+
+  @Override
+  protected Flux<AccountSummary> streamAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    return getCommandDependencies().accountsManager()
+        .streamAllSummariesFromDynamo(segments, scheduler, scanner, maxReadCapacityUnitsPerSecond);
+  }
+
+  @Override
+  protected Mono<Void> processAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String checkpointName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<AccountSummary>, Mono<Void>> pageProcessor) {
+
+    return getCommandDependencies().accountsManager()
+        .processAllSummariesFromDynamo(segments, scheduler, scanner, checkpointName, maxReadCapacityUnitsPerSecond,
+            pageProcessor);
+  }
+
+  @Override
+  protected final Mono<Void> crawl(final Flux<AccountSummary> accountSummaries) {
+    return crawlAccountSummaries(accountSummaries);
+  }
+
+  protected abstract Mono<Void> crawlAccountSummaries(final Flux<AccountSummary> accountSummaries);
+}
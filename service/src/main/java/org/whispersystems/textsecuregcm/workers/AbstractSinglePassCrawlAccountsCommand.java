@@ -5,72 +5,51 @@
 
 package org.whispersystems.textsecuregcm.workers;
 
-import io.dropwizard.core.Application;
-import io.dropwizard.core.cli.Cli;
-import io.dropwizard.core.cli.EnvironmentCommand;
-import io.dropwizard.core.setup.Environment;
-import java.util.Objects;
-import net.sourceforge.argparse4j.inf.Namespace;
-import net.sourceforge.argparse4j.inf.Subparser;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.whispersystems.textsecuregcm.WhisperServerConfiguration;
+import java.util.function.Function;
 import org.whispersystems.textsecuregcm.storage.Account;
-import org.whispersystems.textsecuregcm.util.logging.UncaughtExceptionHandler;
+import org.whispersystems.textsecuregcm.storage.CheckpointedSegmentedScanner;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractCommandWithDependencies {
-
-  private CommandDependencies commandDependencies;
-  private Namespace namespace;
-
-  private final Logger logger = LoggerFactory.getLogger(getClass());
-
-  private static final String SEGMENT_COUNT = "segments";
+public abstract class AbstractSinglePassCrawlAccountsCommand extends AbstractSinglePassCrawlCommand<Account> {
 
   public AbstractSinglePassCrawlAccountsCommand(final String name, final String description) {
-    super(new Application<>() {
-      @Override
-      public void run(final WhisperServerConfiguration configuration, final Environment environment) {
-      }
-    }, name, description);
+    super(name, description);
   }
 
   @Override
-  public void configure(final Subparser subparser) {
-    super.configure(subparser);
-
-    subparser.addArgument("--segments")
-        .type(Integer.class)
-        .dest(SEGMENT_COUNT)
-        .required(false)
-        .setDefault(1)
-        .help("The total number of segments for a DynamoDB scan");
+  protected Flux<Account> streamAll(final int segments, final Scheduler scheduler) {
+    return getCommandDependencies().accountsManager().streamAllFromDynamo(segments, scheduler);
   }
 
-  protected CommandDependencies getCommandDependencies() {
-    return commandDependencies;
-  }
+  @Override
+  protected Flux<Account> streamAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final double maxReadCapacityUnitsPerSecond) {
 
-  protected Namespace getNamespace() {
-    return namespace;
+    return getCommandDependencies().accountsManager()
+        .streamAllFromDynamo(segments, scheduler, scanner, maxReadCapacityUnitsPerSecond);
   }
 
   @Override
-  protected void run(final Environment environment, final Namespace namespace,
-      final WhisperServerConfiguration configuration, final CommandDependencies commandDependencies) throws Exception {
-    this.namespace = namespace;
-    this.commandDependencies = commandDependencies;
-
-    final int segments = Objects.requireNonNull(namespace.getInt(SEGMENT_COUNT));
-
-    logger.info("Crawling accounts with {} segments and {} processors",
-        segments,
-        Runtime.getRuntime().availableProcessors());
+  protected Mono<Void> processAll(final int segments,
+      final Scheduler scheduler,
+      final CheckpointedSegmentedScanner scanner,
+      final String checkpointName,
+      final double maxReadCapacityUnitsPerSecond,
+      final Function<Flux<Account>, Mono<Void>> pageProcessor) {
+
+    return getCommandDependencies().accountsManager()
+        .processAllFromDynamo(segments, scheduler, scanner, checkpointName, maxReadCapacityUnitsPerSecond,
+            pageProcessor);
+  }
 
-    crawlAccounts(commandDependencies.accountsManager().streamAllFromDynamo(segments, Schedulers.parallel()));
+  @Override
+  protected final Mono<Void> crawl(final Flux<Account> accounts) {
+    return crawlAccounts(accounts);
   }
 
-  protected abstract void crawlAccounts(final Flux<Account> accounts);
+  protected abstract Mono<Void> crawlAccounts(final Flux<Account> accounts);
 }
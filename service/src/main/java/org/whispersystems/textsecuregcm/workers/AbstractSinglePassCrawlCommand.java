@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import io.dropwizard.core.Application;
+import io.dropwizard.core.setup.Environment;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.WhisperServerConfiguration;
+import org.whispersystems.textsecuregcm.storage.CheckpointedSegmentedScanner;
+import org.whispersystems.textsecuregcm.storage.ScanCheckpointStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A single-pass crawl command scans every item of some type from DynamoDB exactly once, optionally recording progress
+ * so an interrupted crawl can resume and optionally limiting its rate of read capacity consumption.
+ *
+ * @param <T> the type of item crawled by this command
+ */
+public abstract class AbstractSinglePassCrawlCommand<T> extends AbstractCommandWithDependencies {
+
+  private CommandDependencies commandDependencies;
+  private Namespace namespace;
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private static final String SEGMENT_COUNT = "segments";
+  private static final String CHECKPOINT_NAME = "checkpointName";
+  private static final String MAX_READ_CAPACITY = "maxReadCapacity";
+
+  protected AbstractSinglePassCrawlCommand(final String name, final String description) {
+    super(new Application<>() {
+      @Override
+      public void run(final WhisperServerConfiguration configuration, final Environment environment) {
+      }
+    }, name, description);
+  }
+
+  @Override
+  public void configure(final Subparser subparser) {
+    super.configure(subparser);
+
+    subparser.addArgument("--segments")
+        .type(Integer.class)
+        .dest(SEGMENT_COUNT)
+        .required(false)
+        .setDefault(1)
+        .help("The total number of segments for a DynamoDB scan");
+
+    subparser.addArgument("--checkpoint-name")
+        .type(String.class)
+        .dest(CHECKPOINT_NAME)
+        .required(false)
+        .help("If present, record crawl progress under this name and resume from any progress previously recorded "
+            + "under the same name with the same number of segments. Each page of items is processed separately, so "
+            + "concurrency limits apply per segment.");
+
+    subparser.addArgument("--max-read-capacity")
+        .type(Double.class)
+        .dest(MAX_READ_CAPACITY)
+        .required(false)
+        .setDefault(0.0)
+        .help("The maximum rate, in read capacity units per second, at which to scan across all segments; "
+            + "0 for no limit");
+  }
+
+  protected CommandDependencies getCommandDependencies() {
+    return commandDependencies;
+  }
+
+  protected Namespace getNamespace() {
+    return namespace;
+  }
+
+  @Override
+  protected void run(final Environment environment, final Namespace namespace,
+      final WhisperServerConfiguration configuration, final CommandDependencies commandDependencies) throws Exception {
+    this.namespace = namespace;
+    this.commandDependencies = commandDependencies;
+
+    final int segments = Objects.requireNonNull(namespace.getInt(SEGMENT_COUNT));
+    @Nullable final String checkpointName = namespace.getString(CHECKPOINT_NAME);
+    final double maxReadCapacity = Objects.requireNonNull(namespace.getDouble(MAX_READ_CAPACITY));
+
+    logger.info("Crawling with {} segments and {} processors",
+        segments,
+        Runtime.getRuntime().availableProcessors());
+
+    if (checkpointName == null && maxReadCapacity <= 0) {
+      crawl(streamAll(segments, Schedulers.parallel())).block();
+    } else {
+      logger.info("Crawling with checkpoint name {} and at most {} read capacity units per second",
+          checkpointName, maxReadCapacity);
+
+      final CheckpointedSegmentedScanner scanner = new CheckpointedSegmentedScanner(
+          commandDependencies.dynamoDbAsyncClient(),
+          new ScanCheckpointStore(commandDependencies.cacheCluster()));
+
+      if (checkpointName == null) {
+        crawl(streamAll(segments, Schedulers.parallel(), scanner, maxReadCapacity)).block();
+      } else {
+        processAll(segments, Schedulers.parallel(), scanner, checkpointName, maxReadCapacity, this::crawl).block();
+      }
+    }
+
+    logger.info("Finished crawl");
+  }
+
+  /**
+   * Streams all items to crawl.
+   *
+   * @param segments the total number of segments to scan in parallel
+   * @param scheduler the scheduler on which to scan segments
+   *
+   * @return a stream of all items to crawl
+   */
+  protected abstract Flux<T> streamAll(int segments, Scheduler scheduler);
+
+  /**
+   * Streams all items to crawl, limiting the rate at which the scan consumes read capacity.
+   *
+   * @param segments the total number of segments to scan in parallel
+   * @param scheduler the scheduler on which to scan segments
+   * @param scanner the scanner with which to scan items
+   * @param maxReadCapacityUnitsPerSecond the maximum rate of read capacity consumption, or 0 for no limit
+   *
+   * @return a stream of all items to crawl
+   */
+  protected abstract Flux<T> streamAll(int segments,
+      Scheduler scheduler,
+      CheckpointedSegmentedScanner scanner,
+      double maxReadCapacityUnitsPerSecond);
+
+  /**
+   * Passes all items to crawl to the given page processor one page at a time, recording progress under the given
+   * checkpoint name as each page is processed.
+   *
+   * @param segments the total number of segments to scan in parallel
+   * @param scheduler the scheduler on which to scan segments
+   * @param scanner the scanner with which to scan items
+   * @param checkpointName the name under which to record progress
+   * @param maxReadCapacityUnitsPerSecond the maximum rate of read capacity consumption, or 0 for no limit
+   * @param pageProcessor the function with which to process each page of items
+   *
+   * @return a publisher that completes when every item not crawled in a previous run has been crawled
+   */
+  protected abstract Mono<Void> processAll(int segments,
+      Scheduler scheduler,
+      CheckpointedSegmentedScanner scanner,
+      String checkpointName,
+      double maxReadCapacityUnitsPerSecond,
+      Function<Flux<T>, Mono<Void>> pageProcessor);
+
+  /**
+   * Crawls the given items. Without a checkpoint name, this is called once with every item; with a checkpoint name, it
+   * is called once for each page of scanned items (possibly concurrently for pages from different segments), and a
+   * page's checkpoint is recorded only once the returned publisher completes.
+   *
+   * @param items the items to crawl
+   *
+   * @return a publisher that completes when every given item has been crawled
+   */
+  protected abstract Mono<Void> crawl(Flux<T> items);
+}
@@ -65,14 +65,14 @@ public class EncryptDeviceCreationTimestampCommand extends AbstractSinglePassCra
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccounts(final Flux<Account> accounts) {
     final boolean isDryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
     final int bufferSize = getNamespace().getInt(BUFFER_ARGUMENT);
 
     final Counter processedAccountCounter =
         Metrics.counter(PROCESSED_ACCOUNT_COUNTER_NAME, "dryRun", String.valueOf(isDryRun));
 
-    accounts
+    return accounts
         // We've partially processed enough accounts now that this should speed up the crawler
         .filter(a -> a.getDevices().stream().anyMatch(d -> d.getCreatedAtCiphertext() == null || d.getCreatedAtCiphertext().length == 0))
         .buffer(bufferSize)
@@ -104,9 +104,6 @@ public class EncryptDeviceCreationTimestampCommand extends AbstractSinglePassCra
                 return Mono.empty();
               });
         }, MAX_CONCURRENCY)
-        .then()
-        .block();
-
-    log.info("Finished encrypting device timestamps");
+        .then();
   }
 }
@@ -13,6 +13,7 @@ import java.util.concurrent.CompletableFuture;
 import org.apache.commons.lang3.StringUtils;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import reactor.core.publisher.Mono;
@@ -74,16 +75,37 @@ public class IdleWakeupEligibilityChecker {
     }
   }
 
+  /**
+   * Cheaply determines whether a device might be eligible for a push notification using only its summary. Devices for
+   * which this method returns {@code false} are never eligible; devices for which it returns {@code true} must still be
+   * checked with {@link #isDeviceEligible(Account, Device)}.
+   *
+   * @param device a summary of the device to check
+   *
+   * @return {@code true} if the device might be eligible for a push notification or {@code false} otherwise
+   */
+  public boolean mayBeEligible(final AccountSummary.DeviceSummary device) {
+    return device.hasPushToken() && (isShortIdle(device.lastSeen(), clock) || isLongIdle(device.lastSeen(), clock));
+  }
+
   @VisibleForTesting
   static boolean isShortIdle(final Device device, final Clock clock) {
-    final Duration idleDuration = Duration.between(Instant.ofEpochMilli(device.getLastSeen()), clock.instant());
+    return isShortIdle(device.getLastSeen(), clock);
+  }
+
+  private static boolean isShortIdle(final long lastSeen, final Clock clock) {
+    final Duration idleDuration = Duration.between(Instant.ofEpochMilli(lastSeen), clock.instant());
 
     return idleDuration.compareTo(MIN_SHORT_IDLE_DURATION) >= 0 && idleDuration.compareTo(MAX_SHORT_IDLE_DURATION) < 0;
   }
 
   @VisibleForTesting
   static boolean isLongIdle(final Device device, final Clock clock) {
-    final Duration idleDuration = Duration.between(Instant.ofEpochMilli(device.getLastSeen()), clock.instant());
+    return isLongIdle(device.getLastSeen(), clock);
+  }
+
+  private static boolean isLongIdle(final long lastSeen, final Clock clock) {
+    final Duration idleDuration = Duration.between(Instant.ofEpochMilli(lastSeen), clock.instant());
 
     return idleDuration.compareTo(MIN_LONG_IDLE_DURATION) >= 0 && idleDuration.compareTo(MAX_LONG_IDLE_DURATION) < 0;
   }
@@ -11,17 +11,22 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.push.IdleDeviceNotificationScheduler;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 import reactor.util.retry.Retry;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.Set;
+import java.util.stream.Collectors;
 
-public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountsCommand {
+public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountSummariesCommand {
 
   private static final int DEFAULT_MAX_CONCURRENCY = 16;
 
@@ -67,18 +72,40 @@ public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountsCom
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccountSummaries(final Flux<AccountSummary> accountSummaries) {
     final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
     final boolean dryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
 
+    final AccountsManager accountsManager = getCommandDependencies().accountsManager();
     final MessagesManager messagesManager = getCommandDependencies().messagesManager();
     final IdleDeviceNotificationScheduler idleDeviceNotificationScheduler = buildIdleDeviceNotificationScheduler();
     final Clock clock = getClock();
     final IdleWakeupEligibilityChecker idleWakeupEligibilityChecker = new IdleWakeupEligibilityChecker(clock, messagesManager);
 
-    accounts
-        .flatMap(account -> Flux.fromIterable(account.getDevices()).map(device -> Tuples.of(account, device)))
-        .doOnNext(ignored -> DEVICE_INSPECTED_COUNTER.increment())
+    return accountSummaries
+        .doOnNext(accountSummary -> DEVICE_INSPECTED_COUNTER.increment(accountSummary.devices().size()))
+        // Most devices can be ruled out using only their summaries; only load full accounts for the devices that might
+        // actually be eligible for a notification
+        .flatMap(accountSummary -> {
+          final Set<Byte> candidateDeviceIds = accountSummary.devices().stream()
+              .filter(idleWakeupEligibilityChecker::mayBeEligible)
+              .map(AccountSummary.DeviceSummary::id)
+              .collect(Collectors.toSet());
+
+          if (candidateDeviceIds.isEmpty()) {
+            return Flux.<Tuple2<Account, Device>>empty();
+          }
+
+          return Mono.fromFuture(() -> accountsManager.getByAccountIdentifierAsync(accountSummary.accountIdentifier()))
+              .flatMap(Mono::justOrEmpty)
+              .flatMapMany(account -> Flux.fromIterable(account.getDevices())
+                  .filter(device -> candidateDeviceIds.contains(device.getId()))
+                  .map(device -> Tuples.of(account, device)))
+              .onErrorResume(throwable -> {
+                log.warn("Failed to load account {}", accountSummary.accountIdentifier(), throwable);
+                return Mono.empty();
+              });
+        }, maxConcurrency)
         .flatMap(accountAndDevice -> Mono.fromFuture(() ->
                     idleWakeupEligibilityChecker.isDeviceEligible(accountAndDevice.getT1(), accountAndDevice.getT2()))
                 .mapNotNull(eligible -> eligible ? accountAndDevice : null)
@@ -113,8 +140,7 @@ public class NotifyIdleDevicesCommand extends AbstractSinglePassCrawlAccountsCom
                   DRY_RUN_TAG_NAME, String.valueOf(dryRun))
                   .increment());
         }, maxConcurrency)
-        .then()
-        .block();
+        .then();
   }
 
   @VisibleForTesting
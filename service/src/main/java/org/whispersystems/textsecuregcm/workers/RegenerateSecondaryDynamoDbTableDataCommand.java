@@ -60,7 +60,7 @@ public class RegenerateSecondaryDynamoDbTableDataCommand extends AbstractSingleP
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accountRecords) {
+  protected Mono<Void> crawlAccounts(final Flux<Account> accountRecords) {
     final boolean dryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
     final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
     final int maxRetries = getNamespace().getInt(RETRIES_ARGUMENT);
@@ -70,7 +70,7 @@ public class RegenerateSecondaryDynamoDbTableDataCommand extends AbstractSingleP
     final Counter processedAccountsCounter = Metrics.counter(PROCESSED_ACCOUNTS_COUNTER_NAME,
         "dryRun", String.valueOf(dryRun));
 
-    accountRecords
+    return accountRecords
         .doOnNext(ignored -> processedAccountsCounter.increment())
         .flatMap(account -> dryRun
                 ? Mono.empty()
@@ -78,7 +78,6 @@ public class RegenerateSecondaryDynamoDbTableDataCommand extends AbstractSingleP
                     .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(4))
                         .onRetryExhaustedThrow((spec, rs) -> rs.failure())),
             maxConcurrency)
-        .then()
-        .block();
+        .then();
   }
 }
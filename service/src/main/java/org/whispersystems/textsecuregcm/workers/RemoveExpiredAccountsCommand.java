@@ -57,12 +57,12 @@ public class RemoveExpiredAccountsCommand extends AbstractSinglePassCrawlAccount
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccounts(final Flux<Account> accounts) {
     final boolean isDryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
     final Counter deletedAccountCounter =
         Metrics.counter(DELETED_ACCOUNT_COUNTER_NAME, "dryRun", String.valueOf(isDryRun));
 
-    accounts.filter(this::isExpired)
+    return accounts.filter(this::isExpired)
         .flatMap(expiredAccount -> {
           final Mono<Void> deleteAccountMono = isDryRun
               ? Mono.empty()
@@ -76,8 +76,7 @@ public class RemoveExpiredAccountsCommand extends AbstractSinglePassCrawlAccount
                 return Mono.empty();
               });
         }, MAX_CONCURRENCY)
-        .then()
-        .block();
+        .then();
   }
 
   @VisibleForTesting
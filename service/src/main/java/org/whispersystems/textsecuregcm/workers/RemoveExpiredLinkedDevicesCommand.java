@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -22,6 +23,7 @@ import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
 import org.whispersystems.textsecuregcm.storage.Device;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -29,7 +31,7 @@ import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 import reactor.util.retry.Retry;
 
-public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAccountsCommand {
+public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAccountSummariesCommand {
 
   private static final int DEFAULT_MAX_CONCURRENCY = 16;
   private static final int DEFAULT_BUFFER_SIZE = 16_384;
@@ -85,7 +87,7 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccountSummaries(final Flux<AccountSummary> accountSummaries) {
 
     final boolean dryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
     final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
@@ -94,33 +96,38 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
 
     final Counter successCounter = Metrics.counter(REMOVED_DEVICES_COUNTER_NAME, "dryRun", String.valueOf(dryRun));
 
-    accounts.map(a -> Tuples.of(a, getExpiredLinkedDeviceIds(a.getDevices())))
+    return accountSummaries.map(s -> Tuples.of(s.accountIdentifier(), getExpiredLinkedDeviceIdsFromSummaries(s.devices())))
         .filter(accountAndExpiredDevices -> !accountAndExpiredDevices.getT2().isEmpty())
         .buffer(bufferSize)
         .map(source -> {
-          final List<Tuple2<Account, Set<Byte>>> shuffled = new ArrayList<>(source);
+          final List<Tuple2<UUID, Set<Byte>>> shuffled = new ArrayList<>(source);
           Collections.shuffle(shuffled);
           return shuffled;
         })
         .limitRate(2)
         .flatMapIterable(Function.identity())
         .flatMap(accountAndExpiredDevices -> {
-          final Account account = accountAndExpiredDevices.getT1();
+          final UUID accountIdentifier = accountAndExpiredDevices.getT1();
           final Set<Byte> expiredDevices = accountAndExpiredDevices.getT2();
 
+          // Summaries only tell us which accounts to look at; load the full account (and re-check its devices, which
+          // may have changed since the scan) only when we actually need to modify it
           final Mono<Long> accountUpdate = dryRun
               ? Mono.just((long) expiredDevices.size())
-              : deleteDevices(account, expiredDevices, maxRetries);
+              : Mono.fromFuture(() -> getCommandDependencies().accountsManager()
+                      .getByAccountIdentifierAsync(accountIdentifier))
+                  .flatMap(Mono::justOrEmpty)
+                  .flatMap(account ->
+                      deleteDevices(account, getExpiredLinkedDeviceIds(account.getDevices()), maxRetries));
 
           return accountUpdate
               .doOnNext(successCounter::increment)
               .onErrorResume(t -> {
-                logger.warn("Failed to remove expired linked devices for {}", account.getUuid(), t);
+                logger.warn("Failed to remove expired linked devices for {}", accountIdentifier, t);
                 return Mono.empty();
               });
         }, maxConcurrency)
-        .then()
-        .block();
+        .then();
   }
 
   private Mono<Long> deleteDevices(final Account account, final Set<Byte> expiredDevices, final int maxRetries) {
@@ -154,4 +161,13 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
         .map(Device::getId)
         .collect(Collectors.toSet());
   }
+
+  @VisibleForTesting
+  static Set<Byte> getExpiredLinkedDeviceIdsFromSummaries(final List<AccountSummary.DeviceSummary> devices) {
+    return devices.stream()
+        .filter(Predicate.not(AccountSummary.DeviceSummary::isPrimary))
+        .filter(AccountSummary.DeviceSummary::isExpired)
+        .map(AccountSummary.DeviceSummary::id)
+        .collect(Collectors.toSet());
+  }
 }
@@ -16,7 +16,6 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,7 +69,7 @@ public class RemoveExpiredUsernameHoldsCommand extends AbstractSinglePassCrawlAc
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccounts(final Flux<Account> accounts) {
     final boolean isDryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
     final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
 
@@ -78,9 +77,7 @@ public class RemoveExpiredUsernameHoldsCommand extends AbstractSinglePassCrawlAc
         Metrics.counter(DELETED_HOLDS_COUNTER_NAME, "dryRun", String.valueOf(isDryRun));
 
     final AccountsManager accountManager = getCommandDependencies().accountsManager();
-    final AtomicLong accountsInspected = new AtomicLong();
-    accounts.flatMap(account -> {
-          accountsInspected.incrementAndGet();
+    return accounts.flatMap(account -> {
           final List<Account.UsernameHold> holds = new ArrayList<>(account.getUsernameHolds());
           final int holdsToRemove = removeExpired(holds);
           final Mono<Void> purgeMono = isDryRun || holdsToRemove == 0
@@ -99,8 +96,7 @@ public class RemoveExpiredUsernameHoldsCommand extends AbstractSinglePassCrawlAc
                 return Mono.empty();
               });
         }, maxConcurrency)
-        .then().block();
-    log.info("Finished crawl of {} accounts", accountsInspected.get());
+        .then();
   }
 
   @VisibleForTesting
@@ -20,11 +20,15 @@ import reactor.util.retry.Retry;
 import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.util.UUID;
+import javax.annotation.Nullable;
 
 public class StartPushNotificationExperimentCommand<T> extends AbstractSinglePassCrawlAccountsCommand {
 
   private final PushNotificationExperimentFactory<T> experimentFactory;
 
+  @Nullable
+  private PushNotificationExperiment<T> experiment;
+
   private static final int DEFAULT_MAX_CONCURRENCY = 16;
 
   @VisibleForTesting
@@ -73,19 +77,16 @@ public class StartPushNotificationExperimentCommand<T> extends AbstractSinglePas
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected Mono<Void> crawlAccounts(final Flux<Account> accounts) {
     final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
     final boolean dryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
 
-    final PushNotificationExperiment<T> experiment =
-        experimentFactory.buildExperiment(getCommandDependencies(), getConfiguration());
+    final PushNotificationExperiment<T> experiment = getExperiment(maxConcurrency);
 
     final PushNotificationExperimentSamples pushNotificationExperimentSamples =
         getCommandDependencies().pushNotificationExperimentSamples();
 
-    log.info("Starting \"{}\" with max concurrency: {}", experiment.getExperimentName(), maxConcurrency);
-
-    accounts
+    return accounts
         .flatMap(account -> Flux.fromIterable(account.getDevices()).map(device -> Tuples.of(account, device)))
         .doOnNext(ignored -> DEVICE_INSPECTED_COUNTER.increment())
         .flatMap(accountAndDevice -> Mono.fromFuture(() ->
@@ -154,8 +155,17 @@ public class StartPushNotificationExperimentCommand<T> extends AbstractSinglePas
                       DRY_RUN_TAG_NAME, String.valueOf(dryRun),
                       "treatment", inExperimentGroup ? "experiment" : "control").increment());
         }, maxConcurrency)
-        .then()
-        .block();
+        .then();
+  }
+
+  // Checkpointed crawls call crawlAccounts once per page, but should only build the experiment once
+  private synchronized PushNotificationExperiment<T> getExperiment(final int maxConcurrency) {
+    if (experiment == null) {
+      experiment = experimentFactory.buildExperiment(getCommandDependencies(), getConfiguration());
+      log.info("Starting \"{}\" with max concurrency: {}", experiment.getExperimentName(), maxConcurrency);
+    }
+
+    return experiment;
   }
 
   private boolean isInExperimentGroup(final UUID accountIdentifier, final byte deviceId, final String experimentName) {
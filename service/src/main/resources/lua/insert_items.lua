@@ -0,0 +1,38 @@
+-- inserts messages into one or more device queues that share a cluster slot, and updates relevant associated data;
+-- this is equivalent to calling insert_item.lua once per queue
+-- returns a list with one number per queue: 1 if a "message available" event reached a subscriber or 0 otherwise
+
+local eventPayload = ARGV[1] -- [bytes] a protobuf payload for a "message available" pub/sub event
+local results = {}
+
+for i = 0, (#KEYS / 4) - 1 do
+    local queueKey           = KEYS[(i * 4) + 1] -- sorted set of Envelopes for a device, by queue-local ID
+    local queueMetadataKey   = KEYS[(i * 4) + 2] -- hash of message GUID to queue-local IDs
+    local queueTotalIndexKey = KEYS[(i * 4) + 3] -- sorted set of all queues in the shard, by timestamp of oldest message
+    local eventChannelKey    = KEYS[(i * 4) + 4] -- pub/sub channel for message availability events
+    local message            = ARGV[(i * 3) + 2] -- [bytes] the Envelope to insert
+    local currentTime        = ARGV[(i * 3) + 3] -- [number] the message timestamp, to sort the queue in the queueTotalIndex
+    local guid               = ARGV[(i * 3) + 4] -- [string] the message GUID
+
+    if redis.call("HEXISTS", queueMetadataKey, guid) == 1 then
+        results[i + 1] = 0
+    else
+        local messageId = redis.call("HINCRBY", queueMetadataKey, "counter", 1)
+
+        redis.call("ZADD", queueKey, "NX", messageId, message)
+
+        redis.call("HSET", queueMetadataKey, guid, messageId)
+        redis.call("EXPIRE", queueKey, 3974400) -- 46 days
+        redis.call("EXPIRE", queueMetadataKey, 3974400) -- 46 days
+
+        redis.call("ZADD", queueTotalIndexKey, "NX", currentTime, queueKey)
+
+        if redis.call("SPUBLISH", eventChannelKey, eventPayload) > 0 then
+            results[i + 1] = 1
+        else
+            results[i + 1] = 0
+        end
+    end
+end
+
+return results
@@ -5,42 +5,82 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.lettuce.core.RedisException;
+import io.lettuce.core.cluster.pubsub.StatefulRedisClusterPubSubConnection;
+import io.lettuce.core.cluster.pubsub.api.async.RedisClusterPubSubAsyncCommands;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.whispersystems.textsecuregcm.auth.grpc.AuthenticatedDevice;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicDisconnectionRequestConfiguration;
 import org.whispersystems.textsecuregcm.grpc.net.GrpcClientConnectionManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnection;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubConnection;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.redis.RedisServerExtension;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.tests.util.MockRedisFuture;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
 
 @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
 class DisconnectionRequestManagerTest {
 
   private GrpcClientConnectionManager grpcClientConnectionManager;
+  private DynamicConfiguration dynamicConfiguration;
+  private DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
   private DisconnectionRequestManager disconnectionRequestManager;
 
   @RegisterExtension
   static final RedisServerExtension REDIS_EXTENSION = RedisServerExtension.builder().build();
 
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
   @BeforeEach
   void setUp() {
     grpcClientConnectionManager = mock(GrpcClientConnectionManager.class);
 
-    disconnectionRequestManager =
-        new DisconnectionRequestManager(REDIS_EXTENSION.getRedisClient(), grpcClientConnectionManager, Runnable::run);
+    dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getDisconnectionRequestConfiguration())
+        .thenReturn(new DynamicDisconnectionRequestConfiguration(false));
+
+    //noinspection unchecked
+    dynamicConfigurationManager = mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    disconnectionRequestManager = new DisconnectionRequestManager(REDIS_EXTENSION.getRedisClient(),
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        grpcClientConnectionManager,
+        dynamicConfigurationManager,
+        Runnable::run,
+        Runnable::run);
 
     disconnectionRequestManager.start();
   }
@@ -79,6 +119,172 @@ class DisconnectionRequestManagerTest {
     assertEquals(List.of(secondListener), disconnectionRequestManager.getListeners(accountIdentifier, deviceId));
   }
 
+  @Test
+  void shardedSubscriptionReferenceCounting() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final AuthenticatedDevice authenticatedDevice = new AuthenticatedDevice(accountIdentifier, Device.PRIMARY_ID);
+    final DisconnectionRequestListener listener = mock(DisconnectionRequestListener.class);
+
+    assertFalse(disconnectionRequestManager.hasShardedSubscription(accountIdentifier));
+
+    disconnectionRequestManager.addListener(accountIdentifier, Device.PRIMARY_ID, listener);
+    disconnectionRequestManager.handleAuthenticatedConnectionEstablished(authenticatedDevice);
+    assertTrue(disconnectionRequestManager.hasShardedSubscription(accountIdentifier));
+
+    // Removing a listener that was never registered should not release the subscription
+    disconnectionRequestManager.removeListener(accountIdentifier, Device.PRIMARY_ID,
+        mock(DisconnectionRequestListener.class));
+
+    disconnectionRequestManager.removeListener(accountIdentifier, Device.PRIMARY_ID, listener);
+    assertTrue(disconnectionRequestManager.hasShardedSubscription(accountIdentifier));
+
+    disconnectionRequestManager.handleAuthenticatedConnectionClosed(authenticatedDevice);
+    assertFalse(disconnectionRequestManager.hasShardedSubscription(accountIdentifier));
+  }
+
+  @Test
+  void requestDisconnectionSharded() throws InterruptedException {
+    when(dynamicConfiguration.getDisconnectionRequestConfiguration())
+        .thenReturn(new DynamicDisconnectionRequestConfiguration(true));
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final UUID otherAccountIdentifier = UUID.randomUUID();
+    final byte deviceId = Device.PRIMARY_ID;
+
+    final DisconnectionRequestListener listener = mock(DisconnectionRequestListener.class);
+    disconnectionRequestManager.addListener(accountIdentifier, deviceId, listener);
+
+    // Subscriptions are established asynchronously; wait until an empty request reaches a subscriber
+    final byte[] emptyRequest = DisconnectionRequest.newBuilder()
+        .setAccountIdentifier(UUIDUtil.toByteString(accountIdentifier))
+        .build()
+        .toByteArray();
+
+    while (REDIS_CLUSTER_EXTENSION.getRedisCluster().withBinaryCluster(connection -> connection.sync()
+        .spublish(DisconnectionRequestManager.getShardedChannel(accountIdentifier), emptyRequest)) == 0) {
+
+      Thread.sleep(10);
+    }
+
+    disconnectionRequestManager.requestDisconnection(otherAccountIdentifier, List.of(deviceId))
+        .toCompletableFuture().join();
+
+    disconnectionRequestManager.requestDisconnection(accountIdentifier, List.of(deviceId))
+        .toCompletableFuture().join();
+
+    verify(listener, timeout(1_000)).handleDisconnectionRequest();
+    verify(grpcClientConnectionManager, timeout(1_000))
+        .closeConnection(new AuthenticatedDevice(accountIdentifier, deviceId));
+
+    // This manager holds no connections for the other account, and so should never have received that request
+    verify(grpcClientConnectionManager, never())
+        .closeConnection(new AuthenticatedDevice(otherAccountIdentifier, deviceId));
+  }
+
+  @Test
+  void subscribeShardedOnStart() throws InterruptedException {
+    final DisconnectionRequestManager unstartedDisconnectionRequestManager =
+        new DisconnectionRequestManager(REDIS_EXTENSION.getRedisClient(),
+            REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+            grpcClientConnectionManager,
+            dynamicConfigurationManager,
+            Runnable::run,
+            Runnable::run);
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final UUID otherAccountIdentifier = UUID.randomUUID();
+
+    // Neither of these subscriptions can be established until the manager has started
+    final CompletableFuture<Void> listenerSubscribedFuture =
+        unstartedDisconnectionRequestManager.addListener(accountIdentifier, Device.PRIMARY_ID,
+            mock(DisconnectionRequestListener.class));
+
+    final CompletableFuture<Void> connectionSubscribedFuture =
+        unstartedDisconnectionRequestManager.handleAuthenticatedConnectionEstablished(
+            new AuthenticatedDevice(otherAccountIdentifier, Device.PRIMARY_ID)).toCompletableFuture();
+
+    assertFalse(listenerSubscribedFuture.isDone());
+
+    try {
+      unstartedDisconnectionRequestManager.start();
+
+      assertDoesNotThrow(() -> listenerSubscribedFuture.get(2, TimeUnit.SECONDS));
+      assertDoesNotThrow(() -> connectionSubscribedFuture.get(2, TimeUnit.SECONDS));
+
+      for (final UUID subscribedAccountIdentifier : List.of(accountIdentifier, otherAccountIdentifier)) {
+        final byte[] emptyRequest = DisconnectionRequest.newBuilder()
+            .setAccountIdentifier(UUIDUtil.toByteString(subscribedAccountIdentifier))
+            .build()
+            .toByteArray();
+
+        while (REDIS_CLUSTER_EXTENSION.getRedisCluster().withBinaryCluster(connection -> connection.sync()
+            .spublish(DisconnectionRequestManager.getShardedChannel(subscribedAccountIdentifier), emptyRequest)) == 0) {
+
+          Thread.sleep(10);
+        }
+      }
+    } finally {
+      unstartedDisconnectionRequestManager.stop();
+    }
+  }
+
+  @Test
+  void retryFailedShardedSubscription() {
+    @SuppressWarnings("unchecked") final RedisClusterPubSubAsyncCommands<byte[], byte[]> pubSubAsyncCommands =
+        mock(RedisClusterPubSubAsyncCommands.class);
+
+    when(pubSubAsyncCommands.ssubscribe(any()))
+        .thenReturn(MockRedisFuture.failedFuture(new RedisException("OH NO")))
+        .thenReturn(MockRedisFuture.failedFuture(new RedisException("OH NO")))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    final DisconnectionRequestManager mockRedisDisconnectionRequestManager =
+        buildMockRedisDisconnectionRequestManager(pubSubAsyncCommands);
+
+    mockRedisDisconnectionRequestManager.start();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    final CompletableFuture<Void> subscribedFuture = mockRedisDisconnectionRequestManager
+        .handleAuthenticatedConnectionEstablished(new AuthenticatedDevice(accountIdentifier, Device.PRIMARY_ID))
+        .toCompletableFuture();
+
+    verify(pubSubAsyncCommands, timeout(2_000).times(3))
+        .ssubscribe(DisconnectionRequestManager.getShardedChannel(accountIdentifier));
+
+    // The connection shouldn't proceed until the subscription is actually in place
+    assertDoesNotThrow(() -> subscribedFuture.get(2, TimeUnit.SECONDS));
+
+    // Once the subscription has succeeded, we shouldn't try again
+    verify(pubSubAsyncCommands, after(500).times(3)).ssubscribe(any());
+
+    mockRedisDisconnectionRequestManager.stop();
+  }
+
+  @Test
+  void abandonRetryForReleasedShardedSubscription() {
+    @SuppressWarnings("unchecked") final RedisClusterPubSubAsyncCommands<byte[], byte[]> pubSubAsyncCommands =
+        mock(RedisClusterPubSubAsyncCommands.class);
+
+    when(pubSubAsyncCommands.ssubscribe(any())).thenReturn(MockRedisFuture.failedFuture(new RedisException("OH NO")));
+    when(pubSubAsyncCommands.sunsubscribe(any())).thenReturn(MockRedisFuture.completedFuture(null));
+
+    final DisconnectionRequestManager mockRedisDisconnectionRequestManager =
+        buildMockRedisDisconnectionRequestManager(pubSubAsyncCommands);
+
+    mockRedisDisconnectionRequestManager.start();
+
+    final AuthenticatedDevice authenticatedDevice = new AuthenticatedDevice(UUID.randomUUID(), Device.PRIMARY_ID);
+
+    mockRedisDisconnectionRequestManager.handleAuthenticatedConnectionEstablished(authenticatedDevice);
+    mockRedisDisconnectionRequestManager.handleAuthenticatedConnectionClosed(authenticatedDevice);
+
+    // The connection went away before the first retry, so there's nothing left to subscribe to
+    verify(pubSubAsyncCommands, after(500).times(1)).ssubscribe(any());
+
+    mockRedisDisconnectionRequestManager.stop();
+  }
+
   @Test
   void requestDisconnection() {
     final UUID accountIdentifier = UUID.randomUUID();
@@ -145,4 +351,37 @@ class DisconnectionRequestManagerTest {
     verify(grpcClientConnectionManager, timeout(1_000))
         .closeConnection(new AuthenticatedDevice(accountIdentifier, linkedDeviceId));
   }
+
+  private DisconnectionRequestManager buildMockRedisDisconnectionRequestManager(
+      final RedisClusterPubSubAsyncCommands<byte[], byte[]> pubSubAsyncCommands) {
+
+    @SuppressWarnings("unchecked") final StatefulRedisClusterPubSubConnection<byte[], byte[]> pubSubConnection =
+        mock(StatefulRedisClusterPubSubConnection.class);
+
+    when(pubSubConnection.async()).thenReturn(pubSubAsyncCommands);
+
+    @SuppressWarnings("unchecked") final FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection =
+        mock(FaultTolerantPubSubClusterConnection.class);
+
+    doAnswer(invocation -> {
+      invocation.<Consumer<StatefulRedisClusterPubSubConnection<byte[], byte[]>>>getArgument(0).accept(pubSubConnection);
+      return null;
+    }).when(shardedPubSubConnection).usePubSubConnection(any());
+
+    final FaultTolerantRedisClusterClient clusterClient = mock(FaultTolerantRedisClusterClient.class);
+    when(clusterClient.createBinaryPubSubConnection()).thenReturn(shardedPubSubConnection);
+
+    @SuppressWarnings("unchecked") final FaultTolerantPubSubConnection<byte[], byte[]> globalPubSubConnection =
+        mock(FaultTolerantPubSubConnection.class);
+
+    final FaultTolerantRedisClient pubSubClient = mock(FaultTolerantRedisClient.class);
+    when(pubSubClient.createBinaryPubSubConnection()).thenReturn(globalPubSubConnection);
+
+    return new DisconnectionRequestManager(pubSubClient,
+        clusterClient,
+        grpcClientConnectionManager,
+        dynamicConfigurationManager,
+        Runnable::run,
+        Runnable::run);
+  }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.configuration.VerifiedCredentialCacheConfiguration;
+import org.whispersystems.textsecuregcm.storage.Device;
+
+class VerifiedCredentialCacheTest {
+
+  private VerifiedCredentialCache verifiedCredentialCache;
+
+  private static final UUID ACCOUNT_IDENTIFIER = UUID.randomUUID();
+  private static final byte DEVICE_ID = Device.PRIMARY_ID;
+
+  @BeforeEach
+  void setUp() {
+    verifiedCredentialCache =
+        new VerifiedCredentialCache(new VerifiedCredentialCacheConfiguration(true, 16, Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void verifyToken() {
+    final String token = "correct-horse-battery-staple";
+    final SaltedTokenHash saltedTokenHash = SaltedTokenHash.generateFor(token);
+
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, token));
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, token));
+    assertFalse(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "incorrect"));
+    assertFalse(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, (byte) (DEVICE_ID + 1),
+        SaltedTokenHash.generateFor("other"), token));
+  }
+
+  @Test
+  void verifyCached() {
+    final SaltedTokenHash saltedTokenHash = mock(SaltedTokenHash.class);
+    when(saltedTokenHash.hash()).thenReturn("hash");
+    when(saltedTokenHash.salt()).thenReturn("salt");
+    when(saltedTokenHash.verify("token")).thenReturn(true);
+
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "token"));
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "token"));
+
+    verify(saltedTokenHash, times(1)).verify("token");
+
+    verifiedCredentialCache.invalidate(ACCOUNT_IDENTIFIER, DEVICE_ID);
+
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "token"));
+    verify(saltedTokenHash, times(2)).verify("token");
+  }
+
+  @Test
+  void verifyCredentialsChanged() {
+    final String token = "correct-horse-battery-staple";
+
+    assertTrue(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, SaltedTokenHash.generateFor(token), token));
+
+    // A cached credential must not be honored once the device's stored credentials have changed
+    assertFalse(verifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID,
+        SaltedTokenHash.generateFor("new-password"), token));
+  }
+
+  @Test
+  void verifyDisabled() {
+    final VerifiedCredentialCache disabledVerifiedCredentialCache =
+        new VerifiedCredentialCache(new VerifiedCredentialCacheConfiguration(false, 16, Duration.ofMinutes(1)));
+
+    final SaltedTokenHash saltedTokenHash = mock(SaltedTokenHash.class);
+    when(saltedTokenHash.verify("token")).thenReturn(true);
+
+    assertTrue(disabledVerifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "token"));
+    assertTrue(disabledVerifiedCredentialCache.verify(ACCOUNT_IDENTIFIER, DEVICE_ID, saltedTokenHash, "token"));
+
+    verify(saltedTokenHash, times(2)).verify("token");
+  }
+}
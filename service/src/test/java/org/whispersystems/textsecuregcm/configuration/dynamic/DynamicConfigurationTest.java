@@ -371,6 +371,28 @@ class DynamicConfigurationTest {
 
       assertFalse(config.getMessagePersisterConfiguration().isPersistenceEnabled());
     }
+
+    {
+      final String messagePersisterMemoryPressureYaml = REQUIRED_CONFIG.concat("""
+          messagePersister:
+            persistQueueConcurrency: 8
+            memoryPressurePersistenceEnabled: true
+            memoryPressureWatermark: 0.7
+            memoryPressureQueueCountWatermark: 1000000
+            memoryPressurePersistDelay: PT30S
+          """);
+
+      final DynamicMessagePersisterConfiguration config =
+          DynamicConfigurationManager.parseConfiguration(messagePersisterMemoryPressureYaml, DynamicConfiguration.class)
+              .orElseThrow()
+              .getMessagePersisterConfiguration();
+
+      assertEquals(8, config.getPersistQueueConcurrency());
+      assertTrue(config.isMemoryPressurePersistenceEnabled());
+      assertEquals(0.7, config.getMemoryPressureWatermark());
+      assertEquals(1_000_000, config.getMemoryPressureQueueCountWatermark());
+      assertEquals(Duration.ofSeconds(30), config.getMemoryPressurePersistDelay());
+    }
   }
 
 }
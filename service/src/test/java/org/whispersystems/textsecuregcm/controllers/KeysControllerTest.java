@@ -38,7 +38,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -400,11 +402,9 @@ class KeysControllerTest {
         createSampleDevice((byte) 1, 2, 3),
         createSampleDevice((byte) 4, 5, 6));
     // device 1 is missing required prekeys, device 4 is missing an optional EC prekey
-    when(KEYS.takeDevicePreKeys(eq((byte) 4), eq(EXISTS_PNI_SERVICE_ID), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(
+    when(KEYS.takeAllDevicePreKeys(eq(List.of((byte) 1, (byte) 4)), eq(EXISTS_PNI_SERVICE_ID), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of((byte) 4,
             new KeysManager.DevicePreKeys(SAMPLE_SIGNED_PNI_KEY, Optional.empty(), SAMPLE_PQ_KEY_PNI))));
-    when(KEYS.takeDevicePreKeys(eq((byte) 1), eq(EXISTS_PNI_SERVICE_ID), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
     when(existsAccount.getDevice((byte) 1)).thenReturn(Optional.of(devices.get(0)));
     when(existsAccount.getDevice((byte) 4)).thenReturn(Optional.of(devices.get(1)));
@@ -535,6 +535,7 @@ class KeysControllerTest {
 
     final List<Device> devices = new ArrayList<>();
     final List<KeysManager.DevicePreKeys> devicePreKeys = new ArrayList<>();
+    final Map<Byte, KeysManager.DevicePreKeys> devicePreKeysById = new HashMap<>();
     for (int i = 0; i < 4; i++) {
       devices.add(createSampleDevice((byte) i, i + 100, i + 200));
 
@@ -543,12 +544,16 @@ class KeysControllerTest {
       final KEMSignedPreKey kemSignedPreKey = KeysHelper.signedKEMPreKey(i + 500, ECKeyPair.generate());
       devicePreKeys.add(new KeysManager.DevicePreKeys(signedEcPreKey, Optional.of(ecPreKey), kemSignedPreKey));
 
+      devicePreKeysById.put((byte) i, devicePreKeys.getLast());
+
       when(existsAccount.getDevice((byte) i)).thenReturn(Optional.of(devices.getLast()));
-      when(KEYS.takeDevicePreKeys(eq((byte) i), eq(serviceIdentifier), any()))
-          .thenReturn(CompletableFuture.completedFuture(Optional.of(devicePreKeys.getLast())));
     }
     when(existsAccount.getDevices()).thenReturn(devices);
 
+    final List<Byte> deviceIds = List.of((byte) 0, (byte) 1, (byte) 2, (byte) 3);
+    when(KEYS.takeAllDevicePreKeys(eq(deviceIds), eq(serviceIdentifier), any()))
+        .thenReturn(CompletableFuture.completedFuture(devicePreKeysById));
+
     PreKeyResponse results = resources.getJerseyTest()
         .target(String.format("/v2/keys/%s/*", serviceIdentifier.toServiceIdentifierString()))
         .request()
@@ -567,9 +572,9 @@ class KeysControllerTest {
       assertEquals(expectedPreKeys.ecPreKey().orElseThrow(), result.getPreKey());
       assertEquals(expectedPreKeys.ecSignedPreKey(), result.getSignedPreKey());
       assertEquals(expectedPreKeys.kemSignedPreKey(), result.getPqPreKey());
-
-      verify(KEYS).takeDevicePreKeys(eq((byte) i), eq(serviceIdentifier), any());
     }
+
+    verify(KEYS).takeAllDevicePreKeys(eq(deviceIds), eq(serviceIdentifier), any());
     verifyNoMoreInteractions(KEYS);
   }
 
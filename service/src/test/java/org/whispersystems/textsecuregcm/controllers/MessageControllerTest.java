@@ -48,7 +48,9 @@ import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -106,6 +108,7 @@ import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.MessageDeletionCoalescer;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import org.whispersystems.textsecuregcm.storage.PhoneNumberIdentifiers;
 import org.whispersystems.textsecuregcm.storage.RemovedMessage;
@@ -168,6 +171,7 @@ class MessageControllerTest {
   private static final ReceiptSender receiptSender = mock(ReceiptSender.class);
   private static final AccountsManager accountsManager = mock(AccountsManager.class);
   private static final MessagesManager messagesManager = mock(MessagesManager.class);
+  private static final MessageDeletionCoalescer messageDeletionCoalescer = mock(MessageDeletionCoalescer.class);
   private static final RateLimiters rateLimiters = mock(RateLimiters.class);
   private static final CardinalityEstimator cardinalityEstimator = mock(CardinalityEstimator.class);
   private static final RateLimiter rateLimiter = mock(RateLimiter.class);
@@ -193,8 +197,8 @@ class MessageControllerTest {
       .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
       .addResource(
           new MessageController(rateLimiters, cardinalityEstimator, messageSender, receiptSender, accountsManager,
-              messagesManager, phoneNumberIdentifiers, pushNotificationManager, pushNotificationScheduler,
-              reportMessageManager, messageDeliveryScheduler, mock(ClientReleaseManager.class),
+              messagesManager, messageDeletionCoalescer, phoneNumberIdentifiers, pushNotificationManager,
+              pushNotificationScheduler, reportMessageManager, messageDeliveryScheduler, mock(ClientReleaseManager.class),
               serverSecretParams, SpamChecker.noop(), new MessageMetrics(), mock(MessageDeliveryLoopMonitor.class),
               clock))
       .build();
@@ -236,6 +240,19 @@ class MessageControllerTest {
     when(accountsManager.getByServiceIdentifierAsync(MULTI_DEVICE_PNI_ID)).thenReturn(CompletableFuture.completedFuture(Optional.of(multiDeviceAccount)));
     when(accountsManager.getByServiceIdentifierAsync(new AciServiceIdentifier(INTERNATIONAL_UUID))).thenReturn(CompletableFuture.completedFuture(Optional.of(internationalAccount)));
 
+    // Resolve recipients in bulk using whatever individual lookups the test has configured
+    when(accountsManager.getByServiceIdentifiers(any())).thenAnswer(invocation -> {
+      final Collection<ServiceIdentifier> serviceIdentifiers = invocation.getArgument(0);
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+        accountsManager.getByServiceIdentifierAsync(serviceIdentifier).join()
+            .ifPresent(account -> accountsByServiceIdentifier.put(serviceIdentifier, account));
+      }
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
+
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID)).thenReturn(Optional.of(AuthHelper.VALID_ACCOUNT));
     when(accountsManager.getByAccountIdentifierAsync(AuthHelper.VALID_UUID))
         .thenReturn(CompletableFuture.completedFuture(Optional.of(AuthHelper.VALID_ACCOUNT)));
@@ -272,6 +289,7 @@ class MessageControllerTest {
         receiptSender,
         accountsManager,
         messagesManager,
+        messageDeletionCoalescer,
         rateLimiters,
         rateLimiter,
         cardinalityEstimator,
@@ -807,7 +825,7 @@ class MessageControllerTest {
     UUID uuid1 = UUID.randomUUID();
 
     final long serverTimestamp = 0;
-    when(messagesManager.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid1, null))
+    when(messageDeletionCoalescer.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid1))
         .thenReturn(
             CompletableFutureTestUtil.almostCompletedFuture(Optional.of(
                 new RemovedMessage(Optional.of(new AciServiceIdentifier(sourceUuid)),
@@ -815,7 +833,7 @@ class MessageControllerTest {
                     Envelope.Type.CIPHERTEXT))));
 
     UUID uuid2 = UUID.randomUUID();
-    when(messagesManager.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid2, null))
+    when(messageDeletionCoalescer.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid2))
         .thenReturn(
             CompletableFutureTestUtil.almostCompletedFuture(Optional.of(
                 new RemovedMessage(Optional.of(new AciServiceIdentifier(sourceUuid)),
@@ -823,11 +841,11 @@ class MessageControllerTest {
                     Envelope.Type.SERVER_DELIVERY_RECEIPT))));
 
     UUID uuid3 = UUID.randomUUID();
-    when(messagesManager.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid3, null))
+    when(messageDeletionCoalescer.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid3))
         .thenReturn(CompletableFutureTestUtil.almostCompletedFuture(Optional.empty()));
 
     UUID uuid4 = UUID.randomUUID();
-    when(messagesManager.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid4, null))
+    when(messageDeletionCoalescer.delete(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE, uuid4))
         .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Oh No")));
 
     try (final Response response = resources.getJerseyTest()
@@ -39,7 +39,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
@@ -221,6 +223,17 @@ class ProfileControllerTest {
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID)).thenReturn(Optional.of(capabilitiesAccount));
     when(accountsManager.getByServiceIdentifier(new AciServiceIdentifier(AuthHelper.VALID_UUID))).thenReturn(Optional.of(capabilitiesAccount));
 
+    // Resolve bulk lookups using the same stubs as individual lookups
+    when(accountsManager.getByServiceIdentifiers(any())).thenAnswer(invocation -> {
+      final Collection<ServiceIdentifier> serviceIdentifiers = invocation.getArgument(0);
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      serviceIdentifiers.forEach(serviceIdentifier -> accountsManager.getByServiceIdentifier(serviceIdentifier)
+          .ifPresent(account -> accountsByServiceIdentifier.put(serviceIdentifier, account)));
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
+
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID_TWO)).thenReturn(Optional.of(AuthHelper.VALID_ACCOUNT_TWO));
 
     final byte[] name = TestRandomUtil.nextBytes(81);
@@ -231,6 +244,9 @@ class ProfileControllerTest {
     when(profilesManager.get(eq(AuthHelper.VALID_UUID), eq(versionHex("someversion")))).thenReturn(Optional.empty());
     when(profilesManager.get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")))).thenReturn(Optional.of(new VersionedProfile(
         versionHex("validversion"), name, "profiles/validavatar", emoji, about, null, phoneNumberSharing, "validcommitment".getBytes())));
+    when(profilesManager.getForUpdate(eq(AuthHelper.VALID_UUID), eq(versionHex("someversion")))).thenReturn(Optional.empty());
+    when(profilesManager.getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")))).thenReturn(Optional.of(new VersionedProfile(
+        versionHex("validversion"), name, "profiles/validavatar", emoji, about, null, phoneNumberSharing, "validcommitment".getBytes())));
 
     when(profilesManager.deleteAvatar(anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
@@ -471,7 +487,7 @@ class ProfileControllerTest {
 
     final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-    verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID), eq(versionHex("someversion")));
+    verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID), eq(versionHex("someversion")));
     verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID), profileArgumentCaptor.capture());
 
     verifyNoMoreInteractions(profilesManager);
@@ -520,7 +536,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("anotherversion")));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("anotherversion")));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
 
       verifyNoMoreInteractions(profilesManager);
@@ -550,7 +566,7 @@ class ProfileControllerTest {
 
     final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-    verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
+    verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
     verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
     verify(profilesManager, times(1)).deleteAvatar("profiles/validavatar");
 
@@ -579,7 +595,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
       verify(profilesManager, times(1)).deleteAvatar(eq("profiles/validavatar"));
 
@@ -609,7 +625,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
       verify(profilesManager, never()).deleteAvatar(anyString());
 
@@ -637,7 +653,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(versionHex("validversion")));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
       verify(profilesManager, times(1)).deleteAvatar(eq("profiles/validavatar"));
 
@@ -667,7 +683,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID), eq(version));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID), eq(version));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID), profileArgumentCaptor.capture());
       verify(profilesManager, never()).deleteAvatar(anyString());
 
@@ -698,7 +714,7 @@ class ProfileControllerTest {
 
     final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-    verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(version));
+    verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(version));
     verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
     verify(profilesManager, times(1)).deleteAvatar("profiles/validavatar");
 
@@ -735,7 +751,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(version));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(version));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
 
       verifyNoMoreInteractions(profilesManager);
@@ -775,7 +791,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager).get(eq(AuthHelper.VALID_UUID_TWO), eq(version));
+      verify(profilesManager).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(version));
       verify(profilesManager).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
 
       verifyNoMoreInteractions(profilesManager);
@@ -833,7 +849,7 @@ class ProfileControllerTest {
 
     clearInvocations(AuthHelper.VALID_ACCOUNT_TWO);
 
-    when(profilesManager.get(eq(AuthHelper.VALID_UUID_TWO), any()))
+    when(profilesManager.getForUpdate(eq(AuthHelper.VALID_UUID_TWO), any()))
         .thenReturn(Optional.of(
             new VersionedProfile("1", name, null, null, null,
                 existingPaymentAddressOnProfile ? TestRandomUtil.nextBytes(582) : null,
@@ -856,7 +872,7 @@ class ProfileControllerTest {
 
         final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-        verify(profilesManager).get(eq(AuthHelper.VALID_UUID_TWO), eq(version));
+        verify(profilesManager).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(version));
         verify(profilesManager).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
 
         verifyNoMoreInteractions(profilesManager);
@@ -899,7 +915,7 @@ class ProfileControllerTest {
 
       final ArgumentCaptor<VersionedProfile> profileArgumentCaptor = ArgumentCaptor.forClass(VersionedProfile.class);
 
-      verify(profilesManager, times(1)).get(eq(AuthHelper.VALID_UUID_TWO), eq(version));
+      verify(profilesManager, times(1)).getForUpdate(eq(AuthHelper.VALID_UUID_TWO), eq(version));
       verify(profilesManager, times(1)).set(eq(AuthHelper.VALID_UUID_TWO), profileArgumentCaptor.capture());
 
       verifyNoMoreInteractions(profilesManager);
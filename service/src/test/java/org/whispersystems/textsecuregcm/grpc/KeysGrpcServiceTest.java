@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -28,6 +29,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -525,6 +527,10 @@ class KeysGrpcServiceTest extends SimpleBaseGrpcTest<KeysGrpcService, KeysGrpc.K
         eq(serviceIdentifier), any()))
         .thenReturn(CompletableFuture.completedFuture(Optional.of(preKeys))));
 
+    when(keysManager.takeAllDevicePreKeys(argThat(deviceIds -> Set.copyOf(deviceIds).equals(devicePreKeysMap.keySet())),
+        eq(serviceIdentifier), any()))
+        .thenReturn(CompletableFuture.completedFuture(devicePreKeysMap));
+
     {
       final GetPreKeysResponse response = authenticatedServiceStub().getPreKeys(GetPreKeysRequest.newBuilder()
           .setTargetIdentifier(ServiceIdentifier.newBuilder()
@@ -25,6 +25,8 @@ import io.grpc.Status;
 import io.grpc.StatusException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -125,6 +127,19 @@ class MessagesAnonymousGrpcServiceTest extends
     when(accountsManager.getByServiceIdentifierAsync(any()))
         .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
+    // Resolve recipients in bulk using whatever individual lookups the test has configured
+    when(accountsManager.getByServiceIdentifiers(any())).thenAnswer(invocation -> {
+      final Collection<ServiceIdentifier> serviceIdentifiers = invocation.getArgument(0);
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+        accountsManager.getByServiceIdentifierAsync(serviceIdentifier).join()
+            .ifPresent(account -> accountsByServiceIdentifier.put(serviceIdentifier, account));
+      }
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
+
     when(rateLimiters.getInboundMessageBytes()).thenReturn(rateLimiter);
     when(rateLimiters.getStoriesLimiter()).thenReturn(rateLimiter);
 
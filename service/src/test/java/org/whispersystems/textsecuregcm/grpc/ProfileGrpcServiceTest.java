@@ -265,7 +265,7 @@ public class ProfileGrpcServiceTest extends SimpleBaseGrpcTest<ProfileGrpcServic
 
     when(profile.avatar()).thenReturn(currentAvatar);
 
-    when(profilesManager.get(any(), anyString())).thenReturn(hasPreviousProfile ? Optional.of(profile) : Optional.empty());
+    when(profilesManager.getForUpdate(any(), anyString())).thenReturn(hasPreviousProfile ? Optional.of(profile) : Optional.empty());
 
     final SetProfileResponse response = authenticatedServiceStub().setProfile(request);
 
@@ -370,7 +370,7 @@ public class ProfileGrpcServiceTest extends SimpleBaseGrpcTest<ProfileGrpcServic
     when(account.getNumber()).thenReturn(PhoneNumberUtil.getInstance().format(
         disallowedPhoneNumber,
         PhoneNumberUtil.PhoneNumberFormat.E164));
-    when(profilesManager.get(any(), anyString())).thenReturn(Optional.of(profile));
+    when(profilesManager.getForUpdate(any(), anyString())).thenReturn(Optional.of(profile));
 
     if (hasExistingPaymentAddress) {
       assertDoesNotThrow(() -> authenticatedServiceStub().setProfile(request),
@@ -215,6 +215,21 @@ abstract class AbstractNoiseHandlerTest extends AbstractLeakDetectionTest {
     assertArrayEquals("pong".getBytes(StandardCharsets.UTF_8), response);
   }
 
+  @Test
+  void channelReadDirectBuffer() throws Throwable {
+    final CipherStatePair clientCipherStatePair = doHandshake();
+    final byte[] plaintext = "ping".getBytes(StandardCharsets.UTF_8);
+    final byte[] ciphertext = new byte[plaintext.length + clientCipherStatePair.getSender().getMACLength()];
+    clientCipherStatePair.getSender().encryptWithAd(null, plaintext, 0, ciphertext, 0, plaintext.length);
+
+    final ByteBuf ciphertextFrame = Unpooled.directBuffer(ciphertext.length).writeBytes(ciphertext);
+    assertTrue(embeddedChannel.writeOneInbound(ciphertextFrame).await().isSuccess());
+    assertEquals(0, ciphertextFrame.refCnt());
+
+    final byte[] response = readNextPlaintext(clientCipherStatePair);
+    assertArrayEquals("pong".getBytes(StandardCharsets.UTF_8), response);
+  }
+
   @Test
   void channelReadBadCiphertext() throws Throwable {
     doHandshake();
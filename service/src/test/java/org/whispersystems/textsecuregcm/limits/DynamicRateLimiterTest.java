@@ -6,11 +6,16 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.lettuce.core.ScriptOutputType;
@@ -83,6 +88,127 @@ class DynamicRateLimiterTest {
     assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
   }
 
+  @Test
+  void validateLocalLease() {
+    final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(
+        "test",
+        () -> new RateLimiterConfig(10, Duration.ofHours(1), false, 5),
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        CLOCK);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    for (int i = 0; i < DynamicRateLimiter.LEASE_REQUEST_THRESHOLD; i++) {
+      assertDoesNotThrow(() -> rateLimiter.validate(key));
+    }
+
+    // Requests below the threshold should have taken only what they needed, and the request that reached the threshold
+    // should have leased a whole block of permits from the shared bucket; permits left in the local lease still count
+    // as available
+    final int expectedAvailablePermits = 10 - DynamicRateLimiter.LEASE_REQUEST_THRESHOLD;
+    assertTrue(rateLimiter.hasAvailablePermits(key, expectedAvailablePermits));
+    assertFalse(rateLimiter.hasAvailablePermits(key, expectedAvailablePermits + 1));
+    assertTrue(rateLimiter.hasAvailablePermitsAsync(key, expectedAvailablePermits).toCompletableFuture().join());
+    assertFalse(rateLimiter.hasAvailablePermitsAsync(key, expectedAvailablePermits + 1).toCompletableFuture().join());
+
+    for (int i = 0; i < 10 - DynamicRateLimiter.LEASE_REQUEST_THRESHOLD; i++) {
+      assertDoesNotThrow(() -> rateLimiter.validate(key));
+    }
+
+    assertFalse(rateLimiter.hasAvailablePermits(key, 1));
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate(key));
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate(key));
+
+    CLOCK.pin(CLOCK.instant().plus(Duration.ofHours(1)));
+    assertDoesNotThrow(() -> rateLimiter.validate(key));
+  }
+
+  @Test
+  void validateLocalLeaseAsync() {
+    final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(
+        "test",
+        () -> new RateLimiterConfig(10, Duration.ofHours(1), false, 5),
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        CLOCK);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    for (int i = 0; i < 10; i++) {
+      assertDoesNotThrow(() -> rateLimiter.validateAsync(key).toCompletableFuture().join());
+    }
+
+    assertFalse(rateLimiter.hasAvailablePermits(key, 1));
+
+    final CompletionException completionException =
+        assertThrows(CompletionException.class, () -> rateLimiter.validateAsync(key).toCompletableFuture().join());
+
+    assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void validateLocalLeaseRejected(final boolean async) {
+    final ClusterLuaScript spiedValidateRateLimitScript = spy(validateRateLimitScript);
+
+    final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(
+        "test",
+        () -> new RateLimiterConfig(10, Duration.ofHours(1), false, 5),
+        spiedValidateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        CLOCK);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    // Take a lease and use all of it, then make one more request; the bucket in Redis can satisfy that request, but
+    // doesn't have enough permits left for another lease
+    for (int i = 0; i < DynamicRateLimiter.LEASE_REQUEST_THRESHOLD + 4 + 1; i++) {
+      if (async) {
+        assertDoesNotThrow(() -> rateLimiter.validateAsync(key).toCompletableFuture().join());
+      } else {
+        assertDoesNotThrow(() -> rateLimiter.validate(key));
+      }
+    }
+
+    clearInvocations(spiedValidateRateLimitScript);
+
+    if (async) {
+      assertDoesNotThrow(() -> rateLimiter.validateAsync(key).toCompletableFuture().join());
+      verify(spiedValidateRateLimitScript, times(1)).executeAsync(any(), any());
+    } else {
+      assertDoesNotThrow(() -> rateLimiter.validate(key));
+      verify(spiedValidateRateLimitScript, times(1)).execute(any(), any());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void validateLocalLeaseLowRate(final boolean async) {
+    final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(
+        "test",
+        () -> new RateLimiterConfig(10, Duration.ofDays(1), false, 5),
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        CLOCK);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    // A caller that never makes enough requests to justify a lease should never be charged for unused leased permits
+    for (int i = 0; i < 10; i++) {
+      if (async) {
+        assertDoesNotThrow(() -> rateLimiter.validateAsync(key).toCompletableFuture().join());
+      } else {
+        assertDoesNotThrow(() -> rateLimiter.validate(key));
+      }
+
+      CLOCK.pin(CLOCK.instant().plus(DynamicRateLimiter.LOCAL_LEASE_DURATION).plusSeconds(1));
+    }
+
+    assertFalse(rateLimiter.hasAvailablePermits(key, 1));
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate(key));
+  }
+
   @ParameterizedTest
   @ValueSource(booleans = {true, false})
   void validateFailOpen(final boolean failOpen) {
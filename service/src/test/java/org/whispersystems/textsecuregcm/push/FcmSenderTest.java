@@ -10,23 +10,33 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.core.SettableApiFuture;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.configuration.FcmBatchingConfiguration;
 import org.whispersystems.textsecuregcm.tests.util.SynchronousExecutorService;
 
 class FcmSenderTest {
@@ -124,4 +134,173 @@ class FcmSenderTest {
     verify(firebaseMessaging).sendAsync(any(Message.class));
     assertTrue(completionException.getCause() instanceof IOException);
   }
+
+  @Test
+  void testSendBatch() {
+    final FcmSender batchingFcmSender = new FcmSender(executorService, firebaseMessaging,
+        new FcmBatchingConfiguration(true, Duration.ofMinutes(1), 500, 1, 16));
+
+    final SendResponse acceptedResponse = mock(SendResponse.class);
+    when(acceptedResponse.isSuccessful()).thenReturn(true);
+
+    final FirebaseMessagingException unregisteredException = mock(FirebaseMessagingException.class);
+    when(unregisteredException.getMessagingErrorCode()).thenReturn(MessagingErrorCode.UNREGISTERED);
+
+    final SendResponse unregisteredResponse = mock(SendResponse.class);
+    when(unregisteredResponse.isSuccessful()).thenReturn(false);
+    when(unregisteredResponse.getException()).thenReturn(unregisteredException);
+
+    final BatchResponse batchResponse = mock(BatchResponse.class);
+    when(batchResponse.getResponses()).thenReturn(List.of(acceptedResponse, unregisteredResponse));
+
+    final SettableApiFuture<BatchResponse> sendFuture = SettableApiFuture.create();
+    sendFuture.set(batchResponse);
+
+    when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(sendFuture);
+
+    final CompletableFuture<SendPushNotificationResult> firstFooFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, false));
+
+    final CompletableFuture<SendPushNotificationResult> secondFooFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    final CompletableFuture<SendPushNotificationResult> barFuture = batchingFcmSender.sendNotification(
+        new PushNotification("bar", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, false));
+
+    // Nothing should be sent until the batch window closes
+    verify(firebaseMessaging, never()).sendEachAsync(anyList());
+    assertFalse(firstFooFuture.isDone());
+
+    batchingFcmSender.flushPendingNotifications();
+
+    // The two notifications for "foo" should have been coalesced into a single message
+    verify(firebaseMessaging).sendEachAsync(argThat(messages -> messages.size() == 2));
+    verify(firebaseMessaging, never()).sendAsync(any());
+
+    assertTrue(firstFooFuture.join().accepted());
+    assertTrue(secondFooFuture.join().accepted());
+
+    final SendPushNotificationResult barResult = barFuture.join();
+    assertFalse(barResult.accepted());
+    assertEquals(Optional.of("UNREGISTERED"), barResult.errorCode());
+    assertTrue(barResult.unregistered());
+  }
+
+  @Test
+  void testSendBatchFull() {
+    final FcmSender batchingFcmSender = new FcmSender(executorService, firebaseMessaging,
+        new FcmBatchingConfiguration(true, Duration.ofMinutes(1), 2, 1, 16));
+
+    final SendResponse acceptedResponse = mock(SendResponse.class);
+    when(acceptedResponse.isSuccessful()).thenReturn(true);
+
+    final BatchResponse batchResponse = mock(BatchResponse.class);
+    when(batchResponse.getResponses()).thenReturn(List.of(acceptedResponse, acceptedResponse));
+
+    final SettableApiFuture<BatchResponse> sendFuture = SettableApiFuture.create();
+    sendFuture.set(batchResponse);
+
+    when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(sendFuture);
+
+    final CompletableFuture<SendPushNotificationResult> fooFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    final CompletableFuture<SendPushNotificationResult> barFuture = batchingFcmSender.sendNotification(
+        new PushNotification("bar", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    // A full batch should be sent immediately without waiting for the batch window to close
+    verify(firebaseMessaging).sendEachAsync(argThat(messages -> messages.size() == 2));
+
+    assertTrue(fooFuture.join().accepted());
+    assertTrue(barFuture.join().accepted());
+  }
+
+  @Test
+  void testSendBatchResponseCountMismatch() {
+    final FcmSender batchingFcmSender = new FcmSender(executorService, firebaseMessaging,
+        new FcmBatchingConfiguration(true, Duration.ofMinutes(1), 2, 1, 16));
+
+    final SendResponse acceptedResponse = mock(SendResponse.class);
+    when(acceptedResponse.isSuccessful()).thenReturn(true);
+
+    final BatchResponse batchResponse = mock(BatchResponse.class);
+    when(batchResponse.getResponses()).thenReturn(List.of(acceptedResponse));
+
+    final SettableApiFuture<BatchResponse> sendFuture = SettableApiFuture.create();
+    sendFuture.set(batchResponse);
+
+    when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(sendFuture);
+
+    final CompletableFuture<SendPushNotificationResult> fooFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    final CompletableFuture<SendPushNotificationResult> barFuture = batchingFcmSender.sendNotification(
+        new PushNotification("bar", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    assertTrue(assertThrows(CompletionException.class, fooFuture::join).getCause() instanceof IllegalStateException);
+    assertTrue(assertThrows(CompletionException.class, barFuture::join).getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void testSendBatchTooManyQueued() {
+    final FcmSender batchingFcmSender = new FcmSender(executorService, firebaseMessaging,
+        new FcmBatchingConfiguration(true, Duration.ofMinutes(1), 1, 1, 1));
+
+    final SendResponse acceptedResponse = mock(SendResponse.class);
+    when(acceptedResponse.isSuccessful()).thenReturn(true);
+
+    final BatchResponse batchResponse = mock(BatchResponse.class);
+    when(batchResponse.getResponses()).thenReturn(List.of(acceptedResponse));
+
+    // Don't complete the first batch until the other batches have been enqueued
+    final SettableApiFuture<BatchResponse> sendFuture = SettableApiFuture.create();
+    when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(sendFuture);
+
+    final CompletableFuture<SendPushNotificationResult> inFlightFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    final CompletableFuture<SendPushNotificationResult> queuedFuture = batchingFcmSender.sendNotification(
+        new PushNotification("bar", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    final CompletableFuture<SendPushNotificationResult> rejectedFuture = batchingFcmSender.sendNotification(
+        new PushNotification("baz", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    assertTrue(assertThrows(CompletionException.class, rejectedFuture::join).getCause()
+        instanceof RejectedExecutionException);
+
+    assertFalse(inFlightFuture.isDone());
+    assertFalse(queuedFuture.isDone());
+
+    sendFuture.set(batchResponse);
+
+    assertTrue(inFlightFuture.join().accepted());
+    assertTrue(queuedFuture.join().accepted());
+  }
+
+  @Test
+  void testStopFlushesPendingNotifications() throws InterruptedException {
+    final FcmSender batchingFcmSender = new FcmSender(executorService, firebaseMessaging,
+        new FcmBatchingConfiguration(true, Duration.ofMinutes(1), 500, 1, 16));
+
+    final SendResponse acceptedResponse = mock(SendResponse.class);
+    when(acceptedResponse.isSuccessful()).thenReturn(true);
+
+    final BatchResponse batchResponse = mock(BatchResponse.class);
+    when(batchResponse.getResponses()).thenReturn(List.of(acceptedResponse));
+
+    final SettableApiFuture<BatchResponse> sendFuture = SettableApiFuture.create();
+    sendFuture.set(batchResponse);
+
+    when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(sendFuture);
+
+    final CompletableFuture<SendPushNotificationResult> fooFuture = batchingFcmSender.sendNotification(
+        new PushNotification("foo", PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, null, null, true));
+
+    verify(firebaseMessaging, never()).sendEachAsync(anyList());
+
+    batchingFcmSender.stop();
+
+    verify(firebaseMessaging).sendEachAsync(argThat(messages -> messages.size() == 1));
+    assertTrue(fooFuture.join().accepted());
+  }
 }
@@ -5,7 +5,9 @@
 
 package org.whispersystems.textsecuregcm.push;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -35,6 +37,7 @@ class PushNotificationManagerTest {
   private APNSender apnSender;
   private FcmSender fcmSender;
   private PushNotificationScheduler pushNotificationScheduler;
+  private PushNotificationSuppressor pushNotificationSuppressor;
 
   private PushNotificationManager pushNotificationManager;
 
@@ -44,11 +47,19 @@ class PushNotificationManagerTest {
     apnSender = mock(APNSender.class);
     fcmSender = mock(FcmSender.class);
     pushNotificationScheduler = mock(PushNotificationScheduler.class);
+    pushNotificationSuppressor = mock(PushNotificationSuppressor.class);
+
+    when(pushNotificationSuppressor.tryAcquireNotification(any(), any(), anyBoolean()))
+        .thenReturn(CompletableFuture.completedFuture(true));
+
+    when(pushNotificationSuppressor.clear(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(pushNotificationSuppressor.release(any(), any(), anyBoolean()))
+        .thenReturn(CompletableFuture.completedFuture(null));
 
     AccountsHelper.setupMockUpdate(accountsManager);
 
     pushNotificationManager = new PushNotificationManager(accountsManager, apnSender, fcmSender,
-        pushNotificationScheduler);
+        pushNotificationScheduler, pushNotificationSuppressor);
   }
 
   @Test
@@ -68,6 +79,63 @@ class PushNotificationManagerTest {
     verify(fcmSender).sendNotification(new PushNotification(deviceToken, PushNotification.TokenType.FCM, PushNotification.NotificationType.NOTIFICATION, null, account, device, true));
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void sendNewMessageNotificationSuppressed(final boolean urgent) throws NotPushRegisteredException {
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+    when(device.getGcmId()).thenReturn("token");
+    when(account.getDevice(Device.PRIMARY_ID)).thenReturn(Optional.of(device));
+
+    when(pushNotificationSuppressor.tryAcquireNotification(account, device, urgent))
+        .thenReturn(CompletableFuture.completedFuture(false));
+
+    assertEquals(Optional.empty(),
+        pushNotificationManager.sendNewMessageNotification(account, Device.PRIMARY_ID, urgent).join());
+
+    verifyNoInteractions(fcmSender);
+    verifyNoInteractions(pushNotificationScheduler);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void sendNewUrgentMessageNotificationReleaseSuppression(final boolean rejected) throws NotPushRegisteredException {
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+    when(device.getGcmId()).thenReturn("token");
+    when(account.getDevice(Device.PRIMARY_ID)).thenReturn(Optional.of(device));
+
+    when(fcmSender.sendNotification(any())).thenReturn(rejected
+        ? CompletableFuture.completedFuture(
+            new SendPushNotificationResult(false, Optional.of("error"), false, Optional.empty()))
+        : CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    pushNotificationManager.sendNewMessageNotification(account, Device.PRIMARY_ID, true);
+
+    verify(pushNotificationSuppressor).release(account, device, true);
+  }
+
+  @Test
+  void sendNewUrgentMessageNotificationAccepted() throws NotPushRegisteredException {
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+    when(device.getGcmId()).thenReturn("token");
+    when(account.getDevice(Device.PRIMARY_ID)).thenReturn(Optional.of(device));
+
+    when(fcmSender.sendNotification(any()))
+        .thenReturn(CompletableFuture.completedFuture(new SendPushNotificationResult(true, Optional.empty(), false, Optional.empty())));
+
+    pushNotificationManager.sendNewMessageNotification(account, Device.PRIMARY_ID, true).join();
+
+    verify(pushNotificationSuppressor, never()).release(any(), any(), anyBoolean());
+  }
+
   @Test
   void sendNewNonUrgentMessageNotification() throws NotPushRegisteredException {
     final Account account = mock(Account.class);
@@ -312,5 +380,6 @@ class PushNotificationManagerTest {
     pushNotificationManager.handleMessagesRetrieved(account, device, userAgent);
 
     verify(pushNotificationScheduler).cancelScheduledNotifications(account, device);
+    verify(pushNotificationSuppressor).clear(account, device);
   }
 }
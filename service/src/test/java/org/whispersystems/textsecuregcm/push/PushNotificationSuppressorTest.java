@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPushNotificationSuppressionConfiguration;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.util.TestClock;
+
+class PushNotificationSuppressorTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private Account account;
+  private Device device;
+  private DynamicConfiguration dynamicConfiguration;
+  private TestClock clock;
+
+  private PushNotificationSuppressor pushNotificationSuppressor;
+
+  @BeforeEach
+  void setUp() {
+    account = mock(Account.class);
+    when(account.getIdentifier(IdentityType.ACI)).thenReturn(UUID.randomUUID());
+
+    device = mock(Device.class);
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+
+    dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getPushNotificationSuppressionConfiguration())
+        .thenReturn(new DynamicPushNotificationSuppressionConfiguration(true, Duration.ofMinutes(1), true));
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    clock = TestClock.pinned(Instant.now());
+
+    pushNotificationSuppressor = new PushNotificationSuppressor(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        dynamicConfigurationManager, clock);
+  }
+
+  @Test
+  void tryAcquireNotification() {
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertFalse(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+
+    // Suppression windows are tracked separately for each urgency
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+    assertFalse(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+
+    // Suppression state should survive once the local copy is no longer trusted
+    clock.pin(clock.instant().plusSeconds(5));
+    assertFalse(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+  }
+
+  @Test
+  void clear() {
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+
+    pushNotificationSuppressor.clear(account, device).join();
+
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+  }
+
+  @Test
+  void tryAcquireNotificationUrgentSuppressionDisabled() {
+    when(dynamicConfiguration.getPushNotificationSuppressionConfiguration())
+        .thenReturn(new DynamicPushNotificationSuppressionConfiguration(true, Duration.ofMinutes(1), false));
+
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+    assertFalse(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+  }
+
+  @Test
+  void release() {
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+
+    pushNotificationSuppressor.release(account, device, true).join();
+
+    // Only the released window should end
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertFalse(pushNotificationSuppressor.tryAcquireNotification(account, device, false).join());
+  }
+
+  @Test
+  void tryAcquireNotificationDisabled() {
+    when(dynamicConfiguration.getPushNotificationSuppressionConfiguration())
+        .thenReturn(new DynamicPushNotificationSuppressionConfiguration(false, Duration.ofMinutes(1), true));
+
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+    assertTrue(pushNotificationSuppressor.tryAcquireNotification(account, device, true).join());
+  }
+}
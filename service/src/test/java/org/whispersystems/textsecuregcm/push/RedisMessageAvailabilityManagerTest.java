@@ -5,11 +5,13 @@
 
 package org.whispersystems.textsecuregcm.push;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -18,8 +20,10 @@ import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.cluster.pubsub.api.async.RedisClusterPubSubAsyncCommands;
 import io.lettuce.core.cluster.pubsub.api.sync.RedisClusterPubSubCommands;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -274,4 +278,54 @@ class RedisMessageAvailabilityManagerTest {
     verify(pubSubAsyncCommands)
         .sunsubscribe(RedisMessageAvailabilityManager.getClientEventChannel(noListenerAccountIdentifier, noListenerDeviceId));
   }
+
+  @Test
+  void coalesceSubscriptionChanges() {
+    @SuppressWarnings("unchecked") final RedisClusterPubSubAsyncCommands<byte[], byte[]> pubSubAsyncCommands =
+        mock(RedisClusterPubSubAsyncCommands.class);
+
+    when(pubSubAsyncCommands.ssubscribe(any())).thenReturn(MockRedisFuture.completedFuture(null));
+    when(pubSubAsyncCommands.sunsubscribe(any())).thenReturn(MockRedisFuture.completedFuture(null));
+
+    final FaultTolerantRedisClusterClient clusterClient = RedisClusterHelper.builder()
+        .binaryPubSubAsyncCommands(pubSubAsyncCommands)
+        .build();
+
+    final List<Runnable> queuedTasks = new ArrayList<>();
+
+    final RedisMessageAvailabilityManager eventManager = new RedisMessageAvailabilityManager(
+        clusterClient,
+        Runnable::run,
+        queuedTasks::add);
+
+    eventManager.start();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = Device.PRIMARY_ID;
+    final byte[] eventChannel = RedisMessageAvailabilityManager.getClientEventChannel(accountIdentifier, deviceId);
+
+    final CompletableFuture<Void> firstConnectFuture =
+        eventManager.handleClientConnected(accountIdentifier, deviceId, new MessageAvailabilityAdapter())
+            .toCompletableFuture();
+
+    final CompletableFuture<Void> disconnectFuture =
+        eventManager.handleClientDisconnected(accountIdentifier, deviceId).toCompletableFuture();
+
+    final CompletableFuture<Void> secondConnectFuture =
+        eventManager.handleClientConnected(accountIdentifier, deviceId, new MessageAvailabilityAdapter())
+            .toCompletableFuture();
+
+    // All three changes should be picked up by a single processing task
+    assertEquals(1, queuedTasks.size());
+    queuedTasks.removeFirst().run();
+    assertTrue(queuedTasks.isEmpty());
+
+    CompletableFuture.allOf(firstConnectFuture, disconnectFuture, secondConnectFuture).join();
+
+    // Only the most recent change for the channel should have been sent to Redis
+    verify(pubSubAsyncCommands, times(1)).ssubscribe(eventChannel);
+    verify(pubSubAsyncCommands, never()).sunsubscribe(eventChannel);
+
+    assertTrue(eventManager.isLocallyPresent(accountIdentifier, deviceId));
+  }
 }
@@ -40,6 +40,8 @@ import org.junitpioneer.jupiter.cartesian.CartesianTest;
 import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicAccountCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.entities.AccountAttributes;
 import org.whispersystems.textsecuregcm.entities.ApnRegistrationId;
@@ -96,6 +98,8 @@ public class AccountCreationDeletionIntegrationTest {
         mock(DynamicConfigurationManager.class);
 
     final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getAccountCacheConfiguration())
+        .thenReturn(new DynamicAccountCacheConfiguration(false));
     when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
 
     final DynamoDbAsyncClient dynamoDbAsyncClient = DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient();
@@ -163,6 +167,8 @@ public class AccountCreationDeletionIntegrationTest {
         phoneNumberIdentifiers,
         CACHE_CLUSTER_EXTENSION.getRedisCluster(),
         mock(FaultTolerantRedisClient.class),
+        new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+            new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
         accountLockManager,
         keysManager,
         messagesManager,
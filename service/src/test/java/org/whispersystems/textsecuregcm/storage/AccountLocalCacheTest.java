@@ -0,0 +1,147 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
+import org.whispersystems.textsecuregcm.redis.RedisServerExtension;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+
+@Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+class AccountLocalCacheTest {
+
+  private AccountLocalCache accountLocalCache;
+  private AccountLocalCache otherServerAccountLocalCache;
+
+  @RegisterExtension
+  static final RedisServerExtension REDIS_EXTENSION = RedisServerExtension.builder().build();
+
+  private static final AccountLocalCacheConfiguration CONFIGURATION =
+      new AccountLocalCacheConfiguration(true, 16, Duration.ofMinutes(1));
+
+  @BeforeEach
+  void setUp() {
+    accountLocalCache = new AccountLocalCache(REDIS_EXTENSION.getRedisClient(), CONFIGURATION);
+    otherServerAccountLocalCache = new AccountLocalCache(REDIS_EXTENSION.getRedisClient(), CONFIGURATION);
+
+    accountLocalCache.start();
+    otherServerAccountLocalCache.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    accountLocalCache.stop();
+    otherServerAccountLocalCache.stop();
+  }
+
+  @Test
+  void getPut() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    final byte[] serializedAccount = TestRandomUtil.nextBytes(16);
+
+    assertEquals(Optional.empty(), accountLocalCache.get(accountIdentifier));
+
+    accountLocalCache.put(accountIdentifier, serializedAccount, accountLocalCache.getGeneration(accountIdentifier));
+
+    assertArrayEquals(serializedAccount, accountLocalCache.get(accountIdentifier).orElseThrow());
+    assertEquals(Optional.empty(), otherServerAccountLocalCache.get(accountIdentifier));
+  }
+
+  @Test
+  void invalidate() throws InterruptedException {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final UUID otherAccountIdentifier = UUID.randomUUID();
+
+    final byte[] otherSerializedAccount = TestRandomUtil.nextBytes(16);
+
+    accountLocalCache.put(accountIdentifier, TestRandomUtil.nextBytes(16),
+        accountLocalCache.getGeneration(accountIdentifier));
+
+    accountLocalCache.put(otherAccountIdentifier, otherSerializedAccount,
+        accountLocalCache.getGeneration(otherAccountIdentifier));
+
+    otherServerAccountLocalCache.put(accountIdentifier, TestRandomUtil.nextBytes(16),
+        otherServerAccountLocalCache.getGeneration(accountIdentifier));
+
+    otherServerAccountLocalCache.invalidate(accountIdentifier).join();
+
+    assertEquals(Optional.empty(), otherServerAccountLocalCache.get(accountIdentifier));
+
+    while (accountLocalCache.get(accountIdentifier).isPresent()) {
+      Thread.sleep(10);
+    }
+
+    assertArrayEquals(otherSerializedAccount, accountLocalCache.get(otherAccountIdentifier).orElseThrow());
+  }
+
+  @Test
+  void putAfterLocalInvalidation() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    // A read from Redis starts before the account is modified...
+    final long generation = accountLocalCache.getGeneration(accountIdentifier);
+    final byte[] staleSerializedAccount = TestRandomUtil.nextBytes(16);
+
+    // ...the account is modified and invalidated...
+    accountLocalCache.invalidate(accountIdentifier).join();
+
+    // ...and the read finishes after the invalidation
+    accountLocalCache.put(accountIdentifier, staleSerializedAccount, generation);
+    assertEquals(Optional.empty(), accountLocalCache.get(accountIdentifier));
+
+    // Reads that start after the invalidation may populate the cache again
+    final byte[] serializedAccount = TestRandomUtil.nextBytes(16);
+    accountLocalCache.put(accountIdentifier, serializedAccount, accountLocalCache.getGeneration(accountIdentifier));
+
+    assertArrayEquals(serializedAccount, accountLocalCache.get(accountIdentifier).orElseThrow());
+  }
+
+  @Test
+  void putAfterRemoteInvalidation() throws InterruptedException {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    final long generation = accountLocalCache.getGeneration(accountIdentifier);
+
+    otherServerAccountLocalCache.invalidate(accountIdentifier).join();
+
+    while (accountLocalCache.getGeneration(accountIdentifier) == generation) {
+      Thread.sleep(10);
+    }
+
+    accountLocalCache.put(accountIdentifier, TestRandomUtil.nextBytes(16), generation);
+    assertEquals(Optional.empty(), accountLocalCache.get(accountIdentifier));
+  }
+
+  @Test
+  void disabled() {
+    final AccountLocalCache disabledAccountLocalCache = new AccountLocalCache(REDIS_EXTENSION.getRedisClient(),
+        new AccountLocalCacheConfiguration(false, 16, Duration.ofMinutes(1)));
+
+    disabledAccountLocalCache.start();
+
+    try {
+      final UUID accountIdentifier = UUID.randomUUID();
+
+      disabledAccountLocalCache.put(accountIdentifier, TestRandomUtil.nextBytes(16),
+          disabledAccountLocalCache.getGeneration(accountIdentifier));
+      assertTrue(disabledAccountLocalCache.get(accountIdentifier).isEmpty());
+    } finally {
+      disabledAccountLocalCache.stop();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Optional;
@@ -48,6 +49,7 @@ import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
 import org.whispersystems.textsecuregcm.auth.UnidentifiedAccessUtil;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.entities.AccountAttributes;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
@@ -129,6 +131,8 @@ class AccountsManagerConcurrentModificationIntegrationTest {
           phoneNumberIdentifiers,
           RedisClusterHelper.builder().stringCommands(commands).build(),
           mock(FaultTolerantRedisClient.class),
+          new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+              new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
           accountLockManager,
           mock(KeysManager.class),
           mock(MessagesManager.class),
@@ -15,11 +15,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.entities.RemoteAttachmentError;
 import org.whispersystems.textsecuregcm.entities.RestoreAccountRequest;
 import org.whispersystems.textsecuregcm.entities.RemoteAttachment;
 import org.whispersystems.textsecuregcm.entities.TransferArchiveResult;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.redis.RedisServerExtension;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
@@ -67,6 +69,8 @@ public class AccountsManagerDeviceTransferIntegrationTest {
         mock(PhoneNumberIdentifiers.class),
         mock(FaultTolerantRedisClusterClient.class),
         PUBSUB_SERVER_EXTENSION.getRedisClient(),
+        new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+            new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
         mock(AccountLockManager.class),
         mock(KeysManager.class),
         mock(MessagesManager.class),
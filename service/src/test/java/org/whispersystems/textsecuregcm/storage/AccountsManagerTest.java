@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyByte;
@@ -33,7 +34,9 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
@@ -44,7 +47,9 @@ import java.security.InvalidKeyException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -77,6 +82,8 @@ import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
 import org.whispersystems.textsecuregcm.auth.UnidentifiedAccessUtil;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicAccountCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevices;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevicesException;
@@ -88,6 +95,7 @@ import org.whispersystems.textsecuregcm.entities.TransferArchiveResult;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
@@ -132,6 +140,7 @@ class AccountsManagerTest {
   private RedisAsyncCommands<String, String> asyncCommands;
   private RedisAdvancedClusterCommands<String, String> clusterCommands;
   private RedisAdvancedClusterAsyncCommands<String, String> asyncClusterCommands;
+  private RedisAdvancedClusterCommands<byte[], byte[]> binaryClusterCommands;
   private AccountsManager accountsManager;
   private SecureValueRecoveryClient svr2Client;
   private DynamicConfiguration dynamicConfiguration;
@@ -162,6 +171,8 @@ class AccountsManagerTest {
     disconnectionRequestManager = mock(DisconnectionRequestManager.class);
     clientPublicKeysManager = mock(ClientPublicKeysManager.class);
     dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getAccountCacheConfiguration())
+        .thenReturn(new DynamicAccountCacheConfiguration(false));
 
     //noinspection unchecked
     asyncCommands = mock(RedisAsyncCommands.class);
@@ -170,6 +181,9 @@ class AccountsManagerTest {
     //noinspection unchecked
     clusterCommands = mock(RedisAdvancedClusterCommands.class);
 
+    //noinspection unchecked
+    binaryClusterCommands = mock(RedisAdvancedClusterCommands.class);
+
     //noinspection unchecked
     asyncClusterCommands = mock(RedisAdvancedClusterAsyncCommands.class);
     when(asyncClusterCommands.del(any(String[].class))).thenReturn(MockRedisFuture.completedFuture(0L));
@@ -240,6 +254,7 @@ class AccountsManagerTest {
     final FaultTolerantRedisClusterClient redisCluster = RedisClusterHelper.builder()
         .stringCommands(clusterCommands)
         .stringAsyncCommands(asyncClusterCommands)
+        .binaryCommands(binaryClusterCommands)
         .build();
 
     when(disconnectionRequestManager.requestDisconnection(any())).thenReturn(CompletableFuture.completedFuture(null));
@@ -249,6 +264,8 @@ class AccountsManagerTest {
         phoneNumberIdentifiers,
         redisCluster,
         pubSubClient,
+        new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+            new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
         accountLockManager,
         keysManager,
         messagesManager,
@@ -303,6 +320,56 @@ class AccountsManagerTest {
     assertFalse(accountsManager.getByServiceIdentifierAsync(new PniServiceIdentifier(aci)).join().isPresent());
   }
 
+  @Test
+  void testGetByServiceIdentifiers() {
+    final UUID cachedAci = UUID.randomUUID();
+    final UUID cachedPni = UUID.randomUUID();
+
+    final UUID uncachedAci = UUID.randomUUID();
+    final UUID uncachedPni = UUID.randomUUID();
+
+    final UUID missingAci = UUID.randomUUID();
+
+    final Account uncachedAccount = AccountsHelper.generateTestAccount("+14153333333", uncachedAci, uncachedPni,
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    final Map<String, String> redisEntries = Map.of(
+        "AccountMap::" + cachedPni, cachedAci.toString(),
+        "Account3::" + cachedAci, "{\"number\": \"+14152222222\", \"pni\": \"" + cachedPni + "\"}");
+
+    when(asyncClusterCommands.mget(any(String[].class))).thenAnswer(invocation -> MockRedisFuture.completedFuture(
+        Arrays.stream(invocation.getArguments())
+            .map(key -> KeyValue.fromNullable((String) key, redisEntries.get((String) key)))
+            .toList()));
+
+    when(accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(List.of(uncachedPni)))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(uncachedPni, uncachedAci)));
+
+    when(accounts.getByAccountIdentifiersAsync(any())).thenAnswer(invocation -> {
+      final Collection<UUID> accountIdentifiers = invocation.getArgument(0);
+
+      return CompletableFuture.completedFuture(accountIdentifiers.contains(uncachedAci)
+          ? Map.of(uncachedAci, uncachedAccount)
+          : Collections.emptyMap());
+    });
+
+    final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = accountsManager.getByServiceIdentifiers(List.of(
+        new AciServiceIdentifier(cachedAci),
+        new PniServiceIdentifier(cachedPni),
+        new PniServiceIdentifier(uncachedPni),
+        new AciServiceIdentifier(missingAci))).join();
+
+    assertEquals(3, accountsByServiceIdentifier.size());
+    assertEquals(cachedAci, accountsByServiceIdentifier.get(new AciServiceIdentifier(cachedAci)).getUuid());
+    assertEquals(cachedAci, accountsByServiceIdentifier.get(new PniServiceIdentifier(cachedPni)).getUuid());
+    assertSame(uncachedAccount, accountsByServiceIdentifier.get(new PniServiceIdentifier(uncachedPni)));
+    assertFalse(accountsByServiceIdentifier.containsKey(new AciServiceIdentifier(missingAci)));
+
+    verify(accounts).getByAccountIdentifiersAsync(
+        argThat(accountIdentifiers -> Set.copyOf(accountIdentifiers).equals(Set.of(uncachedAci, missingAci))));
+    verify(asyncClusterCommands).setex(eq("Account3::" + uncachedAci), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uncachedAci);
+  }
 
   @Test
   void testGetAccountByUuidInCache() {
@@ -411,6 +478,7 @@ class AccountsManagerTest {
     verify(clusterCommands, times(1)).get(eq("Account3::" + uuid));
     verify(clusterCommands, times(1)).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands, times(1)).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands, times(1)).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts, times(1)).getByAccountIdentifier(eq(uuid));
@@ -436,6 +504,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("Account3::" + uuid));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByAccountIdentifierAsync(eq(uuid));
@@ -460,6 +529,7 @@ class AccountsManagerTest {
     verify(clusterCommands).get(eq("AccountMap::" + pni));
     verify(clusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifier(pni);
@@ -486,6 +556,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("AccountMap::" + pni));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifierAsync(pni);
@@ -524,6 +595,7 @@ class AccountsManagerTest {
     verify(clusterCommands, times(1)).get(eq("Account3::" + uuid));
     verify(clusterCommands, times(1)).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands, times(1)).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands, times(1)).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts, times(1)).getByAccountIdentifier(eq(uuid));
@@ -552,6 +624,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("Account3::" + uuid));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByAccountIdentifierAsync(eq(uuid));
@@ -576,6 +649,7 @@ class AccountsManagerTest {
     verify(clusterCommands).get(eq("AccountMap::" + pni));
     verify(clusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifier(pni);
@@ -605,6 +679,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("AccountMap::" + pni));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifierAsync(pni);
@@ -1386,6 +1461,151 @@ class AccountsManagerTest {
     assertEquals(originalDevice.getFetchesMessages(), parsedDevice.getFetchesMessages());
   }
 
+  @Test
+  void testBinaryRoundTripSerialization() throws Exception {
+    String originalJson;
+    try (InputStream inputStream = getClass().getResourceAsStream(
+        "AccountsManagerTest-testJsonRoundTripSerialization.json")) {
+      Objects.requireNonNull(inputStream);
+      originalJson = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    final Account originalAccount = AccountsManager.parseAccountJson(originalJson,
+        UUID.fromString("111111-1111-1111-1111-111111111111")).orElseThrow();
+
+    final byte[] serialized = AccountsManager.writeRedisAccountBinary(originalAccount);
+
+    assertEquals(AccountsManager.BINARY_ACCOUNT_CACHE_FORMAT_VERSION, serialized[0]);
+    assertTrue(serialized.length < AccountsManager.writeRedisAccountJson(originalAccount)
+        .getBytes(StandardCharsets.UTF_8).length);
+
+    final Account parsedAccount =
+        AccountsManager.parseAccountCacheEntry(serialized, originalAccount.getUuid()).orElseThrow();
+
+    assertEquals(originalAccount.getUuid(), parsedAccount.getUuid());
+    assertEquals(originalAccount.getPhoneNumberIdentifier(), parsedAccount.getPhoneNumberIdentifier());
+    assertEquals(originalAccount.getIdentityKey(IdentityType.ACI), parsedAccount.getIdentityKey(IdentityType.ACI));
+    assertEquals(originalAccount.getIdentityKey(IdentityType.PNI), parsedAccount.getIdentityKey(IdentityType.PNI));
+    assertEquals(originalAccount.getNumber(), parsedAccount.getNumber());
+    assertArrayEquals(originalAccount.getUnidentifiedAccessKey().orElseThrow(),
+        parsedAccount.getUnidentifiedAccessKey().orElseThrow());
+    assertEquals(originalAccount.getDevices().size(), parsedAccount.getDevices().size());
+    assertEquals(originalAccount.getPrimaryDevice().getCapabilities(),
+        parsedAccount.getPrimaryDevice().getCapabilities());
+
+    // JSON entries written before binary entries were enabled must remain readable
+    assertEquals(originalAccount.getNumber(),
+        AccountsManager.parseAccountCacheEntry(originalJson.getBytes(StandardCharsets.UTF_8), originalAccount.getUuid())
+            .orElseThrow()
+            .getNumber());
+  }
+
+  @Test
+  void testGetAccountByUuidInCacheBinary() throws JsonProcessingException {
+    final UUID uuid = UUID.randomUUID();
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", uuid, UUID.randomUUID(),
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    when(dynamicConfiguration.getAccountCacheConfiguration()).thenReturn(new DynamicAccountCacheConfiguration(true));
+
+    when(binaryClusterCommands.get(aryEq(("Account4::" + uuid).getBytes(StandardCharsets.UTF_8))))
+        .thenReturn(AccountsManager.writeRedisAccountBinary(account));
+
+    final Optional<Account> retrieved = accountsManager.getByAccountIdentifier(uuid);
+
+    assertTrue(retrieved.isPresent());
+    assertEquals(account.getNumber(), retrieved.get().getNumber());
+    assertEquals(uuid, retrieved.get().getUuid());
+
+    verify(binaryClusterCommands).get(aryEq(("Account4::" + uuid).getBytes(StandardCharsets.UTF_8)));
+    verifyNoInteractions(clusterCommands);
+    verifyNoInteractions(accounts);
+  }
+
+  @Test
+  void testGetAccountByUuidIgnoresBinaryEntryWhenDisabled() throws JsonProcessingException {
+    final UUID uuid = UUID.randomUUID();
+    final Account staleAccount = AccountsHelper.generateTestAccount("+14152222222", uuid, UUID.randomUUID(),
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    final Account freshAccount = AccountsHelper.generateTestAccount("+14153333333", uuid, UUID.randomUUID(),
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    // A server that doesn't know about binary entries may have written a fresh JSON entry without removing an older
+    // binary entry
+    when(binaryClusterCommands.get(aryEq(("Account4::" + uuid).getBytes(StandardCharsets.UTF_8))))
+        .thenReturn(AccountsManager.writeRedisAccountBinary(staleAccount));
+
+    final String freshAccountJson = AccountsManager.writeRedisAccountJson(freshAccount);
+    when(clusterCommands.get(eq("Account3::" + uuid))).thenReturn(freshAccountJson);
+    when(asyncClusterCommands.get(eq("Account3::" + uuid)))
+        .thenReturn(MockRedisFuture.completedFuture(freshAccountJson));
+
+    assertEquals(freshAccount.getNumber(), accountsManager.getByAccountIdentifier(uuid).orElseThrow().getNumber());
+    assertEquals(freshAccount.getNumber(),
+        accountsManager.getByAccountIdentifierAsync(uuid).join().orElseThrow().getNumber());
+
+    verifyNoInteractions(binaryClusterCommands);
+    verifyNoInteractions(accounts);
+  }
+
+  @Test
+  void testUpdateRemovesCacheEntryInOtherFormat() throws JsonProcessingException {
+    // A minimal stand-in for Redis so we can observe what a later read finds after a write
+    final Map<String, byte[]> redisEntries = new HashMap<>();
+
+    when(clusterCommands.get(anyString())).thenAnswer(invocation -> {
+      final byte[] entry = redisEntries.get(invocation.getArgument(0, String.class));
+      return entry != null ? new String(entry, StandardCharsets.UTF_8) : null;
+    });
+
+    when(clusterCommands.setex(anyString(), anyLong(), anyString())).thenAnswer(invocation -> {
+      redisEntries.put(invocation.getArgument(0, String.class),
+          invocation.getArgument(2, String.class).getBytes(StandardCharsets.UTF_8));
+      return "OK";
+    });
+
+    when(clusterCommands.del(any(String[].class))).thenAnswer(invocation -> {
+      Arrays.stream(invocation.getArguments()).forEach(key -> redisEntries.remove((String) key));
+      return 1L;
+    });
+
+    when(binaryClusterCommands.get(any(byte[].class))).thenAnswer(invocation ->
+        redisEntries.get(new String(invocation.getArgument(0, byte[].class), StandardCharsets.UTF_8)));
+
+    when(binaryClusterCommands.setex(any(byte[].class), anyLong(), any(byte[].class))).thenAnswer(invocation -> {
+      redisEntries.put(new String(invocation.getArgument(0, byte[].class), StandardCharsets.UTF_8),
+          invocation.getArgument(2, byte[].class));
+      return "OK";
+    });
+
+    final UUID uuid = UUID.randomUUID();
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", uuid, UUID.randomUUID(),
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    redisEntries.put("Account3::" + uuid,
+        AccountsManager.writeRedisAccountJson(account).getBytes(StandardCharsets.UTF_8));
+
+    when(dynamicConfiguration.getAccountCacheConfiguration()).thenReturn(new DynamicAccountCacheConfiguration(true));
+
+    final IdentityKey identityKey = new IdentityKey(ECKeyPair.generate().getPublicKey());
+    final Account updatedAccount = accountsManager.update(account, a -> a.setIdentityKey(identityKey));
+
+    assertFalse(redisEntries.containsKey("Account3::" + uuid));
+    assertEquals(identityKey,
+        accountsManager.getByAccountIdentifier(uuid).orElseThrow().getIdentityKey(IdentityType.ACI));
+
+    // Servers that have stopped reading binary entries must not find a stale JSON entry, either
+    when(dynamicConfiguration.getAccountCacheConfiguration()).thenReturn(new DynamicAccountCacheConfiguration(false));
+    when(accounts.getByAccountIdentifier(uuid)).thenReturn(Optional.of(updatedAccount));
+
+    assertEquals(identityKey,
+        accountsManager.getByAccountIdentifier(uuid).orElseThrow().getIdentityKey(IdentityType.ACI));
+
+    // ...and the reverse
+    assertFalse(redisEntries.containsKey("Account4::" + uuid));
+  }
+
   private void setReservationHash(final Account account, final byte[] reservedUsernameHash) {
     account.setReservedUsernameHash(reservedUsernameHash);
   }
@@ -38,6 +38,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.Mockito;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
@@ -156,6 +157,8 @@ class AccountsManagerUsernameIntegrationTest {
         phoneNumberIdentifiers,
         CACHE_CLUSTER_EXTENSION.getRedisCluster(),
         mock(FaultTolerantRedisClient.class),
+        new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+            new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
         accountLockManager,
         keysManager,
         messageManager,
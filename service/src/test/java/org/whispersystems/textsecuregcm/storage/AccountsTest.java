@@ -326,6 +326,35 @@ class AccountsTest {
     verifyStoredState("+14152221111", uuidSecond, pniSecond, null, retrievedSecond.get(), accountSecond);
   }
 
+  @Test
+  void testRetrieveBatch() {
+    final Account accountFirst = generateAccount("+14151112222", UUID.randomUUID(), UUID.randomUUID());
+    final Account accountSecond = generateAccount("+14152221111", UUID.randomUUID(), UUID.randomUUID());
+
+    createAccount(accountFirst);
+    createAccount(accountSecond);
+
+    final UUID missingIdentifier = UUID.randomUUID();
+
+    final Map<UUID, Account> accountsByAccountIdentifier = accounts.getByAccountIdentifiersAsync(
+        List.of(accountFirst.getUuid(), accountSecond.getUuid(), missingIdentifier)).join();
+
+    assertThat(accountsByAccountIdentifier).containsOnlyKeys(accountFirst.getUuid(), accountSecond.getUuid());
+
+    verifyStoredState("+14151112222", accountFirst.getUuid(), accountFirst.getPhoneNumberIdentifier(), null,
+        accountsByAccountIdentifier.get(accountFirst.getUuid()), accountFirst);
+
+    verifyStoredState("+14152221111", accountSecond.getUuid(), accountSecond.getPhoneNumberIdentifier(), null,
+        accountsByAccountIdentifier.get(accountSecond.getUuid()), accountSecond);
+
+    assertThat(accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(
+        List.of(accountFirst.getPhoneNumberIdentifier(), accountSecond.getPhoneNumberIdentifier(), missingIdentifier))
+        .join())
+        .isEqualTo(Map.of(
+            accountFirst.getPhoneNumberIdentifier(), accountFirst.getUuid(),
+            accountSecond.getPhoneNumberIdentifier(), accountSecond.getUuid()));
+  }
+
   @Test
   void testRetrieveNoPni() throws JsonProcessingException {
     final List<Device> devices = List.of(generateDevice(DEVICE_ID_1), generateDevice(DEVICE_ID_2));
@@ -754,6 +783,35 @@ class AccountsTest {
     assertEquals(expectedAccountIdentifiers, retrievedAccountIdentifiers);
   }
 
+  @Test
+  void testGetAllSummaries() {
+    final Map<UUID, AccountSummary> expectedSummaries = new HashMap<>();
+
+    for (int i = 1; i <= 100; i++) {
+      final Device primaryDevice = DevicesHelper.createDevice(Device.PRIMARY_ID, i);
+      primaryDevice.setApnId("apns-token-" + i);
+
+      final Device linkedDevice = DevicesHelper.createDevice((byte) (Device.PRIMARY_ID + 1), i * 2L);
+
+      final Account account = generateAccount("+1" + String.format("%03d", i), UUID.randomUUID(), UUID.randomUUID(),
+          List.of(primaryDevice, linkedDevice));
+
+      expectedSummaries.put(account.getIdentifier(IdentityType.ACI),
+          new AccountSummary(account.getIdentifier(IdentityType.ACI), account.getIdentifier(IdentityType.PNI), List.of(
+              new AccountSummary.DeviceSummary(Device.PRIMARY_ID, i, true),
+              new AccountSummary.DeviceSummary((byte) (Device.PRIMARY_ID + 1), i * 2L, false))));
+
+      createAccount(account);
+    }
+
+    @SuppressWarnings("DataFlowIssue") final Map<UUID, AccountSummary> retrievedSummaries =
+        accounts.getAllSummaries(2, Schedulers.parallel())
+            .collectMap(AccountSummary::accountIdentifier)
+            .block();
+
+    assertEquals(expectedSummaries, retrievedSummaries);
+  }
+
   @Test
   void testDelete() {
     final Device deletedDevice = generateDevice(DEVICE_ID_1);
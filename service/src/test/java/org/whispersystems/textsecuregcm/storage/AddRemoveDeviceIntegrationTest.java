@@ -35,10 +35,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
+import org.whispersystems.textsecuregcm.configuration.AccountLocalCacheConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicAccountCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.entities.DeviceInfo;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.redis.RedisServerExtension;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
@@ -92,6 +95,8 @@ public class AddRemoveDeviceIntegrationTest {
         mock(DynamicConfigurationManager.class);
 
     final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getAccountCacheConfiguration())
+        .thenReturn(new DynamicAccountCacheConfiguration(false));
     when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
 
     clock = TestClock.pinned(Instant.now());
@@ -164,6 +169,8 @@ public class AddRemoveDeviceIntegrationTest {
         phoneNumberIdentifiers,
         CACHE_CLUSTER_EXTENSION.getRedisCluster(),
         PUBSUB_SERVER_EXTENSION.getRedisClient(),
+        new AccountLocalCache(mock(FaultTolerantRedisClient.class),
+            new AccountLocalCacheConfiguration(false, 1, Duration.ofSeconds(1))),
         accountLockManager,
         keysManager,
         messagesManager,
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.whispersystems.textsecuregcm.backup.BackupsDb;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+class CheckpointedSegmentedScannerTest {
+
+  @RegisterExtension
+  static final DynamoDbExtension DYNAMO_DB_EXTENSION = new DynamoDbExtension(DynamoDbExtensionSchema.Tables.BACKUPS);
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private ScanCheckpointStore scanCheckpointStore;
+  private CheckpointedSegmentedScanner scanner;
+
+  private Set<SdkBytes> storedKeys;
+
+  private static final String SCAN_NAME = "test";
+
+  private static final int ITEM_COUNT = 10;
+
+  // With ten items, pages of three leave a short final page with no last evaluated key
+  private static final ScanRequest SCAN_REQUEST = ScanRequest.builder()
+      .tableName(DynamoDbExtensionSchema.Tables.BACKUPS.tableName())
+      .consistentRead(true)
+      .limit(3)
+      .build();
+
+  @BeforeEach
+  void setUp() {
+    scanCheckpointStore = new ScanCheckpointStore(REDIS_CLUSTER_EXTENSION.getRedisCluster());
+
+    scanner = new CheckpointedSegmentedScanner(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(), scanCheckpointStore);
+
+    storedKeys = new HashSet<>();
+
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      final SdkBytes key = SdkBytes.fromByteArray(TestRandomUtil.nextBytes(16));
+      storedKeys.add(key);
+
+      DYNAMO_DB_EXTENSION.getDynamoDbClient().putItem(PutItemRequest.builder()
+          .tableName(DynamoDbExtensionSchema.Tables.BACKUPS.tableName())
+          .item(Map.of(BackupsDb.KEY_BACKUP_ID_HASH, AttributeValue.fromB(key)))
+          .build());
+    }
+  }
+
+  @Test
+  void scanUnnamed() {
+    assertEquals(storedKeys, scanKeys(2));
+    assertEquals(storedKeys, scanKeys(2));
+  }
+
+  @Test
+  void processAll() {
+    assertEquals(storedKeys, processKeys(1));
+
+    assertArrayEquals(new ScanCheckpointStore.SegmentCheckpoint[]{ScanCheckpointStore.SegmentCheckpoint.NONE},
+        scanCheckpointStore.getCheckpoints(SCAN_NAME, 1).join());
+
+    // A finished scan starts over from the beginning
+    assertEquals(storedKeys, processKeys(1));
+  }
+
+  @Test
+  void resumeAfterFailedPage() {
+    final Set<SdkBytes> firstRunKeys = new HashSet<>();
+    final AtomicInteger pagesProcessed = new AtomicInteger();
+
+    // Fail partway through the third page, after some of its items have been processed
+    assertThrows(IllegalStateException.class, () ->
+        scanner.scan(SCAN_NAME, SCAN_REQUEST, 1, Schedulers.parallel(), 0, items -> {
+              final boolean failPage = pagesProcessed.incrementAndGet() == 3;
+
+              return items
+                  .map(item -> item.get(BackupsDb.KEY_BACKUP_ID_HASH).b())
+                  .doOnNext(firstRunKeys::add)
+                  .take(failPage ? 1 : Long.MAX_VALUE)
+                  .then(failPage ? Mono.<Void>error(new IllegalStateException()) : Mono.<Void>empty());
+            })
+            .block());
+
+    assertEquals(7, firstRunKeys.size());
+
+    // The third page was never acknowledged, so it's repeated, but nothing is skipped
+    final Set<SdkBytes> secondRunKeys = processKeys(1);
+    assertEquals(ITEM_COUNT - 6, secondRunKeys.size());
+
+    final Set<SdkBytes> allKeys = new HashSet<>(firstRunKeys);
+    allKeys.addAll(secondRunKeys);
+
+    assertEquals(storedKeys, allKeys);
+  }
+
+  @Test
+  void checkpointAdvancesAfterProcessing() {
+    final CompletableFuture<Void> firstPageRead = new CompletableFuture<>();
+    final Sinks.Empty<Void> firstPageProcessed = Sinks.empty();
+
+    final CompletableFuture<Void> scanFuture =
+        scanner.scan(SCAN_NAME, SCAN_REQUEST, 1, Schedulers.parallel(), 0, items -> items.collectList()
+                .doOnNext(ignored -> firstPageRead.complete(null))
+                .then(firstPageProcessed.asMono()))
+            .toFuture();
+
+    // The first page has been read and its items emitted, but the page hasn't been acknowledged
+    firstPageRead.join();
+
+    assertArrayEquals(new ScanCheckpointStore.SegmentCheckpoint[]{ScanCheckpointStore.SegmentCheckpoint.NONE},
+        scanCheckpointStore.getCheckpoints(SCAN_NAME, 1).join());
+
+    firstPageProcessed.tryEmitEmpty();
+    scanFuture.join();
+
+    assertEquals(storedKeys, processKeys(1));
+  }
+
+  @Test
+  void skipCompletedSegments() {
+    scanCheckpointStore.setComplete(SCAN_NAME, 1, 0).join();
+
+    assertEquals(Set.of(), processKeys(1));
+  }
+
+  @Test
+  void processMultipleSegments() {
+    assertEquals(storedKeys, processKeys(4));
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void getPause(final ScanResponse response, final double maxReadCapacityUnitsPerSecond, final Duration expectedPause) {
+    assertEquals(expectedPause, CheckpointedSegmentedScanner.getPause(response, maxReadCapacityUnitsPerSecond));
+  }
+
+  private static List<Arguments> getPause() {
+    final ScanResponse responseWithCapacity = ScanResponse.builder()
+        .consumedCapacity(ConsumedCapacity.builder().capacityUnits(5.0).build())
+        .build();
+
+    return List.of(
+        Arguments.of(responseWithCapacity, 10, Duration.ofMillis(500)),
+        Arguments.of(responseWithCapacity, 2.5, Duration.ofSeconds(2)),
+        Arguments.of(responseWithCapacity, 0, Duration.ZERO),
+        Arguments.of(ScanResponse.builder().build(), 10, Duration.ZERO),
+        Arguments.of(ScanResponse.builder().consumedCapacity(ConsumedCapacity.builder().build()).build(), 10,
+            Duration.ZERO));
+  }
+
+  private Set<SdkBytes> scanKeys(final int segments) {
+    return new HashSet<>(scanner.scan(SCAN_REQUEST, segments, Schedulers.parallel(), 0)
+        .map(item -> item.get(BackupsDb.KEY_BACKUP_ID_HASH).b())
+        .collectList()
+        .block());
+  }
+
+  private Set<SdkBytes> processKeys(final int segments) {
+    final Set<SdkBytes> keys = ConcurrentHashMap.newKeySet();
+
+    scanner.scan(SCAN_NAME, SCAN_REQUEST, segments, Schedulers.parallel(), 0, items -> items
+            .map(item -> item.get(BackupsDb.KEY_BACKUP_ID_HASH).b())
+            .doOnNext(keys::add)
+            .then())
+        .block();
+
+    return keys;
+  }
+}
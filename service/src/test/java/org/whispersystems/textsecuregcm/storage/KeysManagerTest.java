@@ -13,6 +13,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -322,6 +323,47 @@ class KeysManagerTest {
     assertEquals(hasEcPreKey, missingKeyType == MissingKeyType.NONE);
   }
 
+  @Test
+  void takeAllDevicePreKeys() {
+    final byte deviceId2 = DEVICE_ID + 1;
+    final byte lastResortOnlyDeviceId = DEVICE_ID + 2;
+    final byte missingSignedKeyDeviceId = DEVICE_ID + 3;
+
+    final ECSignedPreKey signedPreKey1 = generateTestECSignedPreKey(1);
+    final ECPreKey ecPreKey1 = generateTestPreKey(2);
+    final KEMSignedPreKey kemPreKey1 = generateTestKEMSignedPreKey(3);
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, DEVICE_ID, signedPreKey1).join();
+    keysManager.storeEcOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(ecPreKey1)).join();
+    keysManager.storeKemOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(kemPreKey1)).join();
+    keysManager.storePqLastResort(ACCOUNT_UUID, DEVICE_ID, generateTestKEMSignedPreKey(4)).join();
+
+    final ECSignedPreKey signedPreKey2 = generateTestECSignedPreKey(5);
+    final KEMSignedPreKey kemPreKey2 = generateTestKEMSignedPreKey(6);
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, deviceId2, signedPreKey2).join();
+    keysManager.storeKemOneTimePreKeys(ACCOUNT_UUID, deviceId2, List.of(kemPreKey2)).join();
+
+    final ECSignedPreKey signedPreKey3 = generateTestECSignedPreKey(7);
+    final KEMSignedPreKey lastResortKey3 = generateTestKEMSignedPreKey(8);
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, lastResortOnlyDeviceId, signedPreKey3).join();
+    keysManager.storePqLastResort(ACCOUNT_UUID, lastResortOnlyDeviceId, lastResortKey3).join();
+
+    keysManager.storePqLastResort(ACCOUNT_UUID, missingSignedKeyDeviceId, generateTestKEMSignedPreKey(9)).join();
+
+    assertEquals(Map.of(
+            DEVICE_ID, new KeysManager.DevicePreKeys(signedPreKey1, Optional.of(ecPreKey1), kemPreKey1),
+            deviceId2, new KeysManager.DevicePreKeys(signedPreKey2, Optional.empty(), kemPreKey2),
+            lastResortOnlyDeviceId, new KeysManager.DevicePreKeys(signedPreKey3, Optional.empty(), lastResortKey3)),
+        keysManager.takeAllDevicePreKeys(
+            List.of(DEVICE_ID, deviceId2, lastResortOnlyDeviceId, missingSignedKeyDeviceId),
+            ACI_SERVICE_IDENTIFIER, null).join());
+
+    // Single-use keys are gone, so we should fall back to last-resort keys where we have them
+    assertEquals(Map.of(lastResortOnlyDeviceId,
+            new KeysManager.DevicePreKeys(signedPreKey3, Optional.empty(), lastResortKey3)),
+        keysManager.takeAllDevicePreKeys(List.of(deviceId2, lastResortOnlyDeviceId), ACI_SERVICE_IDENTIFIER, null)
+            .join());
+  }
+
   private static ECPreKey generateTestPreKey(final long keyId) {
     return new ECPreKey(keyId, ECKeyPair.generate().getPublicKey());
   }
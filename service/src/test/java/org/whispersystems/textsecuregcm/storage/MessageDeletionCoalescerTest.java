@@ -0,0 +1,244 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicMessageDeletionCoalescerConfiguration;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+
+class MessageDeletionCoalescerTest {
+
+  private MessagesManager messagesManager;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  private UUID accountIdentifier;
+  private Device device;
+
+  private static final Duration LONG_DELAY = Duration.ofMinutes(1);
+
+  @BeforeEach
+  void setUp() {
+    messagesManager = mock(MessagesManager.class);
+    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+    accountIdentifier = UUID.randomUUID();
+
+    device = mock(Device.class);
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduledExecutorService.shutdown();
+  }
+
+  @Test
+  void deleteFullBatch() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, LONG_DELAY, 3);
+
+    final UUID cachedGuid = UUID.randomUUID();
+    final UUID persistedGuid = UUID.randomUUID();
+    final UUID missingGuid = UUID.randomUUID();
+
+    final RemovedMessage cachedMessage = removedMessage(cachedGuid);
+    final RemovedMessage persistedMessage = removedMessage(persistedGuid);
+
+    final Map<UUID, Long> expectedServerTimestampsByGuid = new HashMap<>();
+    expectedServerTimestampsByGuid.put(cachedGuid, null);
+    expectedServerTimestampsByGuid.put(persistedGuid, null);
+    expectedServerTimestampsByGuid.put(missingGuid, null);
+
+    when(messagesManager.delete(accountIdentifier, device, expectedServerTimestampsByGuid))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(
+            cachedGuid, cachedMessage,
+            persistedGuid, persistedMessage)));
+
+    final CompletableFuture<Optional<RemovedMessage>> cachedFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, cachedGuid);
+
+    final CompletableFuture<Optional<RemovedMessage>> persistedFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, persistedGuid);
+
+    assertFalse(cachedFuture.isDone());
+    assertFalse(persistedFuture.isDone());
+
+    // Filling the batch should flush it immediately without waiting for the delay to elapse
+    final CompletableFuture<Optional<RemovedMessage>> missingFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, missingGuid);
+
+    assertEquals(Optional.of(cachedMessage), cachedFuture.join());
+    assertEquals(Optional.of(persistedMessage), persistedFuture.join());
+    assertEquals(Optional.empty(), missingFuture.join());
+
+    verify(messagesManager, never()).delete(any(), any(), any(), any());
+  }
+
+  @Test
+  void deleteAfterDelay() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, Duration.ofMillis(10), 100);
+
+    final UUID firstGuid = UUID.randomUUID();
+    final UUID secondGuid = UUID.randomUUID();
+
+    when(messagesManager.delete(any(), any(), anyMap()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(firstGuid, removedMessage(firstGuid))));
+
+    final CompletableFuture<Optional<RemovedMessage>> firstFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, firstGuid);
+
+    final CompletableFuture<Optional<RemovedMessage>> secondFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, secondGuid);
+
+    // Repeated acknowledgements should share a deletion
+    assertEquals(secondFuture, messageDeletionCoalescer.delete(accountIdentifier, device, secondGuid));
+
+    assertTrue(firstFuture.join().isPresent());
+    assertTrue(secondFuture.join().isEmpty());
+
+    final Map<UUID, Long> expectedServerTimestampsByGuid = new HashMap<>();
+    expectedServerTimestampsByGuid.put(firstGuid, null);
+    expectedServerTimestampsByGuid.put(secondGuid, null);
+
+    verify(messagesManager).delete(accountIdentifier, device, expectedServerTimestampsByGuid);
+  }
+
+  @Test
+  void deleteSingle() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, Duration.ofMillis(10), 100);
+
+    final UUID guid = UUID.randomUUID();
+    final RemovedMessage removedMessage = removedMessage(guid);
+
+    when(messagesManager.delete(accountIdentifier, device, guid, null))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(removedMessage)));
+
+    assertEquals(Optional.of(removedMessage), messageDeletionCoalescer.delete(accountIdentifier, device, guid).join());
+
+    verify(messagesManager, timeout(1_000)).delete(accountIdentifier, device, guid, null);
+    verify(messagesManager, never()).delete(any(), any(), anyMap());
+  }
+
+  @Test
+  void deleteWithServerTimestamps() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, LONG_DELAY, 2);
+
+    final UUID firstGuid = UUID.randomUUID();
+    final UUID secondGuid = UUID.randomUUID();
+
+    when(messagesManager.delete(any(), any(), anyMap()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+    messageDeletionCoalescer.delete(accountIdentifier, device, firstGuid, 17L);
+    messageDeletionCoalescer.delete(accountIdentifier, device, firstGuid);
+    messageDeletionCoalescer.delete(accountIdentifier, device, secondGuid).join();
+
+    final Map<UUID, Long> expectedServerTimestampsByGuid = new HashMap<>();
+    expectedServerTimestampsByGuid.put(firstGuid, 17L);
+    expectedServerTimestampsByGuid.put(secondGuid, null);
+
+    verify(messagesManager).delete(accountIdentifier, device, expectedServerTimestampsByGuid);
+  }
+
+  @Test
+  void deleteDisabled() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(false, LONG_DELAY, 100);
+
+    final UUID guid = UUID.randomUUID();
+    final RemovedMessage removedMessage = removedMessage(guid);
+
+    when(messagesManager.delete(accountIdentifier, device, guid, 17L))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(removedMessage)));
+
+    // With coalescing disabled, the deletion shouldn't wait for the (long) delay to elapse
+    assertEquals(Optional.of(removedMessage),
+        messageDeletionCoalescer.delete(accountIdentifier, device, guid, 17L).join());
+
+    verify(messagesManager, never()).delete(any(), any(), anyMap());
+  }
+
+  @Test
+  void deleteSynchronousFailure() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, LONG_DELAY, 2);
+
+    when(messagesManager.delete(any(), any(), anyMap())).thenThrow(new RuntimeException("OH NO"));
+
+    final CompletableFuture<Optional<RemovedMessage>> firstFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, UUID.randomUUID());
+
+    final CompletableFuture<Optional<RemovedMessage>> secondFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, UUID.randomUUID());
+
+    assertThrows(CompletionException.class, firstFuture::join);
+    assertThrows(CompletionException.class, secondFuture::join);
+  }
+
+  @Test
+  void deleteFailure() {
+    final MessageDeletionCoalescer messageDeletionCoalescer = messageDeletionCoalescer(true, LONG_DELAY, 2);
+
+    when(messagesManager.delete(any(), any(), anyMap()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    final CompletableFuture<Optional<RemovedMessage>> firstFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, UUID.randomUUID());
+
+    final CompletableFuture<Optional<RemovedMessage>> secondFuture =
+        messageDeletionCoalescer.delete(accountIdentifier, device, UUID.randomUUID());
+
+    assertThrows(CompletionException.class, firstFuture::join);
+    assertThrows(CompletionException.class, secondFuture::join);
+  }
+
+  private MessageDeletionCoalescer messageDeletionCoalescer(final boolean enabled,
+      final Duration maxDelay,
+      final int maxBatchSize) {
+
+    final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getMessageDeletionCoalescerConfiguration())
+        .thenReturn(new DynamicMessageDeletionCoalescerConfiguration(enabled, maxDelay, maxBatchSize));
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    return new MessageDeletionCoalescer(messagesManager, dynamicConfigurationManager, scheduledExecutorService);
+  }
+
+  private RemovedMessage removedMessage(final UUID guid) {
+    return RemovedMessage.fromEnvelope(Envelope.newBuilder()
+        .setServerGuid(guid.toString())
+        .setSourceServiceId(UUID.randomUUID().toString())
+        .setDestinationServiceId(new AciServiceIdentifier(accountIdentifier).toServiceIdentifierString())
+        .setType(Envelope.Type.CIPHERTEXT)
+        .build());
+  }
+}
@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -41,6 +42,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -98,6 +100,8 @@ class MessagePersisterTest {
     destinationAccount = mock(Account.class);
 
     when(accountsManager.getByAccountIdentifier(DESTINATION_ACCOUNT_UUID)).thenReturn(Optional.of(destinationAccount));
+    when(accountsManager.getByAccountIdentifierAsync(DESTINATION_ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(destinationAccount)));
     when(accountsManager.removeDevice(any(), anyByte()))
         .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
 
@@ -134,6 +138,19 @@ class MessagePersisterTest {
 
       return messages.size();
     });
+
+    when(messagesDynamoDb.storeAsync(any(), any(UUID.class), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    when(messagesManager.persistMessagesAsync(any(UUID.class), any(), any())).thenAnswer(invocation -> {
+      final UUID destinationUuid = invocation.getArgument(0);
+      final Device destinationDevice = invocation.getArgument(1);
+      final List<MessageProtos.Envelope> messages = invocation.getArgument(2);
+
+      return messagesDynamoDb.storeAsync(messages, destinationUuid, destinationDevice)
+          .thenCompose(ignored -> messagesCache.remove(destinationUuid, destinationDevice.getId(),
+              messages.stream().map(message -> UUID.fromString(message.getServerGuid())).toList()))
+          .thenApply(List::size);
+    });
   }
 
   @AfterEach
@@ -220,6 +237,65 @@ class MessagePersisterTest {
     assertEquals(queueCount * messagesPerQueue, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
   }
 
+  @Test
+  void testPersistNextQueuesConcurrentlyMultiplePages() {
+    final int slot = 7;
+    final int queueCount = (MessagePersister.QUEUE_BATCH_LIMIT * 3) + 7;
+    final int messagesPerQueue = MessagePersister.MESSAGE_BATCH_LIMIT + 7;
+    final Instant now = Instant.now();
+
+    for (int i = 0; i < queueCount; i++) {
+      final String queueName = generateRandomQueueNameForSlot(slot);
+      final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queueName);
+      final byte deviceId = MessagesCache.getDeviceIdFromQueueName(queueName);
+
+      final Account account = mock(Account.class);
+
+      when(accountsManager.getByAccountIdentifierAsync(accountUuid))
+          .thenReturn(CompletableFuture.completedFuture(Optional.of(account)));
+      when(account.getUuid()).thenReturn(accountUuid);
+      when(account.getDevice(anyByte())).thenAnswer(invocation -> Optional.of(DevicesHelper.createDevice(invocation.getArgument(0))));
+
+      insertMessages(accountUuid, deviceId, messagesPerQueue, now);
+    }
+
+    setNextSlotToPersist(slot);
+
+    assertEquals(queueCount, messagePersister.persistNextQueuesConcurrently(now.plus(messagePersister.getPersistDelay()), 8));
+
+    final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
+
+    verify(messagesDynamoDb, atLeastOnce()).storeAsync(messagesCaptor.capture(), any(UUID.class), any());
+    assertEquals(queueCount * messagesPerQueue, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
+
+    verify(accountsManager, never()).getByAccountIdentifier(any(UUID.class));
+    verify(messagesDynamoDb, never()).store(any(), any(), any());
+  }
+
+  @Test
+  void testPersistQueueConcurrentlyRetry() {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final int messageCount = (MessagePersister.MESSAGE_BATCH_LIMIT * 3) + 7;
+    final Instant now = Instant.now();
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
+    setNextSlotToPersist(SlotHash.getSlot(queueName));
+
+    when(messagesDynamoDb.storeAsync(any(), eq(DESTINATION_ACCOUNT_UUID), eq(DESTINATION_DEVICE)))
+        .thenReturn(CompletableFuture.failedFuture(new MessagePersistenceException("OH NO.")));
+
+    messagePersister.persistNextQueuesConcurrently(now.plus(messagePersister.getPersistDelay()), 8);
+
+    assertEquals(List.of(queueName),
+        messagesCache.getQueuesToPersist(SlotHash.getSlot(queueName),
+            Instant.now().plus(messagePersister.getPersistDelay()), 1));
+
+    // the queue should have been unlocked
+    assertEquals(0, REDIS_CLUSTER_EXTENSION.getRedisCluster().withBinaryCluster(connection ->
+        connection.sync().exists(MessagesCache.getPersistInProgressKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID))));
+  }
+
   @Test
   void testPersistQueueRetry() {
     final String queueName = new String(
@@ -361,6 +437,37 @@ class MessagePersisterTest {
     assertEquals(queuesToPersist.getFirst(), new String(queueName, StandardCharsets.UTF_8));
   }
 
+  @Test
+  void testUnlinkOnFullQueueConcurrentlyHoldsLock() {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final Instant now = Instant.now();
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, 1, now);
+    setNextSlotToPersist(SlotHash.getSlot(queueName));
+
+    when(messagesDynamoDb.storeAsync(any(), eq(DESTINATION_ACCOUNT_UUID), eq(DESTINATION_DEVICE)))
+        .thenReturn(CompletableFuture.failedFuture(ItemCollectionSizeLimitExceededException.builder().build()));
+
+    final AtomicBoolean lockedWhileHandled = new AtomicBoolean(false);
+
+    when(accountsManager.removeDevice(destinationAccount, DESTINATION_DEVICE_ID)).thenAnswer(invocation -> {
+      lockedWhileHandled.set(REDIS_CLUSTER_EXTENSION.getRedisCluster().withBinaryCluster(connection -> connection.sync()
+          .exists(MessagesCache.getPersistInProgressKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID))) == 1);
+
+      return CompletableFuture.completedFuture(destinationAccount);
+    });
+
+    messagePersister.persistNextQueuesConcurrently(now.plus(messagePersister.getPersistDelay()), 8);
+
+    verify(accountsManager).removeDevice(destinationAccount, DESTINATION_DEVICE_ID);
+    assertTrue(lockedWhileHandled.get());
+
+    // the queue should have been unlocked again
+    assertEquals(0, REDIS_CLUSTER_EXTENSION.getRedisCluster().withBinaryCluster(connection ->
+        connection.sync().exists(MessagesCache.getPersistInProgressKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID))));
+  }
+
   @Test
   void testFailedUnlinkOnFullQueueThrowsForRetry() {
     final String queueName = new String(
@@ -65,6 +65,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.reactivestreams.Publisher;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -85,6 +86,27 @@ class MessagesCacheTest {
   private final Random random = new Random();
   private long serialTimestamp = 0;
 
+  @ParameterizedTest
+  @CsvSource({
+      "100, 0, 100",
+      "100, 37, 100",
+      "100, 100, 200",
+      "1, 1, 2",
+      "400, 400, " + MessagesCache.MAX_PAGE_SIZE,
+      MessagesCache.MAX_PAGE_SIZE + ", " + MessagesCache.MAX_PAGE_SIZE + ", " + MessagesCache.MAX_PAGE_SIZE,
+  })
+  void getNextPageSize(final int pageSize, final int messagesInPage, final int expectedNextPageSize) {
+    assertEquals(expectedNextPageSize, MessagesCache.getNextPageSize(pageSize, messagesInPage));
+  }
+
+  @Test
+  void getMemoryUsage() {
+    assertEquals(0.25,
+        MessagesCache.getMemoryUsage("# Memory\r\nused_memory:256\r\nused_memory_human:256B\r\nmaxmemory:1024\r\n"));
+
+    assertEquals(0, MessagesCache.getMemoryUsage("# Memory\r\nused_memory:256\r\nmaxmemory:0\r\n"));
+  }
+
   @Nested
   class WithRealCluster {
 
@@ -141,6 +163,46 @@ class MessagesCacheTest {
           .orElse(0L));
     }
 
+    @Test
+    void testInsertBatch() {
+      final int accountCount = MessagesCache.MAX_QUEUES_PER_BATCH_INSERT * 2;
+      final List<MessagesCache.MessageInsert> messageInserts = new ArrayList<>();
+
+      for (int i = 0; i < accountCount; i++) {
+        final UUID accountIdentifier = UUID.randomUUID();
+
+        for (byte deviceId = 1; deviceId <= 3; deviceId++) {
+          final UUID messageGuid = UUID.randomUUID();
+
+          messageInserts.add(new MessagesCache.MessageInsert(messageGuid, accountIdentifier, deviceId,
+              generateRandomMessage(messageGuid, random.nextBoolean())));
+        }
+      }
+
+      // Include a second message for an existing queue and a duplicate of an existing message
+      final MessagesCache.MessageInsert firstInsert = messageInserts.getFirst();
+      final UUID additionalMessageGuid = UUID.randomUUID();
+
+      messageInserts.add(new MessagesCache.MessageInsert(additionalMessageGuid,
+          firstInsert.destinationAccountIdentifier(), firstInsert.destinationDeviceId(),
+          generateRandomMessage(additionalMessageGuid, false)));
+
+      messageInserts.add(firstInsert);
+
+      final List<Boolean> presence = messagesCache.insert(messageInserts).join();
+
+      assertEquals(messageInserts.size(), presence.size());
+      assertTrue(presence.stream().noneMatch(present -> present));
+
+      assertEquals(List.of(firstInsert.message(), messageInserts.get(messageInserts.size() - 2).message()),
+          get(firstInsert.destinationAccountIdentifier(), firstInsert.destinationDeviceId(), 10));
+
+      for (final MessagesCache.MessageInsert messageInsert : messageInserts.subList(1, messageInserts.size() - 2)) {
+        assertEquals(List.of(messageInsert.message()),
+            get(messageInsert.destinationAccountIdentifier(), messageInsert.destinationDeviceId(), 10));
+      }
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     void testRemoveByUUID(final boolean sealedSender) throws Exception {
@@ -400,6 +462,45 @@ class MessagesCacheTest {
                   StandardCharsets.UTF_8)));
     }
 
+    @Test
+    void testGetShardMemoryUsage() {
+      final UUID messageGuid = UUID.randomUUID();
+      messagesCache.insert(messageGuid, UUID.randomUUID(), DESTINATION_DEVICE_ID,
+          generateRandomMessage(messageGuid, true)).join();
+
+      final List<MessagesCache.ShardMemoryUsage> shardMemoryUsage = messagesCache.getShardMemoryUsage();
+
+      assertFalse(shardMemoryUsage.isEmpty());
+      assertEquals(SlotHash.SLOT_COUNT, shardMemoryUsage.stream().mapToInt(usage -> usage.slots().size()).sum());
+      assertTrue(shardMemoryUsage.stream().allMatch(usage -> usage.memoryUsage() >= 0));
+      assertEquals(1, shardMemoryUsage.stream().mapToLong(MessagesCache.ShardMemoryUsage::queueCount).sum());
+    }
+
+    @Test
+    void testSortQueuesBySizeDescending() {
+      final UUID smallQueueUuid = UUID.randomUUID();
+      final UUID largeQueueUuid = UUID.randomUUID();
+
+      for (int i = 0; i < 3; i++) {
+        final UUID messageGuid = UUID.randomUUID();
+        messagesCache.insert(messageGuid, largeQueueUuid, DESTINATION_DEVICE_ID,
+            generateRandomMessage(messageGuid, true)).join();
+      }
+
+      final UUID messageGuid = UUID.randomUUID();
+      messagesCache.insert(messageGuid, smallQueueUuid, DESTINATION_DEVICE_ID,
+          generateRandomMessage(messageGuid, true)).join();
+
+      final String smallQueueName = new String(
+          MessagesCache.getMessageQueueKey(smallQueueUuid, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+
+      final String largeQueueName = new String(
+          MessagesCache.getMessageQueueKey(largeQueueUuid, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+
+      assertEquals(List.of(largeQueueName, smallQueueName),
+          messagesCache.sortQueuesBySizeDescending(List.of(smallQueueName, largeQueueName)));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     public void testGetQueuesToPersist(final boolean sealedSender) {
@@ -490,6 +591,46 @@ class MessagesCacheTest {
       }, "Shared MRM data should be deleted asynchronously");
     }
 
+    @Test
+    void testMultiRecipientMessageSharedDataCached() {
+      final ServiceIdentifier destinationServiceId = new AciServiceIdentifier(UUID.randomUUID());
+      final byte firstDeviceId = 1;
+      final byte secondDeviceId = 2;
+
+      final SealedSenderMultiRecipientMessage mrm =
+          generateRandomMrmMessage(destinationServiceId, firstDeviceId, secondDeviceId);
+
+      final SealedSenderMultiRecipientMessage.Recipient recipient =
+          mrm.getRecipients().get(destinationServiceId.toLibsignal());
+
+      final byte[] sharedMrmDataKey = messagesCache.insertSharedMultiRecipientMessagePayload(mrm).join();
+
+      for (final byte deviceId : new byte[]{firstDeviceId, secondDeviceId}) {
+        final UUID guid = UUID.randomUUID();
+        final MessageProtos.Envelope message = generateRandomMessage(guid, destinationServiceId, true)
+            .toBuilder()
+            .clearServerGuid()
+            .setSharedMrmKey(ByteString.copyFrom(sharedMrmDataKey))
+            .clearContent()
+            .build();
+
+        messagesCache.insert(guid, destinationServiceId.uuid(), deviceId, message).join();
+      }
+
+      final List<MessageProtos.Envelope> firstDeviceMessages = get(destinationServiceId.uuid(), firstDeviceId, 1);
+      assertEquals(1, firstDeviceMessages.size());
+      assertArrayEquals(mrm.messageForRecipient(recipient), firstDeviceMessages.getFirst().getContent().toByteArray());
+
+      // Remove the shared data (but not the second device's view) from Redis; the second device's message should still
+      // be assembled from the locally-cached copy of the shared data
+      REDIS_CLUSTER_EXTENSION.getRedisCluster().useBinaryCluster(connection ->
+          connection.sync().hdel(sharedMrmDataKey, "data".getBytes(StandardCharsets.UTF_8)));
+
+      final List<MessageProtos.Envelope> secondDeviceMessages = get(destinationServiceId.uuid(), secondDeviceId, 1);
+      assertEquals(1, secondDeviceMessages.size());
+      assertArrayEquals(mrm.messageForRecipient(recipient), secondDeviceMessages.getFirst().getContent().toByteArray());
+    }
+
     @Test
     void testEstimatePersistedQueueSize() {
       final UUID destinationUuid = UUID.randomUUID();
@@ -7,7 +7,8 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -21,17 +22,21 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.signal.libsignal.protocol.InvalidMessageException;
 import org.signal.libsignal.protocol.InvalidVersionException;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -42,6 +47,7 @@ import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.tests.util.MultiRecipientMessageHelper;
 import org.whispersystems.textsecuregcm.tests.util.TestRecipient;
+import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.TestClock;
 import reactor.core.publisher.Mono;
 
@@ -58,7 +64,10 @@ class MessagesManagerTest {
 
   @BeforeEach
   void setUp() {
-    when(messagesCache.insert(any(), any(), anyByte(), any())).thenReturn(CompletableFuture.completedFuture(true));
+    when(messagesCache.insert(anyList())).thenAnswer(invocation -> {
+      final List<MessagesCache.MessageInsert> messageInserts = invocation.getArgument(0);
+      return CompletableFuture.completedFuture(messageInserts.stream().map(_ -> true).toList());
+    });
   }
 
   @Test
@@ -136,14 +145,15 @@ class MessagesManagerTest {
     when(messagesCache.insertSharedMultiRecipientMessagePayload(multiRecipientMessage))
         .thenReturn(CompletableFuture.completedFuture(sharedMrmKey));
 
-    when(messagesCache.insert(any(), any(), anyByte(), any()))
+    when(messagesCache.insert(anyList()))
         .thenAnswer(invocation -> {
-          final UUID accountIdentifier = invocation.getArgument(1);
-          final byte deviceId = invocation.getArgument(2);
+          final List<MessagesCache.MessageInsert> messageInserts = invocation.getArgument(0);
 
-          return CompletableFuture.completedFuture(
-              presenceByAccountIdentifierAndDeviceId.getOrDefault(accountIdentifier, Collections.emptyMap())
-                  .getOrDefault(deviceId, false));
+          return CompletableFuture.completedFuture(messageInserts.stream()
+              .map(messageInsert -> presenceByAccountIdentifierAndDeviceId
+                  .getOrDefault(messageInsert.destinationAccountIdentifier(), Collections.emptyMap())
+                  .getOrDefault(messageInsert.destinationDeviceId(), false))
+              .toList());
         });
 
     final long clientTimestamp = System.currentTimeMillis();
@@ -164,25 +174,29 @@ class MessagesManagerTest {
     assertEquals(expectedPresenceByAccountAndDeviceId,
         messagesManager.insertMultiRecipientMessage(multiRecipientMessage, resolvedRecipients, clientTimestamp, isStory, isEphemeral, isUrgent).join());
 
-    verify(messagesCache).insert(any(),
-        eq(singleDeviceAccountAciServiceIdentifier.uuid()),
-        eq(Device.PRIMARY_ID),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache).insert(any(),
-        eq(singleDeviceAccountAciServiceIdentifier.uuid()),
-        eq(Device.PRIMARY_ID),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountPniServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache).insert(any(),
-        eq(multiDeviceAccountAciServiceIdentifier.uuid()),
-        eq((byte) (Device.PRIMARY_ID + 1)),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(multiDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache, never()).insert(any(),
-        eq(unresolvedAccountAciServiceIdentifier.uuid()),
-        anyByte(),
-        any());
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<MessagesCache.MessageInsert>> messageInsertsCaptor =
+        ArgumentCaptor.forClass(List.class);
+
+    verify(messagesCache).insert(messageInsertsCaptor.capture());
+
+    final Set<Pair<UUID, Byte>> destinations = new HashSet<>();
+
+    messageInsertsCaptor.getValue().forEach(messageInsert ->
+        destinations.add(new Pair<>(messageInsert.destinationAccountIdentifier(), messageInsert.destinationDeviceId())));
+
+    assertEquals(Set.of(
+            new Pair<>(singleDeviceAccountAciServiceIdentifier.uuid(), Device.PRIMARY_ID),
+            new Pair<>(multiDeviceAccountAciServiceIdentifier.uuid(), Device.PRIMARY_ID),
+            new Pair<>(multiDeviceAccountAciServiceIdentifier.uuid(), (byte) (Device.PRIMARY_ID + 1))),
+        destinations);
+
+    assertEquals(Set.of(
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build(),
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountPniServiceIdentifier.toServiceIdentifierString()).build(),
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(multiDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()),
+        messageInsertsCaptor.getValue().stream().map(MessagesCache.MessageInsert::message).collect(Collectors.toSet()));
+
+    assertEquals(4, messageInsertsCaptor.getValue().size());
   }
 
   @ParameterizedTest
@@ -210,6 +224,53 @@ class MessagesManagerTest {
     assertEquals(expectMayHaveMessages, messagesManager.mayHaveMessages(accountIdentifier, device).join());
   }
 
+  @Test
+  void deleteBatch() {
+    final UUID destinationUuid = UUID.randomUUID();
+    final Device device = mock(Device.class);
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+
+    final Envelope cachedMessage = Envelope.newBuilder()
+        .setServerGuid(UUID.randomUUID().toString())
+        .setDestinationServiceId(destinationUuid.toString())
+        .setServerTimestamp(1)
+        .build();
+
+    final Envelope persistedMessage = Envelope.newBuilder()
+        .setServerGuid(UUID.randomUUID().toString())
+        .setDestinationServiceId(destinationUuid.toString())
+        .setServerTimestamp(2)
+        .build();
+
+    final UUID cachedGuid = UUID.fromString(cachedMessage.getServerGuid());
+    final UUID persistedGuid = UUID.fromString(persistedMessage.getServerGuid());
+    final UUID missingGuid = UUID.randomUUID();
+
+    when(messagesCache.remove(eq(destinationUuid), eq(Device.PRIMARY_ID), anyList()))
+        .thenReturn(CompletableFuture.completedFuture(List.of(RemovedMessage.fromEnvelope(cachedMessage))));
+
+    when(messagesDynamoDb.deleteMessage(destinationUuid, device, persistedGuid, 2))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(persistedMessage)));
+
+    when(messagesDynamoDb.deleteMessageByDestinationAndGuid(destinationUuid, device, missingGuid))
+        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    final Map<UUID, Long> serverTimestampsByGuid = new HashMap<>();
+    serverTimestampsByGuid.put(cachedGuid, 1L);
+    serverTimestampsByGuid.put(persistedGuid, 2L);
+    serverTimestampsByGuid.put(missingGuid, null);
+
+    assertEquals(Map.of(cachedGuid, RemovedMessage.fromEnvelope(cachedMessage),
+            persistedGuid, RemovedMessage.fromEnvelope(persistedMessage)),
+        messagesManager.delete(destinationUuid, device, serverTimestampsByGuid).join());
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<UUID>> guidCaptor = ArgumentCaptor.forClass(List.class);
+    verify(messagesCache).remove(eq(destinationUuid), eq(Device.PRIMARY_ID), guidCaptor.capture());
+    assertEquals(Set.of(cachedGuid, persistedGuid, missingGuid), new HashSet<>(guidCaptor.getValue()));
+
+    verify(messagesDynamoDb, never()).deleteMessage(eq(destinationUuid), eq(device), eq(cachedGuid), anyLong());
+  }
+
   @ParameterizedTest
   @CsvSource({
       ",,",
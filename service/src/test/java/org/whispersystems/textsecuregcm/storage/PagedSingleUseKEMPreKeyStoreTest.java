@@ -9,6 +9,10 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.util.Comparator;
 import java.util.HashSet;
@@ -21,12 +25,17 @@ import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.tests.util.KeysHelper;
 import org.whispersystems.textsecuregcm.util.TestRandomUtil;
 import reactor.core.publisher.Flux;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Object;
@@ -121,6 +130,70 @@ class PagedSingleUseKEMPreKeyStoreTest {
     assertTrue(keyStore.take(accountIdentifier, deviceId).join().isEmpty());
   }
 
+  @ParameterizedTest
+  @ValueSource(ints = {1, 9, KEY_COUNT * 2})
+  void takeAllWithReadAhead(final int readAheadKeys) {
+    final S3AsyncClient s3AsyncClient = spy(S3_EXTENSION.getS3Client());
+
+    final PagedSingleUseKEMPreKeyStore readAheadKeyStore = new PagedSingleUseKEMPreKeyStore(
+        DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        s3AsyncClient,
+        DynamoDbExtensionSchema.Tables.PAGED_PQ_KEYS.tableName(),
+        BUCKET_NAME,
+        readAheadKeys);
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final List<KEMSignedPreKey> preKeys = generateRandomPreKeys();
+    readAheadKeyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    final List<KEMSignedPreKey> sortedPreKeys = preKeys.stream()
+        .sorted(Comparator.comparing(KEMSignedPreKey::keyId))
+        .toList();
+
+    for (int i = 0; i < KEY_COUNT; i++) {
+      assertEquals(Optional.of(sortedPreKeys.get(i)), readAheadKeyStore.take(accountIdentifier, deviceId).join());
+    }
+
+    assertTrue(readAheadKeyStore.take(accountIdentifier, deviceId).join().isEmpty());
+
+    // Each ranged read should cover the key being taken and up to `readAheadKeys` more
+    final int expectedReads = (KEY_COUNT + readAheadKeys) / (readAheadKeys + 1);
+    verify(s3AsyncClient, times(expectedReads))
+        .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+  }
+
+  @Test
+  void takeWithReadAheadAfterStore() {
+    final PagedSingleUseKEMPreKeyStore readAheadKeyStore = new PagedSingleUseKEMPreKeyStore(
+        DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        S3_EXTENSION.getS3Client(),
+        DynamoDbExtensionSchema.Tables.PAGED_PQ_KEYS.tableName(),
+        BUCKET_NAME,
+        KEY_COUNT);
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final List<KEMSignedPreKey> preKeys1 = generateRandomPreKeys();
+    readAheadKeyStore.store(accountIdentifier, deviceId, preKeys1).join();
+
+    assertEquals(Optional.of(preKeys1.stream().min(Comparator.comparing(KEMSignedPreKey::keyId)).orElseThrow()),
+        readAheadKeyStore.take(accountIdentifier, deviceId).join());
+
+    // Keys read ahead from the old page must never be served once it has been replaced
+    final List<KEMSignedPreKey> preKeys2 = generateRandomPreKeys();
+    readAheadKeyStore.store(accountIdentifier, deviceId, preKeys2).join();
+
+    assertEquals(
+        preKeys2.stream().sorted(Comparator.comparing(KEMSignedPreKey::keyId)).toList(),
+        IntStream.range(0, preKeys2.size())
+            .mapToObj(i -> readAheadKeyStore.take(accountIdentifier, deviceId).join())
+            .map(Optional::orElseThrow)
+            .toList());
+  }
+
   @Test
   void getCount() {
     final UUID accountIdentifier = UUID.randomUUID();
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.when;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,6 +35,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.signal.libsignal.protocol.ServiceId;
 import org.signal.libsignal.zkgroup.InvalidInputException;
 import org.signal.libsignal.zkgroup.profiles.ProfileKey;
+import org.whispersystems.textsecuregcm.configuration.ProfileLocalCacheConfiguration;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.tests.util.MockRedisFuture;
 import org.whispersystems.textsecuregcm.tests.util.ProfileTestHelper;
@@ -49,6 +51,7 @@ public class ProfilesManagerTest {
   private RedisAdvancedClusterCommands<String, String> commands;
   private RedisAdvancedClusterAsyncCommands<String, String> asyncCommands;
   private S3AsyncClient s3Client;
+  private FaultTolerantRedisClusterClient cacheCluster;
 
   private ProfilesManager profilesManager;
 
@@ -59,7 +62,7 @@ public class ProfilesManagerTest {
     //noinspection unchecked
     commands = mock(RedisAdvancedClusterCommands.class);
     asyncCommands = mock(RedisAdvancedClusterAsyncCommands.class);
-    final FaultTolerantRedisClusterClient cacheCluster = RedisClusterHelper.builder()
+    cacheCluster = RedisClusterHelper.builder()
         .stringCommands(commands)
         .stringAsyncCommands(asyncCommands)
         .build();
@@ -67,7 +70,8 @@ public class ProfilesManagerTest {
     profiles = mock(Profiles.class);
     s3Client = mock(S3AsyncClient.class);
 
-    profilesManager = new ProfilesManager(profiles, cacheCluster, s3Client, BUCKET);
+    profilesManager = new ProfilesManager(profiles, cacheCluster, s3Client, BUCKET,
+        new ProfileLocalCacheConfiguration(true, 1_000, Duration.ofMinutes(1)));
   }
 
   @Test
@@ -209,6 +213,99 @@ public class ProfilesManagerTest {
     verifyNoMoreInteractions(profiles);
   }
 
+  @Test
+  public void testGetProfileLocalCache() {
+    final UUID uuid = UUID.randomUUID();
+    final byte[] name = TestRandomUtil.nextBytes(81);
+    final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
+        null, null, "somecommitment".getBytes());
+
+    when(commands.hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"))).thenReturn(null);
+    when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.of(profile));
+
+    assertSame(profile, profilesManager.get(uuid, "someversion").orElseThrow());
+    assertSame(profile, profilesManager.get(uuid, "someversion").orElseThrow());
+
+    verify(commands, times(1)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"));
+    verify(profiles, times(1)).get(eq(uuid), eq("someversion"));
+
+    // Setting a profile should invalidate the local copy
+    profilesManager.set(uuid, profile);
+    profilesManager.get(uuid, "someversion");
+
+    verify(commands, times(2)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"));
+  }
+
+  @Test
+  public void testGetProfileLocalCacheDisabled() {
+    profilesManager = new ProfilesManager(profiles, cacheCluster, s3Client, BUCKET,
+        new ProfileLocalCacheConfiguration(false, 1_000, Duration.ofMinutes(1)));
+
+    final UUID uuid = UUID.randomUUID();
+    final byte[] name = TestRandomUtil.nextBytes(81);
+    final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
+        null, null, "somecommitment".getBytes());
+
+    when(commands.hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"))).thenReturn(null);
+    when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.of(profile));
+
+    assertSame(profile, profilesManager.get(uuid, "someversion").orElseThrow());
+    assertSame(profile, profilesManager.get(uuid, "someversion").orElseThrow());
+
+    verify(commands, times(2)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"));
+    verify(profiles, times(2)).get(eq(uuid), eq("someversion"));
+  }
+
+  @Test
+  public void testDeleteAllInvalidatesLocalCache() {
+    final UUID uuid = UUID.randomUUID();
+
+    when(commands.hget(eq(ProfilesManager.getCacheKey(uuid)), anyString())).thenReturn(null);
+    when(profiles.get(eq(uuid), anyString())).thenReturn(Optional.empty());
+    when(profiles.deleteAll(uuid)).thenReturn(CompletableFuture.completedFuture(List.of()));
+    when(asyncCommands.del(ProfilesManager.getCacheKey(uuid))).thenReturn(MockRedisFuture.completedFuture(null));
+
+    profilesManager.get(uuid, "version1");
+    profilesManager.get(uuid, "version2");
+
+    profilesManager.deleteAll(uuid, false).join();
+
+    profilesManager.get(uuid, "version1");
+    profilesManager.get(uuid, "version2");
+
+    verify(commands, times(2)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("version1"));
+    verify(commands, times(2)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("version2"));
+  }
+
+  @Test
+  public void testGetProfileAsyncNegativeCache() {
+    final UUID uuid = UUID.randomUUID();
+
+    when(asyncCommands.hget(eq(ProfilesManager.getCacheKey(uuid)), eq("missingversion"))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(profiles.getAsync(eq(uuid), eq("missingversion"))).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    assertTrue(profilesManager.getAsync(uuid, "missingversion").join().isEmpty());
+    assertTrue(profilesManager.getAsync(uuid, "missingversion").join().isEmpty());
+
+    verify(asyncCommands, times(1)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("missingversion"));
+    verify(profiles, times(1)).getAsync(eq(uuid), eq("missingversion"));
+    verifyNoMoreInteractions(profiles);
+  }
+
+  @Test
+  public void testGetForUpdateBypassesLocalCache() {
+    final UUID uuid = UUID.randomUUID();
+
+    when(commands.hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"))).thenReturn(null);
+    when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.empty());
+
+    assertTrue(profilesManager.get(uuid, "someversion").isEmpty());
+    assertTrue(profilesManager.getForUpdate(uuid, "someversion").isEmpty());
+
+    verify(commands, times(2)).hget(eq(ProfilesManager.getCacheKey(uuid)), eq("someversion"));
+    verify(profiles, times(2)).get(eq(uuid), eq("someversion"));
+  }
+
   @Test
   public void testSet() {
     final UUID uuid = UUID.randomUUID();
@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +39,27 @@ abstract class RepeatedUseSignedPreKeyStoreTest<K extends SignedPreKey<?>> {
     assertEquals(Optional.of(signedPreKey), keys.find(identifier, deviceId).join());
   }
 
+  @Test
+  void storeFindAll() {
+    final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
+
+    final UUID identifier = UUID.randomUUID();
+    final byte deviceId2 = 2;
+    final byte missingDeviceId = 3;
+
+    assertEquals(Map.of(), keys.findAll(identifier, List.of(Device.PRIMARY_ID, deviceId2)).join());
+
+    final K primaryPreKey = generateSignedPreKey();
+    final K deviceId2PreKey = generateSignedPreKey();
+
+    keys.store(identifier, Device.PRIMARY_ID, primaryPreKey).join();
+    keys.store(identifier, deviceId2, deviceId2PreKey).join();
+    keys.store(UUID.randomUUID(), missingDeviceId, generateSignedPreKey()).join();
+
+    assertEquals(Map.of(Device.PRIMARY_ID, primaryPreKey, deviceId2, deviceId2PreKey),
+        keys.findAll(identifier, List.of(Device.PRIMARY_ID, deviceId2, missingDeviceId, deviceId2)).join());
+  }
+
   @Test
   void buildTransactWriteItemForInsertion() {
     final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class ScanCheckpointStoreTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private ScanCheckpointStore scanCheckpointStore;
+
+  private static final String SCAN_NAME = "test";
+
+  @BeforeEach
+  void setUp() {
+    scanCheckpointStore = new ScanCheckpointStore(REDIS_CLUSTER_EXTENSION.getRedisCluster());
+  }
+
+  @Test
+  void encodeDecodeKey() {
+    final Map<String, AttributeValue> key = Map.of(
+        "B", AttributeValue.builder().b(SdkBytes.fromByteArray(UUIDUtil.toBytes(UUID.randomUUID()))).build(),
+        "S", AttributeValue.builder().s("string").build(),
+        "N", AttributeValue.builder().n("17").build());
+
+    assertEquals(key, ScanCheckpointStore.decodeKey(ScanCheckpointStore.encodeKey(key)));
+  }
+
+  @Test
+  void getSetCheckpoints() {
+    final Map<String, AttributeValue> lastEvaluatedKey =
+        Map.of("U", AttributeValue.builder().b(SdkBytes.fromByteArray(UUIDUtil.toBytes(UUID.randomUUID()))).build());
+
+    assertArrayEquals(new ScanCheckpointStore.SegmentCheckpoint[]{
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            ScanCheckpointStore.SegmentCheckpoint.NONE},
+        scanCheckpointStore.getCheckpoints(SCAN_NAME, 3).join());
+
+    scanCheckpointStore.setCheckpoint(SCAN_NAME, 3, 1, lastEvaluatedKey).join();
+    scanCheckpointStore.setComplete(SCAN_NAME, 3, 2).join();
+
+    assertArrayEquals(new ScanCheckpointStore.SegmentCheckpoint[]{
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            new ScanCheckpointStore.SegmentCheckpoint(false, lastEvaluatedKey),
+            new ScanCheckpointStore.SegmentCheckpoint(true, null)},
+        scanCheckpointStore.getCheckpoints(SCAN_NAME, 3).join());
+
+    final CompletionException completionException =
+        assertThrows(CompletionException.class, () -> scanCheckpointStore.getCheckpoints(SCAN_NAME, 4).join());
+
+    assertInstanceOf(IllegalStateException.class, completionException.getCause());
+
+    scanCheckpointStore.clear(SCAN_NAME).join();
+
+    assertArrayEquals(new ScanCheckpointStore.SegmentCheckpoint[]{
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            ScanCheckpointStore.SegmentCheckpoint.NONE,
+            ScanCheckpointStore.SegmentCheckpoint.NONE},
+        scanCheckpointStore.getCheckpoints(SCAN_NAME, 4).join());
+  }
+}
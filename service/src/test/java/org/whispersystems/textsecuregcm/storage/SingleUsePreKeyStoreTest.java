@@ -51,6 +51,23 @@ abstract class SingleUsePreKeyStoreTest<K extends PreKey<?>> {
     assertEquals(Optional.of(sortedPreKeys.get(1)), preKeyStore.take(accountIdentifier, deviceId).join());
   }
 
+  @Test
+  void storeDuplicateKeyIds() {
+    final SingleUsePreKeyStore<K> preKeyStore = getPreKeyStore();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final K duplicatePreKey = generatePreKey(1);
+    final K retainedPreKey = generatePreKey(1);
+
+    assertDoesNotThrow(() -> preKeyStore.store(accountIdentifier, deviceId,
+        List.of(duplicatePreKey, generatePreKey(2), retainedPreKey)).join());
+
+    assertEquals(2, preKeyStore.getCount(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(retainedPreKey), preKeyStore.take(accountIdentifier, deviceId).join());
+  }
+
   @Test
   void getCount() {
     final SingleUsePreKeyStore<K> preKeyStore = getPreKeyStore();
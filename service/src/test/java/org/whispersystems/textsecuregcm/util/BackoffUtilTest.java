@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class BackoffUtilTest {
+
+  @ParameterizedTest
+  @CsvSource({
+      "0, 100",
+      "1, 200",
+      "3, 800",
+      "5, 2000",
+      "100, 2000",
+      "-1, 100"
+  })
+  void getBackoffMillis(final int retry, final long expectedMaxBackoffMillis) {
+    for (int i = 0; i < 100; i++) {
+      final long backoffMillis =
+          BackoffUtil.getBackoffMillis(Duration.ofMillis(100), Duration.ofSeconds(2), retry);
+
+      assertTrue(backoffMillis >= expectedMaxBackoffMillis / 2);
+      assertTrue(backoffMillis <= expectedMaxBackoffMillis);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 4})
+  void retryAfterBackoff(final int retry) {
+    assertEquals("retried",
+        BackoffUtil.retryAfterBackoff(Duration.ofMillis(1), Duration.ofMillis(10), retry,
+            () -> CompletableFuture.completedFuture("retried")).join());
+  }
+}
@@ -10,6 +10,8 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
@@ -34,6 +36,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -42,8 +45,10 @@ import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.eclipse.jetty.websocket.api.UpgradeRequest;
@@ -51,10 +56,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
 import org.whispersystems.textsecuregcm.auth.AccountAuthenticator;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedDevice;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
+import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicMessageDeletionCoalescerConfiguration;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.EnvelopeBatch;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
@@ -68,6 +78,8 @@ import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.storage.MessageDeletionCoalescer;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import org.whispersystems.websocket.WebSocketClient;
 import org.whispersystems.websocket.messages.WebSocketResponseMessage;
@@ -121,7 +133,8 @@ class WebSocketConnectionTest {
     WebSocketAccountAuthenticator webSocketAuthenticator =
         new WebSocketAccountAuthenticator(accountAuthenticator);
     AuthenticatedConnectListener connectListener = new AuthenticatedConnectListener(accountsManager, receiptSender, messagesManager,
-        new MessageMetrics(), mock(PushNotificationManager.class), mock(PushNotificationScheduler.class),
+        messageDeletionCoalescer(messagesManager), new MessageMetrics(), mock(PushNotificationManager.class),
+        mock(PushNotificationScheduler.class),
         mock(RedisMessageAvailabilityManager.class), mock(DisconnectionRequestManager.class),
         messageDeliveryScheduler, clientReleaseManager, mock(MessageDeliveryLoopMonitor.class),
         mock(ExperimentEnrollmentManager.class));
@@ -156,6 +169,54 @@ class WebSocketConnectionTest {
     verifyNoMoreInteractions(messagesManager);
   }
 
+  @Test
+  void testCredentialsChangedBeforeDisconnectionSubscription() {
+    final DisconnectionRequestManager disconnectionRequestManager = mock(DisconnectionRequestManager.class);
+    final AuthenticatedConnectListener connectListener = new AuthenticatedConnectListener(accountsManager, receiptSender,
+        messagesManager, messageDeletionCoalescer(messagesManager), new MessageMetrics(),
+        mock(PushNotificationManager.class), mock(PushNotificationScheduler.class),
+        mock(RedisMessageAvailabilityManager.class), disconnectionRequestManager,
+        messageDeliveryScheduler, clientReleaseManager, mock(MessageDeliveryLoopMonitor.class),
+        mock(ExperimentEnrollmentManager.class));
+
+    final CompletableFuture<Void> subscribedFuture = new CompletableFuture<>();
+    when(disconnectionRequestManager.addListener(eq(VALID_UUID), eq(Device.PRIMARY_ID), any()))
+        .thenReturn(subscribedFuture);
+
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+    when(device.getAuthTokenHash()).thenReturn(new SaltedTokenHash("original", "salt"));
+    when(account.getIdentifier(IdentityType.ACI)).thenReturn(VALID_UUID);
+    when(account.getDevice(Device.PRIMARY_ID)).thenReturn(Optional.of(device));
+    when(accountsManager.getByAccountIdentifier(VALID_UUID)).thenReturn(Optional.of(account));
+
+    final Device updatedDevice = mock(Device.class);
+    when(updatedDevice.getAuthTokenHash()).thenReturn(new SaltedTokenHash("changed", "salt"));
+
+    final Account updatedAccount = mock(Account.class);
+    when(updatedAccount.getDevice(Device.PRIMARY_ID)).thenReturn(Optional.of(updatedDevice));
+    when(accountsManager.getByAccountIdentifierAsync(VALID_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(updatedAccount)));
+
+    final WebSocketSessionContext sessionContext = mock(WebSocketSessionContext.class);
+    final AuthenticatedDevice authenticatedDevice = new AuthenticatedDevice(VALID_UUID, Device.PRIMARY_ID, Instant.now());
+    when(sessionContext.getAuthenticated()).thenReturn(authenticatedDevice);
+    when(sessionContext.getAuthenticated(AuthenticatedDevice.class)).thenReturn(authenticatedDevice);
+
+    final WebSocketClient webSocketClient = mock(WebSocketClient.class);
+    when(webSocketClient.getUserAgent()).thenReturn("Signal-Android/6.22.8");
+    when(sessionContext.getClient()).thenReturn(webSocketClient);
+
+    connectListener.onWebSocketConnect(sessionContext);
+
+    // We shouldn't act on credential changes until we're subscribed to disconnection requests
+    verify(accountsManager, never()).getByAccountIdentifierAsync(any());
+    verify(webSocketClient, never()).close(eq(4401), anyString());
+
+    subscribedFuture.complete(null);
+
+    verify(webSocketClient).close(eq(4401), anyString());
+  }
+
   @Test
   void testOpen() {
 
@@ -226,6 +287,83 @@ class WebSocketConnectionTest {
     verify(client).close(anyInt(), anyString());
   }
 
+  @Test
+  void testBatchedSend() throws InvalidProtocolBufferException {
+    final UUID accountUuid = UUID.randomUUID();
+    final UUID senderUuid = UUID.randomUUID();
+
+    final List<Envelope> messages = List.of(createMessage(senderUuid, accountUuid, 1111, "first"),
+        createMessage(senderUuid, accountUuid, 2222, "second"),
+        createMessage(senderUuid, accountUuid, 3333, "third"));
+
+    final Envelope story = createMessage(senderUuid, accountUuid, 4444, "story").toBuilder()
+        .setStory(true)
+        .build();
+
+    final byte deviceId = 2;
+    when(device.getId()).thenReturn(deviceId);
+    when(account.getIdentifier(IdentityType.ACI)).thenReturn(accountUuid);
+
+    when(messagesManager.getMessagesForDeviceReactive(accountUuid, device, false))
+        .thenReturn(Flux.concat(Flux.fromIterable(messages), Flux.just(story)));
+
+    when(messagesManager.delete(any(), any(), anyMap()))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyMap()));
+
+    final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
+    when(successResponse.getStatus()).thenReturn(200);
+
+    final WebSocketClient client = mock(WebSocketClient.class);
+    when(client.getUserAgent()).thenReturn(HttpHeaders.USER_AGENT);
+    when(client.shouldReceiveBatchedMessages()).thenReturn(true);
+    when(client.shouldDeliverStories()).thenReturn(false);
+    when(client.sendRequest(eq("PUT"), eq("/api/v1/messages"), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(successResponse));
+
+    final WebSocketConnection connection = webSocketConnection(client);
+    connection.start();
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<Optional<byte[]>> bodyCaptor =
+        ArgumentCaptor.forClass(Optional.class);
+
+    verify(client, timeout(1_000)).sendRequest(eq("PUT"), eq("/api/v1/messages"), any(), bodyCaptor.capture());
+    verify(client, never()).sendRequest(eq("PUT"), eq("/api/v1/message"), any(), any());
+
+    assertEquals(messages, EnvelopeBatch.parseFrom(bodyCaptor.getValue().orElseThrow()).getEnvelopesList());
+
+    final Map<UUID, Long> expectedDeletedMessages = messages.stream()
+        .collect(Collectors.toMap(message -> UUID.fromString(message.getServerGuid()), Envelope::getServerTimestamp));
+
+    verify(messagesManager, timeout(1_000)).delete(accountUuid, device, expectedDeletedMessages);
+    verify(messagesManager).delete(accountUuid, device,
+        Map.of(UUID.fromString(story.getServerGuid()), story.getServerTimestamp()));
+    verify(messagesManager, never()).delete(any(), any(), any(), any());
+
+    verify(receiptSender, timeout(1_000).times(messages.size()))
+        .sendReceipt(eq(new AciServiceIdentifier(accountUuid)), eq(deviceId), eq(new AciServiceIdentifier(senderUuid)),
+            anyLong());
+  }
+
+  @Test
+  void testPartitionBatch() {
+    final List<Envelope> envelopes = IntStream.range(0, 5)
+        .mapToObj(i -> createMessage(UUID.randomUUID(), UUID.randomUUID(), 1111, "message"))
+        .toList();
+
+    // All of our test envelopes have the same serialized size
+    final int envelopeSize = envelopes.getFirst().getSerializedSize();
+
+    assertEquals(List.of(envelopes),
+        WebSocketConnection.partitionBatch(envelopes, WebSocketConnection.MAX_BATCH_BYTES));
+
+    assertEquals(List.of(envelopes.subList(0, 2), envelopes.subList(2, 4), envelopes.subList(4, 5)),
+        WebSocketConnection.partitionBatch(envelopes, envelopeSize * 2 + 32));
+
+    // Envelopes larger than the limit should still be sent, just on their own
+    assertEquals(envelopes.stream().map(List::of).toList(),
+        WebSocketConnection.partitionBatch(envelopes, 1));
+  }
+
   @Test
   public void testOnlineSend() {
     final WebSocketClient client = mock(WebSocketClient.class);
@@ -627,6 +765,7 @@ class WebSocketConnectionTest {
   private WebSocketConnection webSocketConnection(final WebSocketClient client) {
     return new WebSocketConnection(receiptSender,
         messagesManager,
+        messageDeletionCoalescer(messagesManager),
         new MessageMetrics(),
         mock(PushNotificationManager.class),
         mock(PushNotificationScheduler.class),
@@ -974,4 +1113,17 @@ class WebSocketConnectionTest {
         .build();
   }
 
+  private static MessageDeletionCoalescer messageDeletionCoalescer(final MessagesManager messagesManager) {
+    final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getMessageDeletionCoalescerConfiguration())
+        .thenReturn(new DynamicMessageDeletionCoalescerConfiguration(false, null, 0));
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    return new MessageDeletionCoalescer(messagesManager, dynamicConfigurationManager,
+        mock(ScheduledExecutorService.class));
+  }
 }
@@ -84,7 +84,7 @@ public class EncryptDeviceCreationTimestampCommandTest {
     final EncryptDeviceCreationTimestampCommand encryptDeviceCreationTimestampCommand =
         new TestEncryptDeviceCreationTimestampCommand(accountsManager, isDryRun);
 
-    encryptDeviceCreationTimestampCommand.crawlAccounts(Flux.just(testAccount));
+    encryptDeviceCreationTimestampCommand.crawlAccounts(Flux.just(testAccount)).block();
 
     if (isDryRun) {
       verify(accountsManager, never()).updateAsync(any(), any());
@@ -127,7 +127,7 @@ public class EncryptDeviceCreationTimestampCommandTest {
 
     encryptDeviceCreationTimestampCommand.crawlAccounts(Flux.just(unencryptedTimestampAccount,
         encryptedTimestampAccount,
-        halfEncryptedTimestampAccount));
+        halfEncryptedTimestampAccount)).block();
 
     verify(accountsManager, times(1)).updateAsync(eq(unencryptedTimestampAccount), any());
     verify(accountsManager, never()).updateAsync(eq(encryptedTimestampAccount), any());
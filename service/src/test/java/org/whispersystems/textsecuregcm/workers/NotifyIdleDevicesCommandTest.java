@@ -13,6 +13,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -22,12 +23,15 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.push.IdleDeviceNotificationScheduler;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import reactor.core.publisher.Flux;
 
 class NotifyIdleDevicesCommandTest {
 
+  private AccountsManager accountsManager;
   private MessagesManager messagesManager;
   private IdleDeviceNotificationScheduler idleDeviceNotificationScheduler;
 
@@ -42,11 +46,12 @@ class NotifyIdleDevicesCommandTest {
 
     private boolean dryRun = false;
 
-    private TestNotifyIdleDevicesCommand(final MessagesManager messagesManager,
+    private TestNotifyIdleDevicesCommand(final AccountsManager accountsManager,
+        final MessagesManager messagesManager,
         final IdleDeviceNotificationScheduler idleDeviceNotificationScheduler) {
 
       this.commandDependencies = new CommandDependencies(
-          null,
+          accountsManager,
           null,
           null,
           null,
@@ -99,6 +104,7 @@ class NotifyIdleDevicesCommandTest {
 
   @BeforeEach
   void setUp() {
+    accountsManager = mock(AccountsManager.class);
     messagesManager = mock(MessagesManager.class);
     idleDeviceNotificationScheduler = mock(IdleDeviceNotificationScheduler.class);
 
@@ -106,7 +112,7 @@ class NotifyIdleDevicesCommandTest {
         .thenReturn(CompletableFuture.completedFuture(null));
 
     notifyIdleDevicesWithoutMessagesCommand =
-        new TestNotifyIdleDevicesCommand(messagesManager, idleDeviceNotificationScheduler);
+        new TestNotifyIdleDevicesCommand(accountsManager, messagesManager, idleDeviceNotificationScheduler);
   }
 
   @ParameterizedTest
@@ -130,10 +136,17 @@ class NotifyIdleDevicesCommandTest {
     when(account.getIdentifier(IdentityType.ACI)).thenReturn(accountIdentifier);
     when(account.getDevices()).thenReturn(List.of(eligibleDevice, ineligibleDevice));
 
+    when(accountsManager.getByAccountIdentifierAsync(accountIdentifier))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(account)));
+
     when(messagesManager.mayHavePersistedMessages(accountIdentifier, eligibleDevice))
         .thenReturn(CompletableFuture.completedFuture(false));
 
-    notifyIdleDevicesWithoutMessagesCommand.crawlAccounts(Flux.just(account));
+    final AccountSummary accountSummary = new AccountSummary(accountIdentifier, UUID.randomUUID(), List.of(
+        new AccountSummary.DeviceSummary(eligibleDevice.getId(), eligibleDevice.getLastSeen(), true),
+        new AccountSummary.DeviceSummary(ineligibleDevice.getId(), ineligibleDevice.getLastSeen(), false)));
+
+    notifyIdleDevicesWithoutMessagesCommand.crawlAccountSummaries(Flux.just(accountSummary)).block();
 
     if (dryRun) {
       verify(idleDeviceNotificationScheduler, never()).scheduleNotification(account, eligibleDevice, NotifyIdleDevicesCommand.PREFERRED_NOTIFICATION_TIME);
@@ -84,7 +84,7 @@ class RegenerateSecondaryDynamoDbTableDataCommandTest {
     final RegenerateSecondaryDynamoDbTableDataCommand regenerateSecondaryDynamoDbTableDataCommand =
         new TestRegenerateSecondaryDynamoDbTableDataCommand(dynamoDbRecoveryManager, dryRun);
 
-    regenerateSecondaryDynamoDbTableDataCommand.crawlAccounts(Flux.just(account));
+    regenerateSecondaryDynamoDbTableDataCommand.crawlAccounts(Flux.just(account)).block();
 
     if (!dryRun) {
       verify(dynamoDbRecoveryManager).regenerateData(account);
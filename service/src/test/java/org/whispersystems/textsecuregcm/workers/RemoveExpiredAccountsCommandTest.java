@@ -73,7 +73,7 @@ class RemoveExpiredAccountsCommandTest {
     when(expiredAccount.getLastSeen())
         .thenReturn(clock.instant().minus(RemoveExpiredAccountsCommand.MAX_IDLE_DURATION).minusMillis(1).toEpochMilli());
 
-    removeExpiredAccountsCommand.crawlAccounts(Flux.just(activeAccount, expiredAccount));
+    removeExpiredAccountsCommand.crawlAccounts(Flux.just(activeAccount, expiredAccount)).block();
 
     if (isDryRun) {
       verify(accountsManager, never()).delete(any(), any());
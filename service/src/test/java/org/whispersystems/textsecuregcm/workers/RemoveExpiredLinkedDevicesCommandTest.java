@@ -12,9 +12,11 @@ import static org.mockito.Mockito.when;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.whispersystems.textsecuregcm.storage.AccountSummary;
 import org.whispersystems.textsecuregcm.storage.Device;
 
 class RemoveExpiredLinkedDevicesCommandTest {
@@ -51,4 +53,19 @@ class RemoveExpiredLinkedDevicesCommandTest {
   void getDeviceIdsToRemove(final List<Device> devices, final Set<Byte> expectedIds) {
     assertEquals(expectedIds, RemoveExpiredLinkedDevicesCommand.getExpiredLinkedDeviceIds(devices));
   }
+
+  @Test
+  void getDeviceIdsToRemoveFromSummaries() {
+    final long now = System.currentTimeMillis();
+
+    final AccountSummary.DeviceSummary primary = new AccountSummary.DeviceSummary(Device.PRIMARY_ID, now, true);
+    final AccountSummary.DeviceSummary expiredPrimary = new AccountSummary.DeviceSummary(Device.PRIMARY_ID, 0, true);
+    final AccountSummary.DeviceSummary expiredLinkedDevice = new AccountSummary.DeviceSummary((byte) 2, 0, true);
+    final AccountSummary.DeviceSummary linkedDevice = new AccountSummary.DeviceSummary((byte) 3, now, true);
+
+    assertEquals(Set.of(), RemoveExpiredLinkedDevicesCommand.getExpiredLinkedDeviceIdsFromSummaries(List.of(primary)));
+
+    assertEquals(Set.of((byte) 2), RemoveExpiredLinkedDevicesCommand.getExpiredLinkedDeviceIdsFromSummaries(
+        List.of(expiredPrimary, expiredLinkedDevice, linkedDevice)));
+  }
 }
@@ -91,7 +91,7 @@ class RemoveExpiredUsernameHoldsCommandTest {
     when(hasHolds.getUsernameHolds()).thenReturn(originalHolds);
     final Account noHolds = mock(Account.class);
 
-    removeExpiredUsernameHoldsCommand.crawlAccounts(Flux.just(hasHolds, noHolds));
+    removeExpiredUsernameHoldsCommand.crawlAccounts(Flux.just(hasHolds, noHolds)).block();
 
     if (isDryRun) {
       verifyNoInteractions(accountsManager);
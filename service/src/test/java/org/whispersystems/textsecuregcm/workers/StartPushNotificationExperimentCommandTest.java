@@ -126,7 +126,7 @@ class StartPushNotificationExperimentCommandTest {
     when(account.getIdentifier(IdentityType.ACI)).thenReturn(ACCOUNT_IDENTIFIER);
     when(account.getDevices()).thenReturn(List.of(device));
 
-    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)));
+    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)).block());
 
     if (dryRun) {
       verify(experiment, never()).applyExperimentTreatment(any(), any());
@@ -152,7 +152,7 @@ class StartPushNotificationExperimentCommandTest {
     when(pushNotificationExperimentSamples.recordInitialState(any(), anyByte(), any(), anyBoolean(), any()))
         .thenReturn(CompletableFuture.completedFuture(false));
 
-    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)));
+    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)).block());
     verify(experiment, never()).applyExperimentTreatment(any(), any());
   }
 
@@ -173,7 +173,7 @@ class StartPushNotificationExperimentCommandTest {
         .thenReturn(CompletableFuture.failedFuture(new RuntimeException()))
         .thenReturn(CompletableFuture.completedFuture(true));
 
-    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)));
+    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)).block());
 
     if (dryRun) {
       verify(experiment, never()).applyExperimentTreatment(any(), any());
@@ -200,7 +200,7 @@ class StartPushNotificationExperimentCommandTest {
     when(experiment.applyExperimentTreatment(account, device))
         .thenReturn(CompletableFuture.failedFuture(new RuntimeException()));
 
-    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)));
+    assertDoesNotThrow(() -> startPushNotificationExperimentCommand.crawlAccounts(Flux.just(account)).block());
     verify(experiment).applyExperimentTreatment(account, device);
   }
 }
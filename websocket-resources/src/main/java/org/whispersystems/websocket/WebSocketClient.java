@@ -102,6 +102,11 @@ public class WebSocketClient {
     return WebsocketHeaders.parseReceiveStoriesHeader(value);
   }
 
+  public boolean shouldReceiveBatchedMessages() {
+    String value = session.getUpgradeRequest().getHeader(WebsocketHeaders.X_SIGNAL_RECEIVE_BATCHED_MESSAGES);
+    return WebsocketHeaders.parseReceiveBatchedMessagesHeader(value);
+  }
+
   private long generateRequestId() {
     return Math.abs(SECURE_RANDOM.nextLong());
   }
@@ -6,7 +6,17 @@ package org.whispersystems.websocket;
 public class WebsocketHeaders {
   public final static String X_SIGNAL_RECEIVE_STORIES = "X-Signal-Receive-Stories";
 
+  /**
+   * Indicates that the client can accept stored messages packed into a single {@code PUT /api/v1/messages} request and
+   * acknowledge them all with a single response.
+   */
+  public final static String X_SIGNAL_RECEIVE_BATCHED_MESSAGES = "X-Signal-Receive-Batched-Messages";
+
   public static boolean parseReceiveStoriesHeader(String s) {
     return "true".equals(s);
   }
+
+  public static boolean parseReceiveBatchedMessagesHeader(String s) {
+    return "true".equals(s);
+  }
 }